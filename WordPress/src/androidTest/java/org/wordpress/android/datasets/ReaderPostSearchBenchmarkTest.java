@@ -0,0 +1,117 @@
+package org.wordpress.android.datasets;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import org.wordpress.android.models.ReaderPost;
+import org.wordpress.android.models.ReaderPostList;
+import org.wordpress.android.models.ReaderTag;
+import org.wordpress.android.models.ReaderTagType;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/*
+ * indexes a synthetic set of reader posts in a standalone database and reports the size of the
+ * full-text index and the query latency of offline search
+ */
+public class ReaderPostSearchBenchmarkTest extends AndroidTestCase {
+    private static final String TAG = "ReaderPostSearchBench";
+
+    private static final int NUM_POSTS = 10000;
+    private static final int NUM_QUERY_RUNS = 50;
+    private static final int MAX_RESULTS = 50;
+
+    private static final String[] WORDS = {
+            "android", "photography", "travel", "recipe", "garden", "music", "coffee", "design",
+            "writing", "history", "science", "football", "poetry", "mountain", "ocean", "kitchen",
+            "wordpress", "startup", "painting", "festival", "library", "bicycle", "winter", "summer"
+    };
+
+    private SQLiteDatabase mDb;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mDb = SQLiteDatabase.create(null);
+        ReaderPostTable.createTables(mDb);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mDb.close();
+        super.tearDown();
+    }
+
+    public void testSearch10kPosts() {
+        ReaderTag tag = new ReaderTag("benchmark", "benchmark", "benchmark", null, ReaderTagType.FOLLOWED);
+
+        long start = System.nanoTime();
+        ReaderPostList posts = new ReaderPostList();
+        for (int i = 0; i < NUM_POSTS; i++) {
+            posts.add(createPost(i));
+            if (posts.size() == 500) {
+                ReaderPostTable.addOrUpdatePosts(mDb, tag, posts);
+                posts.clear();
+            }
+        }
+        ReaderPostTable.addOrUpdatePosts(mDb, tag, posts);
+        long insertMs = (System.nanoTime() - start) / 1000000;
+
+        String[] queries = {"travel", "coff", "garden recipe", "wordpress android", "post 1234"};
+        for (String query : queries) {
+            long[] timings = new long[NUM_QUERY_RUNS];
+            ReaderPostList results = null;
+            for (int run = 0; run < NUM_QUERY_RUNS; run++) {
+                long queryStart = System.nanoTime();
+                results = ReaderPostTable.searchPosts(mDb, query, MAX_RESULTS);
+                timings[run] = System.nanoTime() - queryStart;
+            }
+            Arrays.sort(timings);
+
+            assertNotNull(results);
+            assertTrue("no results for " + query, results.size() > 0);
+            assertTrue(results.size() <= MAX_RESULTS);
+
+            Log.i(TAG, String.format(Locale.US, "query \"%s\" > %d results, median %.2f ms, p90 %.2f ms",
+                    query, results.size(), timings[NUM_QUERY_RUNS / 2] / 1000000f,
+                    timings[NUM_QUERY_RUNS * 9 / 10] / 1000000f));
+        }
+
+        Log.i(TAG, String.format(Locale.US, "indexed %d posts in %d ms, index size %d KB",
+                NUM_POSTS, insertMs, ReaderPostFtsTable.getIndexSize(mDb) / 1024));
+    }
+
+    public void testRewrittenPostIsReindexed() {
+        ReaderTag tag = new ReaderTag("benchmark", "benchmark", "benchmark", null, ReaderTagType.FOLLOWED);
+        ReaderPostList posts = new ReaderPostList();
+        ReaderPost post = createPost(1);
+        posts.add(post);
+        ReaderPostTable.addOrUpdatePosts(mDb, tag, posts);
+        assertEquals(1, ReaderPostTable.searchPosts(mDb, post.getTitle(), MAX_RESULTS).size());
+
+        post.setTitle("renamed zeppelin");
+        ReaderPostTable.addOrUpdatePosts(mDb, tag, posts);
+        assertEquals(1, ReaderPostTable.searchPosts(mDb, "zeppelin", MAX_RESULTS).size());
+        assertEquals(0, ReaderPostTable.searchPosts(mDb, WORDS[1 % WORDS.length] + " post 1", MAX_RESULTS).size());
+    }
+
+    private static ReaderPost createPost(int index) {
+        ReaderPost post = new ReaderPost();
+        post.blogId = 1000 + (index % 100);
+        post.postId = index + 1;
+        post.setPseudoId("pseudo-" + index);
+        post.setTitle(WORDS[index % WORDS.length] + " post " + index);
+        post.setExcerpt("An excerpt about " + WORDS[(index * 7) % WORDS.length] + " and "
+                        + WORDS[(index * 11) % WORDS.length] + " written for post number " + index);
+        post.setText("<p>" + post.getExcerpt() + "</p>");
+        post.setAuthorName("Author " + (index % 250));
+        post.setBlogName(WORDS[(index * 3) % WORDS.length] + " blog");
+        post.setPrimaryTag(WORDS[(index * 5) % WORDS.length]);
+        post.setSecondaryTag(WORDS[(index * 13) % WORDS.length]);
+        post.setDatePublished(String.format(Locale.US, "2017-01-%02dT00:00:00+00:00", 1 + index % 28));
+        post.setDateTagged(post.getDatePublished());
+        return post;
+    }
+}
@@ -0,0 +1,114 @@
+package org.wordpress.android.ui.notifications.utils;
+
+import android.test.AndroidTestCase;
+import android.util.Base64;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+
+/*
+ * decodes a burst of 500 push payloads of mixed sizes on one thread and on several, as happens when
+ * pushes arrive together, and reports the throughput of each
+ */
+public class NotePayloadDecoderBenchmarkTest extends AndroidTestCase {
+    private static final String TAG = "NotePayloadBench";
+
+    private static final int NUM_BURST_PAYLOADS = 500;
+    private static final int NUM_THREADS = 4;
+
+    public void testDecodeBurst() throws Exception {
+        final List<String> payloads = new ArrayList<>();
+        long payloadBytes = 0;
+        for (int i = 0; i < NUM_BURST_PAYLOADS; i++) {
+            JSONObject note = makeNote(String.valueOf(i), 1 + (i % 10) * 20);
+            String payload = encode(note.toString().getBytes(StandardCharsets.UTF_8));
+            payloads.add(payload);
+            payloadBytes += payload.length();
+        }
+
+        // warm up before measuring
+        decodeAll(payloads, 0, payloads.size());
+
+        long start = System.nanoTime();
+        assertEquals(NUM_BURST_PAYLOADS, decodeAll(payloads, 0, payloads.size()));
+        double singleThreadMs = (System.nanoTime() - start) / 1000000d;
+
+        ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+        try {
+            start = System.nanoTime();
+            List<Future<Integer>> results = new ArrayList<>();
+            final int sliceSize = NUM_BURST_PAYLOADS / NUM_THREADS;
+            for (int i = 0; i < NUM_THREADS; i++) {
+                final int from = i * sliceSize;
+                final int to = i == NUM_THREADS - 1 ? NUM_BURST_PAYLOADS : from + sliceSize;
+                results.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        return decodeAll(payloads, from, to);
+                    }
+                }));
+            }
+            int numDecoded = 0;
+            for (Future<Integer> result : results) {
+                numDecoded += result.get();
+            }
+            double multiThreadMs = (System.nanoTime() - start) / 1000000d;
+            assertEquals(NUM_BURST_PAYLOADS, numDecoded);
+
+            Log.i(TAG, String.format(Locale.US,
+                    "%d payloads (%d KB) > 1 thread %.1f ms (%.0f/s), %d threads %.1f ms (%.0f/s)",
+                    NUM_BURST_PAYLOADS, payloadBytes / 1024,
+                    singleThreadMs, NUM_BURST_PAYLOADS * 1000 / singleThreadMs,
+                    NUM_THREADS, multiThreadMs, NUM_BURST_PAYLOADS * 1000 / multiThreadMs));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static int decodeAll(List<String> payloads, int from, int to) {
+        int numDecoded = 0;
+        for (int i = from; i < to; i++) {
+            if (NotePayloadDecoder.decode(payloads.get(i)) != null) {
+                numDecoded++;
+            }
+        }
+        return numDecoded;
+    }
+
+    private static JSONObject makeNote(String id, int numBodyBlocks) throws JSONException {
+        JSONArray body = new JSONArray();
+        for (int i = 0; i < numBodyBlocks; i++) {
+            body.put(new JSONObject()
+                    .put("type", "comment")
+                    .put("text", "Comment text " + i + " éè with some more words to make it longer"));
+        }
+        return new JSONObject()
+                .put("id", id)
+                .put("type", "comment")
+                .put("timestamp", "2018-11-01T10:00:00+00:00")
+                .put("subject", new JSONArray().put(new JSONObject().put("text", "Someone commented")))
+                .put("body", body);
+    }
+
+    private static String encode(byte[] data) {
+        Deflater deflater = new Deflater();
+        deflater.setInput(data);
+        deflater.finish();
+        byte[] buffer = new byte[data.length + 64];
+        int length = deflater.deflate(buffer);
+        deflater.end();
+        return Base64.encodeToString(buffer, 0, length, Base64.DEFAULT);
+    }
+}
@@ -0,0 +1,136 @@
+package org.wordpress.android.ui.reader.utils;
+
+import android.support.annotation.NonNull;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import org.wordpress.android.models.ReaderComment;
+import org.wordpress.android.models.ReaderCommentList;
+
+import java.util.Locale;
+import java.util.Random;
+
+/*
+ * levels a synthetic 10k comment thread and reports how long the indexed leveler takes compared
+ * with the quadratic approach it replaced, and how long adding the comments a page at a time takes
+ */
+public class ReaderCommentLevelerBenchmarkTest extends AndroidTestCase {
+    private static final String TAG = "ReaderCommentBench";
+
+    private static final int NUM_COMMENTS = 10000;
+    private static final int COMMENTS_PER_PAGE = 50;
+    private static final int MEASURED_ITERATIONS = 5;
+
+    public void testLevel10kComments() {
+        ReaderCommentList comments = makeThreads(NUM_COMMENTS);
+
+        ReaderCommentList expected = copyLevels(createLevelListQuadratic(comments));
+        ReaderCommentList result = new ReaderCommentLeveler(comments).createLevelList();
+        assertEquals(expected.size(), result.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).commentId, result.get(i).commentId);
+            assertEquals(expected.get(i).level, result.get(i).level);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            createLevelListQuadratic(comments);
+        }
+        double quadraticMs = (System.nanoTime() - start) / 1000000d / MEASURED_ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            new ReaderCommentLeveler(comments).createLevelList();
+        }
+        double indexedMs = (System.nanoTime() - start) / 1000000d / MEASURED_ITERATIONS;
+
+        // add the comments a page at a time as they'd be when scrolling through the comments
+        ReaderCommentLeveler leveler = new ReaderCommentLeveler(new ReaderCommentList());
+        start = System.nanoTime();
+        for (int page = 0; page < comments.size(); page += COMMENTS_PER_PAGE) {
+            ReaderCommentList pageComments = new ReaderCommentList();
+            pageComments.addAll(comments.subList(page, Math.min(page + COMMENTS_PER_PAGE, comments.size())));
+            leveler.addComments(pageComments);
+        }
+        double pagedMs = (System.nanoTime() - start) / 1000000d;
+
+        Log.i(TAG, String.format(Locale.US,
+                "%d comments > quadratic %.3f ms/op, indexed %.3f ms/op, %d pages added in %.3f ms",
+                comments.size(), quadraticMs, indexedMs, comments.size() / COMMENTS_PER_PAGE, pagedMs));
+    }
+
+    private static ReaderComment makeComment(long commentId, long parentId) {
+        ReaderComment comment = new ReaderComment();
+        comment.commentId = commentId;
+        comment.parentId = parentId;
+        comment.timestamp = commentId;
+        return comment;
+    }
+
+    /*
+     * creates comments in timestamp order where about a third start a new thread and the rest
+     * reply to an earlier comment, favoring recent ones so threads become several levels deep
+     */
+    private static ReaderCommentList makeThreads(int numComments) {
+        Random random = new Random(numComments);
+        ReaderCommentList comments = new ReaderCommentList();
+        for (int i = 1; i <= numComments; i++) {
+            long parentId = 0;
+            if (i > 1 && random.nextInt(3) != 0) {
+                parentId = Math.max(1, i - 1 - random.nextInt(Math.min(i - 1, 20)));
+            }
+            comments.add(makeComment(i, parentId));
+        }
+        return comments;
+    }
+
+    private static ReaderCommentList copyLevels(@NonNull ReaderCommentList comments) {
+        ReaderCommentList copy = new ReaderCommentList();
+        for (ReaderComment comment : comments) {
+            ReaderComment commentCopy = makeComment(comment.commentId, comment.parentId);
+            commentCopy.level = comment.level;
+            copy.add(commentCopy);
+        }
+        return copy;
+    }
+
+    /*
+     * the leveler this replaced, which scanned every comment to find the children of each comment
+     * and inserted them into the middle of the list
+     */
+    private static ReaderCommentList createLevelListQuadratic(@NonNull ReaderCommentList comments) {
+        ReaderCommentList result = new ReaderCommentList();
+        for (ReaderComment comment : comments) {
+            comment.level = 0;
+            if (comment.parentId == 0) {
+                result.add(comment);
+            }
+        }
+
+        int level = 0;
+        boolean hasChanges = true;
+        while (hasChanges) {
+            hasChanges = false;
+            for (int index = 0; index < result.size(); index++) {
+                ReaderComment parent = result.get(index);
+                if (parent.level != level) {
+                    continue;
+                }
+                ReaderCommentList children = new ReaderCommentList();
+                for (ReaderComment comment : comments) {
+                    if (comment.parentId == parent.commentId) {
+                        comment.level = level + 1;
+                        children.add(comment);
+                    }
+                }
+                if (children.size() > 0) {
+                    result.addAll(index + 1, children);
+                    hasChanges = true;
+                    index += children.size();
+                }
+            }
+            level++;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,106 @@
+package org.wordpress.android.ui.stats.models;
+
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Locale;
+
+/*
+ * compares a cache hit for the largest stats sections when the JSON response is cached, which has
+ * to be parsed again, with one where the model encoded by StatsModelCodec is cached
+ */
+public class StatsModelCodecBenchmarkTest extends AndroidTestCase {
+    private static final String TAG = "StatsModelCodecBench";
+
+    private static final long BLOG_ID = 123456;
+    private static final String DATE = "2018-11-01";
+    private static final int NUM_ITEMS = 2000;
+    private static final int MEASURED_ITERATIONS = 20;
+
+    public void testCacheHit() throws JSONException {
+        String referrersJson = makeReferrersResponse(NUM_ITEMS).toString();
+        byte[] referrersData = StatsModelCodec.encode(new ReferrersModel(BLOG_ID, new JSONObject(referrersJson)));
+        String clicksJson = makeClicksResponse(NUM_ITEMS).toString();
+        byte[] clicksData = StatsModelCodec.encode(new ClicksModel(BLOG_ID, new JSONObject(clicksJson)));
+        assertNotNull(referrersData);
+        assertNotNull(clicksData);
+
+        // warm up both paths before measuring them
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            new ReferrersModel(BLOG_ID, new JSONObject(referrersJson));
+            StatsModelCodec.decode(referrersData);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            new ReferrersModel(BLOG_ID, new JSONObject(referrersJson));
+            new ClicksModel(BLOG_ID, new JSONObject(clicksJson));
+        }
+        double jsonMs = (System.nanoTime() - start) / 1000000d / MEASURED_ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            assertNotNull(StatsModelCodec.decode(referrersData));
+            assertNotNull(StatsModelCodec.decode(clicksData));
+        }
+        double decodeMs = (System.nanoTime() - start) / 1000000d / MEASURED_ITERATIONS;
+
+        Log.i(TAG, String.format(Locale.US,
+                "referrers and clicks with %d groups > json %.3f ms (%d KB), encoded model %.3f ms (%d KB)",
+                NUM_ITEMS, jsonMs, (referrersJson.length() + clicksJson.length()) / 1024,
+                decodeMs, (referrersData.length + clicksData.length) / 1024));
+    }
+
+    private static JSONObject makeDayResponse(JSONObject day) throws JSONException {
+        JSONObject response = new JSONObject();
+        response.put("date", DATE);
+        response.put("period", "day");
+        response.put("days", new JSONObject().put(DATE, day));
+        return response;
+    }
+
+    private static JSONObject makeReferrersResponse(int numGroups) throws JSONException {
+        JSONArray groups = new JSONArray();
+        for (int i = 0; i < numGroups; i++) {
+            JSONArray results = new JSONArray();
+            for (int j = 0; j < 3; j++) {
+                results.put(new JSONObject()
+                        .put("name", "result " + i + "-" + j)
+                        .put("views", j + 1)
+                        .put("url", "https://example.com/" + i + "/" + j));
+            }
+            groups.put(new JSONObject()
+                    .put("group", "group-" + i)
+                    .put("name", "Group " + i)
+                    .put("total", i)
+                    .put("icon", "https://example.com/icon-" + i + ".png")
+                    .put("results", results));
+        }
+        JSONObject day = new JSONObject().put("other_views", 10).put("total_views", numGroups).put("groups", groups);
+        return makeDayResponse(day);
+    }
+
+    private static JSONObject makeClicksResponse(int numGroups) throws JSONException {
+        JSONArray groups = new JSONArray();
+        for (int i = 0; i < numGroups; i++) {
+            JSONArray children = new JSONArray();
+            for (int j = 0; j < 3; j++) {
+                children.put(new JSONObject()
+                        .put("name", "click " + i + "-" + j)
+                        .put("views", j + 1)
+                        .put("url", "https://example.com/" + i + "/" + j));
+            }
+            groups.put(new JSONObject()
+                    .put("name", "example" + i + ".com")
+                    .put("views", i)
+                    .put("icon", "https://example.com/icon-" + i + ".png")
+                    .put("children", children));
+        }
+        JSONObject day = new JSONObject().put("other_clicks", 10).put("total_clicks", numGroups).put("clicks", groups);
+        return makeDayResponse(day);
+    }
+}
@@ -74,6 +74,7 @@ import org.wordpress.android.ui.prefs.AppPrefs;
 import org.wordpress.android.ui.stats.StatsWidgetProvider;
 import org.wordpress.android.ui.stats.datasets.StatsDatabaseHelper;
 import org.wordpress.android.ui.stats.datasets.StatsTable;
+import org.wordpress.android.ui.stats.service.StatsPrefetchScheduler;
 import org.wordpress.android.ui.uploads.UploadService;
 import org.wordpress.android.util.analytics.AnalyticsUtils;
 import org.wordpress.android.util.AppLog;
@@ -188,8 +189,8 @@ public class WordPress extends MultiDexApplication implements HasServiceInjector
             // Offload to a separate thread. We don't want to slown down the app on startup/resume.
             new Thread(new Runnable() {
                 public void run() {
-                    // subtracts to the current time the cache TTL
-                    long timeToDelete = System.currentTimeMillis() - (StatsTable.CACHE_TTL_MINUTES * 60 * 1000);
+                    // subtracts to the current time the time stale stats are kept for
+                    long timeToDelete = System.currentTimeMillis() - (StatsTable.MAX_STALE_MINUTES * 60 * 1000L);
                     StatsTable.deleteOldStats(WordPress.getContext(), timeToDelete);
                 }
             }).start();
@@ -571,6 +572,7 @@ public class WordPress extends MultiDexApplication implements HasServiceInjector
         ReaderDatabase.reset(true);
 
         // Reset Stats Data
+        StatsPrefetchScheduler.cancel(context);
         StatsDatabaseHelper.getDatabase(context).reset();
         StatsWidgetProvider.refreshAllWidgets(context, mSiteStore);
 
@@ -816,6 +818,9 @@ public class WordPress extends MultiDexApplication implements HasServiceInjector
                 // verify media is sanitized
                 sanitizeMediaUploadStateForSite();
 
+                // publish the posts which were still queued when the process was killed
+                UploadService.restoreQueuedPostUploads(mContext);
+
                 // Rate limited PN Token Update
                 updatePushNotificationTokenIfNotLimited();
 
@@ -826,6 +831,9 @@ public class WordPress extends MultiDexApplication implements HasServiceInjector
                 mUpdateSelectedSite.runIfNotLimited();
             }
             sDeleteExpiredStats.runIfNotLimited();
+            if (mAccountStore.hasAccessToken()) {
+                StatsPrefetchScheduler.scheduleIfNeeded(mContext);
+            }
 
             if (mFirstActivityResumed) {
                 deferredInit();
@@ -6,11 +6,13 @@ import android.database.sqlite.SQLiteDatabase;
 
 import org.wordpress.android.datasets.NotificationsTable;
 import org.wordpress.android.datasets.PeopleTable;
+import org.wordpress.android.datasets.PostUploadJournal;
 import org.wordpress.android.datasets.PublicizeTable;
 import org.wordpress.android.datasets.SiteSettingsTable;
 import org.wordpress.android.datasets.SuggestionTable;
 import org.wordpress.android.models.SiteSettingsModel;
 import org.wordpress.android.ui.prefs.AppPrefs;
+import org.wordpress.android.ui.uploads.MediaUploadJournal;
 import org.wordpress.android.util.AppLog;
 import org.wordpress.android.util.AppLog.T;
 
@@ -22,7 +24,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 
 public class WordPressDB {
-    private static final int DATABASE_VERSION = 66;
+    private static final int DATABASE_VERSION = 69;
 
 
     // Warning if you rename DATABASE_NAME, that could break previous App backups (see: xml/backup_scheme.xml)
@@ -174,6 +176,13 @@ public class WordPressDB {
             case 65:
                 // add external users only to publicize services table
                 PublicizeTable.resetServicesTable(mDb);
+            case 66:
+                // notifications table has columns for the fields shown in the notes list, notes are synced again
+                NotificationsTable.reset(mDb);
+            case 67:
+                PostUploadJournal.createTables(mDb);
+            case 68:
+                MediaUploadJournal.createTables(mDb);
         }
         mDb.setVersion(DATABASE_VERSION);
     }
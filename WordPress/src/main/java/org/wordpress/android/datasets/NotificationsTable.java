@@ -9,6 +9,7 @@ import android.text.TextUtils;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.wordpress.android.WordPress;
+import org.wordpress.android.fluxc.model.CommentStatus;
 import org.wordpress.android.models.Note;
 import org.wordpress.android.util.AppLog;
 import org.wordpress.android.util.SqlUtils;
@@ -16,9 +17,17 @@ import org.wordpress.android.util.SqlUtils;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Stores each note's JSON along with the fields the notes list shows and filters on in their own
+ * columns, so the list is read (and filtered) without parsing the JSON of every note
+ */
 public class NotificationsTable {
     private static final String NOTIFICATIONS_TABLE = "tbl_notifications";
 
+    private static final String LIST_COLUMNS = "note_id, raw_note_data, type, is_unread, timestamp, subject,"
+                                               + " subject_noticon, comment_subject, icon_url, noticon,"
+                                               + " comment_status, site_id, post_id, comment_id";
+
     private static SQLiteDatabase getDb() {
         return WordPress.wpDB.getDatabase();
     }
@@ -32,8 +41,24 @@ public class NotificationsTable {
                    + "type TEXT,"
                    + "raw_note_data TEXT,"
                    + "timestamp INTEGER,"
+                   + "is_unread INTEGER DEFAULT 0,"
+                   + "subject TEXT,"
+                   + "subject_noticon TEXT,"
+                   + "comment_subject TEXT,"
+                   + "icon_url TEXT,"
+                   + "noticon TEXT,"
+                   + "comment_status TEXT,"
+                   + "site_id INTEGER DEFAULT 0,"
+                   + "post_id INTEGER DEFAULT 0,"
+                   + "comment_id INTEGER DEFAULT 0,"
                    + " UNIQUE (note_id) ON CONFLICT REPLACE"
                    + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_notifications_timestamp ON " + NOTIFICATIONS_TABLE
+                   + " (timestamp)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_notifications_type ON " + NOTIFICATIONS_TABLE
+                   + " (type, timestamp)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_notifications_unread ON " + NOTIFICATIONS_TABLE
+                   + " (is_unread, timestamp)");
     }
 
     private static void dropTables(SQLiteDatabase db) {
@@ -45,20 +70,63 @@ public class NotificationsTable {
     }
 
     public static ArrayList<Note> getLatestNotes(int limit) {
-        Cursor cursor = getDb().query(NOTIFICATIONS_TABLE, new String[]{"note_id", "raw_note_data"},
-                                      null, null, null, null, "timestamp DESC", "" + limit);
-        ArrayList<Note> notes = new ArrayList<Note>();
-        while (cursor.moveToNext()) {
-            String noteId = cursor.getString(0);
-            String rawNoteData = cursor.getString(1);
-            try {
-                Note note = new Note(noteId, new JSONObject(rawNoteData));
-                notes.add(note);
-            } catch (JSONException e) {
-                AppLog.e(AppLog.T.DB, "Can't parse notification with noteId:" + noteId + ", exception:" + e);
+        return getLatestNotes(Note.FILTERS.FILTER_ALL, limit);
+    }
+
+    public static ArrayList<Note> getLatestNotes(Note.FILTERS filter) {
+        return getLatestNotes(filter, NOTES_TO_RETRIEVE);
+    }
+
+    /*
+     * returns the latest notes which match the passed filter - their JSON is only parsed once
+     * something other than what the notes list shows is needed
+     */
+    public static ArrayList<Note> getLatestNotes(Note.FILTERS filter, int limit) {
+        String where;
+        switch (filter) {
+            case FILTER_COMMENT:
+                where = "type='" + Note.NOTE_COMMENT_TYPE + "'"
+                        + " OR (type='" + Note.NOTE_MATCHER_TYPE + "' AND comment_id<>0)";
+                break;
+            case FILTER_FOLLOW:
+                where = "type='" + Note.NOTE_FOLLOW_TYPE + "'";
+                break;
+            case FILTER_LIKE:
+                where = "type IN ('" + Note.NOTE_LIKE_TYPE + "','" + Note.NOTE_COMMENT_LIKE_TYPE + "')";
+                break;
+            case FILTER_UNREAD:
+                where = "is_unread=1";
+                break;
+            default:
+                where = null;
+                break;
+        }
+
+        String sql = "SELECT " + LIST_COLUMNS + " FROM " + NOTIFICATIONS_TABLE
+                     + (where != null ? " WHERE " + where : "")
+                     + " ORDER BY timestamp DESC LIMIT " + limit;
+        Cursor cursor = getDb().rawQuery(sql, null);
+        ArrayList<Note> notes = new ArrayList<>(cursor.getCount());
+        try {
+            while (cursor.moveToNext()) {
+                Note.ListFields listFields = new Note.ListFields();
+                listFields.type = cursor.getString(2);
+                listFields.isUnread = cursor.getInt(3) != 0;
+                listFields.timestamp = cursor.getLong(4);
+                listFields.subject = cursor.getString(5);
+                listFields.subjectNoticon = cursor.getString(6);
+                listFields.commentSubject = cursor.getString(7);
+                listFields.iconUrl = cursor.getString(8);
+                listFields.noticon = cursor.getString(9);
+                listFields.commentStatus = CommentStatus.fromString(cursor.getString(10));
+                listFields.siteId = cursor.getInt(11);
+                listFields.postId = cursor.getInt(12);
+                listFields.commentId = cursor.getLong(13);
+                notes.add(new Note(cursor.getString(0), cursor.getString(1), listFields));
             }
+        } finally {
+            SqlUtils.closeCursor(cursor);
         }
-        cursor.close();
         return notes;
     }
 
@@ -67,6 +135,17 @@ public class NotificationsTable {
         values.put("type", note.getType());
         values.put("timestamp", note.getTimestamp());
         values.put("raw_note_data", note.getJSON().toString());
+        values.put("is_unread", SqlUtils.boolToSql(note.isUnread()));
+        JSONObject subject = note.getSubject();
+        values.put("subject", subject != null ? subject.toString() : null);
+        values.put("subject_noticon", note.getCommentSubjectNoticon());
+        values.put("comment_subject", note.getCommentSubject());
+        values.put("icon_url", note.getIconURL());
+        values.put("noticon", note.getNoticonCharacter());
+        values.put("comment_status", note.getCommentStatus().toString());
+        values.put("site_id", note.getSiteId());
+        values.put("post_id", note.getPostId());
+        values.put("comment_id", note.getCommentId());
 
         long result;
         if (checkBeforeInsert && isNoteAvailable(note.getId())) {
@@ -182,7 +261,10 @@ public class NotificationsTable {
      * drop & recreate notifications table
      */
     public static void reset() {
-        SQLiteDatabase db = getDb();
+        reset(getDb());
+    }
+
+    public static void reset(SQLiteDatabase db) {
         db.beginTransaction();
         try {
             dropTables(db);
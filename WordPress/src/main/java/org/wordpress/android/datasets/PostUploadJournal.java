@@ -0,0 +1,62 @@
+package org.wordpress.android.datasets;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.NonNull;
+
+import org.wordpress.android.WordPress;
+import org.wordpress.android.fluxc.model.PostModel;
+import org.wordpress.android.util.SqlUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Durable record of the posts queued or being published by PostUploadHandler, kept in the app's
+ * database so the posts still waiting to be published when the process is killed are queued again
+ * the next time the handler is created. Posts are returned in the order they were first queued
+ */
+public class PostUploadJournal {
+    private static final String QUEUE_TABLE = "tbl_post_upload_queue";
+
+    public static void createTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + QUEUE_TABLE + " ("
+                   + " local_post_id INTEGER PRIMARY KEY,"
+                   + " local_site_id INTEGER NOT NULL,"
+                   + " queued_time INTEGER NOT NULL)");
+    }
+
+    private static SQLiteDatabase getDb() {
+        return WordPress.wpDB.getDatabase();
+    }
+
+    /*
+     * records the passed post as queued - a post which is already recorded keeps its place
+     */
+    public static void add(@NonNull PostModel post) {
+        ContentValues values = new ContentValues();
+        values.put("local_post_id", post.getId());
+        values.put("local_site_id", post.getLocalSiteId());
+        values.put("queued_time", System.currentTimeMillis());
+        getDb().insertWithOnConflict(QUEUE_TABLE, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+    }
+
+    public static void remove(int localPostId) {
+        getDb().delete(QUEUE_TABLE, "local_post_id=?", new String[]{Integer.toString(localPostId)});
+    }
+
+    public static @NonNull List<Integer> getQueuedPostIds() {
+        List<Integer> postIds = new ArrayList<>();
+        Cursor cursor = getDb().rawQuery("SELECT local_post_id FROM " + QUEUE_TABLE
+                                         + " ORDER BY queued_time, rowid", null);
+        try {
+            while (cursor.moveToNext()) {
+                postIds.add(cursor.getInt(0));
+            }
+        } finally {
+            SqlUtils.closeCursor(cursor);
+        }
+        return postIds;
+    }
+}
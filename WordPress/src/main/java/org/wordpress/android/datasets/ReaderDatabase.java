@@ -9,6 +9,8 @@ import org.wordpress.android.models.ReaderPostList;
 import org.wordpress.android.models.ReaderTagList;
 import org.wordpress.android.util.AppLog;
 import org.wordpress.android.util.AppLog.T;
+import org.wordpress.android.util.ReaderWorkScheduler;
+import org.wordpress.android.util.ReaderWorkScheduler.Priority;
 
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -22,7 +24,7 @@ import java.util.Locale;
  */
 public class ReaderDatabase extends SQLiteOpenHelper {
     protected static final String DB_NAME = "wpreader.db";
-    private static final int DB_VERSION = 137;
+    private static final int DB_VERSION = 142;
     private static final int DB_LAST_VERSION_WITHOUT_MIGRATION_SCRIPT = 136; // do not change this value
 
     /*
@@ -93,6 +95,11 @@ public class ReaderDatabase extends SQLiteOpenHelper {
      * 135 - added tbl_blog_info.is_notifications_enabled in ReaderBlogTable
      * 136 - added tbl_posts.is_bookmarked
      * 137 - added support for migration scripts
+     * 138 - normalized post storage, post content in tbl_posts and stream membership in tbl_post_tags
+     * 139 - added tbl_posts.content_hash
+     * 140 - added tbl_posts_fts full-text index of posts (ReaderPostFtsTable)
+     * 141 - added tbl_stream_sync (ReaderStreamSyncTable)
+     * 142 - added trg_posts_fts_delete to remove deleted posts from tbl_posts_fts
      */
 
     /*
@@ -173,15 +180,37 @@ public class ReaderDatabase extends SQLiteOpenHelper {
                 "Upgrading database from version " + oldVersion + " to version " + newVersion + " IN PROGRESS");
         int currentVersion = oldVersion;
         if (currentVersion <= DB_LAST_VERSION_WITHOUT_MIGRATION_SCRIPT) {
-            // versions 0 - 136 didn't support migration scripts, so we can safely drop and recreate all tables
+            // versions 0 - 136 didn't support migration scripts, so we can safely drop and recreate all tables -
+            // the tables are recreated with the current schema, so there's nothing left to migrate
             reset(db);
-            currentVersion = DB_LAST_VERSION_WITHOUT_MIGRATION_SCRIPT;
+            currentVersion = newVersion;
         }
 
         switch (currentVersion) {
             case 136:
                 // no-op
                 currentVersion++;
+            case 137:
+                ReaderPostTable.migrateToPostTags(db);
+                currentVersion++;
+            case 138:
+                // migrating from 137 recreates tbl_posts with the current schema, so the column
+                // only needs to be added when upgrading from 138
+                if (oldVersion == 138) {
+                    ReaderPostTable.addContentHashColumn(db);
+                }
+                currentVersion++;
+            case 139:
+                ReaderPostFtsTable.createTables(db);
+                ReaderPostFtsTable.rebuild(db);
+                currentVersion++;
+            case 140:
+                ReaderStreamSyncTable.createTables(db);
+                currentVersion++;
+            case 141:
+                ReaderPostFtsTable.createDeleteTrigger(db);
+                ReaderPostFtsTable.purge(db);
+                currentVersion++;
         }
         if (currentVersion != newVersion) {
             throw new RuntimeException(
@@ -207,6 +236,7 @@ public class ReaderDatabase extends SQLiteOpenHelper {
         ReaderThumbnailTable.createTables(db);
         ReaderBlogTable.createTables(db);
         ReaderSearchTable.createTables(db);
+        ReaderStreamSyncTable.createTables(db);
     }
 
     private void dropAllTables(SQLiteDatabase db) {
@@ -218,6 +248,7 @@ public class ReaderDatabase extends SQLiteOpenHelper {
         ReaderThumbnailTable.dropTables(db);
         ReaderBlogTable.dropTables(db);
         ReaderSearchTable.dropTables(db);
+        ReaderStreamSyncTable.dropTables(db);
     }
 
     /*
@@ -272,12 +303,12 @@ public class ReaderDatabase extends SQLiteOpenHelper {
     }
 
     public static void purgeAsync() {
-        new Thread() {
+        ReaderWorkScheduler.execute(Priority.PURGE, "purge", new Runnable() {
             @Override
             public void run() {
                 purge();
             }
-        }.start();
+        });
     }
 
     /*
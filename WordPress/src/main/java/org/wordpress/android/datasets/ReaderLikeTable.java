@@ -67,6 +67,8 @@ public class ReaderLikeTable {
                 } while (c.moveToNext());
             }
 
+            // the current user's like may not have been written yet
+            ReaderPostStateQueue.applyPendingLike(post.blogId, post.postId, userIds);
             return userIds;
         } finally {
             SqlUtils.closeCursor(c);
@@ -151,6 +153,8 @@ public class ReaderLikeTable {
                 } while (c.moveToNext());
             }
 
+            // the current user's like may not have been written yet
+            ReaderPostStateQueue.applyPendingLike(post.blogId, post.postId, userIds);
             return userIds;
         } finally {
             SqlUtils.closeCursor(c);
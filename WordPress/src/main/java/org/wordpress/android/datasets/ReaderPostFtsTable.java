@@ -0,0 +1,204 @@
+package org.wordpress.android.datasets;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.support.annotation.NonNull;
+
+import org.wordpress.android.models.ReaderPost;
+import org.wordpress.android.util.SqlUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * tbl_posts_fts is an FTS4 full-text index of the title, excerpt, author name, blog name and
+ * tags of the posts in tbl_posts, enabling offline search of cached posts. the docid of each
+ * row is the rowid of the post in tbl_posts - rows are added by ReaderPostTable whenever post
+ * content is written, and removed by a trigger whenever a post is deleted from tbl_posts, so
+ * this class shouldn't be used on its own
+ */
+public class ReaderPostFtsTable {
+    // relative weight of matches in each indexed column when ranking results - must be in the
+    // same order as the columns in the table
+    private static final int[] COLUMN_WEIGHTS = {
+            8, // title
+            2, // excerpt
+            4, // author_name
+            4, // blog_name
+            6  // tags
+    };
+
+    protected static void createTables(SQLiteDatabase db) {
+        db.execSQL("CREATE VIRTUAL TABLE tbl_posts_fts USING fts4("
+                   + " title,"
+                   + " excerpt,"
+                   + " author_name,"
+                   + " blog_name,"
+                   + " tags"
+                   + ")");
+        createDeleteTrigger(db);
+    }
+
+    /*
+     * removes the index row of each post deleted from tbl_posts, however it's deleted - note that
+     * this isn't fired when a post is replaced by INSERT OR REPLACE, so ReaderPostTable calls
+     * deletePost() before replacing one - also used by ReaderDatabase when upgrading to 142
+     */
+    protected static void createDeleteTrigger(SQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_posts_fts_delete AFTER DELETE ON tbl_posts"
+                   + " BEGIN DELETE FROM tbl_posts_fts WHERE docid=old.rowid; END");
+    }
+
+    protected static void dropTables(SQLiteDatabase db) {
+        db.execSQL("DROP TRIGGER IF EXISTS trg_posts_fts_delete");
+        db.execSQL("DROP TABLE IF EXISTS tbl_posts_fts");
+    }
+
+    /*
+     * indexes all existing posts - used by ReaderDatabase when upgrading to 140
+     */
+    protected static void rebuild(SQLiteDatabase db) {
+        db.execSQL("DELETE FROM tbl_posts_fts");
+        db.execSQL("INSERT INTO tbl_posts_fts (docid, title, excerpt, author_name, blog_name, tags)"
+                   + " SELECT rowid, title, excerpt, author_name, blog_name,"
+                   + " IFNULL(primary_tag, '') || ' ' || IFNULL(secondary_tag, '')"
+                   + " FROM tbl_posts");
+    }
+
+    static SQLiteStatement compileInsertStatement(SQLiteDatabase db) {
+        return db.compileStatement(
+                "INSERT INTO tbl_posts_fts (docid, title, excerpt, author_name, blog_name, tags)"
+                + " VALUES (?1,?2,?3,?4,?5,?6)");
+    }
+
+    static void insertPost(@NonNull SQLiteStatement stmt, long rowId, @NonNull ReaderPost post) {
+        stmt.bindLong(1, rowId);
+        stmt.bindString(2, post.getTitle());
+        stmt.bindString(3, post.getExcerpt());
+        stmt.bindString(4, post.getAuthorName());
+        stmt.bindString(5, post.getBlogName());
+        stmt.bindString(6, post.getPrimaryTag() + " " + post.getSecondaryTag());
+        stmt.execute();
+    }
+
+    /*
+     * removes the index row for the existing post with the passed pseudo_id - must be called
+     * before the post is replaced in tbl_posts
+     */
+    static void deletePost(SQLiteDatabase db, @NonNull String pseudoId) {
+        db.delete("tbl_posts_fts",
+                "docid IN (SELECT rowid FROM tbl_posts WHERE pseudo_id=?)",
+                new String[]{pseudoId});
+    }
+
+    /*
+     * removes index rows for posts that no longer exist in tbl_posts, which can only be left from
+     * before the delete trigger was added - used by ReaderDatabase when upgrading to 142
+     */
+    protected static int purge(SQLiteDatabase db) {
+        return db.delete("tbl_posts_fts", "docid NOT IN (SELECT rowid FROM tbl_posts)", null);
+    }
+
+    /*
+     * returns the size in bytes of the full-text index, including the copy of the indexed text
+     */
+    static long getIndexSize(SQLiteDatabase db) {
+        return SqlUtils.longForQuery(db, "SELECT IFNULL(SUM(LENGTH(block)), 0) FROM tbl_posts_fts_segments", null)
+               + SqlUtils.longForQuery(db, "SELECT IFNULL(SUM(LENGTH(root)), 0) FROM tbl_posts_fts_segdir", null)
+               + SqlUtils.longForQuery(db, "SELECT IFNULL(SUM(LENGTH(c0title) + LENGTH(c1excerpt)"
+                                           + " + LENGTH(c2author_name) + LENGTH(c3blog_name) + LENGTH(c4tags)), 0)"
+                                           + " FROM tbl_posts_fts_content", null);
+    }
+
+    /*
+     * converts the passed user-entered search string to an FTS query which matches posts containing
+     * all the words in the string, treating each word as a prefix so results can be returned while
+     * the user is still typing - returns null if the string contains no searchable words
+     */
+    static String getMatchQuery(String query) {
+        if (query == null) {
+            return null;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        StringBuilder word = new StringBuilder();
+        String lowerQuery = query.toLowerCase(Locale.ROOT);
+        for (int i = 0; i <= lowerQuery.length(); i++) {
+            char c = i < lowerQuery.length() ? lowerQuery.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(c);
+            } else if (word.length() > 0) {
+                if (sb.length() > 0) {
+                    sb.append(' ');
+                }
+                sb.append(word).append('*');
+                word.setLength(0);
+            }
+        }
+
+        return sb.length() > 0 ? sb.toString() : null;
+    }
+
+    /*
+     * returns the tbl_posts rowids of posts matching the passed search string, best matches first
+     */
+    static List<Long> search(SQLiteDatabase db, String query, int maxResults) {
+        List<Long> rowIds = new ArrayList<>();
+        String matchQuery = getMatchQuery(query);
+        if (matchQuery == null) {
+            return rowIds;
+        }
+
+        final List<long[]> ranked = new ArrayList<>();
+        Cursor c = db.rawQuery("SELECT docid, matchinfo(tbl_posts_fts, 'pcx') FROM tbl_posts_fts"
+                               + " WHERE tbl_posts_fts MATCH ?", new String[]{matchQuery});
+        try {
+            while (c.moveToNext()) {
+                ranked.add(new long[]{c.getLong(0), getRank(c.getBlob(1))});
+            }
+        } finally {
+            SqlUtils.closeCursor(c);
+        }
+
+        Collections.sort(ranked, new Comparator<long[]>() {
+            @Override
+            public int compare(long[] rank1, long[] rank2) {
+                return Long.compare(rank2[1], rank1[1]);
+            }
+        });
+
+        for (int i = 0; i < ranked.size() && (maxResults <= 0 || i < maxResults); i++) {
+            rowIds.add(ranked.get(i)[0]);
+        }
+        return rowIds;
+    }
+
+    /*
+     * ranks a match using the matchinfo 'pcx' blob - each hit in a column scores the column's weight,
+     * scaled down by how many posts have hits for that phrase in that column so that rare words
+     * count for more than common ones
+     */
+    private static long getRank(byte[] matchInfo) {
+        ByteBuffer buffer = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder());
+        int numPhrases = buffer.getInt(0);
+        int numColumns = buffer.getInt(4);
+        long rank = 0;
+        for (int phrase = 0; phrase < numPhrases; phrase++) {
+            for (int column = 0; column < numColumns && column < COLUMN_WEIGHTS.length; column++) {
+                int offset = 8 + 12 * (phrase * numColumns + column);
+                int hitsInRow = buffer.getInt(offset);
+                int numRowsWithHits = buffer.getInt(offset + 8);
+                if (hitsInRow > 0) {
+                    rank += (1000000L * COLUMN_WEIGHTS[column] * hitsInRow) / Math.max(1, numRowsWithHits);
+                }
+            }
+        }
+        return rank;
+    }
+}
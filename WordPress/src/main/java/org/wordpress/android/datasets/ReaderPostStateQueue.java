@@ -0,0 +1,366 @@
+package org.wordpress.android.datasets;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+
+import org.wordpress.android.models.ReaderPost;
+import org.wordpress.android.models.ReaderPostList;
+import org.wordpress.android.models.ReaderTag;
+import org.wordpress.android.models.ReaderTagList;
+import org.wordpress.android.models.ReaderUserIdList;
+import org.wordpress.android.util.AppLog;
+import org.wordpress.android.util.DateTimeUtils;
+import org.wordpress.android.util.ReaderWorkScheduler;
+import org.wordpress.android.util.ReaderWorkScheduler.Priority;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * queue for the current user's likes and bookmarks - changes are applied to the passed post right
+ * away and written to tbl_posts/tbl_post_likes off the main thread shortly after the first one is
+ * made, all the changes made in the meantime in a single transaction. changes made while a post is
+ * waiting to be written replace the earlier ones, and toggling a post back to its stored state
+ * cancels the write altogether. likes are written against the post as it's stored when the write
+ * happens rather than the passed post, which may be out of date, and posts read by ReaderPostTable
+ * have any changes which haven't been written yet applied to them
+ */
+public class ReaderPostStateQueue {
+    private static final Object LOCK = new Object();
+    private static final HashMap<String, PendingState> PENDING = new HashMap<>();
+    // the values of each pending change, which posts being read from the db are checked against
+    // without taking LOCK - kept in step with PENDING
+    private static final ConcurrentHashMap<String, PendingValues> PENDING_VALUES = new ConcurrentHashMap<>();
+    private static boolean sIsFlushScheduled;
+
+    // how long changes are collected before they're written
+    private static final long FLUSH_DELAY_MS = 500;
+    private static final Handler HANDLER = new Handler(Looper.getMainLooper());
+
+    private static final Runnable FLUSH_RUNNABLE = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private static final Runnable SCHEDULE_FLUSH_RUNNABLE = new Runnable() {
+        @Override
+        public void run() {
+            ReaderWorkScheduler.execute(Priority.VISIBLE, FLUSH_RUNNABLE);
+        }
+    };
+
+    /*
+     * immutable copy of the values a pending change applies to a post
+     */
+    private static class PendingValues {
+        private final boolean mIsLiked;
+        private final boolean mIsLikeChanged;
+        private final long mWpComUserId;
+        private final boolean mIsBookmarked;
+
+        PendingValues(@NonNull PendingState state) {
+            mIsLiked = state.mIsLiked;
+            mIsLikeChanged = state.isLikeChanged();
+            mWpComUserId = state.mWpComUserId;
+            mIsBookmarked = state.mIsBookmarked;
+        }
+
+        /*
+         * the passed post's like count is adjusted rather than replaced, since it may have been
+         * updated since the like was made
+         */
+        void applyTo(@NonNull ReaderPost post) {
+            if (mIsLikeChanged && post.isLikedByCurrentUser != mIsLiked) {
+                post.isLikedByCurrentUser = mIsLiked;
+                post.numLikes = Math.max(0, post.numLikes + (mIsLiked ? 1 : -1));
+            }
+            post.isBookmarked = mIsBookmarked;
+        }
+    }
+
+    private static class PendingState {
+        private final ReaderPost mPost;
+
+        // state stored in the db when the first change was queued, or when the post was last written
+        private boolean mStoredIsLiked;
+        private boolean mStoredIsBookmarked;
+
+        private boolean mIsLiked;
+        private long mWpComUserId;
+        private boolean mIsBookmarked;
+
+        // incremented with each change so a flush can tell whether the post changed while it ran
+        private int mVersion;
+
+        PendingState(@NonNull ReaderPost post) {
+            this(post, post.isLikedByCurrentUser, post.isBookmarked);
+        }
+
+        PendingState(@NonNull ReaderPost post, boolean storedIsLiked, boolean storedIsBookmarked) {
+            mPost = post;
+            mStoredIsLiked = mIsLiked = storedIsLiked;
+            mStoredIsBookmarked = mIsBookmarked = storedIsBookmarked;
+        }
+
+        boolean isLikeChanged() {
+            return mIsLiked != mStoredIsLiked;
+        }
+
+        boolean isBookmarkChanged() {
+            return mIsBookmarked != mStoredIsBookmarked;
+        }
+    }
+
+    private ReaderPostStateQueue() {
+        throw new AssertionError();
+    }
+
+    private static String getKey(long blogId, long postId) {
+        return blogId + ":" + postId;
+    }
+
+    /*
+     * likes or unlikes the passed post - returns false if the post's like state is already the
+     * passed state
+     */
+    public static boolean setLiked(@NonNull ReaderPost post, boolean isLiked, long wpComUserId) {
+        synchronized (LOCK) {
+            if (post.isLikedByCurrentUser == isLiked) {
+                return false;
+            }
+
+            PendingState state = getOrCreateState(post);
+            post.isLikedByCurrentUser = isLiked;
+            post.numLikes = Math.max(0, post.numLikes + (isLiked ? 1 : -1));
+            state.mIsLiked = isLiked;
+            state.mWpComUserId = wpComUserId;
+            stateChanged(post, state);
+        }
+        return true;
+    }
+
+    /*
+     * called when the request to like or unlike the passed post failed - the post's like state is
+     * reverted unless it was changed again since the request was made. the like state is reverted
+     * from the post as it's stored now rather than the passed post, which may be out of date
+     */
+    public static void revertLike(@NonNull final ReaderPost post, final boolean failedIsLiked, final long wpComUserId) {
+        synchronized (LOCK) {
+            if (post.isLikedByCurrentUser == failedIsLiked) {
+                post.isLikedByCurrentUser = !failedIsLiked;
+                post.numLikes = Math.max(0, post.numLikes + (failedIsLiked ? -1 : 1));
+            }
+        }
+
+        ReaderWorkScheduler.execute(Priority.VISIBLE, new Runnable() {
+            @Override
+            public void run() {
+                ReaderPost storedPost = ReaderPostTable.getBlogPost(post.blogId, post.postId, true);
+                if (storedPost != null) {
+                    setLiked(storedPost, !failedIsLiked, wpComUserId);
+                }
+            }
+        });
+    }
+
+    /*
+     * adds the passed post to or removes it from the user's bookmarks - returns false if the post's
+     * bookmark state is already the passed state
+     */
+    public static boolean setBookmarked(@NonNull ReaderPost post, boolean isBookmarked) {
+        synchronized (LOCK) {
+            if (post.isBookmarked == isBookmarked) {
+                return false;
+            }
+
+            PendingState state = getOrCreateState(post);
+            if (isBookmarked) {
+                post.setDateTagged(DateTimeUtils.iso8601FromDate(DateTimeUtils.nowUTC()));
+            }
+            post.isBookmarked = isBookmarked;
+            state.mIsBookmarked = isBookmarked;
+            stateChanged(post, state);
+        }
+        return true;
+    }
+
+    // must be called with LOCK held
+    private static PendingState getOrCreateState(@NonNull ReaderPost post) {
+        String key = getKey(post.blogId, post.postId);
+        PendingState state = PENDING.get(key);
+        if (state == null) {
+            state = new PendingState(post);
+            PENDING.put(key, state);
+        }
+        return state;
+    }
+
+    // must be called with LOCK held
+    private static void updatePendingValues(@NonNull String key) {
+        PendingState state = PENDING.get(key);
+        if (state != null) {
+            PENDING_VALUES.put(key, new PendingValues(state));
+        } else {
+            PENDING_VALUES.remove(key);
+        }
+    }
+
+    // must be called with LOCK held
+    private static void stateChanged(@NonNull ReaderPost post, @NonNull PendingState state) {
+        String key = getKey(post.blogId, post.postId);
+        state.mVersion++;
+        if (!state.isLikeChanged() && !state.isBookmarkChanged()) {
+            // toggled back to the stored state, so there's nothing to write
+            PENDING.remove(key);
+            updatePendingValues(key);
+            return;
+        }
+        updatePendingValues(key);
+        scheduleFlush();
+    }
+
+    // must be called with LOCK held
+    private static void scheduleFlush() {
+        if (!sIsFlushScheduled) {
+            sIsFlushScheduled = true;
+            HANDLER.postDelayed(SCHEDULE_FLUSH_RUNNABLE, FLUSH_DELAY_MS);
+        }
+    }
+
+    /*
+     * applies changes which haven't been written yet to the passed post, which was read from the db
+     */
+    static void applyPendingState(@NonNull ReaderPost post) {
+        if (PENDING_VALUES.isEmpty()) {
+            return;
+        }
+        PendingValues values = PENDING_VALUES.get(getKey(post.blogId, post.postId));
+        if (values != null) {
+            values.applyTo(post);
+        }
+    }
+
+    /*
+     * returns the passed post's like state if it has a like which hasn't been written yet,
+     * otherwise null
+     */
+    static Boolean getPendingIsLiked(long blogId, long postId) {
+        PendingValues values = PENDING_VALUES.get(getKey(blogId, postId));
+        return values != null && values.mIsLikeChanged ? values.mIsLiked : null;
+    }
+
+    /*
+     * adds or removes the current user from the passed ids of users who like the passed post if
+     * the user's like hasn't been written yet
+     */
+    static void applyPendingLike(long blogId, long postId, @NonNull ReaderUserIdList userIds) {
+        PendingValues values = PENDING_VALUES.get(getKey(blogId, postId));
+        if (values != null && values.mIsLikeChanged) {
+            if (values.mIsLiked) {
+                userIds.add(values.mWpComUserId);
+            } else {
+                userIds.remove(values.mWpComUserId);
+            }
+        }
+    }
+
+    /*
+     * writes all pending changes in a single transaction - must be called from a background thread
+     */
+    private static void flush() {
+        List<PendingState> states = new ArrayList<>();
+        List<Integer> versions = new ArrayList<>();
+        List<PendingState> snapshots = new ArrayList<>();
+        synchronized (LOCK) {
+            sIsFlushScheduled = false;
+            for (PendingState state : PENDING.values()) {
+                states.add(state);
+                versions.add(state.mVersion);
+                snapshots.add(copyOf(state));
+            }
+        }
+        if (states.isEmpty()) {
+            return;
+        }
+
+        ReaderTagList bookmarkTags = null;
+        SQLiteDatabase db = ReaderDatabase.getWritableDb();
+        db.beginTransaction();
+        try {
+            for (PendingState snapshot : snapshots) {
+                ReaderPost post = snapshot.mPost;
+                if (snapshot.isLikeChanged()) {
+                    ReaderPostTable.setLikedByCurrentUser(post.blogId, post.postId, snapshot.mIsLiked);
+                    ReaderLikeTable.setCurrentUserLikesPost(post, snapshot.mIsLiked, snapshot.mWpComUserId);
+                }
+                if (snapshot.isBookmarkChanged()) {
+                    if (snapshot.mIsBookmarked) {
+                        if (bookmarkTags == null) {
+                            bookmarkTags = ReaderTagTable.getBookmarkTags();
+                        }
+                        // posts shown in lists don't include their text, so store the full post
+                        ReaderPost fullPost = ReaderPostTable.getBlogPost(post.blogId, post.postId, false);
+                        if (fullPost != null) {
+                            fullPost.setDateTagged(post.getDateTagged());
+                        }
+                        ReaderPostList posts = new ReaderPostList();
+                        posts.add(fullPost != null ? fullPost : post);
+                        for (ReaderTag tag : bookmarkTags) {
+                            ReaderPostTable.addOrUpdatePosts(tag, posts);
+                        }
+                    }
+                    ReaderPostTable.setBookmarkFlag(post.blogId, post.postId, snapshot.mIsBookmarked);
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        // remove the changes which were written - posts which changed again during the flush are
+        // left for the next one, with what was just written as their stored state
+        synchronized (LOCK) {
+            for (int i = 0; i < states.size(); i++) {
+                PendingState state = states.get(i);
+                PendingState snapshot = snapshots.get(i);
+                String key = getKey(state.mPost.blogId, state.mPost.postId);
+                if (state.mVersion == versions.get(i)) {
+                    if (PENDING.get(key) == state) {
+                        PENDING.remove(key);
+                        updatePendingValues(key);
+                    }
+                } else {
+                    state.mStoredIsLiked = snapshot.mIsLiked;
+                    state.mStoredIsBookmarked = snapshot.mIsBookmarked;
+                    if (!PENDING.containsKey(key) && (state.isLikeChanged() || state.isBookmarkChanged())) {
+                        // toggled back to the state stored before the flush, which is no longer stored
+                        PENDING.put(key, state);
+                        scheduleFlush();
+                    }
+                    if (PENDING.get(key) == state) {
+                        updatePendingValues(key);
+                    }
+                }
+            }
+        }
+
+        AppLog.d(AppLog.T.READER, String.format(Locale.ENGLISH, "reader post state > %d posts written",
+                                                snapshots.size()));
+    }
+
+    // must be called with LOCK held
+    private static PendingState copyOf(@NonNull PendingState state) {
+        PendingState copy = new PendingState(state.mPost, state.mStoredIsLiked, state.mStoredIsBookmarked);
+        copy.mIsLiked = state.mIsLiked;
+        copy.mWpComUserId = state.mWpComUserId;
+        copy.mIsBookmarked = state.mIsBookmarked;
+        return copy;
+    }
+}
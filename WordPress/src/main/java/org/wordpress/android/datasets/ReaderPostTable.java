@@ -22,16 +22,25 @@ import org.wordpress.android.ui.reader.models.ReaderBlogIdPostIdList;
 import org.wordpress.android.util.AppLog;
 import org.wordpress.android.util.CrashlyticsUtils;
 import org.wordpress.android.util.SqlUtils;
+import org.wordpress.android.util.StringUtils;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 /**
- * tbl_posts contains all reader posts - the primary key is pseudo_id + tag_name + tag_type,
- * which allows the same post to appear in multiple streams (ex: it can exist in followed
- * sites, liked posts, and tag streams). note that posts in a specific blog or feed are
- * stored here with an empty tag_name.
+ * tbl_posts contains the content of all reader posts - the primary key is pseudo_id, so each
+ * post body is stored only once regardless of how many streams it appears in. stream membership
+ * is stored in tbl_post_tags, whose primary key is pseudo_id + tag_name + tag_type, which allows
+ * the same post to appear in multiple streams (ex: it can exist in followed sites, liked posts,
+ * and tag streams). note that posts in a specific blog or feed are tagged with an empty tag_name.
  */
 public class ReaderPostTable {
+    // stays below SQLite's default limit of 999 host parameters per statement
+    private static final int MAX_SQL_VARIABLES = 500;
+
     private static final String COLUMN_NAMES =
             "post_id," // 1
             + "blog_id," // 2
@@ -56,55 +65,6 @@ public class ReaderPostTable {
             + "score," // 21
             + "date_published," // 22
             + "date_liked," // 23
-            + "date_tagged," // 24
-            + "num_replies," // 25
-            + "num_likes," // 26
-            + "is_liked," // 27
-            + "is_followed," // 28
-            + "is_comments_open," // 29
-            + "is_external," // 30
-            + "is_private," // 31
-            + "is_videopress," // 32
-            + "is_jetpack," // 33
-            + "primary_tag," // 34
-            + "secondary_tag," // 35
-            + "attachments_json," // 36
-            + "discover_json," // 37
-            + "xpost_post_id," // 38
-            + "xpost_blog_id," // 39
-            + "railcar_json," // 40
-            + "tag_name," // 41
-            + "tag_type," // 42
-            + "has_gap_marker," // 43
-            + "card_type," // 44
-            + "use_excerpt," // 45
-            + "is_bookmarked"; // 46
-
-    // used when querying multiple rows and skipping text column
-    private static final String COLUMN_NAMES_NO_TEXT =
-            "post_id," // 1
-            + "blog_id," // 2
-            + "feed_id," // 3
-            + "feed_item_id," // 4
-            + "author_id," // 5
-            + "pseudo_id," // 6
-            + "author_name," // 7
-            + "author_first_name," // 8
-            + "blog_name," // 9
-            + "blog_url," // 10
-            + "blog_image_url," // 11
-            + "excerpt," // 12
-            + "format," // 13
-            + "featured_image," // 14
-            + "featured_video," // 15
-            + "title," // 16
-            + "url," // 17
-            + "short_url," // 18
-            + "post_avatar," // 19
-            + "score," // 20
-            + "date_published," // 21
-            + "date_liked," // 22
-            + "date_tagged," // 23
             + "num_replies," // 24
             + "num_likes," // 25
             + "is_liked," // 26
@@ -121,15 +81,83 @@ public class ReaderPostTable {
             + "xpost_post_id," // 37
             + "xpost_blog_id," // 38
             + "railcar_json," // 39
-            + "tag_name," // 40
-            + "tag_type," // 41
-            + "has_gap_marker," // 42
-            + "card_type," // 43
-            + "use_excerpt," // 44
-            + "is_bookmarked"; // 45
+            + "card_type," // 40
+            + "use_excerpt," // 41
+            + "is_bookmarked," // 42
+            + "content_hash"; // 43
+
+    private static final String TAG_COLUMN_NAMES =
+            "pseudo_id," // 1
+            + "tag_name," // 2
+            + "tag_type," // 3
+            + "date_tagged," // 4
+            + "has_gap_marker"; // 5
+
+    // used when querying multiple rows and skipping text column - note that pseudo_id is qualified
+    // since these columns are used when joining tbl_posts with tbl_post_tags
+    private static final String COLUMN_NAMES_NO_TEXT =
+            "tbl_posts.post_id," // 1
+            + "tbl_posts.blog_id," // 2
+            + "tbl_posts.feed_id," // 3
+            + "tbl_posts.feed_item_id," // 4
+            + "tbl_posts.author_id," // 5
+            + "tbl_posts.pseudo_id," // 6
+            + "tbl_posts.author_name," // 7
+            + "tbl_posts.author_first_name," // 8
+            + "tbl_posts.blog_name," // 9
+            + "tbl_posts.blog_url," // 10
+            + "tbl_posts.blog_image_url," // 11
+            + "tbl_posts.excerpt," // 12
+            + "tbl_posts.format," // 13
+            + "tbl_posts.featured_image," // 14
+            + "tbl_posts.featured_video," // 15
+            + "tbl_posts.title," // 16
+            + "tbl_posts.url," // 17
+            + "tbl_posts.short_url," // 18
+            + "tbl_posts.post_avatar," // 19
+            + "tbl_posts.score," // 20
+            + "tbl_posts.date_published," // 21
+            + "tbl_posts.date_liked," // 22
+            + "tbl_posts.num_replies," // 23
+            + "tbl_posts.num_likes," // 24
+            + "tbl_posts.is_liked," // 25
+            + "tbl_posts.is_followed," // 26
+            + "tbl_posts.is_comments_open," // 27
+            + "tbl_posts.is_external," // 28
+            + "tbl_posts.is_private," // 29
+            + "tbl_posts.is_videopress," // 30
+            + "tbl_posts.is_jetpack," // 31
+            + "tbl_posts.primary_tag," // 32
+            + "tbl_posts.secondary_tag," // 33
+            + "tbl_posts.attachments_json," // 34
+            + "tbl_posts.discover_json," // 35
+            + "tbl_posts.xpost_post_id," // 36
+            + "tbl_posts.xpost_blog_id," // 37
+            + "tbl_posts.railcar_json," // 38
+            + "tbl_posts.card_type," // 39
+            + "tbl_posts.use_excerpt," // 40
+            + "tbl_posts.is_bookmarked"; // 41
+
+    // all post columns plus the per-stream columns from tbl_post_tags
+    private static final String COLUMN_NAMES_WITH_TAG = "tbl_posts.*,"
+            + "tbl_post_tags.date_tagged,"
+            + "tbl_post_tags.has_gap_marker";
+    private static final String COLUMN_NAMES_NO_TEXT_WITH_TAG = COLUMN_NAMES_NO_TEXT + ","
+            + "tbl_post_tags.date_tagged,"
+            + "tbl_post_tags.has_gap_marker";
+
+    private static final String FROM_POSTS_WITH_TAGS =
+            " FROM tbl_post_tags INNER JOIN tbl_posts ON tbl_posts.pseudo_id = tbl_post_tags.pseudo_id";
 
     protected static void createTables(SQLiteDatabase db) {
-        db.execSQL("CREATE TABLE tbl_posts ("
+        createPostsTable(db, "tbl_posts");
+        createPostTagsTable(db);
+        createIndexes(db);
+        ReaderPostFtsTable.createTables(db);
+    }
+
+    private static void createPostsTable(SQLiteDatabase db, String tableName) {
+        db.execSQL("CREATE TABLE " + tableName + " ("
                    + " post_id INTEGER DEFAULT 0,"
                    + " blog_id INTEGER DEFAULT 0,"
                    + " feed_id INTEGER DEFAULT 0,"
@@ -153,7 +181,6 @@ public class ReaderPostTable {
                    + " score REAL DEFAULT 0,"
                    + " date_published TEXT,"
                    + " date_liked TEXT,"
-                   + " date_tagged TEXT,"
                    + " num_replies INTEGER DEFAULT 0,"
                    + " num_likes INTEGER DEFAULT 0,"
                    + " is_liked INTEGER DEFAULT 0,"
@@ -170,23 +197,67 @@ public class ReaderPostTable {
                    + " xpost_post_id INTEGER DEFAULT 0,"
                    + " xpost_blog_id INTEGER DEFAULT 0,"
                    + " railcar_json TEXT,"
-                   + " tag_name TEXT NOT NULL COLLATE NOCASE,"
-                   + " tag_type INTEGER DEFAULT 0,"
-                   + " has_gap_marker INTEGER DEFAULT 0,"
                    + " card_type TEXT,"
                    + " use_excerpt INTEGER DEFAULT 0,"
                    + " is_bookmarked INTEGER DEFAULT 0,"
+                   + " content_hash TEXT,"
+                   + " PRIMARY KEY (pseudo_id)"
+                   + ")");
+    }
+
+    private static void createPostTagsTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE tbl_post_tags ("
+                   + " pseudo_id TEXT NOT NULL,"
+                   + " tag_name TEXT NOT NULL COLLATE NOCASE,"
+                   + " tag_type INTEGER DEFAULT 0,"
+                   + " date_tagged TEXT,"
+                   + " has_gap_marker INTEGER DEFAULT 0,"
                    + " PRIMARY KEY (pseudo_id, tag_name, tag_type)"
                    + ")");
+    }
 
+    private static void createIndexes(SQLiteDatabase db) {
         db.execSQL("CREATE INDEX idx_posts_post_id_blog_id ON tbl_posts(post_id, blog_id)");
         db.execSQL("CREATE INDEX idx_posts_date_published ON tbl_posts(date_published)");
-        db.execSQL("CREATE INDEX idx_posts_date_tagged ON tbl_posts(date_tagged)");
-        db.execSQL("CREATE INDEX idx_posts_tag_name ON tbl_posts(tag_name)");
+        db.execSQL("CREATE INDEX idx_post_tags_tag ON tbl_post_tags(tag_name, tag_type, date_tagged)");
+    }
+
+    /*
+     * moves the denormalized tbl_posts (one row per post per stream) to tbl_posts + tbl_post_tags,
+     * keeping a single copy of each post's content - used by ReaderDatabase when upgrading to 138.
+     * note that the new tbl_posts is created with the current schema
+     */
+    protected static void migrateToPostTags(SQLiteDatabase db) {
+        createPostTagsTable(db);
+        db.execSQL("INSERT OR REPLACE INTO tbl_post_tags (" + TAG_COLUMN_NAMES + ")"
+                   + " SELECT " + TAG_COLUMN_NAMES + " FROM tbl_posts");
+
+        // when the same post exists in several streams pick the most recently stored copy, and
+        // make sure it keeps the bookmark flag if any copy of the post had it set
+        String legacyColumns = COLUMN_NAMES.replace(",content_hash", "");
+        createPostsTable(db, "tbl_posts_new");
+        db.execSQL("INSERT OR REPLACE INTO tbl_posts_new (" + legacyColumns + ")"
+                   + " SELECT " + legacyColumns + " FROM tbl_posts ORDER BY rowid");
+        db.execSQL("UPDATE tbl_posts_new SET is_bookmarked=1"
+                   + " WHERE pseudo_id IN (SELECT pseudo_id FROM tbl_posts WHERE is_bookmarked != 0)");
+
+        db.execSQL("DROP TABLE tbl_posts");
+        db.execSQL("ALTER TABLE tbl_posts_new RENAME TO tbl_posts");
+        createIndexes(db);
+    }
+
+    /*
+     * used by ReaderDatabase when upgrading to 139 - existing posts are left without a hash, so
+     * they'll be rewritten the next time they're retrieved from the server
+     */
+    protected static void addContentHashColumn(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE tbl_posts ADD content_hash TEXT");
     }
 
     protected static void dropTables(SQLiteDatabase db) {
         db.execSQL("DROP TABLE IF EXISTS tbl_posts");
+        db.execSQL("DROP TABLE IF EXISTS tbl_post_tags");
+        ReaderPostFtsTable.dropTables(db);
     }
 
     protected static void reset(SQLiteDatabase db) {
@@ -200,7 +271,8 @@ public class ReaderPostTable {
      */
     protected static int purge(SQLiteDatabase db) {
         // delete posts attached to tags that no longer exist
-        int numDeleted = db.delete("tbl_posts", "tag_name NOT IN (SELECT DISTINCT tag_name FROM tbl_tags)", null);
+        int numDeleted =
+                db.delete("tbl_post_tags", "tag_name NOT IN (SELECT DISTINCT tag_name FROM tbl_tags)", null);
 
         // delete excess posts on a per-tag basis
         ReaderTagList tags = ReaderTagTable.getAllTags();
@@ -212,9 +284,27 @@ public class ReaderPostTable {
 
         // delete search results
         numDeleted += purgeSearchResults(db);
+
+        // delete the content of posts that no longer appear in any stream
+        int numBodiesDeleted = purgeUnreferencedPosts(db);
+        if (numBodiesDeleted > 0) {
+            AppLog.d(AppLog.T.READER, String.format(Locale.ENGLISH,
+                    "reader post table > purged %d unreferenced posts", numBodiesDeleted));
+        }
+
         return numDeleted;
     }
 
+    /*
+     * a post's content is shared by all the streams it appears in, so it's only deleted once no
+     * rows in tbl_post_tags reference it
+     */
+    private static int purgeUnreferencedPosts(SQLiteDatabase db) {
+        return db.delete("tbl_posts",
+                "NOT EXISTS (SELECT 1 FROM tbl_post_tags WHERE tbl_post_tags.pseudo_id = tbl_posts.pseudo_id)",
+                null);
+    }
+
     /**
      * When the user unbookmarks a post, we keep the row in the database, but we just change the is_bookmarked flag
      * to false, so we can show "undo" items in the saved posts list. This method purges database from such rows.
@@ -226,8 +316,11 @@ public class ReaderPostTable {
             if (tag.isBookmarked()) {
                 // delete posts which has a bookmark tag but is_bookmarked flag is false
                 String[] args = {tag.getTagSlug(), Integer.toString(tag.tagType.toInt())};
-                numDeleted += ReaderDatabase.getWritableDb()
-                                            .delete("tbl_posts", "tag_name=? AND tag_type=? AND is_bookmarked=0", args);
+                numDeleted += ReaderDatabase.getWritableDb().delete(
+                        "tbl_post_tags",
+                        "tag_name=? AND tag_type=?"
+                        + " AND pseudo_id IN (SELECT pseudo_id FROM tbl_posts WHERE is_bookmarked=0)",
+                        args);
             }
         }
         return numDeleted;
@@ -246,9 +339,11 @@ public class ReaderPostTable {
         String tagName = tag.getTagSlug();
         String tagType = Integer.toString(tag.tagType.toInt());
         String[] args = {tagName, tagType, tagName, tagType, Integer.toString(MAX_POSTS_PER_TAG)};
-        String where = "tag_name=? AND tag_type=? AND pseudo_id NOT IN (SELECT DISTINCT pseudo_id FROM tbl_posts WHERE "
-                       + "tag_name=? AND tag_type=? ORDER BY " + getSortColumnForTag(tag) + " DESC LIMIT ?)";
-        int numDeleted = db.delete("tbl_posts", where, args);
+        String where = "tag_name=? AND tag_type=? AND pseudo_id NOT IN (SELECT tbl_post_tags.pseudo_id"
+                       + FROM_POSTS_WITH_TAGS
+                       + " WHERE tbl_post_tags.tag_name=? AND tbl_post_tags.tag_type=?"
+                       + " ORDER BY " + getSortColumnForTag(tag) + " DESC LIMIT ?)";
+        int numDeleted = db.delete("tbl_post_tags", where, args);
         AppLog.d(AppLog.T.READER,
                 String.format(Locale.ENGLISH, "reader post table > purged %d posts in tag %s", numDeleted,
                         tag.getTagNameForLog()));
@@ -260,7 +355,7 @@ public class ReaderPostTable {
      */
     private static int purgeSearchResults(SQLiteDatabase db) {
         String[] args = {Integer.toString(ReaderTagType.SEARCH.toInt())};
-        return db.delete("tbl_posts", "tag_type=?", args);
+        return db.delete("tbl_post_tags", "tag_type=?", args);
     }
 
     public static int getNumPostsInBlog(long blogId) {
@@ -268,7 +363,8 @@ public class ReaderPostTable {
             return 0;
         }
         return SqlUtils.intForQuery(ReaderDatabase.getReadableDb(),
-                                    "SELECT count(*) FROM tbl_posts WHERE blog_id=? AND tag_name=''",
+                                    "SELECT count(*)" + FROM_POSTS_WITH_TAGS
+                                    + " WHERE tbl_posts.blog_id=? AND tbl_post_tags.tag_name=''",
                                     new String[]{Long.toString(blogId)});
     }
 
@@ -277,7 +373,8 @@ public class ReaderPostTable {
             return 0;
         }
         return SqlUtils.intForQuery(ReaderDatabase.getReadableDb(),
-                                    "SELECT count(*) FROM tbl_posts WHERE feed_id=? AND tag_name=''",
+                                    "SELECT count(*)" + FROM_POSTS_WITH_TAGS
+                                    + " WHERE tbl_posts.feed_id=? AND tbl_post_tags.tag_name=''",
                                     new String[]{Long.toString(feedId)});
     }
 
@@ -287,29 +384,18 @@ public class ReaderPostTable {
         }
         String[] args = {tag.getTagSlug(), Integer.toString(tag.tagType.toInt())};
         return SqlUtils.intForQuery(ReaderDatabase.getReadableDb(),
-                                    "SELECT count(*) FROM tbl_posts WHERE tag_name=? AND tag_type=?",
+                                    "SELECT count(*) FROM tbl_post_tags WHERE tag_name=? AND tag_type=?",
                                     args);
     }
 
     public static void updatePost(@NonNull ReaderPost post) {
-        // we need to update a few important fields across all instances of this post - this is
-        // necessary because a post can exist multiple times in the table with different tags
-        ContentValues values = new ContentValues();
-        values.put("title", post.getTitle());
-        values.put("text", post.getText());
-        values.put("excerpt", post.getExcerpt());
-        values.put("num_replies", post.numReplies);
-        values.put("num_likes", post.numLikes);
-        values.put("is_liked", post.isLikedByCurrentUser);
-        values.put("is_followed", post.isFollowedByCurrentUser);
-        values.put("is_comments_open", post.isCommentsOpen);
-        values.put("use_excerpt", post.useExcerpt);
-        ReaderDatabase.getWritableDb().update(
-                "tbl_posts", values, "pseudo_id=?", new String[]{post.getPseudoId()});
-
+        // the post's content is shared by every stream it appears in, so replacing it here
+        // updates all instances of this post - its score and railcar come from the stream it
+        // was retrieved in, so those are left as they are
         ReaderPostList posts = new ReaderPostList();
         posts.add(post);
-        addOrUpdatePosts(null, posts);
+        updateIsBookmarkedField(posts);
+        addOrUpdatePosts(ReaderDatabase.getWritableDb(), null, posts, false);
     }
 
     public static void addPost(@NonNull ReaderPost post) {
@@ -446,9 +532,28 @@ public class ReaderPostTable {
      */
     public static int getNumLikesForPost(long blogId, long postId) {
         String[] args = {Long.toString(blogId), Long.toString(postId)};
-        return SqlUtils.intForQuery(ReaderDatabase.getReadableDb(),
-                                    "SELECT num_likes FROM tbl_posts WHERE blog_id=? AND post_id=?",
-                                    args);
+        Boolean pendingIsLiked = ReaderPostStateQueue.getPendingIsLiked(blogId, postId);
+        if (pendingIsLiked == null) {
+            return SqlUtils.intForQuery(ReaderDatabase.getReadableDb(),
+                                        "SELECT num_likes FROM tbl_posts WHERE blog_id=? AND post_id=?",
+                                        args);
+        }
+
+        // adjust the stored count by the like which hasn't been written yet
+        Cursor c = ReaderDatabase.getReadableDb().rawQuery(
+                "SELECT num_likes, is_liked FROM tbl_posts WHERE blog_id=? AND post_id=?", args);
+        try {
+            if (!c.moveToFirst()) {
+                return 0;
+            }
+            int numLikes = c.getInt(0);
+            if (SqlUtils.sqlToBool(c.getInt(1)) != pendingIsLiked) {
+                numLikes = Math.max(0, numLikes + (pendingIsLiked ? 1 : -1));
+            }
+            return numLikes;
+        } finally {
+            SqlUtils.closeCursor(c);
+        }
     }
 
     public static boolean isPostLikedByCurrentUser(ReaderPost post) {
@@ -456,6 +561,10 @@ public class ReaderPostTable {
     }
 
     public static boolean isPostLikedByCurrentUser(long blogId, long postId) {
+        Boolean pendingIsLiked = ReaderPostStateQueue.getPendingIsLiked(blogId, postId);
+        if (pendingIsLiked != null) {
+            return pendingIsLiked;
+        }
         String[] args = new String[]{Long.toString(blogId), Long.toString(postId)};
         return SqlUtils.boolForQuery(ReaderDatabase.getReadableDb(),
                                      "SELECT is_liked FROM tbl_posts WHERE blog_id=? AND post_id=?",
@@ -477,6 +586,18 @@ public class ReaderPostTable {
     }
 
 
+    /*
+     * sets whether the current user likes the passed post and adjusts its stored like count to
+     * match, rather than replacing the count with one which may be out of date - the post is left
+     * alone if it's already stored with the passed like state
+     */
+    static void setLikedByCurrentUser(long blogId, long postId, boolean isLiked) {
+        String sql = "UPDATE tbl_posts SET is_liked=?1, num_likes=MAX(0, num_likes + ?2)"
+                     + " WHERE blog_id=?3 AND post_id=?4 AND is_liked!=?1";
+        ReaderDatabase.getWritableDb().execSQL(sql, new Object[]{
+                SqlUtils.boolToSql(isLiked), isLiked ? 1 : -1, blogId, postId});
+    }
+
     public static void setBookmarkFlag(long blogId, long postId, boolean bookmark) {
         ContentValues values = new ContentValues();
         values.put("is_bookmarked", SqlUtils.boolToSql(bookmark));
@@ -509,14 +630,21 @@ public class ReaderPostTable {
                                      args);
     }
 
+    /*
+     * removes the passed tag from all posts - note this leaves the content of posts that are no
+     * longer in any stream in tbl_posts, but these will be cleaned up by the next purge
+     */
     public static int deletePostsWithTag(final ReaderTag tag) {
         if (tag == null) {
             return 0;
         }
 
+        // the stream's sync state no longer describes the posts in it
+        ReaderStreamSyncTable.deleteStream(tag);
+
         String[] args = {tag.getTagSlug(), Integer.toString(tag.tagType.toInt())};
         return ReaderDatabase.getWritableDb().delete(
-                "tbl_posts",
+                "tbl_post_tags",
                 "tag_name=? AND tag_type=?",
                 args);
     }
@@ -528,19 +656,35 @@ public class ReaderPostTable {
 
         String[] args = {Integer.toString(tagType.toInt()), Long.toString(blogId), Long.toString(postId)};
         return ReaderDatabase.getWritableDb().delete(
-                "tbl_posts",
-                "tag_type=? AND blog_id=? AND post_id=?",
+                "tbl_post_tags",
+                "tag_type=? AND pseudo_id IN (SELECT pseudo_id FROM tbl_posts WHERE blog_id=? AND post_id=?)",
                 args);
     }
 
     public static int deletePostsInBlog(long blogId) {
         String[] args = {Long.toString(blogId)};
-        return ReaderDatabase.getWritableDb().delete("tbl_posts", "blog_id = ?", args);
+        return deletePosts("blog_id=?", args);
     }
 
     public static void deletePost(long blogId, long postId) {
         String[] args = new String[]{Long.toString(blogId), Long.toString(postId)};
-        ReaderDatabase.getWritableDb().delete("tbl_posts", "blog_id=? AND post_id=?", args);
+        deletePosts("blog_id=? AND post_id=?", args);
+    }
+
+    /*
+     * deletes both the content and the stream membership of posts matching the passed where clause
+     */
+    private static int deletePosts(@NonNull String where, @NonNull String[] args) {
+        SQLiteDatabase db = ReaderDatabase.getWritableDb();
+        db.beginTransaction();
+        try {
+            db.delete("tbl_post_tags", "pseudo_id IN (SELECT pseudo_id FROM tbl_posts WHERE " + where + ")", args);
+            int numDeleted = db.delete("tbl_posts", where, args);
+            db.setTransactionSuccessful();
+            return numDeleted;
+        } finally {
+            db.endTransaction();
+        }
     }
 
     /*
@@ -573,26 +717,43 @@ public class ReaderPostTable {
 
         // date field depends on the tag
         String dateColumn = getSortColumnForTag(tag);
-        String sql = "SELECT " + dateColumn + " FROM tbl_posts"
-                     + " WHERE tag_name=? AND tag_type=?"
+        String sql = "SELECT " + dateColumn + FROM_POSTS_WITH_TAGS
+                     + " WHERE tbl_post_tags.tag_name=? AND tbl_post_tags.tag_type=?"
                      + " ORDER BY " + dateColumn + " LIMIT 1";
         String[] args = {tag.getTagSlug(), Integer.toString(tag.tagType.toInt())};
         return SqlUtils.stringForQuery(ReaderDatabase.getReadableDb(), sql, args);
     }
 
+    /*
+     * returns the date of the newest post with the passed tag, using the same date field as
+     * getOldestDateWithTag()
+     */
+    public static String getNewestDateWithTag(final ReaderTag tag) {
+        if (tag == null) {
+            return "";
+        }
+
+        String dateColumn = getSortColumnForTag(tag);
+        String sql = "SELECT " + dateColumn + FROM_POSTS_WITH_TAGS
+                     + " WHERE tbl_post_tags.tag_name=? AND tbl_post_tags.tag_type=?"
+                     + " ORDER BY " + dateColumn + " DESC LIMIT 1";
+        String[] args = {tag.getTagSlug(), Integer.toString(tag.tagType.toInt())};
+        return SqlUtils.stringForQuery(ReaderDatabase.getReadableDb(), sql, args);
+    }
+
     /*
      * returns the iso8601 pub date of the oldest post in the passed blog
      */
     public static String getOldestPubDateInBlog(long blogId) {
-        String sql = "SELECT date_published FROM tbl_posts"
-                     + " WHERE blog_id=? AND tag_name=''"
+        String sql = "SELECT date_published" + FROM_POSTS_WITH_TAGS
+                     + " WHERE tbl_posts.blog_id=? AND tbl_post_tags.tag_name=''"
                      + " ORDER BY date_published LIMIT 1";
         return SqlUtils.stringForQuery(ReaderDatabase.getReadableDb(), sql, new String[]{Long.toString(blogId)});
     }
 
     public static String getOldestPubDateInFeed(long feedId) {
-        String sql = "SELECT date_published FROM tbl_posts"
-                     + " WHERE feed_id=? AND tag_name=''"
+        String sql = "SELECT date_published" + FROM_POSTS_WITH_TAGS
+                     + " WHERE tbl_posts.feed_id=? AND tbl_post_tags.tag_name=''"
                      + " ORDER BY date_published LIMIT 1";
         return SqlUtils.stringForQuery(ReaderDatabase.getReadableDb(), sql, new String[]{Long.toString(feedId)});
     }
@@ -603,7 +764,7 @@ public class ReaderPostTable {
         }
 
         String[] args = {tag.getTagSlug(), Integer.toString(tag.tagType.toInt())};
-        String sql = "UPDATE tbl_posts SET has_gap_marker=0 WHERE has_gap_marker!=0 AND tag_name=? AND tag_type=?";
+        String sql = "UPDATE tbl_post_tags SET has_gap_marker=0 WHERE has_gap_marker!=0 AND tag_name=? AND tag_type=?";
         ReaderDatabase.getWritableDb().execSQL(sql, args);
     }
 
@@ -616,7 +777,9 @@ public class ReaderPostTable {
         }
 
         String[] args = {tag.getTagSlug(), Integer.toString(tag.tagType.toInt())};
-        String sql = "SELECT blog_id, post_id FROM tbl_posts WHERE has_gap_marker!=0 AND tag_name=? AND tag_type=?";
+        String sql = "SELECT tbl_posts.blog_id, tbl_posts.post_id" + FROM_POSTS_WITH_TAGS
+                     + " WHERE tbl_post_tags.has_gap_marker!=0"
+                     + " AND tbl_post_tags.tag_name=? AND tbl_post_tags.tag_type=?";
         Cursor cursor = ReaderDatabase.getReadableDb().rawQuery(sql, args);
         try {
             if (cursor.moveToFirst()) {
@@ -637,13 +800,13 @@ public class ReaderPostTable {
         }
 
         String[] args = {
-                Long.toString(blogId),
-                Long.toString(postId),
                 tag.getTagSlug(),
-                Integer.toString(tag.tagType.toInt())
+                Integer.toString(tag.tagType.toInt()),
+                Long.toString(blogId),
+                Long.toString(postId)
         };
-        String sql =
-                "UPDATE tbl_posts SET has_gap_marker=1 WHERE blog_id=? AND post_id=? AND tag_name=? AND tag_type=?";
+        String sql = "UPDATE tbl_post_tags SET has_gap_marker=1 WHERE tag_name=? AND tag_type=?"
+                     + " AND pseudo_id IN (SELECT pseudo_id FROM tbl_posts WHERE blog_id=? AND post_id=?)";
         ReaderDatabase.getWritableDb().execSQL(sql, args);
     }
 
@@ -654,8 +817,15 @@ public class ReaderPostTable {
         }
 
         String dateColumn = getSortColumnForTag(tag);
-        String[] args = {Long.toString(ids.getBlogId()), Long.toString(ids.getPostId())};
-        String sql = "SELECT " + dateColumn + " FROM tbl_posts WHERE blog_id=? AND post_id=?";
+        String[] args = {
+                tag.getTagSlug(),
+                Integer.toString(tag.tagType.toInt()),
+                Long.toString(ids.getBlogId()),
+                Long.toString(ids.getPostId())
+        };
+        String sql = "SELECT " + dateColumn + FROM_POSTS_WITH_TAGS
+                     + " WHERE tbl_post_tags.tag_name=? AND tbl_post_tags.tag_type=?"
+                     + " AND tbl_posts.blog_id=? AND tbl_posts.post_id=?";
         return SqlUtils.stringForQuery(ReaderDatabase.getReadableDb(), sql, args);
     }
 
@@ -681,6 +851,27 @@ public class ReaderPostTable {
         }
     }
 
+    /*
+     * returns the value of the passed post's sort column for the passed tag - used as the key
+     * when paging through posts with the tag
+     */
+    private static String getSortValueForTag(ReaderTag tag, ReaderPost post) {
+        if (post == null) {
+            return null;
+        }
+        String sortColumn = getSortColumnForTag(tag);
+        switch (sortColumn) {
+            case "date_liked":
+                return post.getDateLiked();
+            case "date_tagged":
+                return post.getDateTagged();
+            case "score":
+                return Double.toString(post.score);
+            default:
+                return post.getDatePublished();
+        }
+    }
+
     /*
      * delete posts with the passed tag that come before the one with the gap marker for
      * this tag - note this may leave some stray posts in tbl_posts, but these will
@@ -693,9 +884,14 @@ public class ReaderPostTable {
         }
 
         String dateColumn = getSortColumnForTag(tag);
-        String[] args = {tag.getTagSlug(), Integer.toString(tag.tagType.toInt()), gapMarkerDate};
-        String where = "tag_name=? AND tag_type=? AND " + dateColumn + " < ?";
-        int numDeleted = ReaderDatabase.getWritableDb().delete("tbl_posts", where, args);
+        String tagName = tag.getTagSlug();
+        String tagType = Integer.toString(tag.tagType.toInt());
+        String[] args = {tagName, tagType, tagName, tagType, gapMarkerDate};
+        String where = "tag_name=? AND tag_type=? AND pseudo_id IN (SELECT tbl_post_tags.pseudo_id"
+                       + FROM_POSTS_WITH_TAGS
+                       + " WHERE tbl_post_tags.tag_name=? AND tbl_post_tags.tag_type=?"
+                       + " AND " + dateColumn + " < ?)";
+        int numDeleted = ReaderDatabase.getWritableDb().delete("tbl_post_tags", where, args);
         if (numDeleted > 0) {
             AppLog.d(AppLog.T.READER, "removed " + numDeleted + " posts older than gap marker");
         }
@@ -731,11 +927,13 @@ public class ReaderPostTable {
             // if blog/feed is no longer followed, remove its posts tagged with "Followed Sites"
             if (!isFollowed) {
                 if (blogId != 0) {
-                    db.delete("tbl_posts", "blog_id=? AND tag_name=?",
-                              new String[]{Long.toString(blogId), ReaderTag.TAG_TITLE_FOLLOWED_SITES});
+                    db.delete("tbl_post_tags",
+                              "tag_name=? AND pseudo_id IN (SELECT pseudo_id FROM tbl_posts WHERE blog_id=?)",
+                              new String[]{ReaderTag.TAG_TITLE_FOLLOWED_SITES, Long.toString(blogId)});
                 } else {
-                    db.delete("tbl_posts", "feed_id=? AND tag_name=?",
-                              new String[]{Long.toString(feedId), ReaderTag.TAG_TITLE_FOLLOWED_SITES});
+                    db.delete("tbl_post_tags",
+                              "tag_name=? AND pseudo_id IN (SELECT pseudo_id FROM tbl_posts WHERE feed_id=?)",
+                              new String[]{ReaderTag.TAG_TITLE_FOLLOWED_SITES, Long.toString(feedId)});
                 }
             }
 
@@ -773,152 +971,480 @@ public class ReaderPostTable {
         }
     }
 
-    public static void addOrUpdatePosts(final ReaderTag tag, ReaderPostList posts) {
+    /*
+     * counts reported by addOrUpdatePosts() - posts are inserted when they don't already exist,
+     * rewritten when their content hash has changed, updated in place when only their counts or
+     * like/follow/bookmark state changed, and skipped when nothing changed
+     */
+    public static class AddOrUpdateResult {
+        public int numInserted;
+        public int numRewritten;
+        public int numCountsUpdated;
+        public int numSkipped;
+
+        public boolean hasChanges() {
+            return numInserted > 0 || numRewritten > 0 || numCountsUpdated > 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ENGLISH, "%d inserted, %d rewritten, %d counts updated, %d skipped",
+                    numInserted, numRewritten, numCountsUpdated, numSkipped);
+        }
+    }
+
+    /*
+     * the stored columns addOrUpdatePosts() compares against to decide how to save a post
+     */
+    private static class StoredPostState {
+        private final String mContentHash;
+        private final int mNumReplies;
+        private final int mNumLikes;
+        private final boolean mIsLiked;
+        private final boolean mIsFollowed;
+        private final boolean mIsBookmarked;
+        private final double mScore;
+        private final String mRailcarJson;
+
+        StoredPostState(Cursor c) {
+            mContentHash = c.getString(1);
+            mNumReplies = c.getInt(2);
+            mNumLikes = c.getInt(3);
+            mIsLiked = SqlUtils.sqlToBool(c.getInt(4));
+            mIsFollowed = SqlUtils.sqlToBool(c.getInt(5));
+            mIsBookmarked = SqlUtils.sqlToBool(c.getInt(6));
+            mScore = c.getDouble(7);
+            mRailcarJson = StringUtils.notNullStr(c.getString(8));
+        }
+
+        StoredPostState(ReaderPost post, String contentHash, double score, String railcarJson) {
+            mContentHash = contentHash;
+            mNumReplies = post.numReplies;
+            mNumLikes = post.numLikes;
+            mIsLiked = post.isLikedByCurrentUser;
+            mIsFollowed = post.isFollowedByCurrentUser;
+            mIsBookmarked = post.isBookmarked;
+            mScore = score;
+            mRailcarJson = railcarJson;
+        }
+
+        boolean hasSameCounts(ReaderPost post, boolean compareStreamColumns) {
+            return mNumReplies == post.numReplies
+                   && mNumLikes == post.numLikes
+                   && mIsLiked == post.isLikedByCurrentUser
+                   && mIsFollowed == post.isFollowedByCurrentUser
+                   && mIsBookmarked == post.isBookmarked
+                   && (!compareStreamColumns || (mScore == post.score && mRailcarJson.equals(post.getRailcarJson())));
+        }
+    }
+
+    /*
+     * returns the stored state of the passed posts which are already in tbl_posts, keyed by pseudo_id -
+     * read with one query per chunk of posts rather than one per post
+     */
+    private static Map<String, StoredPostState> getStoredPostStates(SQLiteDatabase db, ReaderPostList posts) {
+        Map<String, StoredPostState> states = new HashMap<>();
+        for (int start = 0; start < posts.size(); start += MAX_SQL_VARIABLES) {
+            int end = Math.min(posts.size(), start + MAX_SQL_VARIABLES);
+            String[] args = new String[end - start];
+            StringBuilder placeholders = new StringBuilder();
+            for (int i = start; i < end; i++) {
+                args[i - start] = posts.get(i).getPseudoId();
+                placeholders.append(i > start ? ",?" : "?");
+            }
+            Cursor c = db.rawQuery(
+                    "SELECT pseudo_id, content_hash, num_replies, num_likes, is_liked, is_followed, is_bookmarked,"
+                    + " score, railcar_json"
+                    + " FROM tbl_posts WHERE pseudo_id IN (" + placeholders + ")", args);
+            try {
+                while (c.moveToNext()) {
+                    states.put(c.getString(0), new StoredPostState(c));
+                }
+            } finally {
+                SqlUtils.closeCursor(c);
+            }
+        }
+        return states;
+    }
+
+    public static AddOrUpdateResult addOrUpdatePosts(final ReaderTag tag, ReaderPostList posts) {
         if (posts == null || posts.size() == 0) {
-            return;
+            return new AddOrUpdateResult();
         }
 
         updateIsBookmarkedField(posts);
 
-        SQLiteDatabase db = ReaderDatabase.getWritableDb();
+        return addOrUpdatePosts(ReaderDatabase.getWritableDb(), tag, posts);
+    }
+
+    /*
+     * writes the passed posts to the passed database - split from the above so it can be
+     * benchmarked against a standalone database
+     */
+    static AddOrUpdateResult addOrUpdatePosts(SQLiteDatabase db, final ReaderTag tag, ReaderPostList posts) {
+        return addOrUpdatePosts(db, tag, posts, true);
+    }
+
+    /*
+     * the score and railcar of a post depend on the stream it was retrieved in, so they're only
+     * written when writeStreamColumns is true - otherwise posts which are already stored keep them
+     */
+    private static AddOrUpdateResult addOrUpdatePosts(SQLiteDatabase db,
+                                                      final ReaderTag tag,
+                                                      ReaderPostList posts,
+                                                      boolean writeStreamColumns) {
+        AddOrUpdateResult result = new AddOrUpdateResult();
         SQLiteStatement stmtPosts = db.compileStatement(
                 "INSERT OR REPLACE INTO tbl_posts ("
                 + COLUMN_NAMES
                 + ") VALUES (?1,?2,?3,?4,?5,?6,?7,?8,?9,?10,?11,?12,?13,?14,?15,?16,?17,?18,?19,?20,?21,?22,?23,?24,"
-                + "?25,?26,?27,?28,?29,?30,?31,?32,?33,?34,?35,?36,?37,?38,?39,?40,?41,?42,?43,?44, ?45, ?46)");
+                + "?25,?26,?27,?28,?29,?30,?31,?32,?33,?34,?35,?36,?37,?38,?39,?40,?41,?42,?43)");
+        SQLiteStatement stmtCounts = db.compileStatement(
+                "UPDATE tbl_posts SET num_replies=?1, num_likes=?2, is_liked=?3, is_followed=?4, is_bookmarked=?5,"
+                + " score=?6, railcar_json=?7"
+                + " WHERE pseudo_id=?8");
+        SQLiteStatement stmtFts = ReaderPostFtsTable.compileInsertStatement(db);
+        // existing stream rows are left alone so they keep their gap marker, only the date they
+        // were tagged is updated if it changed
+        SQLiteStatement stmtTags = db.compileStatement(
+                "INSERT OR IGNORE INTO tbl_post_tags ("
+                + TAG_COLUMN_NAMES
+                + ") VALUES (?1,?2,?3,?4,0)");
+        SQLiteStatement stmtTagDate = db.compileStatement(
+                "UPDATE tbl_post_tags SET date_tagged=?1"
+                + " WHERE pseudo_id=?2 AND tag_name=?3 AND tag_type=?4 AND date_tagged IS NOT ?1");
 
         db.beginTransaction();
         try {
             String tagName = (tag != null ? tag.getTagSlug() : "");
             int tagType = (tag != null ? tag.tagType.toInt() : 0);
 
-            ReaderBlogIdPostId postWithGapMarker = getGapMarkerIdsForTag(tag);
-
+            Map<String, StoredPostState> storedStates = getStoredPostStates(db, posts);
             for (ReaderPost post : posts) {
-                // keep the gapMarker flag
-                boolean hasGapMarker = postWithGapMarker != null && postWithGapMarker.getPostId() == post.postId
-                                       && postWithGapMarker.getBlogId() == post.blogId;
-                stmtPosts.bindLong(1, post.postId);
-                stmtPosts.bindLong(2, post.blogId);
-                stmtPosts.bindLong(3, post.feedId);
-                stmtPosts.bindLong(4, post.feedItemId);
-                stmtPosts.bindString(5, post.getPseudoId());
-                stmtPosts.bindString(6, post.getAuthorName());
-                stmtPosts.bindString(7, post.getAuthorFirstName());
-                stmtPosts.bindLong(8, post.authorId);
-                stmtPosts.bindString(9, post.getTitle());
-                stmtPosts.bindString(10, maxText(post));
-                stmtPosts.bindString(11, post.getExcerpt());
-                stmtPosts.bindString(12, post.getFormat());
-                stmtPosts.bindString(13, post.getUrl());
-                stmtPosts.bindString(14, post.getShortUrl());
-                stmtPosts.bindString(15, post.getBlogName());
-                stmtPosts.bindString(16, post.getBlogUrl());
-                stmtPosts.bindString(17, post.getBlogImageUrl());
-                stmtPosts.bindString(18, post.getFeaturedImage());
-                stmtPosts.bindString(19, post.getFeaturedVideo());
-                stmtPosts.bindString(20, post.getPostAvatar());
-                stmtPosts.bindDouble(21, post.score);
-                stmtPosts.bindString(22, post.getDatePublished());
-                stmtPosts.bindString(23, post.getDateLiked());
-                stmtPosts.bindString(24, post.getDateTagged());
-                stmtPosts.bindLong(25, post.numReplies);
-                stmtPosts.bindLong(26, post.numLikes);
-                stmtPosts.bindLong(27, SqlUtils.boolToSql(post.isLikedByCurrentUser));
-                stmtPosts.bindLong(28, SqlUtils.boolToSql(post.isFollowedByCurrentUser));
-                stmtPosts.bindLong(29, SqlUtils.boolToSql(post.isCommentsOpen));
-                stmtPosts.bindLong(30, SqlUtils.boolToSql(post.isExternal));
-                stmtPosts.bindLong(31, SqlUtils.boolToSql(post.isPrivate));
-                stmtPosts.bindLong(32, SqlUtils.boolToSql(post.isVideoPress));
-                stmtPosts.bindLong(33, SqlUtils.boolToSql(post.isJetpack));
-                stmtPosts.bindString(34, post.getPrimaryTag());
-                stmtPosts.bindString(35, post.getSecondaryTag());
-                stmtPosts.bindString(36, post.getAttachmentsJson());
-                stmtPosts.bindString(37, post.getDiscoverJson());
-                stmtPosts.bindLong(38, post.xpostPostId);
-                stmtPosts.bindLong(39, post.xpostBlogId);
-                stmtPosts.bindString(40, post.getRailcarJson());
-                stmtPosts.bindString(41, tagName);
-                stmtPosts.bindLong(42, tagType);
-                stmtPosts.bindLong(43, SqlUtils.boolToSql(hasGapMarker));
-                stmtPosts.bindString(44, ReaderCardType.toString(post.getCardType()));
-                stmtPosts.bindLong(45, SqlUtils.boolToSql(post.useExcerpt));
-                stmtPosts.bindLong(46, SqlUtils.boolToSql(post.isBookmarked));
-                stmtPosts.execute();
+                String contentHash = post.getContentHash();
+                StoredPostState stored = storedStates.get(post.getPseudoId());
+                double score = post.score;
+                String railcarJson = post.getRailcarJson();
+                if (stored != null && !writeStreamColumns) {
+                    score = stored.mScore;
+                    railcarJson = stored.mRailcarJson;
+                }
+                if (stored == null) {
+                    bindPost(stmtPosts, post, contentHash);
+                    ReaderPostFtsTable.insertPost(stmtFts, stmtPosts.executeInsert(), post);
+                    result.numInserted++;
+                } else if (!contentHash.equals(stored.mContentHash)) {
+                    // the replace gives the post a new rowid, so its index row is replaced too
+                    ReaderPostFtsTable.deletePost(db, post.getPseudoId());
+                    bindPost(stmtPosts, post, contentHash);
+                    stmtPosts.bindDouble(21, score);
+                    stmtPosts.bindString(39, railcarJson);
+                    ReaderPostFtsTable.insertPost(stmtFts, stmtPosts.executeInsert(), post);
+                    result.numRewritten++;
+                } else if (!stored.hasSameCounts(post, writeStreamColumns)) {
+                    stmtCounts.bindLong(1, post.numReplies);
+                    stmtCounts.bindLong(2, post.numLikes);
+                    stmtCounts.bindLong(3, SqlUtils.boolToSql(post.isLikedByCurrentUser));
+                    stmtCounts.bindLong(4, SqlUtils.boolToSql(post.isFollowedByCurrentUser));
+                    stmtCounts.bindLong(5, SqlUtils.boolToSql(post.isBookmarked));
+                    stmtCounts.bindDouble(6, score);
+                    stmtCounts.bindString(7, railcarJson);
+                    stmtCounts.bindString(8, post.getPseudoId());
+                    stmtCounts.execute();
+                    result.numCountsUpdated++;
+                } else {
+                    result.numSkipped++;
+                }
+                // the same post may appear again later in the list
+                storedStates.put(post.getPseudoId(), new StoredPostState(post, contentHash, score, railcarJson));
+
+                stmtTags.bindString(1, post.getPseudoId());
+                stmtTags.bindString(2, tagName);
+                stmtTags.bindLong(3, tagType);
+                stmtTags.bindString(4, post.getDateTagged());
+                if (stmtTags.executeInsert() == -1) {
+                    stmtTagDate.bindString(1, post.getDateTagged());
+                    stmtTagDate.bindString(2, post.getPseudoId());
+                    stmtTagDate.bindString(3, tagName);
+                    stmtTagDate.bindLong(4, tagType);
+                    stmtTagDate.execute();
+                }
             }
 
             db.setTransactionSuccessful();
         } finally {
             db.endTransaction();
             SqlUtils.closeStatement(stmtPosts);
+            SqlUtils.closeStatement(stmtCounts);
+            SqlUtils.closeStatement(stmtFts);
+            SqlUtils.closeStatement(stmtTags);
+            SqlUtils.closeStatement(stmtTagDate);
         }
+
+        AppLog.d(AppLog.T.READER, "reader post table > saved posts, " + result.toString());
+        return result;
+    }
+
+    private static void bindPost(@NonNull SQLiteStatement stmt, @NonNull ReaderPost post, String contentHash) {
+        stmt.bindLong(1, post.postId);
+        stmt.bindLong(2, post.blogId);
+        stmt.bindLong(3, post.feedId);
+        stmt.bindLong(4, post.feedItemId);
+        stmt.bindString(5, post.getPseudoId());
+        stmt.bindString(6, post.getAuthorName());
+        stmt.bindString(7, post.getAuthorFirstName());
+        stmt.bindLong(8, post.authorId);
+        stmt.bindString(9, post.getTitle());
+        stmt.bindString(10, maxText(post));
+        stmt.bindString(11, post.getExcerpt());
+        stmt.bindString(12, post.getFormat());
+        stmt.bindString(13, post.getUrl());
+        stmt.bindString(14, post.getShortUrl());
+        stmt.bindString(15, post.getBlogName());
+        stmt.bindString(16, post.getBlogUrl());
+        stmt.bindString(17, post.getBlogImageUrl());
+        stmt.bindString(18, post.getFeaturedImage());
+        stmt.bindString(19, post.getFeaturedVideo());
+        stmt.bindString(20, post.getPostAvatar());
+        stmt.bindDouble(21, post.score);
+        stmt.bindString(22, post.getDatePublished());
+        stmt.bindString(23, post.getDateLiked());
+        stmt.bindLong(24, post.numReplies);
+        stmt.bindLong(25, post.numLikes);
+        stmt.bindLong(26, SqlUtils.boolToSql(post.isLikedByCurrentUser));
+        stmt.bindLong(27, SqlUtils.boolToSql(post.isFollowedByCurrentUser));
+        stmt.bindLong(28, SqlUtils.boolToSql(post.isCommentsOpen));
+        stmt.bindLong(29, SqlUtils.boolToSql(post.isExternal));
+        stmt.bindLong(30, SqlUtils.boolToSql(post.isPrivate));
+        stmt.bindLong(31, SqlUtils.boolToSql(post.isVideoPress));
+        stmt.bindLong(32, SqlUtils.boolToSql(post.isJetpack));
+        stmt.bindString(33, post.getPrimaryTag());
+        stmt.bindString(34, post.getSecondaryTag());
+        stmt.bindString(35, post.getAttachmentsJson());
+        stmt.bindString(36, post.getDiscoverJson());
+        stmt.bindLong(37, post.xpostPostId);
+        stmt.bindLong(38, post.xpostBlogId);
+        stmt.bindString(39, post.getRailcarJson());
+        stmt.bindString(40, ReaderCardType.toString(post.getCardType()));
+        stmt.bindLong(41, SqlUtils.boolToSql(post.useExcerpt));
+        stmt.bindLong(42, SqlUtils.boolToSql(post.isBookmarked));
+        stmt.bindString(43, contentHash);
     }
 
     public static ReaderPostList getPostsWithTag(ReaderTag tag, int maxPosts, boolean excludeTextColumn) {
+        return getPostsWithTag(tag, null, maxPosts, excludeTextColumn);
+    }
+
+    /*
+     * keyset paging - returns up to maxPosts posts with the passed tag which sort after the passed
+     * post, or the first page if afterPost is null. the position is found by seeking on the sort
+     * column + pseudo_id, so the cost doesn't grow with the number of posts already paged through
+     */
+    public static ReaderPostList getPostsWithTag(ReaderTag tag,
+                                                 ReaderPost afterPost,
+                                                 int maxPosts,
+                                                 boolean excludeTextColumn) {
+        return getPostsWithTag(tag, afterPost, false, maxPosts, excludeTextColumn);
+    }
+
+    /*
+     * keyset paging in the other direction - returns up to maxPosts posts with the passed tag which
+     * sort immediately before the passed post, in the usual order
+     */
+    public static ReaderPostList getNewerPostsWithTag(ReaderTag tag,
+                                                      @NonNull ReaderPost beforePost,
+                                                      int maxPosts,
+                                                      boolean excludeTextColumn) {
+        return getPostsWithTag(tag, beforePost, true, maxPosts, excludeTextColumn);
+    }
+
+    private static ReaderPostList getPostsWithTag(ReaderTag tag,
+                                                  ReaderPost anchorPost,
+                                                  boolean isNewer,
+                                                  int maxPosts,
+                                                  boolean excludeTextColumn) {
         if (tag == null) {
             return new ReaderPostList();
         }
 
-        String columns = (excludeTextColumn ? COLUMN_NAMES_NO_TEXT : "*");
-        String sql = "SELECT " + columns + " FROM tbl_posts WHERE tag_name=? AND tag_type=?";
+        String columns = (excludeTextColumn ? COLUMN_NAMES_NO_TEXT_WITH_TAG : COLUMN_NAMES_WITH_TAG);
+        String sql = "SELECT " + columns + FROM_POSTS_WITH_TAGS
+                     + " WHERE tbl_post_tags.tag_name=? AND tbl_post_tags.tag_type=?";
 
         if (tag.tagType == ReaderTagType.DEFAULT) {
             // skip posts that are no longer liked if this is "Posts I Like", skip posts that are no
             // longer followed if this is "Followed Sites"
             if (tag.isPostsILike()) {
-                sql += " AND is_liked != 0";
+                sql += " AND tbl_posts.is_liked != 0";
             } else if (tag.isFollowedSites()) {
-                sql += " AND is_followed != 0";
+                sql += " AND tbl_posts.is_followed != 0";
             }
         }
 
-        sql += " ORDER BY " + getSortColumnForTag(tag) + " DESC";
-
-        if (maxPosts > 0) {
-            sql += " LIMIT " + Integer.toString(maxPosts);
-        }
-
         String[] args = {tag.getTagSlug(), Integer.toString(tag.tagType.toInt())};
-        Cursor cursor = ReaderDatabase.getReadableDb().rawQuery(sql, args);
-        try {
-            return getPostListFromCursor(cursor);
-        } finally {
-            SqlUtils.closeCursor(cursor);
-        }
+        return getPostsPage(sql, args, getSortColumnForTag(tag), getSortValueForTag(tag, anchorPost), anchorPost,
+                isNewer, maxPosts);
     }
 
     public static ReaderPostList getPostsInBlog(long blogId, int maxPosts, boolean excludeTextColumn) {
-        String columns = (excludeTextColumn ? COLUMN_NAMES_NO_TEXT : "*");
-        String sql =
-                "SELECT " + columns + " FROM tbl_posts WHERE blog_id=? AND tag_name='' ORDER BY date_published DESC";
+        return getPostsInBlog(blogId, null, maxPosts, excludeTextColumn);
+    }
+
+    /*
+     * keyset paging - same as getPostsWithTag() above
+     */
+    public static ReaderPostList getPostsInBlog(long blogId,
+                                                ReaderPost afterPost,
+                                                int maxPosts,
+                                                boolean excludeTextColumn) {
+        return getPostsInBlog(blogId, afterPost, false, maxPosts, excludeTextColumn);
+    }
+
+    /*
+     * keyset paging in the other direction - same as getNewerPostsWithTag() above
+     */
+    public static ReaderPostList getNewerPostsInBlog(long blogId,
+                                                     @NonNull ReaderPost beforePost,
+                                                     int maxPosts,
+                                                     boolean excludeTextColumn) {
+        return getPostsInBlog(blogId, beforePost, true, maxPosts, excludeTextColumn);
+    }
+
+    private static ReaderPostList getPostsInBlog(long blogId,
+                                                 ReaderPost anchorPost,
+                                                 boolean isNewer,
+                                                 int maxPosts,
+                                                 boolean excludeTextColumn) {
+        String columns = (excludeTextColumn ? COLUMN_NAMES_NO_TEXT_WITH_TAG : COLUMN_NAMES_WITH_TAG);
+        String sql = "SELECT " + columns + FROM_POSTS_WITH_TAGS
+                     + " WHERE tbl_posts.blog_id=? AND tbl_post_tags.tag_name=''";
+        String[] args = {Long.toString(blogId)};
+        String anchorValue = anchorPost != null ? anchorPost.getDatePublished() : null;
+        return getPostsPage(sql, args, "tbl_posts.date_published", anchorValue, anchorPost, isNewer, maxPosts);
+    }
+
+    public static ReaderPostList getPostsInFeed(long feedId, int maxPosts, boolean excludeTextColumn) {
+        return getPostsInFeed(feedId, null, maxPosts, excludeTextColumn);
+    }
+
+    /*
+     * keyset paging - same as getPostsWithTag() above
+     */
+    public static ReaderPostList getPostsInFeed(long feedId,
+                                                ReaderPost afterPost,
+                                                int maxPosts,
+                                                boolean excludeTextColumn) {
+        return getPostsInFeed(feedId, afterPost, false, maxPosts, excludeTextColumn);
+    }
+
+    /*
+     * keyset paging in the other direction - same as getNewerPostsWithTag() above
+     */
+    public static ReaderPostList getNewerPostsInFeed(long feedId,
+                                                     @NonNull ReaderPost beforePost,
+                                                     int maxPosts,
+                                                     boolean excludeTextColumn) {
+        return getPostsInFeed(feedId, beforePost, true, maxPosts, excludeTextColumn);
+    }
+
+    private static ReaderPostList getPostsInFeed(long feedId,
+                                                 ReaderPost anchorPost,
+                                                 boolean isNewer,
+                                                 int maxPosts,
+                                                 boolean excludeTextColumn) {
+        String columns = (excludeTextColumn ? COLUMN_NAMES_NO_TEXT_WITH_TAG : COLUMN_NAMES_WITH_TAG);
+        String sql = "SELECT " + columns + FROM_POSTS_WITH_TAGS
+                     + " WHERE tbl_posts.feed_id=? AND tbl_post_tags.tag_name=''";
+        String[] args = {Long.toString(feedId)};
+        String anchorValue = anchorPost != null ? anchorPost.getDatePublished() : null;
+        return getPostsPage(sql, args, "tbl_posts.date_published", anchorValue, anchorPost, isNewer, maxPosts);
+    }
+
+    /*
+     * appends the keyset condition, sort order and limit to the passed stream query and returns
+     * the resulting posts - pseudo_id is used as a tie-breaker so the order is stable when several
+     * posts have the same sort value. posts sort after the anchor post unless isNewer is set, in
+     * which case the posts immediately before it are returned, still in the usual order
+     */
+    private static ReaderPostList getPostsPage(@NonNull String sql,
+                                               @NonNull String[] args,
+                                               @NonNull String sortColumn,
+                                               String anchorValue,
+                                               ReaderPost anchorPost,
+                                               boolean isNewer,
+                                               int maxPosts) {
+        String[] queryArgs = args;
+        if (anchorPost != null) {
+            String op = isNewer ? ">" : "<";
+            sql += " AND (" + sortColumn + " " + op + " ? OR (" + sortColumn + " = ? AND tbl_posts.pseudo_id "
+                   + op + " ?))";
+            queryArgs = new String[args.length + 3];
+            System.arraycopy(args, 0, queryArgs, 0, args.length);
+            queryArgs[args.length] = StringUtils.notNullStr(anchorValue);
+            queryArgs[args.length + 1] = StringUtils.notNullStr(anchorValue);
+            queryArgs[args.length + 2] = anchorPost.getPseudoId();
+        }
+
+        String direction = isNewer ? " ASC" : " DESC";
+        sql += " ORDER BY " + sortColumn + direction + ", tbl_posts.pseudo_id" + direction;
 
         if (maxPosts > 0) {
             sql += " LIMIT " + Integer.toString(maxPosts);
         }
 
-        Cursor cursor = ReaderDatabase.getReadableDb().rawQuery(sql, new String[]{Long.toString(blogId)});
+        Cursor cursor = ReaderDatabase.getReadableDb().rawQuery(sql, queryArgs);
         try {
-            return getPostListFromCursor(cursor);
+            ReaderPostList posts = getPostListFromCursor(cursor);
+            if (isNewer) {
+                Collections.reverse(posts);
+            }
+            return posts;
         } finally {
             SqlUtils.closeCursor(cursor);
         }
     }
 
-    public static ReaderPostList getPostsInFeed(long feedId, int maxPosts, boolean excludeTextColumn) {
-        String columns = (excludeTextColumn ? COLUMN_NAMES_NO_TEXT : "*");
-        String sql =
-                "SELECT " + columns + " FROM tbl_posts WHERE feed_id=? AND tag_name='' ORDER BY date_published DESC";
+    /*
+     * offline search - returns up to maxPosts locally stored posts matching the passed search
+     * string, best matches first. the text column is always excluded since this is only used to
+     * show a list of results
+     */
+    public static ReaderPostList searchPosts(String query, int maxPosts) {
+        return searchPosts(ReaderDatabase.getReadableDb(), query, maxPosts);
+    }
 
-        if (maxPosts > 0) {
-            sql += " LIMIT " + Integer.toString(maxPosts);
+    static ReaderPostList searchPosts(SQLiteDatabase db, String query, int maxPosts) {
+        ReaderPostList posts = new ReaderPostList();
+        List<Long> rowIds = ReaderPostFtsTable.search(db, query, maxPosts);
+        if (rowIds.size() == 0) {
+            return posts;
         }
 
-        Cursor cursor = ReaderDatabase.getReadableDb().rawQuery(sql, new String[]{Long.toString(feedId)});
+        StringBuilder sql = new StringBuilder("SELECT rowid, " + COLUMN_NAMES_NO_TEXT
+                                              + " FROM tbl_posts WHERE rowid IN (");
+        for (int i = 0; i < rowIds.size(); i++) {
+            sql.append(i > 0 ? "," : "").append(rowIds.get(i));
+        }
+        sql.append(")");
+
+        // the IN clause returns rows in rowid order, so put them back in rank order
+        Map<Long, ReaderPost> postsByRowId = new HashMap<>();
+        Cursor cursor = db.rawQuery(sql.toString(), null);
         try {
-            return getPostListFromCursor(cursor);
+            while (cursor.moveToNext()) {
+                postsByRowId.put(cursor.getLong(0), getPostFromCursor(cursor));
+            }
         } finally {
             SqlUtils.closeCursor(cursor);
         }
+
+        for (Long rowId : rowIds) {
+            ReaderPost post = postsByRowId.get(rowId);
+            if (post != null) {
+                posts.add(post);
+            }
+        }
+        return posts;
     }
 
     /*
@@ -929,17 +1455,18 @@ public class ReaderPostTable {
             return new ReaderBlogIdPostIdList();
         }
 
-        String sql = "SELECT blog_id, post_id FROM tbl_posts WHERE tag_name=? AND tag_type=?";
+        String sql = "SELECT tbl_posts.blog_id, tbl_posts.post_id" + FROM_POSTS_WITH_TAGS
+                     + " WHERE tbl_post_tags.tag_name=? AND tbl_post_tags.tag_type=?";
 
         if (tag.tagType == ReaderTagType.DEFAULT) {
             if (tag.isPostsILike()) {
-                sql += " AND is_liked != 0";
+                sql += " AND tbl_posts.is_liked != 0";
             } else if (tag.isFollowedSites()) {
-                sql += " AND is_followed != 0";
+                sql += " AND tbl_posts.is_followed != 0";
             }
         }
 
-        sql += " ORDER BY " + getSortColumnForTag(tag) + " DESC";
+        sql += " ORDER BY " + getSortColumnForTag(tag) + " DESC, tbl_posts.pseudo_id DESC";
 
         if (maxPosts > 0) {
             sql += " LIMIT " + Integer.toString(maxPosts);
@@ -954,7 +1481,8 @@ public class ReaderPostTable {
             return new ReaderBlogIdPostIdList();
         }
 
-        String sql = "SELECT blog_id, post_id FROM tbl_posts WHERE tag_type=?";
+        String sql = "SELECT tbl_posts.blog_id, tbl_posts.post_id" + FROM_POSTS_WITH_TAGS
+                     + " WHERE tbl_post_tags.tag_type=?";
 
         if (maxPosts > 0) {
             sql += " LIMIT " + Integer.toString(maxPosts);
@@ -983,7 +1511,9 @@ public class ReaderPostTable {
      * same as getPostsInBlog() but only returns the blogId/postId pairs
      */
     public static ReaderBlogIdPostIdList getBlogIdPostIdsInBlog(long blogId, int maxPosts) {
-        String sql = "SELECT post_id FROM tbl_posts WHERE blog_id=? AND tag_name='' ORDER BY date_published DESC";
+        String sql = "SELECT tbl_posts.post_id" + FROM_POSTS_WITH_TAGS
+                     + " WHERE tbl_posts.blog_id=? AND tbl_post_tags.tag_name=''"
+                     + " ORDER BY tbl_posts.date_published DESC, tbl_posts.pseudo_id DESC";
 
         if (maxPosts > 0) {
             sql += " LIMIT " + Integer.toString(maxPosts);
@@ -1041,7 +1571,12 @@ public class ReaderPostTable {
 
         post.setDatePublished(c.getString(c.getColumnIndex("date_published")));
         post.setDateLiked(c.getString(c.getColumnIndex("date_liked")));
-        post.setDateTagged(c.getString(c.getColumnIndex("date_tagged")));
+
+        // date_tagged is stored per stream, so it's only available when querying a specific stream
+        int idxDateTagged = c.getColumnIndex("date_tagged");
+        if (idxDateTagged > -1) {
+            post.setDateTagged(c.getString(idxDateTagged));
+        }
 
         post.score = c.getDouble(c.getColumnIndex("score"));
         post.numReplies = c.getInt(c.getColumnIndex("num_replies"));
@@ -1070,6 +1605,9 @@ public class ReaderPostTable {
 
         post.useExcerpt = SqlUtils.sqlToBool(c.getInt(c.getColumnIndex("use_excerpt")));
 
+        // likes and bookmarks the user just changed may not have been written yet
+        ReaderPostStateQueue.applyPendingState(post);
+
         return post;
     }
 
@@ -0,0 +1,119 @@
+package org.wordpress.android.datasets;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.support.annotation.NonNull;
+import android.text.TextUtils;
+
+import org.wordpress.android.models.ReaderTag;
+import org.wordpress.android.util.SqlUtils;
+
+/**
+ * sync state of each reader stream - stores the date of the newest post received for the stream
+ * so later requests for newer posts can ask only for posts after it, and when the stream was last
+ * fully synced so the posts already in the stream are periodically refreshed
+ */
+public class ReaderStreamSyncTable {
+    // streams are fully synced at least this often so existing posts get updated like/comment counts
+    private static final long FULL_SYNC_INTERVAL_MS = 60 * 60 * 1000;
+
+    protected static void createTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE tbl_stream_sync ("
+                   + " stream_key TEXT PRIMARY KEY,"
+                   + " newest_date TEXT,"
+                   + " full_sync_time INTEGER DEFAULT 0,"
+                   + " sync_time INTEGER DEFAULT 0)");
+    }
+
+    protected static void dropTables(SQLiteDatabase db) {
+        db.execSQL("DROP TABLE IF EXISTS tbl_stream_sync");
+    }
+
+    public static String getStreamKey(@NonNull ReaderTag tag) {
+        return "tag:" + tag.tagType.toInt() + ":" + tag.getTagSlug();
+    }
+
+    /*
+     * returns the date to request newer posts after, or null if the stream should be fully synced
+     * because it hasn't been synced yet or it's time to refresh the posts already in it
+     */
+    public static String getIncrementalSyncDate(@NonNull String streamKey) {
+        String[] args = {streamKey};
+        Cursor c = ReaderDatabase.getReadableDb().rawQuery(
+                "SELECT newest_date, full_sync_time FROM tbl_stream_sync WHERE stream_key=?", args);
+        try {
+            if (!c.moveToFirst()) {
+                return null;
+            }
+            String newestDate = c.getString(0);
+            long fullSyncTime = c.getLong(1);
+            if (TextUtils.isEmpty(newestDate)
+                || System.currentTimeMillis() - fullSyncTime > FULL_SYNC_INTERVAL_MS) {
+                return null;
+            }
+            return newestDate;
+        } finally {
+            SqlUtils.closeCursor(c);
+        }
+    }
+
+    /*
+     * records that new posts in the passed stream were stored - newestDate is the date of the
+     * newest post now in the stream
+     */
+    public static void setSynced(@NonNull String streamKey, String newestDate, boolean isFullSync) {
+        long now = System.currentTimeMillis();
+        SQLiteDatabase db = ReaderDatabase.getWritableDb();
+        SQLiteStatement stmt = db.compileStatement(
+                "INSERT OR REPLACE INTO tbl_stream_sync"
+                + " (stream_key, newest_date, full_sync_time, sync_time)"
+                + " VALUES (?1, ?2,"
+                + " COALESCE(?3, (SELECT full_sync_time FROM tbl_stream_sync WHERE stream_key=?1), 0),"
+                + " ?4)");
+        try {
+            stmt.bindString(1, streamKey);
+            if (newestDate != null) {
+                stmt.bindString(2, newestDate);
+            } else {
+                stmt.bindNull(2);
+            }
+            if (isFullSync) {
+                stmt.bindLong(3, now);
+            } else {
+                stmt.bindNull(3);
+            }
+            stmt.bindLong(4, now);
+            stmt.execute();
+        } finally {
+            SqlUtils.closeStatement(stmt);
+        }
+    }
+
+    /*
+     * records that the passed stream was checked for newer posts and there weren't any
+     */
+    public static void setSyncedUnchanged(@NonNull String streamKey) {
+        SQLiteStatement stmt = ReaderDatabase.getWritableDb().compileStatement(
+                "UPDATE tbl_stream_sync SET sync_time=?1 WHERE stream_key=?2");
+        try {
+            stmt.bindLong(1, System.currentTimeMillis());
+            stmt.bindString(2, streamKey);
+            stmt.execute();
+        } finally {
+            SqlUtils.closeStatement(stmt);
+        }
+    }
+
+    /*
+     * called when the passed tag is removed or its posts are deleted, so the next sync of the tag
+     * is a full one
+     */
+    public static void deleteStream(@NonNull ReaderTag tag) {
+        deleteStream(getStreamKey(tag));
+    }
+
+    public static void deleteStream(@NonNull String streamKey) {
+        ReaderDatabase.getWritableDb().delete("tbl_stream_sync", "stream_key=?", new String[]{streamKey});
+    }
+}
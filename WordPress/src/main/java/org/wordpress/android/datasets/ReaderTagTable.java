@@ -291,6 +291,7 @@ public class ReaderTagTable {
         }
         String[] args = {tag.getTagSlug(), Integer.toString(tag.tagType.toInt())};
         ReaderDatabase.getWritableDb().delete("tbl_tags", "tag_slug=? AND tag_type=?", args);
+        ReaderStreamSyncTable.deleteStream(tag);
     }
 
 
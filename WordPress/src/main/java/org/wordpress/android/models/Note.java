@@ -5,7 +5,6 @@ package org.wordpress.android.models;
 
 import android.text.Spannable;
 import android.text.TextUtils;
-import android.util.Base64;
 
 import org.apache.commons.lang3.time.DateUtils;
 import org.json.JSONArray;
@@ -13,18 +12,16 @@ import org.json.JSONException;
 import org.json.JSONObject;
 import org.wordpress.android.fluxc.model.CommentModel;
 import org.wordpress.android.fluxc.model.CommentStatus;
+import org.wordpress.android.ui.notifications.utils.NotePayloadDecoder;
 import org.wordpress.android.ui.notifications.utils.NotificationsUtilsWrapper;
 import org.wordpress.android.util.AppLog;
 import org.wordpress.android.util.DateTimeUtils;
 import org.wordpress.android.util.JSONUtils;
 import org.wordpress.android.util.StringUtils;
 
-import java.io.UnsupportedEncodingException;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.EnumSet;
-import java.util.zip.DataFormatException;
-import java.util.zip.Inflater;
 
 public class Note {
     private static final String TAG = "NoteModel";
@@ -52,6 +49,12 @@ public class Note {
     private JSONObject mNoteJSON;
     private final String mKey;
 
+    // JSON of a note read from NotificationsTable, which is parsed the first time it's needed
+    private String mRawNoteJSON;
+    private ListFields mListFields;
+    private Long mTimestamp;
+    private JSONObject mListSubject;
+
     private final Object mSyncLock = new Object();
     private String mLocalStatus;
 
@@ -71,18 +74,95 @@ public class Note {
         GROUP_OLDER_MONTH
     }
 
+    /*
+     * the filters the notes list can be shown with - NotificationsTable applies them in its query
+     */
+    public enum FILTERS {
+        FILTER_ALL,
+        FILTER_COMMENT,
+        FILTER_FOLLOW,
+        FILTER_LIKE,
+        FILTER_UNREAD;
+
+        public String toString() {
+            switch (this) {
+                case FILTER_ALL:
+                    return "all";
+                case FILTER_COMMENT:
+                    return "comment";
+                case FILTER_FOLLOW:
+                    return "follow";
+                case FILTER_LIKE:
+                    return "like";
+                case FILTER_UNREAD:
+                    return "unread";
+                default:
+                    return "all";
+            }
+        }
+    }
+
+    /**
+     * The fields used to show and filter a note in the notes list - NotificationsTable stores them in
+     * their own columns so the list can be read without parsing each note's JSON
+     */
+    public static class ListFields {
+        public String type;
+        public boolean isUnread;
+        public long timestamp;
+        // JSON of the first subject block, including its formatting ranges
+        public String subject;
+        public String subjectNoticon;
+        public String commentSubject;
+        public String iconUrl;
+        public String noticon;
+        public CommentStatus commentStatus;
+        public int siteId;
+        public int postId;
+        public long commentId;
+    }
+
     public Note(String key, JSONObject noteJSON) {
         mKey = key;
         mNoteJSON = noteJSON;
     }
 
+    /*
+     * creates a note read from the notes list in NotificationsTable - its JSON isn't parsed until a
+     * field which isn't in listFields is needed
+     */
+    public Note(String key, String rawNoteJSON, ListFields listFields) {
+        mKey = key;
+        mRawNoteJSON = rawNoteJSON;
+        mListFields = listFields;
+    }
+
     public Note(JSONObject noteJSON) {
         mNoteJSON = noteJSON;
         mKey = mNoteJSON.optString("id", "");
     }
 
     public JSONObject getJSON() {
-        return mNoteJSON != null ? mNoteJSON : new JSONObject();
+        synchronized (mSyncLock) {
+            JSONObject noteJSON = getNoteJSON();
+            return noteJSON != null ? noteJSON : new JSONObject();
+        }
+    }
+
+    /*
+     * returns the note's JSON, parsing it first if it hasn't been yet - must be called while holding mSyncLock
+     */
+    private JSONObject getNoteJSON() {
+        if (mNoteJSON == null && mRawNoteJSON != null) {
+            try {
+                mNoteJSON = new JSONObject(mRawNoteJSON);
+            } catch (JSONException e) {
+                AppLog.e(AppLog.T.NOTIFS, "Can't parse notification with noteId:" + mKey, e);
+                mNoteJSON = new JSONObject();
+            }
+            mRawNoteJSON = null;
+        }
+        return mNoteJSON;
     }
 
     public String getId() {
@@ -90,6 +170,9 @@ public class Note {
     }
 
     public String getType() {
+        if (mListFields != null) {
+            return mListFields.type;
+        }
         return queryJSON("type", NOTE_UNKNOWN_TYPE);
     }
 
@@ -98,8 +181,11 @@ public class Note {
     }
 
     public Boolean isCommentType() {
+        if (mListFields != null) {
+            return (isAutomattcherType() && mListFields.commentId != 0) || isType(NOTE_COMMENT_TYPE);
+        }
         synchronized (mSyncLock) {
-            return (isAutomattcherType() && JSONUtils.queryJSON(mNoteJSON, "meta.ids.comment", -1) != -1)
+            return (isAutomattcherType() && JSONUtils.queryJSON(getNoteJSON(), "meta.ids.comment", -1) != -1)
                    || isType(NOTE_COMMENT_TYPE);
         }
     }
@@ -184,7 +270,13 @@ public class Note {
     public JSONObject getSubject() {
         try {
             synchronized (mSyncLock) {
-                JSONArray subjectArray = mNoteJSON.getJSONArray("subject");
+                if (mListFields != null && mListFields.subject != null) {
+                    if (mListSubject == null) {
+                        mListSubject = new JSONObject(mListFields.subject);
+                    }
+                    return mListSubject;
+                }
+                JSONArray subjectArray = getNoteJSON().getJSONArray("subject");
                 if (subjectArray.length() > 0) {
                     return subjectArray.getJSONObject(0);
                 }
@@ -205,12 +297,18 @@ public class Note {
     }
 
     public String getIconURL() {
+        if (mListFields != null) {
+            return mListFields.iconUrl;
+        }
         return queryJSON("icon", "");
     }
 
     public String getCommentSubject() {
+        if (mListFields != null) {
+            return mListFields.commentSubject;
+        }
         synchronized (mSyncLock) {
-            JSONArray subjectArray = mNoteJSON.optJSONArray("subject");
+            JSONArray subjectArray = getNoteJSON().optJSONArray("subject");
             if (subjectArray != null) {
                 String commentSubject = JSONUtils.queryJSON(subjectArray, "subject[1].text", "");
 
@@ -227,6 +325,9 @@ public class Note {
     }
 
     public String getCommentSubjectNoticon() {
+        if (mListFields != null) {
+            return mListFields.subjectNoticon;
+        }
         JSONArray subjectRanges = queryJSON("subject[0].ranges", new JSONArray());
         if (subjectRanges != null) {
             for (int i = 0; i < subjectRanges.length(); i++) {
@@ -272,7 +373,11 @@ public class Note {
     public static class TimeStampComparator implements Comparator<Note> {
         @Override
         public int compare(Note a, Note b) {
-            return b.getTimestampString().compareTo(a.getTimestampString());
+            // newest first - notes read from the db already have their timestamp, and the timestamp of
+            // other notes is only parsed from their JSON the first time it's needed
+            long timestampA = a.getTimestamp();
+            long timestampB = b.getTimestamp();
+            return timestampA < timestampB ? 1 : (timestampA == timestampB ? 0 : -1);
         }
     }
 
@@ -284,14 +389,22 @@ public class Note {
     }
 
     private Boolean isRead() {
+        if (mListFields != null) {
+            return !mListFields.isUnread;
+        }
         return queryJSON("read", 0) == 1;
     }
 
     public void setRead() {
-        try {
-            mNoteJSON.putOpt("read", 1);
-        } catch (JSONException e) {
-            AppLog.e(AppLog.T.NOTIFS, "Failed to set 'read' property", e);
+        synchronized (mSyncLock) {
+            try {
+                getNoteJSON().putOpt("read", 1);
+            } catch (JSONException e) {
+                AppLog.e(AppLog.T.NOTIFS, "Failed to set 'read' property", e);
+            }
+            if (mListFields != null) {
+                mListFields.isUnread = false;
+            }
         }
     }
 
@@ -299,7 +412,14 @@ public class Note {
      * Get the timestamp provided by the API for the note
      */
     public long getTimestamp() {
-        return DateTimeUtils.timestampFromIso8601(getTimestampString());
+        if (mListFields != null) {
+            return mListFields.timestamp;
+        }
+        // parsed once, since it's read for each comparison when notes are sorted
+        if (mTimestamp == null) {
+            mTimestamp = DateTimeUtils.timestampFromIso8601(getTimestampString());
+        }
+        return mTimestamp;
     }
 
     public String getTimestampString() {
@@ -309,7 +429,7 @@ public class Note {
     public JSONArray getBody() {
         try {
             synchronized (mSyncLock) {
-                return mNoteJSON.getJSONArray("body");
+                return getNoteJSON().getJSONArray("body");
             }
         } catch (JSONException e) {
             return new JSONArray();
@@ -318,6 +438,9 @@ public class Note {
 
     // returns character code for notification font
     public String getNoticonCharacter() {
+        if (mListFields != null) {
+            return mListFields.noticon;
+        }
         return queryJSON("noticon", "");
     }
 
@@ -377,14 +500,23 @@ public class Note {
     }
 
     public int getSiteId() {
+        if (mListFields != null) {
+            return mListFields.siteId;
+        }
         return queryJSON("meta.ids.site", 0);
     }
 
     public int getPostId() {
+        if (mListFields != null) {
+            return mListFields.postId;
+        }
         return queryJSON("meta.ids.post", 0);
     }
 
     public long getCommentId() {
+        if (mListFields != null) {
+            return mListFields.commentId;
+        }
         return queryJSON("meta.ids.comment", 0);
     }
 
@@ -397,10 +529,11 @@ public class Note {
      */
     private <U> U queryJSON(String query, U defaultObject) {
         synchronized (mSyncLock) {
-            if (mNoteJSON == null) {
+            JSONObject noteJSON = getNoteJSON();
+            if (noteJSON == null) {
                 return defaultObject;
             }
-            return JSONUtils.queryJSON(mNoteJSON, query, defaultObject);
+            return JSONUtils.queryJSON(noteJSON, query, defaultObject);
         }
     }
 
@@ -462,6 +595,9 @@ public class Note {
     }
 
     public CommentStatus getCommentStatus() {
+        if (mListFields != null) {
+            return mListFields.commentStatus;
+        }
         EnumSet<EnabledActions> enabledActions = getEnabledActions();
 
         if (enabledActions.contains(EnabledActions.ACTION_UNAPPROVE)) {
@@ -484,7 +620,7 @@ public class Note {
 
     public JSONArray getHeader() {
         synchronized (mSyncLock) {
-            return mNoteJSON.optJSONArray("header");
+            return getNoteJSON().optJSONArray("header");
         }
     }
 
@@ -503,49 +639,45 @@ public class Note {
         return false;
     }
 
-    public static synchronized Note buildFromBase64EncodedData(String noteId, String base64FullNoteData) {
-        Note note = null;
-
-        if (base64FullNoteData == null) {
-            return null;
+    /*
+     * returns true if the passed note looks the same as this one in the notes list - only the fields the
+     * list shows are compared, so notes read for the list don't have their JSON parsed
+     */
+    public boolean isSameInList(Note note) {
+        if (note == null) {
+            return false;
         }
-
-        byte[] b64DecodedPayload = Base64.decode(base64FullNoteData, Base64.DEFAULT);
-
-        // Decompress the payload
-        Inflater decompresser = new Inflater();
-        decompresser.setInput(b64DecodedPayload, 0, b64DecodedPayload.length);
-        byte[] result = new byte[4096]; // max length an Android PN payload can have
-        int resultLength = 0;
-        try {
-            resultLength = decompresser.inflate(result);
-            decompresser.end();
-        } catch (DataFormatException e) {
-            AppLog.e(AppLog.T.NOTIFS, "Can't decompress the PN BlockListPayload. It could be > 4K", e);
+        return getTimestamp() == note.getTimestamp()
+               && isUnread().equals(note.isUnread())
+               && getCommentStatus() == note.getCommentStatus()
+               && StringUtils.equals(getLocalStatus(), note.getLocalStatus())
+               && StringUtils.equals(getSubjectString(), note.getSubjectString())
+               && StringUtils.equals(getCommentSubject(), note.getCommentSubject())
+               && StringUtils.equals(getCommentSubjectNoticon(), note.getCommentSubjectNoticon())
+               && StringUtils.equals(getNoticonCharacter(), note.getNoticonCharacter())
+               && StringUtils.equals(getIconURL(), note.getIconURL());
+    }
+
+    private String getSubjectString() {
+        if (mListFields != null && mListFields.subject != null) {
+            return mListFields.subject;
         }
+        JSONObject subject = getSubject();
+        return subject != null ? subject.toString() : null;
+    }
 
-        String out = null;
-        try {
-            out = new String(result, 0, resultLength, "UTF8");
-        } catch (UnsupportedEncodingException e) {
-            AppLog.e(AppLog.T.NOTIFS, "Notification data contains non UTF8 characters.", e);
+    public static Note buildFromBase64EncodedData(String noteId, String base64FullNoteData) {
+        JSONObject jsonObject = NotePayloadDecoder.decode(base64FullNoteData);
+        if (jsonObject == null) {
+            return null;
         }
 
-        if (out != null) {
-            try {
-                JSONObject jsonObject = new JSONObject(out);
-                if (jsonObject.has("notes")) {
-                    JSONArray jsonArray = jsonObject.getJSONArray("notes");
-                    if (jsonArray != null && jsonArray.length() == 1) {
-                        jsonObject = jsonArray.getJSONObject(0);
-                    }
-                }
-                note = new Note(noteId, jsonObject);
-            } catch (JSONException e) {
-                AppLog.e(AppLog.T.NOTIFS, "Can't parse the Note JSON received in the PN", e);
+        if (jsonObject.has("notes")) {
+            JSONArray jsonArray = jsonObject.optJSONArray("notes");
+            if (jsonArray != null && jsonArray.length() == 1) {
+                jsonObject = jsonArray.optJSONObject(0);
             }
         }
-
-        return note;
+        return jsonObject != null ? new Note(noteId, jsonObject) : null;
     }
 }
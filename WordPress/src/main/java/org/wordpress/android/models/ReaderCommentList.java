@@ -1,6 +1,7 @@
 package org.wordpress.android.models;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 
 public class ReaderCommentList extends ArrayList<ReaderComment> {
     public int indexOfCommentId(long commentId) {
@@ -20,8 +21,15 @@ public class ReaderCommentList extends ArrayList<ReaderComment> {
             return false;
         }
 
+        // index this list by comment id so the comparison is linear rather than quadratic
+        HashMap<Long, ReaderComment> commentsById = new HashMap<>(this.size());
+        for (ReaderComment comment : this) {
+            commentsById.put(comment.commentId, comment);
+        }
+
         for (ReaderComment comment : comments) {
-            if (indexOf(comment) == -1) {
+            ReaderComment thisComment = commentsById.get(comment.commentId);
+            if (thisComment == null || !thisComment.equals(comment)) {
                 return false;
             }
         }
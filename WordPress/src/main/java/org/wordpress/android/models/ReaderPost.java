@@ -670,6 +670,51 @@ public class ReaderPost {
                && post.getText().equals(this.getText());
     }
 
+    /*
+     * returns a hash of the server-visible fields of this post which don't change often - used
+     * when storing posts to skip rewriting those that haven't changed. note that counts and
+     * like/follow/bookmark state are purposely excluded since they're updated separately, as
+     * are score and railcar_json since they change with each request
+     */
+    public String getContentHash() {
+        StringBuilder sb = new StringBuilder()
+                .append(postId).append('\u0000')
+                .append(blogId).append('\u0000')
+                .append(feedId).append('\u0000')
+                .append(feedItemId).append('\u0000')
+                .append(authorId).append('\u0000')
+                .append(getAuthorName()).append('\u0000')
+                .append(getAuthorFirstName()).append('\u0000')
+                .append(getTitle()).append('\u0000')
+                .append(getText()).append('\u0000')
+                .append(getExcerpt()).append('\u0000')
+                .append(getFormat()).append('\u0000')
+                .append(getUrl()).append('\u0000')
+                .append(getShortUrl()).append('\u0000')
+                .append(getBlogName()).append('\u0000')
+                .append(getBlogUrl()).append('\u0000')
+                .append(getBlogImageUrl()).append('\u0000')
+                .append(getFeaturedImage()).append('\u0000')
+                .append(getFeaturedVideo()).append('\u0000')
+                .append(getPostAvatar()).append('\u0000')
+                .append(getDatePublished()).append('\u0000')
+                .append(getDateLiked()).append('\u0000')
+                .append(isCommentsOpen).append('\u0000')
+                .append(isExternal).append('\u0000')
+                .append(isPrivate).append('\u0000')
+                .append(isVideoPress).append('\u0000')
+                .append(isJetpack).append('\u0000')
+                .append(useExcerpt).append('\u0000')
+                .append(getPrimaryTag()).append('\u0000')
+                .append(getSecondaryTag()).append('\u0000')
+                .append(getAttachmentsJson()).append('\u0000')
+                .append(getDiscoverJson()).append('\u0000')
+                .append(xpostPostId).append('\u0000')
+                .append(xpostBlogId).append('\u0000')
+                .append(ReaderCardType.toString(getCardType()));
+        return StringUtils.getMd5Hash(sb.toString());
+    }
+
     public boolean hasIds(ReaderBlogIdPostId ids) {
         return ids != null
                && ids.getBlogId() == this.blogId
@@ -132,6 +132,7 @@ import org.wordpress.android.ui.stats.StatsWidgetConfigureActivity;
 import org.wordpress.android.ui.stats.StatsWidgetConfigureAdapter;
 import org.wordpress.android.ui.stats.StatsWidgetProvider;
 import org.wordpress.android.ui.stats.refresh.StatsModule;
+import org.wordpress.android.ui.stats.service.StatsPrefetchJobService;
 import org.wordpress.android.ui.stats.service.StatsServiceLogic;
 import org.wordpress.android.ui.stockmedia.StockMediaPickerActivity;
 import org.wordpress.android.ui.suggestion.adapters.SuggestionAdapter;
@@ -228,6 +229,8 @@ public interface AppComponent extends AndroidInjector<WordPress> {
 
     void inject(StatsServiceLogic object);
 
+    void inject(StatsPrefetchJobService object);
+
     void inject(StatsWidgetProvider object);
 
     void inject(GCMMessageService object);
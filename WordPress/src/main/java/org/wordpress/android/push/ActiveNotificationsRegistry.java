@@ -0,0 +1,231 @@
+package org.wordpress.android.push;
+
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The notifications GCMMessageService shows in the system bar, indexed by push id and by note id.
+ * Every change publishes a new immutable snapshot, so reads never lock or copy, and the group
+ * summary is always built from a consistent set of notifications. Changes are serialized on a
+ * private lock which is only held while the new snapshot is built
+ */
+class ActiveNotificationsRegistry {
+    static final class Snapshot {
+        private final long mVersion;
+        private final SortedMap<Integer, Bundle> mNotifications;
+        private final SortedMap<Integer, Bundle> mSummaryNotifications;
+        private final Map<String, List<Integer>> mPushIdsByNoteId;
+
+        private Snapshot(long version, TreeMap<Integer, Bundle> notifications, String noteIdKey,
+                         int excludedFromSummaryPushId) {
+            mVersion = version;
+            mNotifications = Collections.unmodifiableSortedMap(notifications);
+
+            TreeMap<Integer, Bundle> summaryNotifications = new TreeMap<>(notifications);
+            summaryNotifications.remove(excludedFromSummaryPushId);
+            mSummaryNotifications = Collections.unmodifiableSortedMap(summaryNotifications);
+
+            HashMap<String, List<Integer>> pushIdsByNoteId = new HashMap<>();
+            for (Map.Entry<Integer, Bundle> entry : notifications.entrySet()) {
+                String noteId = entry.getValue().getString(noteIdKey, "");
+                List<Integer> pushIds = pushIdsByNoteId.get(noteId);
+                if (pushIds == null) {
+                    pushIds = new ArrayList<>(1);
+                    pushIdsByNoteId.put(noteId, pushIds);
+                }
+                pushIds.add(entry.getKey());
+            }
+            mPushIdsByNoteId = pushIdsByNoteId;
+        }
+
+        /*
+         * all the notifications, ordered by push id
+         */
+        @NonNull SortedMap<Integer, Bundle> getNotifications() {
+            return mNotifications;
+        }
+
+        /*
+         * the notifications shown in the group summary - all of them except the auth push
+         */
+        @NonNull SortedMap<Integer, Bundle> getSummaryNotifications() {
+            return mSummaryNotifications;
+        }
+
+        @NonNull List<Integer> getPushIdsForNoteId(String noteId) {
+            List<Integer> pushIds = mPushIdsByNoteId.get(noteId);
+            return pushIds != null ? pushIds : Collections.<Integer>emptyList();
+        }
+    }
+
+    private final String mNoteIdKey;
+    private final int mExcludedFromSummaryPushId;
+    private final Object mWriteLock = new Object();
+    private volatile Snapshot mSnapshot;
+
+    private final Object mSummaryLock = new Object();
+    private long mPostedSummaryVersion = -1;
+
+    /*
+     * noteIdKey is the bundle key notifications are indexed by, and excludedFromSummaryPushId is the
+     * push id of the notification which isn't part of the group summary
+     */
+    ActiveNotificationsRegistry(@NonNull String noteIdKey, int excludedFromSummaryPushId) {
+        mNoteIdKey = noteIdKey;
+        mExcludedFromSummaryPushId = excludedFromSummaryPushId;
+        mSnapshot = new Snapshot(0, new TreeMap<Integer, Bundle>(), noteIdKey, excludedFromSummaryPushId);
+    }
+
+    @NonNull Snapshot getSnapshot() {
+        return mSnapshot;
+    }
+
+    int size() {
+        return mSnapshot.mNotifications.size();
+    }
+
+    boolean isEmpty() {
+        return mSnapshot.mNotifications.isEmpty();
+    }
+
+    /*
+     * returns the notification with the lowest push id, or null if there aren't any
+     */
+    @Nullable Bundle getFirst() {
+        SortedMap<Integer, Bundle> notifications = mSnapshot.mNotifications;
+        return notifications.isEmpty() ? null : notifications.get(notifications.firstKey());
+    }
+
+    @Nullable Bundle getForNoteId(String noteId) {
+        Snapshot snapshot = mSnapshot;
+        List<Integer> pushIds = snapshot.getPushIdsForNoteId(noteId);
+        return pushIds.isEmpty() ? null : snapshot.mNotifications.get(pushIds.get(0));
+    }
+
+    void put(int pushId, @NonNull Bundle data) {
+        synchronized (mWriteLock) {
+            TreeMap<Integer, Bundle> notifications = new TreeMap<>(mSnapshot.mNotifications);
+            notifications.put(pushId, data);
+            publish(notifications);
+        }
+    }
+
+    /*
+     * adds the passed notification with a new push id, starting from firstPushId, and returns its id
+     */
+    int add(@NonNull Bundle data, int firstPushId) {
+        synchronized (mWriteLock) {
+            TreeMap<Integer, Bundle> notifications = new TreeMap<>(mSnapshot.mNotifications);
+            int pushId = getFreePushId(notifications, firstPushId);
+            notifications.put(pushId, data);
+            publish(notifications);
+            return pushId;
+        }
+    }
+
+    /*
+     * replaces the notification showing the passed note, or adds it with a new push id if the note
+     * isn't showing yet, and returns its push id
+     */
+    int putForNote(String noteId, @NonNull Bundle data, int firstPushId) {
+        synchronized (mWriteLock) {
+            TreeMap<Integer, Bundle> notifications = new TreeMap<>(mSnapshot.mNotifications);
+            List<Integer> pushIds = mSnapshot.getPushIdsForNoteId(noteId);
+            int pushId = pushIds.isEmpty() ? getFreePushId(notifications, firstPushId) : pushIds.get(0);
+            notifications.put(pushId, data);
+            publish(notifications);
+            return pushId;
+        }
+    }
+
+    @Nullable Bundle remove(int pushId) {
+        synchronized (mWriteLock) {
+            if (!mSnapshot.mNotifications.containsKey(pushId)) {
+                return null;
+            }
+            TreeMap<Integer, Bundle> notifications = new TreeMap<>(mSnapshot.mNotifications);
+            Bundle removed = notifications.remove(pushId);
+            publish(notifications);
+            return removed;
+        }
+    }
+
+    /*
+     * removes every notification for the passed note and returns their push ids
+     */
+    @NonNull List<Integer> removeNote(String noteId) {
+        synchronized (mWriteLock) {
+            List<Integer> pushIds = mSnapshot.getPushIdsForNoteId(noteId);
+            if (pushIds.isEmpty()) {
+                return pushIds;
+            }
+            TreeMap<Integer, Bundle> notifications = new TreeMap<>(mSnapshot.mNotifications);
+            for (Integer pushId : pushIds) {
+                notifications.remove(pushId);
+            }
+            publish(notifications);
+            return pushIds;
+        }
+    }
+
+    /*
+     * removes every notification except the one with the passed push id and returns their push ids
+     */
+    @NonNull List<Integer> removeAllExcept(int keptPushId) {
+        synchronized (mWriteLock) {
+            TreeMap<Integer, Bundle> notifications = new TreeMap<>();
+            List<Integer> removedPushIds = new ArrayList<>();
+            for (Map.Entry<Integer, Bundle> entry : mSnapshot.mNotifications.entrySet()) {
+                if (entry.getKey() == keptPushId) {
+                    notifications.put(entry.getKey(), entry.getValue());
+                } else {
+                    removedPushIds.add(entry.getKey());
+                }
+            }
+            if (!removedPushIds.isEmpty()) {
+                publish(notifications);
+            }
+            return removedPushIds;
+        }
+    }
+
+    /*
+     * runs the passed task, which posts the group summary built from the passed snapshot, unless a
+     * summary built from a newer snapshot has already been posted - so when pushes are handled
+     * concurrently, the summary in the system bar never goes back to an older set of notifications
+     */
+    boolean postSummaryIfLatest(@NonNull Snapshot snapshot, @NonNull Runnable postSummaryTask) {
+        synchronized (mSummaryLock) {
+            if (snapshot.mVersion < mPostedSummaryVersion) {
+                return false;
+            }
+            mPostedSummaryVersion = snapshot.mVersion;
+            postSummaryTask.run();
+            return true;
+        }
+    }
+
+    private void publish(TreeMap<Integer, Bundle> notifications) {
+        mSnapshot = new Snapshot(mSnapshot.mVersion + 1, notifications, mNoteIdKey, mExcludedFromSummaryPushId);
+    }
+
+    /*
+     * the first push id, starting from firstPushId plus the number of notifications, which isn't in use
+     */
+    private static int getFreePushId(TreeMap<Integer, Bundle> notifications, int firstPushId) {
+        int pushId = firstPushId + notifications.size();
+        while (notifications.containsKey(pushId)) {
+            pushId++;
+        }
+        return pushId;
+    }
+}
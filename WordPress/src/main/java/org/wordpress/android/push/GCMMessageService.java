@@ -13,7 +13,6 @@ import android.support.annotation.NonNull;
 import android.support.v4.app.NotificationCompat;
 import android.support.v4.app.NotificationManagerCompat;
 import android.support.v4.app.RemoteInput;
-import android.support.v4.util.ArrayMap;
 import android.text.TextUtils;
 
 import com.google.firebase.messaging.FirebaseMessagingService;
@@ -46,9 +45,9 @@ import org.wordpress.android.util.StringUtils;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Locale;
 import java.util.Map;
+import java.util.SortedMap;
 import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
@@ -59,9 +58,6 @@ import static org.wordpress.android.ui.notifications.services.NotificationsUpdat
         .IS_TAPPED_ON_NOTIFICATION;
 
 public class GCMMessageService extends FirebaseMessagingService {
-    private static final ArrayMap<Integer, Bundle> ACTIVE_NOTIFICATIONS_MAP = new ArrayMap<>();
-    private static final NotificationHelper NOTIFICATION_HELPER = new NotificationHelper();
-
     private static final String NOTIFICATION_GROUP_KEY = "notification_group_key";
     private static final int PUSH_NOTIFICATION_ID = 10000;
     public static final int AUTH_PUSH_NOTIFICATION_ID = 20000;
@@ -83,6 +79,10 @@ public class GCMMessageService extends FirebaseMessagingService {
     public static final String PUSH_ARG_NOTE_FULL_DATA = "note_full_data";
     private static final String PUSH_ARG_ZENDESK_REQUEST_ID = "zendesk_sdk_request_id";
 
+    private static final ActiveNotificationsRegistry ACTIVE_NOTIFICATIONS =
+            new ActiveNotificationsRegistry(PUSH_ARG_NOTE_ID, AUTH_PUSH_NOTIFICATION_ID);
+    private static final NotificationHelper NOTIFICATION_HELPER = new NotificationHelper();
+
     private static final String PUSH_TYPE_COMMENT = "c";
     private static final String PUSH_TYPE_LIKE = "like";
     private static final String PUSH_TYPE_COMMENT_LIKE = "comment_like";
@@ -116,13 +116,10 @@ public class GCMMessageService extends FirebaseMessagingService {
     private static final String[] PROPERTIES_TO_COPY_INTO_ANALYTICS =
             {PUSH_ARG_NOTE_ID, PUSH_ARG_TYPE, "blog_id", "post_id", "comment_id"};
 
-    private void synchronizedHandleDefaultPush(@NonNull Map<String, String> data) {
-        // ACTIVE_NOTIFICATIONS_MAP being static, we can't just synchronize the method
+    private void handleDefaultPush(@NonNull Map<String, String> data) {
+        // ACTIVE_NOTIFICATIONS is safe to use from any thread, so pushes received together don't wait for each other
         AnalyticsTracker.track(AnalyticsTracker.Stat.NOTIFICATION_RECEIVED_PROCESSING_START);
-        synchronized (GCMMessageService.class) {
-            NOTIFICATION_HELPER.handleDefaultPush(
-                    this, convertMapToBundle(data), mAccountStore.getAccount().getUserId());
-        }
+        NOTIFICATION_HELPER.handleDefaultPush(this, convertMapToBundle(data), mAccountStore.getAccount().getUserId());
         AnalyticsTracker.track(AnalyticsTracker.Stat.NOTIFICATION_RECEIVED_PROCESSING_END);
     }
 
@@ -158,146 +155,100 @@ public class GCMMessageService extends FirebaseMessagingService {
             }
         }
 
-        synchronizedHandleDefaultPush(data);
+        handleDefaultPush(data);
     }
 
-    public static synchronized void rebuildAndUpdateNotificationsOnSystemBarForThisNote(Context context,
-                                                                                        String noteId) {
-        if (ACTIVE_NOTIFICATIONS_MAP.size() > 0) {
-            // get the corresponding bundle for this noteId
-            // using a copy of the ArrayMap to iterate over on, as we might need to modify the original array
-            ArrayMap<Integer, Bundle> tmpMap = new ArrayMap(ACTIVE_NOTIFICATIONS_MAP);
-            for (Map.Entry<Integer, Bundle> row : tmpMap.entrySet()) {
-                Bundle noteBundle = row.getValue();
-                if (noteBundle.getString(PUSH_ARG_NOTE_ID, "").equals(noteId)) {
-                    NOTIFICATION_HELPER.rebuildAndUpdateNotificationsOnSystemBar(context, noteBundle);
-                    return;
-                }
-            }
+    public static void rebuildAndUpdateNotificationsOnSystemBarForThisNote(Context context, String noteId) {
+        Bundle noteBundle = ACTIVE_NOTIFICATIONS.getForNoteId(noteId);
+        if (noteBundle != null) {
+            NOTIFICATION_HELPER.rebuildAndUpdateNotificationsOnSystemBar(context, noteBundle);
         }
     }
 
-    public static synchronized void rebuildAndUpdateNotifsOnSystemBarForRemainingNote(Context context) {
-        if (ACTIVE_NOTIFICATIONS_MAP.size() > 0) {
-            Bundle remainingNote = ACTIVE_NOTIFICATIONS_MAP.values().iterator().next();
+    public static void rebuildAndUpdateNotifsOnSystemBarForRemainingNote(Context context) {
+        Bundle remainingNote = ACTIVE_NOTIFICATIONS.getFirst();
+        if (remainingNote != null) {
             NOTIFICATION_HELPER.rebuildAndUpdateNotificationsOnSystemBar(context, remainingNote);
         }
     }
 
-    public static synchronized Bundle getCurrentNoteBundleForNoteId(String noteId) {
-        if (ACTIVE_NOTIFICATIONS_MAP.size() > 0) {
-            // get the corresponding bundle for this noteId
-            for (Iterator<Map.Entry<Integer, Bundle>> it = ACTIVE_NOTIFICATIONS_MAP.entrySet().iterator();
-                 it.hasNext();) {
-                Map.Entry<Integer, Bundle> row = it.next();
-                Bundle noteBundle = row.getValue();
-                if (noteBundle.getString(PUSH_ARG_NOTE_ID, "").equals(noteId)) {
-                    return noteBundle;
-                }
-            }
-        }
-        return null;
+    public static Bundle getCurrentNoteBundleForNoteId(String noteId) {
+        return ACTIVE_NOTIFICATIONS.getForNoteId(noteId);
     }
 
-    public static synchronized void clearNotifications() {
-        for (Iterator<Map.Entry<Integer, Bundle>> it = ACTIVE_NOTIFICATIONS_MAP.entrySet().iterator(); it.hasNext();) {
-            Map.Entry<Integer, Bundle> row = it.next();
-            Integer pushId = row.getKey();
-            // don't cancel or remove the AUTH notification if it exists
-            if (!pushId.equals(AUTH_PUSH_NOTIFICATION_ID)) {
-                it.remove();
-            }
-        }
+    public static void clearNotifications() {
+        // don't remove the AUTH notification if it exists
+        ACTIVE_NOTIFICATIONS.removeAllExcept(AUTH_PUSH_NOTIFICATION_ID);
     }
 
-    public static synchronized int getNotificationsCount() {
-        return ACTIVE_NOTIFICATIONS_MAP.size();
+    public static int getNotificationsCount() {
+        return ACTIVE_NOTIFICATIONS.size();
     }
 
-    public static synchronized boolean hasNotifications() {
-        return !ACTIVE_NOTIFICATIONS_MAP.isEmpty();
+    public static boolean hasNotifications() {
+        return !ACTIVE_NOTIFICATIONS.isEmpty();
     }
 
     // Removes a specific notification from the internal map - only use this when we know
     // the user has dismissed the app by swiping it off the screen
-    public static synchronized void removeNotification(int notificationId) {
-        ACTIVE_NOTIFICATIONS_MAP.remove(notificationId);
+    public static void removeNotification(int notificationId) {
+        ACTIVE_NOTIFICATIONS.remove(notificationId);
     }
 
     // Removes a specific notification from the system bar
-    public static synchronized void removeNotificationWithNoteIdFromSystemBar(Context context, String noteID) {
+    public static void removeNotificationWithNoteIdFromSystemBar(Context context, String noteID) {
         if (context == null || TextUtils.isEmpty(noteID) || !hasNotifications()) {
             return;
         }
 
+        // there might be several Notifications with the same Note ID (i.e. likes on the same Note)
+        // so we need to cancel all of them
         NotificationManagerCompat notificationManager = NotificationManagerCompat.from(context);
-        // here we loop with an Iterator as there might be several Notifications with the same Note ID
-        // (i.e. likes on the same Note) so we need to keep cancelling them and removing them from our
-        // ACTIVE_NOTIFICATIONS_MAP as we find it suitable
-        for (Iterator<Map.Entry<Integer, Bundle>> it = ACTIVE_NOTIFICATIONS_MAP.entrySet().iterator(); it.hasNext();) {
-            Map.Entry<Integer, Bundle> row = it.next();
-            Integer pushId = row.getKey();
-            Bundle noteBundle = row.getValue();
-            if (noteBundle.getString(PUSH_ARG_NOTE_ID, "").equals(noteID)) {
-                notificationManager.cancel(pushId);
-                it.remove();
-            }
+        for (Integer pushId : ACTIVE_NOTIFICATIONS.removeNote(noteID)) {
+            notificationManager.cancel(pushId);
         }
 
-        if (ACTIVE_NOTIFICATIONS_MAP.size() == 0) {
+        if (ACTIVE_NOTIFICATIONS.isEmpty()) {
             notificationManager.cancel(GCMMessageService.GROUP_NOTIFICATION_ID);
         }
     }
 
     // Removes all app notifications from the system bar
-    public static synchronized void removeAllNotifications(Context context) {
+    public static void removeAllNotifications(Context context) {
         if (context == null || !hasNotifications()) {
             return;
         }
 
+        // don't cancel or remove the AUTH notification if it exists
         NotificationManagerCompat notificationManager = NotificationManagerCompat.from(context);
-        for (Iterator<Map.Entry<Integer, Bundle>> it = ACTIVE_NOTIFICATIONS_MAP.entrySet().iterator(); it.hasNext();) {
-            Map.Entry<Integer, Bundle> row = it.next();
-            Integer pushId = row.getKey();
-            // don't cancel or remove the AUTH notification if it exists
-            if (!pushId.equals(AUTH_PUSH_NOTIFICATION_ID)) {
-                notificationManager.cancel(pushId);
-                it.remove();
-            }
+        for (Integer pushId : ACTIVE_NOTIFICATIONS.removeAllExcept(AUTH_PUSH_NOTIFICATION_ID)) {
+            notificationManager.cancel(pushId);
         }
         notificationManager.cancel(GCMMessageService.GROUP_NOTIFICATION_ID);
     }
 
-    public static synchronized void remove2FANotification(Context context) {
+    public static void remove2FANotification(Context context) {
         if (context == null || !hasNotifications()) {
             return;
         }
 
         NotificationManagerCompat notificationManager = NotificationManagerCompat.from(context);
         notificationManager.cancel(AUTH_PUSH_NOTIFICATION_ID);
-        ACTIVE_NOTIFICATIONS_MAP.remove(AUTH_PUSH_NOTIFICATION_ID);
+        ACTIVE_NOTIFICATIONS.remove(AUTH_PUSH_NOTIFICATION_ID);
     }
 
     // NoteID is the ID if the note in WordPress
-    public static synchronized void bumpPushNotificationsTappedAnalytics(String noteID) {
-        for (Iterator<Map.Entry<Integer, Bundle>> it = ACTIVE_NOTIFICATIONS_MAP.entrySet().iterator();
-             it.hasNext();) {
-            Map.Entry<Integer, Bundle> row = it.next();
-            Bundle noteBundle = row.getValue();
-            if (noteBundle.getString(PUSH_ARG_NOTE_ID, "").equals(noteID)) {
-                bumpPushNotificationsAnalytics(Stat.PUSH_NOTIFICATION_TAPPED, noteBundle, null);
-                AnalyticsTracker.flush();
-                return;
-            }
+    public static void bumpPushNotificationsTappedAnalytics(String noteID) {
+        Bundle noteBundle = ACTIVE_NOTIFICATIONS.getForNoteId(noteID);
+        if (noteBundle != null) {
+            bumpPushNotificationsAnalytics(Stat.PUSH_NOTIFICATION_TAPPED, noteBundle, null);
+            AnalyticsTracker.flush();
         }
     }
 
     // Mark all notifications as tapped
-    public static synchronized void bumpPushNotificationsTappedAllAnalytics() {
-        for (Iterator<Map.Entry<Integer, Bundle>> it = ACTIVE_NOTIFICATIONS_MAP.entrySet().iterator();
-             it.hasNext();) {
-            Map.Entry<Integer, Bundle> row = it.next();
-            Bundle noteBundle = row.getValue();
+    public static void bumpPushNotificationsTappedAllAnalytics() {
+        for (Bundle noteBundle : ACTIVE_NOTIFICATIONS.getSnapshot().getNotifications().values()) {
             bumpPushNotificationsAnalytics(Stat.PUSH_NOTIFICATION_TAPPED, noteBundle, null);
         }
         AnalyticsTracker.flush();
@@ -328,7 +279,7 @@ public class GCMMessageService extends FirebaseMessagingService {
     }
 
     private static void addAuthPushNotificationToNotificationMap(Bundle data) {
-        ACTIVE_NOTIFICATIONS_MAP.put(AUTH_PUSH_NOTIFICATION_ID, data);
+        ACTIVE_NOTIFICATIONS.put(AUTH_PUSH_NOTIFICATION_ID, data);
     }
 
     private static class NotificationHelper {
@@ -376,8 +327,7 @@ public class GCMMessageService extends FirebaseMessagingService {
             String title = context.getString(R.string.app_name);
             String message = StringEscapeUtils.unescapeHtml4(data.getString(PUSH_ARG_MSG));
 
-            int pushId = PUSH_NOTIFICATION_ID + ACTIVE_NOTIFICATIONS_MAP.size();
-            ACTIVE_NOTIFICATIONS_MAP.put(pushId, data);
+            int pushId = ACTIVE_NOTIFICATIONS.add(data, PUSH_NOTIFICATION_ID);
             Intent resultIntent = new Intent(context, WPMainActivity.class);
             resultIntent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP);
             showSimpleNotification(context, title, message, resultIntent, pushId);
@@ -436,23 +386,7 @@ public class GCMMessageService extends FirebaseMessagingService {
             AppPrefs.setLastPushNotificationWpcomNoteId(wpcomNoteID);
 
             // Update notification content for the same noteId if it is already showing
-            int pushId = 0;
-            for (Integer id : ACTIVE_NOTIFICATIONS_MAP.keySet()) {
-                if (id == null) {
-                    continue;
-                }
-                Bundle noteBundle = ACTIVE_NOTIFICATIONS_MAP.get(id);
-                if (noteBundle != null && noteBundle.getString(PUSH_ARG_NOTE_ID, "").equals(wpcomNoteID)) {
-                    pushId = id;
-                    ACTIVE_NOTIFICATIONS_MAP.put(pushId, data);
-                    break;
-                }
-            }
-
-            if (pushId == 0) {
-                pushId = PUSH_NOTIFICATION_ID + ACTIVE_NOTIFICATIONS_MAP.size();
-                ACTIVE_NOTIFICATIONS_MAP.put(pushId, data);
-            }
+            int pushId = ACTIVE_NOTIFICATIONS.putForNote(wpcomNoteID, data, PUSH_NOTIFICATION_ID);
 
             // Bump Analytics for PNs if "Show notifications" setting is checked (default). Skip otherwise.
             if (NotificationsUtils.isNotificationsEnabled(context)) {
@@ -670,20 +604,20 @@ public class GCMMessageService extends FirebaseMessagingService {
                     .setGroup(NOTIFICATION_GROUP_KEY);
         }
 
-        private void showGroupNotificationForBuilder(Context context, NotificationCompat.Builder builder,
-                                                     String wpcomNoteID, String message) {
+        private void showGroupNotificationForBuilder(final Context context, NotificationCompat.Builder builder,
+                                                     final String wpcomNoteID, String message) {
             if (builder == null || context == null) {
                 return;
             }
 
-            // using a copy of the map to avoid concurrency problems
-            ArrayMap<Integer, Bundle> tmpMap = new ArrayMap(ACTIVE_NOTIFICATIONS_MAP);
-            // first remove 2fa push from the map, so it's not shown in the inbox style group notif
-            tmpMap.remove(AUTH_PUSH_NOTIFICATION_ID);
-            if (tmpMap.size() > 1) {
+            // the summary is built from a snapshot of the notifications, which leaves out the 2fa push
+            ActiveNotificationsRegistry.Snapshot snapshot = ACTIVE_NOTIFICATIONS.getSnapshot();
+            SortedMap<Integer, Bundle> summaryNotifications = snapshot.getSummaryNotifications();
+            final NotificationCompat.Builder summaryBuilder;
+            if (summaryNotifications.size() > 1) {
                 NotificationCompat.InboxStyle inboxStyle = new NotificationCompat.InboxStyle();
                 int noteCtr = 1;
-                for (Bundle pushBundle : tmpMap.values()) {
+                for (Bundle pushBundle : summaryNotifications.values()) {
                     // InboxStyle notification is limited to 5 lines
                     if (noteCtr > MAX_INBOX_ITEMS) {
                         break;
@@ -704,13 +638,13 @@ public class GCMMessageService extends FirebaseMessagingService {
                     noteCtr++;
                 }
 
-                if (tmpMap.size() > MAX_INBOX_ITEMS) {
+                if (summaryNotifications.size() > MAX_INBOX_ITEMS) {
                     inboxStyle.setSummaryText(String.format(context.getString(R.string.more_notifications),
-                            tmpMap.size() - MAX_INBOX_ITEMS));
+                            summaryNotifications.size() - MAX_INBOX_ITEMS));
                 }
 
                 String subject =
-                        String.format(context.getString(R.string.new_notifications), tmpMap.size());
+                        String.format(context.getString(R.string.new_notifications), summaryNotifications.size());
                 NotificationCompat.Builder groupBuilder = new NotificationCompat.Builder(context,
                         context.getString(R.string.notification_channel_normal_id))
                         .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_CHILDREN)
@@ -723,14 +657,22 @@ public class GCMMessageService extends FirebaseMessagingService {
                         .setContentTitle(context.getString(R.string.app_name))
                         .setContentText(subject)
                         .setStyle(inboxStyle);
-
-                showWPComNotificationForBuilder(groupBuilder, context, wpcomNoteID, GROUP_NOTIFICATION_ID, false);
+                summaryBuilder = groupBuilder;
             } else {
                 // Set the individual notification we've already built as the group summary
                 builder.setGroupSummary(true)
                         .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_CHILDREN);
-                showWPComNotificationForBuilder(builder, context, wpcomNoteID, GROUP_NOTIFICATION_ID, false);
+                summaryBuilder = builder;
             }
+
+            // when pushes are handled concurrently, skip this summary if one with newer notifications was shown
+            ACTIVE_NOTIFICATIONS.postSummaryIfLatest(snapshot, new Runnable() {
+                @Override
+                public void run() {
+                    showWPComNotificationForBuilder(summaryBuilder, context, wpcomNoteID, GROUP_NOTIFICATION_ID,
+                                                    false);
+                }
+            });
         }
 
         private void showSingleNotificationForBuilder(Context context, NotificationCompat.Builder builder,
@@ -820,15 +762,16 @@ public class GCMMessageService extends FirebaseMessagingService {
             String noteType = StringUtils.notNullStr(data.getString(PUSH_ARG_TYPE));
 
             // Check for wpcom auth push, if so we will process this push differently
-            // and we'll remove the auth special notif out of the map while we re-build the remaining notifs
-            ArrayMap<Integer, Bundle> tmpMap = new ArrayMap(ACTIVE_NOTIFICATIONS_MAP);
-            Bundle authPNBundle = tmpMap.remove(AUTH_PUSH_NOTIFICATION_ID);
+            // and we'll leave the auth special notif out while we re-build the remaining notifs
+            ActiveNotificationsRegistry.Snapshot snapshot = ACTIVE_NOTIFICATIONS.getSnapshot();
+            SortedMap<Integer, Bundle> summaryNotifications = snapshot.getSummaryNotifications();
+            Bundle authPNBundle = snapshot.getNotifications().get(AUTH_PUSH_NOTIFICATION_ID);
             if (authPNBundle != null) {
                 handlePushAuth(context, authPNBundle);
-                if (tmpMap.size() > 0 && noteType.equals(PUSH_TYPE_PUSH_AUTH)) {
+                if (summaryNotifications.size() > 0 && noteType.equals(PUSH_TYPE_PUSH_AUTH)) {
                     // get the data for the next notification in map for re-build
                     // because otherwise we would be keeping the PUSH_AUTH type note in `data`
-                    data = tmpMap.values().iterator().next();
+                    data = summaryNotifications.values().iterator().next();
                 } else if (noteType.equals(PUSH_TYPE_PUSH_AUTH)) {
                     // only note is the 2fa note, just return
                     return;
@@ -844,10 +787,10 @@ public class GCMMessageService extends FirebaseMessagingService {
             NotificationCompat.Builder builder = null;
             String wpcomNoteID = null;
 
-            if (tmpMap.size() == 1) {
+            if (summaryNotifications.size() == 1) {
                 // only one notification remains, so get the proper message for it and re-instate
                 // in the system dashboard
-                Bundle remainingNote = tmpMap.values().iterator().next();
+                Bundle remainingNote = summaryNotifications.values().iterator().next();
                 if (remainingNote != null) {
                     String remainingNoteTitle =
                             StringEscapeUtils.unescapeHtml4(remainingNote.getString(PUSH_ARG_TITLE));
@@ -876,9 +819,9 @@ public class GCMMessageService extends FirebaseMessagingService {
 
                     noteType = StringUtils.notNullStr(remainingNote.getString(PUSH_ARG_TYPE));
                     wpcomNoteID = remainingNote.getString(PUSH_ARG_NOTE_ID, "");
-                    if (!tmpMap.isEmpty()) {
+                    if (!summaryNotifications.isEmpty()) {
                         showSingleNotificationForBuilder(context, builder, noteType, wpcomNoteID,
-                                tmpMap.keyAt(0), false);
+                                summaryNotifications.firstKey(), false);
                     }
                 }
             }
@@ -929,7 +872,7 @@ public class GCMMessageService extends FirebaseMessagingService {
 
                 removeNotificationWithNoteIdFromSystemBar(context, noteID);
                 // now that we cleared the specific notif, we can check and make any visual updates
-                if (ACTIVE_NOTIFICATIONS_MAP.size() > 0) {
+                if (!ACTIVE_NOTIFICATIONS.isEmpty()) {
                     rebuildAndUpdateNotificationsOnSystemBar(context, data);
                 }
             } else {
@@ -937,7 +880,7 @@ public class GCMMessageService extends FirebaseMessagingService {
             }
 
             EventBus.getDefault().post(new NotificationEvents.NotificationsChanged(
-                    ACTIVE_NOTIFICATIONS_MAP.size() > 0));
+                    !ACTIVE_NOTIFICATIONS.isEmpty()));
         }
 
         private void handleNoteDeletePN(Context context, Bundle data) {
@@ -952,12 +895,12 @@ public class GCMMessageService extends FirebaseMessagingService {
 
             removeNotificationWithNoteIdFromSystemBar(context, noteID);
             // now that we cleared the specific notif, we can check and make any visual updates
-            if (ACTIVE_NOTIFICATIONS_MAP.size() > 0) {
+            if (!ACTIVE_NOTIFICATIONS.isEmpty()) {
                 rebuildAndUpdateNotificationsOnSystemBar(context, data);
             }
 
             EventBus.getDefault().post(new NotificationEvents.NotificationsChanged(
-                    ACTIVE_NOTIFICATIONS_MAP.size() > 0));
+                    !ACTIVE_NOTIFICATIONS.isEmpty()));
         }
 
         // Show a notification for two-step auth users who log in from a web browser
@@ -32,6 +32,7 @@ import org.wordpress.android.fluxc.model.CommentStatus;
 import org.wordpress.android.fluxc.model.SiteModel;
 import org.wordpress.android.fluxc.store.AccountStore;
 import org.wordpress.android.models.Note;
+import org.wordpress.android.models.Note.FILTERS;
 import org.wordpress.android.push.GCMMessageService;
 import org.wordpress.android.ui.ActionableEmptyView;
 import org.wordpress.android.ui.ActivityLauncher;
@@ -40,7 +41,6 @@ import org.wordpress.android.ui.RequestCodes;
 import org.wordpress.android.ui.main.MainToolbarFragment;
 import org.wordpress.android.ui.main.WPMainActivity;
 import org.wordpress.android.ui.notifications.adapters.NotesAdapter;
-import org.wordpress.android.ui.notifications.adapters.NotesAdapter.FILTERS;
 import org.wordpress.android.ui.notifications.services.NotificationsUpdateServiceStarter;
 import org.wordpress.android.ui.notifications.utils.NotificationsActions;
 import org.wordpress.android.util.AniUtils;
@@ -313,7 +313,7 @@ public class NotificationsListFragment extends Fragment implements WPMainActivit
                                         String noteId,
                                         boolean shouldShowKeyboard,
                                         String replyText,
-                                        NotesAdapter.FILTERS filter,
+                                        FILTERS filter,
                                         boolean isTappedFromPushNotification) {
         if (noteId == null || activity == null) {
             return;
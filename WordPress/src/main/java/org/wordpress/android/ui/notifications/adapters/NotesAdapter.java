@@ -4,6 +4,7 @@ import android.content.Context;
 import android.os.AsyncTask;
 import android.support.v4.text.BidiFormatter;
 import android.support.v4.view.ViewCompat;
+import android.support.v7.util.DiffUtil;
 import android.support.v7.widget.RecyclerView;
 import android.text.TextUtils;
 import android.view.LayoutInflater;
@@ -18,6 +19,7 @@ import org.wordpress.android.WordPress;
 import org.wordpress.android.datasets.NotificationsTable;
 import org.wordpress.android.fluxc.model.CommentStatus;
 import org.wordpress.android.models.Note;
+import org.wordpress.android.models.Note.FILTERS;
 import org.wordpress.android.ui.comments.CommentUtils;
 import org.wordpress.android.ui.notifications.NotificationsListFragment;
 import org.wordpress.android.ui.notifications.utils.NotificationsUtilsWrapper;
@@ -29,6 +31,8 @@ import org.wordpress.android.widgets.NoticonTextView;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 
 import javax.inject.Inject;
@@ -41,36 +45,15 @@ public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.NoteViewHold
 
     private final DataLoadedListener mDataLoadedListener;
     private final OnLoadMoreListener mOnLoadMoreListener;
-    private final ArrayList<Note> mNotes = new ArrayList<>();
+    // the notes shown for the current filter, newest first
     private final ArrayList<Note> mFilteredNotes = new ArrayList<>();
+    // maps the id of each shown note to its position in mFilteredNotes
+    private final HashMap<String, Integer> mNotePositions = new HashMap<>();
+    // id of the last UpdateNotesTask started - only its result is applied
+    private int mLatestUpdateTaskId;
     @Inject protected ImageManager mImageManager;
     @Inject protected NotificationsUtilsWrapper mNotificationsUtilsWrapper;
 
-    public enum FILTERS {
-        FILTER_ALL,
-        FILTER_COMMENT,
-        FILTER_FOLLOW,
-        FILTER_LIKE,
-        FILTER_UNREAD;
-
-        public String toString() {
-            switch (this) {
-                case FILTER_ALL:
-                    return "all";
-                case FILTER_COMMENT:
-                    return "comment";
-                case FILTER_FOLLOW:
-                    return "follow";
-                case FILTER_LIKE:
-                    return "like";
-                case FILTER_UNREAD:
-                    return "unread";
-                default:
-                    return "all";
-            }
-        }
-    }
-
     private FILTERS mCurrentFilter = FILTERS.FILTER_ALL;
 
     public interface DataLoadedListener {
@@ -101,9 +84,13 @@ public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.NoteViewHold
         mTextIndentSize = context.getResources().getDimensionPixelSize(R.dimen.notifications_text_indent_sz);
     }
 
+    /*
+     * the notes for the new filter are queried from the db, which is where they're filtered, so the list
+     * isn't rebuilt from the previous filter's notes
+     */
     public void setFilter(FILTERS newFilter) {
         mCurrentFilter = newFilter;
-        myNotifyDatasetChanged();
+        reloadNotesFromDBAsync();
     }
 
     public FILTERS getCurrentFilter() {
@@ -111,22 +98,28 @@ public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.NoteViewHold
     }
 
     public void addAll(List<Note> notes, boolean clearBeforeAdding) {
-        Collections.sort(notes, new Note.TimeStampComparator());
-        try {
-            if (clearBeforeAdding) {
-                mNotes.clear();
+        ArrayList<Note> newNotes = new ArrayList<>(notes);
+        if (!clearBeforeAdding) {
+            HashSet<String> newNoteIds = new HashSet<>();
+            for (Note note : notes) {
+                newNoteIds.add(note.getId());
+            }
+            for (Note note : mFilteredNotes) {
+                if (!newNoteIds.contains(note.getId())) {
+                    newNotes.add(note);
+                }
             }
-            mNotes.addAll(notes);
-        } finally {
-            myNotifyDatasetChanged();
         }
+        new UpdateNotesTask(newNotes).executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
     }
 
-    private void myNotifyDatasetChanged() {
-        buildFilteredNotesList(mFilteredNotes, mNotes, mCurrentFilter);
-        notifyDataSetChanged();
-        if (mDataLoadedListener != null) {
-            mDataLoadedListener.onDataLoaded(getItemCount());
+    private void rebuildNotePositions() {
+        mNotePositions.clear();
+        for (int i = 0; i < mFilteredNotes.size(); i++) {
+            String noteId = mFilteredNotes.get(i).getId();
+            if (noteId != null && !mNotePositions.containsKey(noteId)) {
+                mNotePositions.put(noteId, i);
+            }
         }
     }
 
@@ -146,31 +139,27 @@ public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.NoteViewHold
             return;
         }
         for (Note currentNote : notes) {
-            switch (filter) {
-                case FILTER_COMMENT:
-                    if (currentNote.isCommentType()) {
-                        filteredNotes.add(currentNote);
-                    }
-                    break;
-                case FILTER_FOLLOW:
-                    if (currentNote.isFollowType()) {
-                        filteredNotes.add(currentNote);
-                    }
-                    break;
-                case FILTER_UNREAD:
-                    if (currentNote.isUnread()) {
-                        filteredNotes.add(currentNote);
-                    }
-                    break;
-                case FILTER_LIKE:
-                    if (currentNote.isLikeType()) {
-                        filteredNotes.add(currentNote);
-                    }
-                    break;
+            if (matchesFilter(currentNote, filter)) {
+                filteredNotes.add(currentNote);
             }
         }
     }
 
+    private static boolean matchesFilter(Note note, FILTERS filter) {
+        switch (filter) {
+            case FILTER_COMMENT:
+                return note.isCommentType();
+            case FILTER_FOLLOW:
+                return note.isFollowType();
+            case FILTER_UNREAD:
+                return note.isUnread();
+            case FILTER_LIKE:
+                return note.isLikeType();
+            default:
+                return true;
+        }
+    }
+
     private Note getNoteAtPosition(int position) {
         if (isValidPosition(position)) {
             return mFilteredNotes.get(position);
@@ -179,11 +168,21 @@ public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.NoteViewHold
         return null;
     }
 
+    /*
+     * replaces the shown note with the passed one, which should already be stored in the db - the notes
+     * are read from the db again if it no longer matches the current filter, so it's removed from the list
+     */
     public void replaceNote(Note newNote) {
         if (newNote != null) {
-            int position = getPositionForNoteUnfiltered(newNote.getId());
-            if (position != RecyclerView.NO_POSITION && position < mNotes.size()) {
-                mNotes.set(position, newNote);
+            int position = getPositionForNote(newNote.getId());
+            if (position == RecyclerView.NO_POSITION) {
+                return;
+            }
+            if (matchesFilter(newNote, mCurrentFilter)) {
+                mFilteredNotes.set(position, newNote);
+                notifyItemChanged(position);
+            } else {
+                reloadNotesFromDBAsync();
             }
         }
     }
@@ -305,44 +304,111 @@ public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.NoteViewHold
     }
 
     public int getPositionForNote(String noteId) {
-        return getPositionForNoteInArray(noteId, mFilteredNotes);
+        Integer position = noteId != null ? mNotePositions.get(noteId) : null;
+        return position != null ? position : RecyclerView.NO_POSITION;
     }
 
-    private int getPositionForNoteUnfiltered(String noteId) {
-        return getPositionForNoteInArray(noteId, mNotes);
+    public void setOnNoteClickListener(NotificationsListFragment.OnNoteClickListener mNoteClickListener) {
+        mOnNoteClickListener = mNoteClickListener;
     }
 
-    private int getPositionForNoteInArray(String noteId, ArrayList<Note> notes) {
-        if (notes != null && noteId != null) {
-            for (int i = 0; i < notes.size(); i++) {
-                String noteKey = notes.get(i).getId();
-                if (noteKey != null && noteKey.equals(noteId)) {
-                    return i;
-                }
+    public void reloadNotesFromDBAsync() {
+        new UpdateNotesTask(null).executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    /*
+     * builds the new list of notes for the current filter - either from the db or from the passed notes -
+     * and works out how it differs from the shown one in the background, so only the notes which were
+     * added, removed, moved or changed are updated
+     */
+    private class UpdateNotesTask extends AsyncTask<Void, Void, DiffUtil.DiffResult> {
+        private final int mTaskId = ++mLatestUpdateTaskId;
+        private final FILTERS mFilter = mCurrentFilter;
+        private final ArrayList<Note> mOldNotes = new ArrayList<>(mFilteredNotes);
+        private final ArrayList<Note> mNotes;
+        private final ArrayList<Note> mNewNotes = new ArrayList<>();
+
+        /*
+         * notes is null when the notes should be read from the db
+         */
+        UpdateNotesTask(ArrayList<Note> notes) {
+            mNotes = notes;
+        }
+
+        @Override
+        protected DiffUtil.DiffResult doInBackground(Void... voids) {
+            if (mNotes == null) {
+                mNewNotes.addAll(NotificationsTable.getLatestNotes(mFilter));
+            } else {
+                buildFilteredNotesList(mNewNotes, mNotes, mFilter);
+                Collections.sort(mNewNotes, new Note.TimeStampComparator());
             }
+            return DiffUtil.calculateDiff(new NotesDiffCallback(mOldNotes, mNewNotes));
         }
-        return RecyclerView.NO_POSITION;
-    }
 
-    public void setOnNoteClickListener(NotificationsListFragment.OnNoteClickListener mNoteClickListener) {
-        mOnNoteClickListener = mNoteClickListener;
+        @Override
+        protected void onPostExecute(DiffUtil.DiffResult diffResult) {
+            if (mTaskId != mLatestUpdateTaskId) {
+                // the notes or the filter changed while this was running, and a newer task replaces it
+                return;
+            }
+            mFilteredNotes.clear();
+            mFilteredNotes.addAll(mNewNotes);
+            rebuildNotePositions();
+            diffResult.dispatchUpdatesTo(NotesAdapter.this);
+            if (mDataLoadedListener != null) {
+                mDataLoadedListener.onDataLoaded(getItemCount());
+            }
+        }
     }
 
-    public void reloadNotesFromDBAsync() {
-        new ReloadNotesFromDBTask().executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
-    }
+    private static class NotesDiffCallback extends DiffUtil.Callback {
+        private final List<Note> mOldNotes;
+        private final List<Note> mNewNotes;
+        private final boolean[] mOldHasHeader;
+        private final boolean[] mNewHasHeader;
+
+        NotesDiffCallback(List<Note> oldNotes, List<Note> newNotes) {
+            mOldNotes = oldNotes;
+            mNewNotes = newNotes;
+            mOldHasHeader = getHasHeader(oldNotes);
+            mNewHasHeader = getHasHeader(newNotes);
+        }
+
+        /*
+         * a note shows a time group header when it's the first one in its group, which can change when
+         * the notes around it change
+         */
+        private static boolean[] getHasHeader(List<Note> notes) {
+            boolean[] hasHeader = new boolean[notes.size()];
+            Note.NoteTimeGroup previousTimeGroup = null;
+            for (int i = 0; i < notes.size(); i++) {
+                Note.NoteTimeGroup timeGroup = Note.getTimeGroupForTimestamp(notes.get(i).getTimestamp());
+                hasHeader[i] = timeGroup != previousTimeGroup;
+                previousTimeGroup = timeGroup;
+            }
+            return hasHeader;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldNotes.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewNotes.size();
+        }
 
-    private class ReloadNotesFromDBTask extends AsyncTask<Void, Void, ArrayList<Note>> {
         @Override
-        protected ArrayList<Note> doInBackground(Void... voids) {
-            return NotificationsTable.getLatestNotes();
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return TextUtils.equals(mOldNotes.get(oldItemPosition).getId(), mNewNotes.get(newItemPosition).getId());
         }
 
         @Override
-        protected void onPostExecute(ArrayList<Note> notes) {
-            mNotes.clear();
-            mNotes.addAll(notes);
-            myNotifyDatasetChanged();
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldHasHeader[oldItemPosition] == mNewHasHeader[newItemPosition]
+                   && mOldNotes.get(oldItemPosition).isSameInList(mNewNotes.get(newItemPosition));
         }
     }
 
@@ -0,0 +1,118 @@
+package org.wordpress.android.ui.notifications.utils;
+
+import android.support.annotation.Nullable;
+import android.util.Base64;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.wordpress.android.util.AppLog;
+import org.wordpress.android.util.AppLog.T;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decodes the base64 encoded, deflated note JSON sent in a push notification. Payloads are inflated
+ * into a buffer which grows as needed, so there's no limit on their size, and the inflaters and
+ * buffers are pooled so pushes received together can be decoded concurrently without allocating
+ * new ones for each of them
+ */
+public class NotePayloadDecoder {
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+    // buffers which grew past this for a large payload aren't kept in the pool
+    private static final int MAX_POOLED_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_POOL_SIZE = 4;
+
+    private static final BlockingQueue<DecodeState> POOL = new ArrayBlockingQueue<>(MAX_POOL_SIZE);
+
+    private static class DecodeState {
+        private final Inflater mInflater = new Inflater();
+        private byte[] mBuffer = new byte[INITIAL_BUFFER_SIZE];
+    }
+
+    private NotePayloadDecoder() {
+        throw new AssertionError();
+    }
+
+    /*
+     * returns the note JSON in the passed payload, or null if it can't be decoded - safe to call
+     * from any thread
+     */
+    public static @Nullable JSONObject decode(@Nullable String base64Payload) {
+        if (base64Payload == null) {
+            return null;
+        }
+
+        byte[] compressed;
+        try {
+            compressed = Base64.decode(base64Payload, Base64.DEFAULT);
+        } catch (IllegalArgumentException e) {
+            AppLog.e(T.NOTIFS, "Can't decode the base64 PN payload", e);
+            return null;
+        }
+
+        DecodeState state = POOL.poll();
+        if (state == null) {
+            state = new DecodeState();
+        }
+
+        String json = null;
+        try {
+            int length = inflate(state, compressed);
+            if (length >= 0) {
+                json = new String(state.mBuffer, 0, length, StandardCharsets.UTF_8);
+            }
+        } finally {
+            release(state);
+        }
+
+        if (json == null) {
+            return null;
+        }
+        try {
+            return new JSONObject(json);
+        } catch (JSONException e) {
+            AppLog.e(T.NOTIFS, "Can't parse the Note JSON received in the PN", e);
+            return null;
+        }
+    }
+
+    /*
+     * inflates the passed data into the state's buffer, growing it as needed, and returns the number
+     * of inflated bytes or -1 if the data isn't a complete deflate stream
+     */
+    private static int inflate(DecodeState state, byte[] compressed) {
+        Inflater inflater = state.mInflater;
+        inflater.setInput(compressed, 0, compressed.length);
+        int length = 0;
+        try {
+            while (!inflater.finished()) {
+                if (length == state.mBuffer.length) {
+                    byte[] buffer = new byte[state.mBuffer.length * 2];
+                    System.arraycopy(state.mBuffer, 0, buffer, 0, length);
+                    state.mBuffer = buffer;
+                }
+                int count = inflater.inflate(state.mBuffer, length, state.mBuffer.length - length);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    AppLog.e(T.NOTIFS, "The PN payload is truncated");
+                    return -1;
+                }
+                length += count;
+            }
+        } catch (DataFormatException e) {
+            AppLog.e(T.NOTIFS, "Can't decompress the PN payload", e);
+            return -1;
+        }
+        return length;
+    }
+
+    private static void release(DecodeState state) {
+        state.mInflater.reset();
+        if (state.mBuffer.length > MAX_POOLED_BUFFER_SIZE || !POOL.offer(state)) {
+            state.mInflater.end();
+        }
+    }
+}
@@ -2601,6 +2601,7 @@ public class EditPostActivity extends AppCompatActivity implements
                 showProgressDialog(true);
             }
             try {
+                prefetchOptimizedImages();
                 for (Uri mediaUri : mUriList) {
                     if (isInterrupted()) {
                         return;
@@ -2631,6 +2632,22 @@ public class EditPostActivity extends AppCompatActivity implements
             });
         }
 
+        /*
+         * starts optimizing all the pictures being added at once, rather than one at a time as each is processed
+         */
+        private void prefetchOptimizedImages() {
+            List<String> imagePaths = new ArrayList<>();
+            for (Uri mediaUri : mUriList) {
+                if (mediaUri != null && !MediaUtils.isVideo(mediaUri.toString())) {
+                    String path = MediaUtils.getRealPathFromURI(EditPostActivity.this, mediaUri);
+                    if (path != null) {
+                        imagePaths.add(path);
+                    }
+                }
+            }
+            WPMediaUtils.prefetchOptimizedImages(EditPostActivity.this, imagePaths);
+        }
+
         private boolean processMedia(Uri mediaUri) {
             if (mediaUri == null) {
                 return false;
@@ -67,6 +67,11 @@ public class AppPrefs {
         // Store the number of times Stats are loaded without errors. It's used to show the Widget promo dialog.
         STATS_WIDGET_PROMO_ANALYTICS,
 
+        // last time the Stats screen was shown, and the last time and current delay of background Stats prefetches
+        STATS_LAST_VIEWED_TIME,
+        STATS_LAST_PREFETCH_TIME,
+        STATS_PREFETCH_INTERVAL,
+
         // index of the last active status type in Comments activity
         COMMENTS_STATUS_TYPE_INDEX,
 
@@ -434,6 +439,30 @@ public class AppPrefs {
         remove(DeletablePrefKey.STATS_WIDGET_DATA);
     }
 
+    public static long getStatsLastViewedTime() {
+        return getLong(DeletablePrefKey.STATS_LAST_VIEWED_TIME);
+    }
+
+    public static void setStatsLastViewedTime(long time) {
+        setLong(DeletablePrefKey.STATS_LAST_VIEWED_TIME, time);
+    }
+
+    public static long getStatsLastPrefetchTime() {
+        return getLong(DeletablePrefKey.STATS_LAST_PREFETCH_TIME);
+    }
+
+    public static void setStatsLastPrefetchTime(long time) {
+        setLong(DeletablePrefKey.STATS_LAST_PREFETCH_TIME, time);
+    }
+
+    public static long getStatsPrefetchInterval() {
+        return getLong(DeletablePrefKey.STATS_PREFETCH_INTERVAL);
+    }
+
+    public static void setStatsPrefetchInterval(long intervalMs) {
+        setLong(DeletablePrefKey.STATS_PREFETCH_INTERVAL, intervalMs);
+    }
+
     // Themes
     public static void setThemeImageSizeWidth(int width) {
         setInt(UndeletablePrefKey.THEME_IMAGE_SIZE_WIDTH, width);
@@ -10,6 +10,9 @@ public class ReaderConstants {
     // max # posts to display
     public static final int READER_MAX_POSTS_TO_DISPLAY = 200;
 
+    // # posts to load from the local db at a time when displaying a list of posts
+    public static final int READER_POSTS_PER_PAGE = 20;
+
     // max # top-level comments to request when updating comments
     public static final int READER_MAX_COMMENTS_TO_REQUEST = 20;
 
@@ -537,8 +537,6 @@ public class ReaderPostDetailFragment extends Fragment
             }
         }
 
-        mPost = ReaderPostTable.getBlogPost(mPost.blogId, mPost.postId, false);
-
         updateBookmarkView();
     }
 
@@ -586,7 +584,7 @@ public class ReaderPostDetailFragment extends Fragment
             return;
         }
 
-        if (isAskingToLike != ReaderPostTable.isPostLikedByCurrentUser(mPost)) {
+        if (isAskingToLike != mPost.isLikedByCurrentUser) {
             ReaderIconCountView likeCount = getView().findViewById(R.id.count_likes);
             likeCount.setSelected(isAskingToLike);
             ReaderAnim.animateLikeButton(likeCount.getImageView(), isAskingToLike);
@@ -598,8 +596,7 @@ public class ReaderPostDetailFragment extends Fragment
                 return;
             }
 
-            // get the post again since it has changed, then refresh to show changes
-            mPost = ReaderPostTable.getBlogPost(mPost.blogId, mPost.postId, false);
+            // the post was updated by performLikeAction(), so refresh to show changes
             refreshLikes();
             refreshIconCounts();
         }
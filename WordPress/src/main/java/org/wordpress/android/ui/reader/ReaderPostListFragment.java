@@ -109,6 +109,8 @@ import org.wordpress.android.util.DateTimeUtils;
 import org.wordpress.android.util.DisplayUtils;
 import org.wordpress.android.util.NetworkUtils;
 import org.wordpress.android.util.QuickStartUtils;
+import org.wordpress.android.util.ReaderWorkScheduler;
+import org.wordpress.android.util.ReaderWorkScheduler.Priority;
 import org.wordpress.android.util.StringUtils;
 import org.wordpress.android.util.ToastUtils;
 import org.wordpress.android.util.WPActivityUtils;
@@ -1112,6 +1114,11 @@ public class ReaderPostListFragment extends Fragment
         if (event.didSucceed()
             && getPostListType() == ReaderPostListType.SEARCH_RESULTS
             && event.getQuery().equals(mCurrentSearchQuery)) {
+            // local posts matching the search were shown until now, the server's results replace them
+            // even if there aren't any
+            if (event.getOffset() == 0 && hasPostAdapter()) {
+                getPostAdapter().setHasServerSearchResults();
+            }
             refreshPosts();
             showSearchTabs();
         } else {
@@ -1822,6 +1829,10 @@ public class ReaderPostListFragment extends Fragment
      * get latest posts for this tag from the server
      */
     private void updatePostsWithTag(ReaderTag tag, UpdateAction updateAction) {
+        updatePostsWithTag(tag, updateAction, Priority.VISIBLE);
+    }
+
+    private void updatePostsWithTag(ReaderTag tag, UpdateAction updateAction, Priority priority) {
         if (!isAdded()) {
             return;
         }
@@ -1836,7 +1847,7 @@ public class ReaderPostListFragment extends Fragment
         }
         AppLog.d(T.READER,
                 "reader post list > updating tag " + tag.getTagNameForLog() + ", updateAction=" + updateAction.name());
-        ReaderPostServiceStarter.startServiceForTag(getActivity(), tag, updateAction);
+        ReaderPostServiceStarter.startServiceForTag(getActivity(), tag, updateAction, priority);
     }
 
     private void updateCurrentTag() {
@@ -1852,19 +1863,21 @@ public class ReaderPostListFragment extends Fragment
         if (!isAdded() || !hasCurrentTag()) {
             return;
         }
-        new Thread() {
+        ReaderWorkScheduler.execute(Priority.VISIBLE, new Runnable() {
             @Override
             public void run() {
                 if (ReaderTagTable.shouldAutoUpdateTag(getCurrentTag()) && isAdded()) {
                     getActivity().runOnUiThread(new Runnable() {
                         @Override
                         public void run() {
-                            updateCurrentTag();
+                            // the user is only waiting on this update when there are no posts to show
+                            updatePostsWithTag(getCurrentTag(), UpdateAction.REQUEST_NEWER,
+                                               isPostAdapterEmpty() ? Priority.VISIBLE : Priority.PREFETCH);
                         }
                     });
                 }
             }
-        }.start();
+        });
     }
 
     private boolean isUpdating() {
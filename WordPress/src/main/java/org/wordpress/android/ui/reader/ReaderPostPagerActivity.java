@@ -46,6 +46,8 @@ import org.wordpress.android.util.AniUtils;
 import org.wordpress.android.util.AppLog;
 import org.wordpress.android.util.LocaleManager;
 import org.wordpress.android.util.NetworkUtils;
+import org.wordpress.android.util.ReaderWorkScheduler;
+import org.wordpress.android.util.ReaderWorkScheduler.Priority;
 import org.wordpress.android.util.ToastUtils;
 import org.wordpress.android.widgets.WPSwipeSnackbar;
 import org.wordpress.android.widgets.WPViewPager;
@@ -231,6 +233,7 @@ public class ReaderPostPagerActivity extends AppCompatActivity
 
                 mLastSelectedPosition = position;
                 updateTitle(position);
+                prerenderPostsNear(position);
             }
         });
 
@@ -661,7 +664,7 @@ public class ReaderPostPagerActivity extends AppCompatActivity
      * one will be made active
      */
     private void loadPosts(final long blogId, final long postId) {
-        new Thread() {
+        ReaderWorkScheduler.execute(Priority.VISIBLE, new Runnable() {
             @Override
             public void run() {
                 final ReaderBlogIdPostIdList idList;
@@ -702,10 +705,12 @@ public class ReaderPostPagerActivity extends AppCompatActivity
                             mViewPager.setCurrentItem(newPosition);
                             trackPostAtPositionIfNeeded(newPosition);
                             updateTitle(newPosition);
+                            prerenderPostsNear(newPosition);
                         } else if (adapter.isValidPosition(currentPosition)) {
                             mViewPager.setCurrentItem(currentPosition);
                             trackPostAtPositionIfNeeded(currentPosition);
                             updateTitle(currentPosition);
+                            prerenderPostsNear(currentPosition);
                         }
 
                         // let the user know they can swipe between posts
@@ -716,7 +721,31 @@ public class ReaderPostPagerActivity extends AppCompatActivity
                     }
                 });
             }
-        }.start();
+        });
+    }
+
+    /*
+     * the ViewPager already creates (and renders) the fragments on either side of the current one,
+     * so render the posts just beyond those ahead of time so they're ready when the user swipes
+     */
+    private void prerenderPostsNear(int position) {
+        PostPagerAdapter adapter = getAdapter();
+        if (adapter == null) {
+            return;
+        }
+
+        int distance = mViewPager.getOffscreenPageLimit() + 1;
+        ReaderBlogIdPostIdList ids = new ReaderBlogIdPostIdList();
+        for (int nearPosition : new int[]{position + distance, position - distance}) {
+            ReaderBlogIdPostId id = adapter.getBlogIdPostIdAtPosition(nearPosition);
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+
+        if (ids.size() > 0) {
+            ReaderPostRenderCache.prerenderPosts(this, ids, mIsFeed);
+        }
     }
 
     private ReaderTag getCurrentTag() {
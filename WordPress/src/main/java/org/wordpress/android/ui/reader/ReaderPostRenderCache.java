@@ -0,0 +1,121 @@
+package org.wordpress.android.ui.reader;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.v4.util.LruCache;
+
+import org.wordpress.android.datasets.ReaderPostTable;
+import org.wordpress.android.models.ReaderPost;
+import org.wordpress.android.ui.reader.models.ReaderBlogIdPostId;
+import org.wordpress.android.ui.reader.models.ReaderBlogIdPostIdList;
+import org.wordpress.android.util.AppLog;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LRU cache of the post HTML generated by ReaderPostRenderer, keyed on the post's ids, its content
+ * hash and the render key of the resources it was rendered with (display width, density, locale,
+ * colors, etc.) - since the content hash is part of the key, a post
+ * whose content changes will never match its old entry. posts near the one being viewed in the
+ * pager can be rendered ahead of time on a small bounded executor so they display immediately
+ */
+public class ReaderPostRenderCache {
+    // cache size is measured in chars of rendered HTML
+    private static final int MAX_CACHE_CHARS = 2 * 1024 * 1024;
+
+    // max # of posts waiting to be pre-rendered - when the user swipes quickly through posts the
+    // oldest requests are dropped since they're the ones least likely to be viewed next
+    private static final int MAX_PENDING_RENDERS = 4;
+
+    private static final LruCache<String, String> RENDERED_HTML = new LruCache<String, String>(MAX_CACHE_CHARS) {
+        @Override
+        protected int sizeOf(String key, String html) {
+            return html.length();
+        }
+    };
+
+    private static final ThreadPoolExecutor PRERENDER_EXECUTOR = new ThreadPoolExecutor(
+            1, 1, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(MAX_PENDING_RENDERS),
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    Thread thread = new Thread(runnable, "ReaderPostPrerender");
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            },
+            new ThreadPoolExecutor.DiscardOldestPolicy());
+
+    static {
+        PRERENDER_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    private ReaderPostRenderCache() {
+        throw new AssertionError();
+    }
+
+    static String getKey(@NonNull ReaderPost post, @NonNull String renderKey) {
+        return getKeyPrefix(post.blogId, post.postId) + post.getContentHash() + ":" + renderKey;
+    }
+
+    private static String getKeyPrefix(long blogId, long postId) {
+        return blogId + ":" + postId + ":";
+    }
+
+    static String get(@NonNull String key) {
+        return RENDERED_HTML.get(key);
+    }
+
+    static void put(@NonNull String key, @NonNull String html) {
+        RENDERED_HTML.put(key, html);
+    }
+
+    /*
+     * removes all rendered versions of the passed post - should be called when the post is updated
+     */
+    public static void invalidate(long blogId, long postId) {
+        String prefix = getKeyPrefix(blogId, postId);
+        for (String key : RENDERED_HTML.snapshot().keySet()) {
+            if (key.startsWith(prefix)) {
+                RENDERED_HTML.remove(key);
+            }
+        }
+    }
+
+    public static void clear() {
+        RENDERED_HTML.evictAll();
+        PRERENDER_EXECUTOR.getQueue().clear();
+    }
+
+    /*
+     * renders the passed posts in the background and adds them to the cache - posts which aren't
+     * stored locally or are already cached are skipped. the passed context should be the activity
+     * the posts will be shown in, so they're rendered with the same resources (and locale)
+     */
+    static void prerenderPosts(@NonNull Context context, @NonNull ReaderBlogIdPostIdList ids, final boolean isFeed) {
+        final ReaderResourceVars resourceVars = new ReaderResourceVars(context);
+        for (final ReaderBlogIdPostId id : ids) {
+            PRERENDER_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ReaderPost post = isFeed
+                            ? ReaderPostTable.getFeedPost(id.getBlogId(), id.getPostId(), false)
+                            : ReaderPostTable.getBlogPost(id.getBlogId(), id.getPostId(), false);
+                    if (post == null) {
+                        return;
+                    }
+                    try {
+                        new ReaderPostRenderer(resourceVars, post).getOrRenderHtml();
+                    } catch (RuntimeException e) {
+                        // a failed pre-render just means the post will be rendered when it's shown
+                        AppLog.e(AppLog.T.READER, e);
+                    }
+                }
+            });
+        }
+    }
+}
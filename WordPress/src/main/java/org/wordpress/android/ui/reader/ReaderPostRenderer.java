@@ -3,31 +3,32 @@ package org.wordpress.android.ui.reader;
 import android.annotation.SuppressLint;
 import android.net.Uri;
 import android.os.Handler;
+import android.support.annotation.NonNull;
 
-import org.wordpress.android.R;
 import org.wordpress.android.WordPress;
 import org.wordpress.android.models.ReaderPost;
 import org.wordpress.android.models.ReaderPostDiscoverData;
 import org.wordpress.android.ui.reader.utils.ImageSizeMap;
 import org.wordpress.android.ui.reader.utils.ImageSizeMap.ImageSize;
 import org.wordpress.android.ui.reader.utils.ReaderEmbedScanner;
+import org.wordpress.android.ui.reader.utils.ReaderHtmlRewriter;
+import org.wordpress.android.ui.reader.utils.ReaderHtmlTag;
 import org.wordpress.android.ui.reader.utils.ReaderHtmlUtils;
-import org.wordpress.android.ui.reader.utils.ReaderIframeScanner;
-import org.wordpress.android.ui.reader.utils.ReaderImageScanner;
 import org.wordpress.android.ui.reader.utils.ReaderUtils;
 import org.wordpress.android.ui.reader.views.ReaderWebView;
 import org.wordpress.android.util.AppLog;
 import org.wordpress.android.util.DisplayUtils;
 import org.wordpress.android.util.PhotonUtils;
+import org.wordpress.android.util.ReaderWorkScheduler;
+import org.wordpress.android.util.ReaderWorkScheduler.Priority;
 import org.wordpress.android.util.StringUtils;
 
 import java.lang.ref.WeakReference;
 import java.util.Arrays;
 import java.util.HashSet;
-import java.util.List;
+import java.util.LinkedHashSet;
 import java.util.Random;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 /**
  * generates and displays the HTML for post detail content - main purpose is to assign the
@@ -39,13 +40,21 @@ import java.util.regex.Pattern;
  * http://developer.android.com/guide/webapps/targeting.html
  */
 public class ReaderPostRenderer {
+    private static final String TILED_GALLERY_CLASS = "tiled-gallery";
+
+    // classes of the tiled gallery elements which get our custom gallery-only class
+    private static final Set<String> GALLERY_CLASSES = new HashSet<>(Arrays.asList(
+            "tiled-gallery",
+            "gallery-row",
+            "gallery-group",
+            "tiled-gallery-item"));
+
     private final ReaderResourceVars mResourceVars;
     private final ReaderPost mPost;
     private final int mMinFullSizeWidthDp;
     private final int mMinMidSizeWidthDp;
     private final WeakReference<ReaderWebView> mWeakWebView;
 
-    private StringBuilder mRenderBuilder;
     private String mRenderedHtml;
     private ImageSizeMap mAttachmentSizes;
 
@@ -70,32 +79,30 @@ public class ReaderPostRenderer {
         webView.getSettings().setJavaScriptEnabled(true);
     }
 
+    /*
+     * used by ReaderPostRenderCache to render a post that isn't being displayed yet, using the
+     * resource vars of the activity it will be displayed in
+     */
+    ReaderPostRenderer(ReaderResourceVars resourceVars, ReaderPost post) {
+        if (post == null) {
+            throw new IllegalArgumentException("ReaderPostRenderer requires a post");
+        }
+
+        mPost = post;
+        mWeakWebView = new WeakReference<>(null);
+        mResourceVars = resourceVars;
+
+        mMinFullSizeWidthDp = pxToDp(mResourceVars.mFullSizeImageWidthPx / 3);
+        mMinMidSizeWidthDp = mMinFullSizeWidthDp / 2;
+    }
+
     public void beginRender() {
         final Handler handler = new Handler();
-        mRenderBuilder = new StringBuilder(getPostContent());
 
-        new Thread() {
+        ReaderWorkScheduler.execute(Priority.VISIBLE, new Runnable() {
             @Override
             public void run() {
-                final boolean hasTiledGallery = hasTiledGallery(mRenderBuilder.toString());
-
-                if (!(hasTiledGallery && mResourceVars.mIsWideDisplay)) {
-                    resizeImages();
-                }
-
-                resizeIframes();
-
-                // Get the set of JS scripts to inject in our Webview to support some specific Embeds.
-                Set<String> jsToInject = injectJSForSpecificEmbedSupport();
-
-                final String htmlContent =
-                        formatPostContentForWebView(
-                                mRenderBuilder.toString(),
-                                jsToInject,
-                                hasTiledGallery,
-                                mResourceVars.mIsWideDisplay);
-
-                mRenderBuilder = null;
+                final String htmlContent = getOrRenderHtml();
                 handler.post(new Runnable() {
                     @Override
                     public void run() {
@@ -103,58 +110,120 @@ public class ReaderPostRenderer {
                     }
                 });
             }
-        }.start();
-    }
-
-    public static boolean hasTiledGallery(String text) {
-        // determine whether a tiled-gallery exists in the content
-        return Pattern.compile("tiled-gallery[\\s\"']").matcher(text).find();
+        });
     }
 
     /*
-     * scan the content for images and make sure they're correctly sized for the device
+     * returns the HTML for this post from the render cache, rendering it and adding it to the
+     * cache if it's not already there - must be called from a background thread
      */
-    private void resizeImages() {
-        ReaderHtmlUtils.HtmlScannerListener imageListener = new ReaderHtmlUtils.HtmlScannerListener() {
+    String getOrRenderHtml() {
+        String key = ReaderPostRenderCache.getKey(mPost, mResourceVars.mRenderKey);
+        String htmlContent = ReaderPostRenderCache.get(key);
+        if (htmlContent == null) {
+            htmlContent = renderHtml();
+            ReaderPostRenderCache.put(key, htmlContent);
+        }
+        return htmlContent;
+    }
+
+    private String renderHtml() {
+        String content = mPost.shouldShowExcerpt() ? mPost.getExcerpt() : mPost.getText();
+
+        final boolean hasTiledGallery = hasTiledGallery(content);
+        final boolean renderAsTiledGallery = hasTiledGallery && mResourceVars.mIsWideDisplay;
+
+        // unique CSS class assigned to the gallery elements for easy selection
+        final String galleryOnlyClass = "gallery-only-class" + new Random().nextInt(1000);
+
+        // Get the set of JS scripts to inject in our Webview to support some specific Embeds.
+        final Set<String> jsToInject = new LinkedHashSet<>();
+
+        // resize images and iframes, detect embeds and tag the tiled gallery elements in a single
+        // pass over the content
+        ReaderHtmlRewriter rewriter = new ReaderHtmlRewriter();
+        if (!renderAsTiledGallery) {
+            rewriter.addTagHandler("img", new ReaderHtmlRewriter.TagHandler() {
+                @Override
+                public boolean onTag(@NonNull ReaderHtmlTag tag, @NonNull StringBuilder output) {
+                    return replaceImageTag(tag, output);
+                }
+            });
+        }
+        rewriter.addTagHandler("iframe", new ReaderHtmlRewriter.TagHandler() {
             @Override
-            public void onTagFound(String imageTag, String imageUrl) {
-                if (!imageUrl.contains("wpcom-smileys")) {
-                    replaceImageTag(imageTag, imageUrl);
+            public boolean onTag(@NonNull ReaderHtmlTag tag, @NonNull StringBuilder output) {
+                return replaceIframeTag(tag, output);
+            }
+        });
+        ReaderEmbedScanner.addEmbedHandlers(rewriter, jsToInject);
+        if (renderAsTiledGallery) {
+            rewriter.addAllTagsHandler(new ReaderHtmlRewriter.TagHandler() {
+                @Override
+                public boolean onTag(@NonNull ReaderHtmlTag tag, @NonNull StringBuilder output) {
+                    return addGalleryOnlyClass(tag, galleryOnlyClass, output);
+                }
+            });
+        }
+
+        return formatPostContentForWebView(
+                getPostContent(rewriter.rewrite(content)),
+                jsToInject,
+                renderAsTiledGallery,
+                galleryOnlyClass,
+                mResourceVars.mIsWideDisplay);
+    }
+
+    public static boolean hasTiledGallery(String text) {
+        // determine whether a tiled-gallery exists in the content - this is checked before the
+        // content is rewritten since it determines whether images are resized
+        if (text == null) {
+            return false;
+        }
+        int index = text.indexOf(TILED_GALLERY_CLASS);
+        while (index != -1) {
+            int next = index + TILED_GALLERY_CLASS.length();
+            if (next < text.length()) {
+                char c = text.charAt(next);
+                if (Character.isWhitespace(c) || c == '"' || c == '\'') {
+                    return true;
                 }
             }
-        };
-        String content = mRenderBuilder.toString();
-        ReaderImageScanner scanner = new ReaderImageScanner(content, mPost.isPrivate);
-        scanner.beginScan(imageListener);
+            index = text.indexOf(TILED_GALLERY_CLASS, next);
+        }
+        return false;
     }
 
     /*
-     * scan the content for iframes and make sure they're correctly sized for the device
+     * adds our custom CSS class to (any) tiled gallery elements to make them easier to select for
+     * the tiled gallery rules
      */
-    private void resizeIframes() {
-        ReaderHtmlUtils.HtmlScannerListener iframeListener = new ReaderHtmlUtils.HtmlScannerListener() {
-            @Override
-            public void onTagFound(String tag, String src) {
-                replaceIframeTag(tag, src);
-            }
-        };
-        String content = mRenderBuilder.toString();
-        ReaderIframeScanner scanner = new ReaderIframeScanner(content);
-        scanner.beginScan(iframeListener);
-    }
+    private static boolean addGalleryOnlyClass(@NonNull ReaderHtmlTag tag,
+                                               @NonNull String galleryOnlyClass,
+                                               @NonNull StringBuilder output) {
+        String classes = tag.getAttribute("class");
+        if (classes == null || !classes.contains("gallery")) {
+            return false;
+        }
 
-    private Set<String> injectJSForSpecificEmbedSupport() {
-        final Set<String> jsToInject = new HashSet<>();
-        ReaderHtmlUtils.HtmlScannerListener embedListener = new ReaderHtmlUtils.HtmlScannerListener() {
-            @Override
-            public void onTagFound(String tag, String src) {
-                jsToInject.add(src);
+        StringBuilder newClasses = new StringBuilder();
+        boolean hasGalleryClass = false;
+        for (String className : classes.split("\\s+")) {
+            if (newClasses.length() > 0) {
+                newClasses.append(' ');
+            }
+            newClasses.append(className);
+            if (GALLERY_CLASSES.contains(className)) {
+                newClasses.append(' ').append(galleryOnlyClass);
+                hasGalleryClass = true;
             }
-        };
-        String content = mRenderBuilder.toString();
-        ReaderEmbedScanner scanner = new ReaderEmbedScanner(content);
-        scanner.beginScan(embedListener);
-        return jsToInject;
+        }
+        if (!hasGalleryClass) {
+            return false;
+        }
+
+        tag.appendWithAttribute(output, "class", newClasses.toString());
+        return true;
     }
 
     /*
@@ -178,11 +247,17 @@ public class ReaderPostRenderer {
     }
 
     /*
-     * called when image scanner finds an image, tries to replace the image tag with one that
+     * called when the rewriter finds an image, tries to replace the image tag with one that
      * has height & width attributes set correctly for the current display, if that fails
      * replaces it with one that has our 'size-none' class
      */
-    private void replaceImageTag(final String imageTag, final String imageUrl) {
+    private boolean replaceImageTag(@NonNull final ReaderHtmlTag imageTag, @NonNull StringBuilder output) {
+        // like ReaderImageScanner, only images with a double-quoted src are resized
+        final String imageUrl = imageTag.getAttribute("src");
+        if (imageUrl == null || imageTag.getAttributeQuote("src") != '"' || imageUrl.contains("wpcom-smileys")) {
+            return false;
+        }
+
         ImageSize origSize = getImageSize(imageTag, imageUrl);
         boolean hasWidth = (origSize != null && origSize.width > 0);
         boolean isFullSize = hasWidth && (origSize.width >= mMinFullSizeWidthDp);
@@ -190,24 +265,16 @@ public class ReaderPostRenderer {
                             && (origSize.width >= mMinMidSizeWidthDp)
                             && (origSize.width < mMinFullSizeWidthDp);
 
-        final String newImageTag;
         if (isFullSize) {
-            newImageTag = makeFullSizeImageTag(imageUrl, origSize.width, origSize.height);
+            output.append(makeFullSizeImageTag(imageUrl, origSize.width, origSize.height));
         } else if (isMidSize) {
-            newImageTag = makeImageTag(imageUrl, origSize.width, origSize.height, "size-medium");
+            output.append(makeImageTag(imageUrl, origSize.width, origSize.height, "size-medium"));
         } else if (hasWidth) {
-            newImageTag = makeImageTag(imageUrl, origSize.width, origSize.height, "size-none");
+            output.append(makeImageTag(imageUrl, origSize.width, origSize.height, "size-none"));
         } else {
-            newImageTag = "<img class='size-none' src='" + imageUrl + "' />";
+            output.append("<img class='size-none' src='").append(imageUrl).append("' />");
         }
-
-        int start = mRenderBuilder.indexOf(imageTag);
-        if (start == -1) {
-            AppLog.w(AppLog.T.READER, "reader renderer > image not found in builder");
-            return;
-        }
-
-        mRenderBuilder.replace(start, start + imageTag.length(), newImageTag);
+        return true;
     }
 
     private String makeImageTag(final String imageUrl, int width, int height, final String imageClass) {
@@ -258,14 +325,11 @@ public class ReaderPostRenderer {
     }
 
     /*
-     * returns the basic content of the post tweaked for use here
+     * returns the passed (rewritten) content of the post with the featured image and discover link
+     * added - note that the rewriter has already added "http:" to protocol-relative links, since
+     * some content (such as Vimeo embeds) doesn't have it
      */
-    private String getPostContent() {
-        String content = mPost.shouldShowExcerpt() ? mPost.getExcerpt() : mPost.getText();
-
-        // some content (such as Vimeo embeds) don't have "http:" before links
-        content = content.replace("src=\"//", "src=\"http://");
-
+    private String getPostContent(String content) {
         // add the featured image (if any)
         if (shouldAddFeaturedImage()) {
             AppLog.d(AppLog.T.READER, "reader renderer > added featured image");
@@ -277,7 +341,7 @@ public class ReaderPostRenderer {
             ReaderPostDiscoverData discoverData = mPost.getDiscoverData();
             if (discoverData != null && discoverData.getBlogId() != 0 && discoverData.hasBlogName()) {
                 String label = String.format(
-                        WordPress.getContext().getString(R.string.reader_discover_visit_blog),
+                        mResourceVars.mDiscoverVisitBlogStr,
                         discoverData.getBlogName());
                 String url = ReaderUtils.makeBlogPreviewUrl(discoverData.getBlogId());
 
@@ -314,7 +378,13 @@ public class ReaderPostRenderer {
     /*
      * replace the passed iframe tag with one that's correctly sized for the device
      */
-    private void replaceIframeTag(final String tag, final String src) {
+    private boolean replaceIframeTag(@NonNull final ReaderHtmlTag tag, @NonNull StringBuilder output) {
+        // like ReaderIframeScanner, only iframes with a single-quoted src are resized
+        final String src = tag.getAttribute("src");
+        if (src == null || tag.getAttributeQuote("src") != '\'') {
+            return false;
+        }
+
         int width = ReaderHtmlUtils.getWidthAttrValue(tag);
         int height = ReaderHtmlUtils.getHeightAttrValue(tag);
 
@@ -329,30 +399,19 @@ public class ReaderPostRenderer {
             newHeight = mResourceVars.mVideoHeightPx;
         }
 
-        String newTag = "<iframe src='" + src + "'"
-                        + " frameborder='0' allowfullscreen='true' allowtransparency='true'"
-                        + " width='" + pxToDp(newWidth) + "'"
-                        + " height='" + pxToDp(newHeight) + "' />";
-
-        int start = mRenderBuilder.indexOf(tag);
-        if (start == -1) {
-            AppLog.w(AppLog.T.READER, "reader renderer > iframe not found in builder");
-            return;
-        }
-
-        mRenderBuilder.replace(start, start + tag.length(), newTag);
+        output.append("<iframe src='").append(src).append("'")
+              .append(" frameborder='0' allowfullscreen='true' allowtransparency='true'")
+              .append(" width='").append(pxToDp(newWidth)).append("'")
+              .append(" height='").append(pxToDp(newHeight)).append("' />");
+        return true;
     }
 
     /*
      * returns the full content, including CSS, that will be shown in the WebView for this post
      */
     private String formatPostContentForWebView(final String content, final Set<String> jsToInject,
-                                               boolean hasTiledGallery, boolean isWideDisplay) {
-        final boolean renderAsTiledGallery = hasTiledGallery && isWideDisplay;
-
-        // unique CSS class assigned to the gallery elements for easy selection
-        final String galleryOnlyClass = "gallery-only-class" + new Random().nextInt(1000);
-
+                                               boolean renderAsTiledGallery, final String galleryOnlyClass,
+                                               boolean isWideDisplay) {
         @SuppressWarnings("StringBufferReplaceableByString")
         StringBuilder sbHtml = new StringBuilder("<!DOCTYPE html><html><head><meta charset='UTF-8' />");
 
@@ -515,37 +574,26 @@ public class ReaderPostRenderer {
                 .append(" .OUTBRAIN, .adsbygoogle { display: none; }")
                 .append("</style>");
 
-        // add a custom CSS class to (any) tiled gallery elements to make them easier selectable for various rules
-        final List<String> classAmendRegexes = Arrays.asList(
-                "(tiled-gallery) ([\\s\"\'])",
-                "(gallery-row) ([\\s\"'])",
-                "(gallery-group) ([\\s\"'])",
-                "(tiled-gallery-item) ([\\s\"'])");
-        String contentCustomised = content;
-        for (String classToAmend : classAmendRegexes) {
-            contentCustomised = contentCustomised.replaceAll(classToAmend, "$1 " + galleryOnlyClass + "$2");
-        }
-
         for (String jsUrl : jsToInject) {
             sbHtml.append("<script src=\"").append(jsUrl).append("\" type=\"text/javascript\" async></script>");
         }
 
         sbHtml.append("</head><body>")
-              .append(contentCustomised)
+              .append(content)
               .append("</body></html>");
 
         return sbHtml.toString();
     }
 
-    private ImageSize getImageSize(final String imageTag, final String imageUrl) {
+    private ImageSize getImageSize(final ReaderHtmlTag imageTag, final String imageUrl) {
         ImageSize size = getImageSizeFromAttachments(imageUrl);
-        if (size == null && imageTag.contains("data-orig-size=")) {
+        if (size == null && imageTag.hasAttribute("data-orig-size")) {
             size = getImageOriginalSizeFromAttributes(imageTag);
         }
         if (size == null && imageUrl.contains("?")) {
             size = getImageSizeFromQueryParams(imageUrl);
         }
-        if (size == null && imageTag.contains("width=")) {
+        if (size == null && imageTag.hasAttribute("width")) {
             size = getImageSizeFromAttributes(imageTag);
         }
         return size;
@@ -580,13 +628,13 @@ public class ReaderPostRenderer {
         return null;
     }
 
-    private ImageSize getImageOriginalSizeFromAttributes(final String imageTag) {
+    private ImageSize getImageOriginalSizeFromAttributes(final ReaderHtmlTag imageTag) {
         return new ImageSize(
                 ReaderHtmlUtils.getOriginalWidthAttrValue(imageTag),
                 ReaderHtmlUtils.getOriginalHeightAttrValue(imageTag));
     }
 
-    private ImageSize getImageSizeFromAttributes(final String imageTag) {
+    private ImageSize getImageSizeFromAttributes(final ReaderHtmlTag imageTag) {
         return new ImageSize(
                 ReaderHtmlUtils.getWidthAttrValue(imageTag),
                 ReaderHtmlUtils.getHeightAttrValue(imageTag));
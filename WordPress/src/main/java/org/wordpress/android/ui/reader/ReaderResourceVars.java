@@ -26,6 +26,12 @@ class ReaderResourceVars {
     final String mGreyLightStr;
     final String mGreyExtraLightStr;
 
+    final String mDiscoverVisitBlogStr;
+
+    // identifies the values above along with the density and locale they were rendered for, so HTML
+    // rendered with one set of resources is never reused with another
+    final String mRenderKey;
+
     ReaderResourceVars(Context context) {
         Resources resources = context.getResources();
 
@@ -44,11 +50,21 @@ class ReaderResourceVars {
         mGreyLightStr = HtmlUtils.colorResToHtmlColor(context, R.color.grey_light);
         mGreyExtraLightStr = HtmlUtils.colorResToHtmlColor(context, R.color.grey_lighten_30);
 
+        mDiscoverVisitBlogStr = resources.getString(R.string.reader_discover_visit_blog);
+
         // full-size image width must take margin into account
         mFullSizeImageWidthPx = displayWidthPx - (detailMarginWidthPx * 2);
 
         // 16:9 ratio (YouTube standard)
         mVideoWidthPx = mFullSizeImageWidthPx - (marginLargePx * 2);
         mVideoHeightPx = (int) (mVideoWidthPx * 0.5625f);
+
+        // the locale comes from the same resources as the strings above, which may not match the
+        // default locale when the user has picked a different language for the app
+        mRenderKey = mFullSizeImageWidthPx + ":" + mFeaturedImageHeightPx + ":" + mMarginMediumPx
+                     + ":" + mVideoWidthPx + ":" + mVideoHeightPx + ":" + mIsWideDisplay
+                     + ":" + resources.getDisplayMetrics().density + ":" + resources.getConfiguration().locale
+                     + ":" + mLinkColorStr + ":" + mGreyMediumDarkStr + ":" + mGreyLightStr
+                     + ":" + mGreyExtraLightStr;
     }
 }
@@ -16,27 +16,26 @@ import org.json.JSONObject;
 import org.wordpress.android.BuildConfig;
 import org.wordpress.android.WordPress;
 import org.wordpress.android.datasets.ReaderLikeTable;
+import org.wordpress.android.datasets.ReaderPostStateQueue;
 import org.wordpress.android.datasets.ReaderPostTable;
-import org.wordpress.android.datasets.ReaderTagTable;
 import org.wordpress.android.datasets.ReaderUserTable;
 import org.wordpress.android.fluxc.model.SiteModel;
 import org.wordpress.android.fluxc.store.SiteStore;
 import org.wordpress.android.models.ReaderPost;
-import org.wordpress.android.models.ReaderPostList;
-import org.wordpress.android.models.ReaderTag;
-import org.wordpress.android.models.ReaderTagList;
 import org.wordpress.android.models.ReaderUserIdList;
 import org.wordpress.android.models.ReaderUserList;
 import org.wordpress.android.networking.RestClientUtils;
 import org.wordpress.android.ui.reader.ReaderEvents;
+import org.wordpress.android.ui.reader.ReaderPostRenderCache;
 import org.wordpress.android.ui.reader.actions.ReaderActions.UpdateResult;
 import org.wordpress.android.ui.reader.actions.ReaderActions.UpdateResultListener;
 import org.wordpress.android.ui.reader.models.ReaderSimplePost;
 import org.wordpress.android.ui.reader.models.ReaderSimplePostList;
 import org.wordpress.android.util.AppLog;
 import org.wordpress.android.util.AppLog.T;
-import org.wordpress.android.util.DateTimeUtils;
 import org.wordpress.android.util.JSONUtils;
+import org.wordpress.android.util.ReaderWorkScheduler;
+import org.wordpress.android.util.ReaderWorkScheduler.Priority;
 import org.wordpress.android.util.UrlUtils;
 import org.wordpress.android.util.VolleyUtils;
 
@@ -62,22 +61,13 @@ public class ReaderPostActions {
     public static boolean performLikeAction(final ReaderPost post,
                                             final boolean isAskingToLike,
                                             final long wpComUserId) {
-        // do nothing if post's like state is same as passed
-        boolean isCurrentlyLiked = ReaderPostTable.isPostLikedByCurrentUser(post);
-        if (isCurrentlyLiked == isAskingToLike) {
+        // update like status and like count of the passed post - these are written to the local db
+        // in the background - and do nothing if post's like state is same as passed
+        if (!ReaderPostStateQueue.setLiked(post, isAskingToLike, wpComUserId)) {
             AppLog.w(T.READER, "post like unchanged");
             return false;
         }
 
-        // update like status and like count in local db
-        int numCurrentLikes = ReaderPostTable.getNumLikesForPost(post.blogId, post.postId);
-        int newNumLikes = (isAskingToLike ? numCurrentLikes + 1 : numCurrentLikes - 1);
-        if (newNumLikes < 0) {
-            newNumLikes = 0;
-        }
-        ReaderPostTable.setLikesForPost(post, newNumLikes, isAskingToLike);
-        ReaderLikeTable.setCurrentUserLikesPost(post, isAskingToLike, wpComUserId);
-
         final String actionName = isAskingToLike ? "like" : "unlike";
         String path = "sites/" + post.blogId + "/posts/" + post.postId + "/likes/";
         if (isAskingToLike) {
@@ -103,8 +93,7 @@ public class ReaderPostActions {
                     AppLog.w(T.READER, String.format("post %s failed (%s)", actionName, error));
                 }
                 AppLog.e(T.READER, volleyError);
-                ReaderPostTable.setLikesForPost(post, post.numLikes, post.isLikedByCurrentUser);
-                ReaderLikeTable.setCurrentUserLikesPost(post, post.isLikedByCurrentUser, wpComUserId);
+                ReaderPostStateQueue.revertLike(post, isAskingToLike, wpComUserId);
             }
         };
 
@@ -151,7 +140,7 @@ public class ReaderPostActions {
 
         final Handler handler = new Handler();
 
-        new Thread() {
+        ReaderWorkScheduler.execute(Priority.VISIBLE, new Runnable() {
             @Override
             public void run() {
                 ReaderPost serverPost = ReaderPost.fromJson(jsonObject);
@@ -186,6 +175,7 @@ public class ReaderPostActions {
                     localPost.setText(serverPost.getText());
                     localPost.setExcerpt(serverPost.getExcerpt());
                     ReaderPostTable.updatePost(localPost);
+                    ReaderPostRenderCache.invalidate(localPost.blogId, localPost.postId);
                 }
 
                 // always update liking users regardless of whether changes were detected - this
@@ -203,7 +193,7 @@ public class ReaderPostActions {
                     });
                 }
             }
-        }.start();
+        });
     }
 
     /*
@@ -396,7 +386,7 @@ public class ReaderPostActions {
             return;
         }
 
-        new Thread() {
+        ReaderWorkScheduler.execute(Priority.VISIBLE, new Runnable() {
             @Override
             public void run() {
                 JSONArray jsonPosts = jsonObject.optJSONArray("posts");
@@ -416,21 +406,11 @@ public class ReaderPostActions {
                                                                                     globalRelatedPosts));
                 }
             }
-        }.start();
+        });
     }
 
     public static void addToBookmarked(@NonNull final ReaderPost post) {
-        if (!post.isBookmarked) {
-            ReaderPostList readerPosts = new ReaderPostList();
-            readerPosts.add(post);
-            ReaderTagList bookmarkTags = ReaderTagTable.getBookmarkTags();
-
-            for (ReaderTag tag : bookmarkTags) {
-                post.setDateTagged(DateTimeUtils.iso8601FromDate(DateTimeUtils.nowUTC()));
-                ReaderPostTable.addOrUpdatePosts(tag, readerPosts);
-            }
-            ReaderPostTable.setBookmarkFlag(post.blogId, post.postId, true);
-        } else {
+        if (!ReaderPostStateQueue.setBookmarked(post, true)) {
             String msg = "addToBookmarked called on an already bookmarked post.";
             AppLog.w(T.READER, msg);
             if (BuildConfig.DEBUG) {
@@ -440,9 +420,7 @@ public class ReaderPostActions {
     }
 
     public static void removeFromBookmarked(@NonNull final ReaderPost post) {
-        if (post.isBookmarked) {
-            ReaderPostTable.setBookmarkFlag(post.blogId, post.postId, false);
-        } else {
+        if (!ReaderPostStateQueue.setBookmarked(post, false)) {
             String msg = "removeFromBookmarked called on a post which wasn't bookmarked.";
             AppLog.w(T.READER, msg);
             if (BuildConfig.DEBUG) {
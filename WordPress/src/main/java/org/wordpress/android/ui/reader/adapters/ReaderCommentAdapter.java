@@ -84,6 +84,7 @@ public class ReaderCommentAdapter extends RecyclerView.Adapter<RecyclerView.View
     }
 
     private ReaderCommentList mComments = new ReaderCommentList();
+    private final ReaderCommentLeveler mLeveler = new ReaderCommentLeveler(new ReaderCommentList());
     private RequestReplyListener mReplyListener;
     private ReaderInterfaces.DataLoadedListener mDataLoadedListener;
     private ReaderActions.DataRequestedListener mDataRequestedListener;
@@ -537,7 +538,14 @@ public class ReaderCommentAdapter extends RecyclerView.Adapter<RecyclerView.View
             mTmpMoreCommentsExist = (numServerComments > numLocalComments);
 
             mTmpComments = ReaderCommentTable.getCommentsForPost(mPost);
-            return !mComments.isSameList(mTmpComments);
+            if (mComments.isSameList(mTmpComments)) {
+                return false;
+            }
+
+            // sort the comments with children under their parents and indent levels applied - comments
+            // placed by a previous load keep their levels, so only newly fetched ones need to be leveled
+            mTmpComments = mLeveler.updateLevelList(mTmpComments);
+            return true;
         }
 
         @Override
@@ -545,8 +553,7 @@ public class ReaderCommentAdapter extends RecyclerView.Adapter<RecyclerView.View
             mMoreCommentsExist = mTmpMoreCommentsExist;
 
             if (result) {
-                // assign the comments with children sorted under their parents and indent levels applied
-                mComments = new ReaderCommentLeveler(mTmpComments).createLevelList();
+                mComments = mTmpComments;
                 notifyDataSetChanged();
             }
             if (mDataLoadedListener != null) {
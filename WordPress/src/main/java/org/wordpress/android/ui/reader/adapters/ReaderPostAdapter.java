@@ -80,6 +80,9 @@ public class ReaderPostAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
     private long mCurrentBlogId;
     private long mCurrentFeedId;
     private int mGapMarkerPosition = -1;
+    // the post the gap marker appears below - read from the db when the posts are reloaded, and
+    // placed in the list on the main thread whenever the loaded posts change
+    private ReaderBlogIdPostId mGapMarkerIds;
 
     private final int mPhotonWidth;
     private final int mPhotonHeight;
@@ -88,6 +91,13 @@ public class ReaderPostAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
     private final int mMarginLarge;
 
     private boolean mCanRequestMorePosts;
+    private boolean mHasMoreLocalPosts;
+    private boolean mHasNewerLocalPosts;
+    // whether locally stored posts matching the current search are shown, which they are until the
+    // server returns its results for the search
+    private boolean mShowLocalSearchResults = true;
+    // roughly how many posts come before the window of posts kept in memory
+    private int mNumPostsAboveWindow;
     private final boolean mIsLoggedOutReader;
 
     private final ReaderTypes.ReaderPostListType mPostListType;
@@ -107,6 +117,14 @@ public class ReaderPostAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
     private static final boolean EXCLUDE_TEXT_COLUMN = true;
     private static final int MAX_ROWS = ReaderConstants.READER_MAX_POSTS_TO_DISPLAY;
 
+    // posts are loaded from the local db a page at a time as the user scrolls, and the next page is
+    // requested when the user gets within this many items of the end of those already loaded
+    private static final int PAGE_SIZE = ReaderConstants.READER_POSTS_PER_PAGE;
+    private static final int PAGE_PREFETCH_DISTANCE = 5;
+    // at most this many posts are kept in memory - pages are dropped from the other end of the list
+    // as the user scrolls, and loaded again when they scroll back
+    private static final int MAX_WINDOW_SIZE = 3 * PAGE_SIZE;
+
     private static final int VIEW_TYPE_POST = 0;
     private static final int VIEW_TYPE_XPOST = 1;
     private static final int VIEW_TYPE_SITE_HEADER = 2;
@@ -614,10 +632,19 @@ public class ReaderPostAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
     }
 
     /*
-     * if we're nearing the end of the posts, fire request to load more
+     * if we're nearing the end of the posts, load the next page of local posts - or if all local
+     * posts have been loaded, fire request to load more
      */
     private void checkLoadMore(int position) {
-        if (mCanRequestMorePosts
+        if (mHasNewerLocalPosts && position <= getItemPositionOffset() + PAGE_PREFETCH_DISTANCE) {
+            loadPage(true);
+        }
+
+        if (mHasMoreLocalPosts) {
+            if (position >= getItemCount() - PAGE_PREFETCH_DISTANCE) {
+                loadPage(false);
+            }
+        } else if (mCanRequestMorePosts
             && mDataRequestedListener != null
             && (position >= getItemCount() - 1)) {
             mDataRequestedListener.onRequestData();
@@ -754,11 +781,21 @@ public class ReaderPostAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
     public void setCurrentTag(ReaderTag tag) {
         if (!ReaderTag.isSameTag(tag, mCurrentTag)) {
             mCurrentTag = tag;
+            mShowLocalSearchResults = true;
             mRenderedIds.clear();
             reload();
         }
     }
 
+    /*
+     * called once the server has returned the results of the current search - from then on only
+     * those are shown, so local posts which matched the search aren't shown in their place when
+     * the server found nothing
+     */
+    public void setHasServerSearchResults() {
+        mShowLocalSearchResults = false;
+    }
+
     public boolean isCurrentTag(ReaderTag tag) {
         return ReaderTag.isSameTag(tag, mCurrentTag);
     }
@@ -775,6 +812,11 @@ public class ReaderPostAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
 
     public void clear() {
         mGapMarkerPosition = -1;
+        mGapMarkerIds = null;
+        mHasMoreLocalPosts = false;
+        mHasNewerLocalPosts = false;
+        mNumPostsAboveWindow = 0;
+        mLoadGeneration++;
         if (!mPosts.isEmpty()) {
             mPosts.clear();
             notifyDataSetChanged();
@@ -804,6 +846,7 @@ public class ReaderPostAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
             }
         }
         if (numRemoved > 0) {
+            updateGapMarkerPosition();
             notifyDataSetChanged();
         }
     }
@@ -816,6 +859,133 @@ public class ReaderPostAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
         new LoadPostsTask().executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
     }
 
+    /*
+     * loads the page of local posts above the window of loaded posts if isNewer is set, otherwise
+     * the page below it
+     */
+    private void loadPage(boolean isNewer) {
+        if (mIsTaskRunning || mIsPageTaskRunning || mPosts.isEmpty()) {
+            return;
+        }
+        new LoadPageTask(isNewer).executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    /*
+     * returns a page of posts in the current tag/blog/feed which come after the passed post, or
+     * the first page if the passed post is null - must be called from a background thread
+     */
+    private ReaderPostList getPostsPage(ReaderPost afterPost, int maxPosts) {
+        switch (getPostListType()) {
+            case TAG_PREVIEW:
+            case TAG_FOLLOWED:
+            case SEARCH_RESULTS:
+                return ReaderPostTable.getPostsWithTag(mCurrentTag, afterPost, maxPosts, EXCLUDE_TEXT_COLUMN);
+            case BLOG_PREVIEW:
+                if (mCurrentFeedId != 0) {
+                    return ReaderPostTable.getPostsInFeed(mCurrentFeedId, afterPost, maxPosts, EXCLUDE_TEXT_COLUMN);
+                } else {
+                    return ReaderPostTable.getPostsInBlog(mCurrentBlogId, afterPost, maxPosts, EXCLUDE_TEXT_COLUMN);
+                }
+            default:
+                return null;
+        }
+    }
+
+    /*
+     * returns a page of posts in the current tag/blog/feed which come immediately before the passed
+     * post - must be called from a background thread
+     */
+    private ReaderPostList getNewerPostsPage(@NonNull ReaderPost beforePost, int maxPosts) {
+        switch (getPostListType()) {
+            case TAG_PREVIEW:
+            case TAG_FOLLOWED:
+            case SEARCH_RESULTS:
+                return ReaderPostTable.getNewerPostsWithTag(mCurrentTag, beforePost, maxPosts, EXCLUDE_TEXT_COLUMN);
+            case BLOG_PREVIEW:
+                if (mCurrentFeedId != 0) {
+                    return ReaderPostTable.getNewerPostsInFeed(mCurrentFeedId, beforePost, maxPosts,
+                            EXCLUDE_TEXT_COLUMN);
+                } else {
+                    return ReaderPostTable.getNewerPostsInBlog(mCurrentBlogId, beforePost, maxPosts,
+                            EXCLUDE_TEXT_COLUMN);
+                }
+            default:
+                return null;
+        }
+    }
+
+    /*
+     * returns the ids of the post the gap marker appears below, or null if there isn't one - the
+     * passed posts are those just loaded, which are the last local posts if isLastPage is set.
+     * must be called from a background thread
+     */
+    private ReaderBlogIdPostId getGapMarkerIds(ReaderPostList posts, boolean isLastPage) {
+        if (!getPostListType().isTagType()) {
+            return null;
+        }
+
+        ReaderBlogIdPostId gapMarkerIds = ReaderPostTable.getGapMarkerIdsForTag(mCurrentTag);
+        if (gapMarkerIds == null) {
+            return null;
+        }
+
+        // remove the gap marker if it's on the last post (edge case but
+        // it can happen following a purge)
+        if (isLastPage && !posts.isEmpty() && posts.indexOfIds(gapMarkerIds) == posts.size() - 1) {
+            AppLog.w(AppLog.T.READER, "gap marker at/after last post, removed");
+            ReaderPostTable.removeGapMarkerForTag(mCurrentTag);
+            return null;
+        }
+        return gapMarkerIds;
+    }
+
+    /*
+     * places the gap marker below its post if that post is in the window of loaded posts - called
+     * on the main thread whenever the loaded posts change
+     */
+    private void updateGapMarkerPosition() {
+        int index = mGapMarkerIds != null ? mPosts.indexOfIds(mGapMarkerIds) : -1;
+        // we want the gap marker to appear *below* this post, after any custom items at the top of
+        // the list (header or newsCard)
+        mGapMarkerPosition = index > -1 ? index + 1 + getItemPositionOffset() : -1;
+    }
+
+    /*
+     * adds a page of posts to the top or the bottom of the window of loaded posts, then drops posts
+     * from the other end so no more than MAX_WINDOW_SIZE posts are kept in memory
+     */
+    private void addPage(ReaderPostList page, boolean atTop) {
+        int offset = getItemPositionOffset();
+        int countBefore = getItemCount();
+        if (atTop) {
+            mPosts.addAll(0, page);
+        } else {
+            mPosts.addAll(page);
+        }
+        updateGapMarkerPosition();
+        notifyItemRangeInserted(atTop ? offset : countBefore, getItemCount() - countBefore);
+
+        int numToDrop = mPosts.size() - MAX_WINDOW_SIZE;
+        if (numToDrop <= 0) {
+            return;
+        }
+
+        // the dropped posts and the gap marker, if it was below one of them, are contiguous
+        countBefore = getItemCount();
+        if (atTop) {
+            mPosts.subList(mPosts.size() - numToDrop, mPosts.size()).clear();
+            mHasMoreLocalPosts = true;
+            updateGapMarkerPosition();
+            notifyItemRangeRemoved(getItemCount(), countBefore - getItemCount());
+        } else {
+            mPosts.subList(0, numToDrop).clear();
+            mNumPostsAboveWindow += numToDrop;
+            mHasNewerLocalPosts = true;
+            updateGapMarkerPosition();
+            notifyItemRangeRemoved(offset, countBefore - getItemCount());
+        }
+    }
+
     private ReaderPost getItem(int position) {
         if (position == NEWS_CARD_POSITION && hasNewsCard()) {
             return null;
@@ -1001,8 +1171,7 @@ public class ReaderPostAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
             return;
         }
 
-        boolean isCurrentlyLiked = ReaderPostTable.isPostLikedByCurrentUser(post);
-        boolean isAskingToLike = !isCurrentlyLiked;
+        boolean isAskingToLike = !post.isLikedByCurrentUser;
         ReaderAnim.animateLikeButton(holder.mLikeCount.getImageView(), isAskingToLike);
 
         if (!ReaderPostActions.performLikeAction(post, isAskingToLike, mAccountStore.getAccount().getUserId())) {
@@ -1019,20 +1188,19 @@ public class ReaderPostAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
             AnalyticsUtils.trackWithReaderPostDetails(AnalyticsTracker.Stat.READER_ARTICLE_UNLIKED, post);
         }
 
-        // update post in array and on screen
-        int position = mPosts.indexOfPost(post);
-        ReaderPost updatedPost = ReaderPostTable.getBlogPost(post.blogId, post.postId, true);
-        if (updatedPost != null && position > -1) {
-            mPosts.set(position, updatedPost);
-            showLikes(holder, updatedPost);
-        }
+        // the post in the array was updated by performLikeAction(), so just show it
+        showLikes(holder, post);
     }
 
     /*
      * triggered when user taps the bookmark post button
      */
     private void toggleBookmark(final long blogId, final long postId) {
-        ReaderPost post = ReaderPostTable.getBlogPost(blogId, postId, false);
+        int position = mPosts.indexOfIds(new ReaderBlogIdPostId(blogId, postId));
+        if (position == -1) {
+            return;
+        }
+        ReaderPost post = mPosts.get(position);
 
         AnalyticsTracker.Stat eventToTrack;
         if (post.isBookmarked) {
@@ -1047,16 +1215,10 @@ public class ReaderPostAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
 
         AnalyticsTracker.track(eventToTrack);
 
-        // update post in array and on screen
-        post = ReaderPostTable.getBlogPost(blogId, postId, true);
-        int position = mPosts.indexOfPost(post);
-        if (post != null && position > -1) {
-            mPosts.set(position, post);
-
-            if (mOnPostBookmarkedListener != null) {
-                mOnPostBookmarkedListener
-                        .onBookmarkedStateChanged(post.isBookmarked, blogId, postId, !isBookmarksList());
-            }
+        // the post in the array was updated by the bookmark action
+        if (mOnPostBookmarkedListener != null) {
+            mOnPostBookmarkedListener
+                    .onBookmarkedStateChanged(post.isBookmarked, blogId, postId, !isBookmarksList());
         }
     }
 
@@ -1120,6 +1282,7 @@ public class ReaderPostAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
 
         int position = mGapMarkerPosition;
         mGapMarkerPosition = -1;
+        mGapMarkerIds = null;
         if (position < getItemCount()) {
             notifyItemRemoved(position);
         }
@@ -1148,19 +1311,36 @@ public class ReaderPostAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
     }
 
     /*
-     * AsyncTask to load posts in the current tag
+     * AsyncTask to load posts in the current tag - note that only the window of posts which are
+     * already loaded (or the first page if none are) is reloaded, other pages are loaded by
+     * LoadPageTask as the user scrolls
      */
     private boolean mIsTaskRunning = false;
+    private boolean mIsPageTaskRunning = false;
+
+    // incremented whenever the list of posts is replaced so page loads started before then are ignored
+    private int mLoadGeneration;
 
     private class LoadPostsTask extends AsyncTask<Void, Void, Boolean> {
         private ReaderPostList mAllPosts;
+        private ReaderPost mFirstPost;
+        private int mNumPostsAbove;
+        private boolean mShowLocalSearchResultsTemp;
 
         private boolean mCanRequestMorePostsTemp;
-        private int mGapMarkerPositionTemp;
+        private boolean mHasMoreLocalPostsTemp;
+        private boolean mHasNewerLocalPostsTemp;
+        private ReaderBlogIdPostId mGapMarkerIdsTemp;
+        private int mNumToLoad;
 
         @Override
         protected void onPreExecute() {
             mIsTaskRunning = true;
+            mNumToLoad = Math.min(MAX_WINDOW_SIZE, Math.max(PAGE_SIZE, mPosts.size()));
+            // a window which doesn't start at the top of the list is reloaded from its first post
+            mNumPostsAbove = mNumPostsAboveWindow;
+            mShowLocalSearchResultsTemp = mShowLocalSearchResults;
+            mFirstPost = mNumPostsAbove > 0 && !mPosts.isEmpty() ? mPosts.get(0) : null;
         }
 
         @Override
@@ -1175,21 +1355,36 @@ public class ReaderPostAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
                 case TAG_PREVIEW:
                 case TAG_FOLLOWED:
                 case SEARCH_RESULTS:
-                    mAllPosts = ReaderPostTable.getPostsWithTag(mCurrentTag, MAX_ROWS, EXCLUDE_TEXT_COLUMN);
                     numExisting = ReaderPostTable.getNumPostsWithTag(mCurrentTag);
                     break;
                 case BLOG_PREVIEW:
                     if (mCurrentFeedId != 0) {
-                        mAllPosts = ReaderPostTable.getPostsInFeed(mCurrentFeedId, MAX_ROWS, EXCLUDE_TEXT_COLUMN);
                         numExisting = ReaderPostTable.getNumPostsInFeed(mCurrentFeedId);
                     } else {
-                        mAllPosts = ReaderPostTable.getPostsInBlog(mCurrentBlogId, MAX_ROWS, EXCLUDE_TEXT_COLUMN);
                         numExisting = ReaderPostTable.getNumPostsInBlog(mCurrentBlogId);
                     }
                     break;
                 default:
                     return false;
             }
+            // until the server returns search results, show matching posts that are already stored
+            // locally - this also means search works while offline
+            boolean isLocalSearch = getPostListType() == ReaderPostListType.SEARCH_RESULTS && numExisting == 0
+                                    && mShowLocalSearchResultsTemp;
+            if (isLocalSearch) {
+                mAllPosts = ReaderPostTable.searchPosts(mCurrentTag.getTagTitle(), mNumToLoad);
+            } else {
+                ReaderPost afterPost = null;
+                if (mFirstPost != null) {
+                    ReaderPostList postAbove = getNewerPostsPage(mFirstPost, 1);
+                    afterPost = postAbove != null && !postAbove.isEmpty() ? postAbove.get(0) : null;
+                }
+                mHasNewerLocalPostsTemp = afterPost != null;
+                mAllPosts = getPostsPage(afterPost, mNumToLoad);
+            }
+            if (mAllPosts == null) {
+                return false;
+            }
 
             if (mPosts.isSameListWithBookmark(mAllPosts)) {
                 return false;
@@ -1199,48 +1394,36 @@ public class ReaderPostAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
             // the user scrolls to the end of the list
             mCanRequestMorePostsTemp = (numExisting < ReaderConstants.READER_MAX_POSTS_TO_DISPLAY);
 
-            // determine whether a gap marker exists - only applies to tagged posts
-            mGapMarkerPositionTemp = getGapMarkerPosition();
-
-            return true;
-        }
+            // there may be more local posts to page through if we got as many as we asked for
+            int numAbove = mHasNewerLocalPostsTemp ? mNumPostsAbove : 0;
+            mHasMoreLocalPostsTemp = mAllPosts.size() == mNumToLoad && numAbove + mNumToLoad < MAX_ROWS;
 
-        private int getGapMarkerPosition() {
-            if (!getPostListType().isTagType()) {
-                return -1;
-            }
+            // determine whether a gap marker exists - only applies to tagged posts
+            mGapMarkerIdsTemp = getGapMarkerIds(mAllPosts, !mHasMoreLocalPostsTemp);
 
-            ReaderBlogIdPostId gapMarkerIds = ReaderPostTable.getGapMarkerIdsForTag(mCurrentTag);
-            if (gapMarkerIds == null) {
-                return -1;
+            // local search results are a single page and can't be extended from the server
+            if (isLocalSearch) {
+                mCanRequestMorePostsTemp = false;
+                mHasMoreLocalPostsTemp = false;
             }
 
-            int gapMarkerPostPosition = mAllPosts.indexOfIds(gapMarkerIds);
-            int gapMarkerPosition = -1;
-            if (gapMarkerPostPosition > -1) {
-                // remove the gap marker if it's on the last post (edge case but
-                // it can happen following a purge)
-                if (gapMarkerPostPosition == mAllPosts.size() - 1) {
-                    AppLog.w(AppLog.T.READER, "gap marker at/after last post, removed");
-                    ReaderPostTable.removeGapMarkerForTag(mCurrentTag);
-                } else {
-                    // we want the gap marker to appear *below* this post
-                    gapMarkerPosition = gapMarkerPostPosition + 1;
-                    // increment it if there are custom items at the top of the list (header or newsCard)
-                    gapMarkerPosition += getItemPositionOffset();
-                    AppLog.d(AppLog.T.READER, "gap marker at position " + gapMarkerPostPosition);
-                }
-            }
-            return gapMarkerPosition;
+            return true;
         }
 
         @Override
         protected void onPostExecute(Boolean result) {
             if (result) {
-                ReaderPostAdapter.this.mGapMarkerPosition = mGapMarkerPositionTemp;
+                ReaderPostAdapter.this.mGapMarkerIds = mGapMarkerIdsTemp;
                 ReaderPostAdapter.this.mCanRequestMorePosts = mCanRequestMorePostsTemp;
+                ReaderPostAdapter.this.mHasMoreLocalPosts = mHasMoreLocalPostsTemp;
+                ReaderPostAdapter.this.mHasNewerLocalPosts = mHasNewerLocalPostsTemp;
+                if (!mHasNewerLocalPostsTemp) {
+                    mNumPostsAboveWindow = 0;
+                }
+                mLoadGeneration++;
                 mPosts.clear();
                 mPosts.addAll(mAllPosts);
+                updateGapMarkerPosition();
                 notifyDataSetChanged();
             }
 
@@ -1251,4 +1434,70 @@ public class ReaderPostAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
             mIsTaskRunning = false;
         }
     }
+
+    /*
+     * AsyncTask to add the page of local posts above or below the window of loaded posts - the
+     * posts the page is loaded from are read on the main thread before it starts
+     */
+    private class LoadPageTask extends AsyncTask<Void, Void, Boolean> {
+        private final boolean mIsNewer;
+        private ReaderPostList mPage;
+        private ReaderPost mAnchorPost;
+        private int mNumLoaded;
+        private int mGeneration;
+
+        private boolean mHasMorePostsTemp;
+
+        LoadPageTask(boolean isNewer) {
+            mIsNewer = isNewer;
+        }
+
+        @Override
+        protected void onPreExecute() {
+            mIsPageTaskRunning = true;
+            mNumLoaded = mNumPostsAboveWindow + mPosts.size();
+            mAnchorPost = mIsNewer ? mPosts.get(0) : mPosts.get(mPosts.size() - 1);
+            mGeneration = mLoadGeneration;
+        }
+
+        @Override
+        protected void onCancelled() {
+            mIsPageTaskRunning = false;
+        }
+
+        @Override
+        protected Boolean doInBackground(Void... params) {
+            if (mIsNewer) {
+                mPage = getNewerPostsPage(mAnchorPost, PAGE_SIZE);
+                mHasMorePostsTemp = mPage != null && mPage.size() == PAGE_SIZE;
+            } else {
+                int numToLoad = Math.max(0, Math.min(PAGE_SIZE, MAX_ROWS - mNumLoaded));
+                // a limit of zero would load every remaining post
+                mPage = numToLoad > 0 ? getPostsPage(mAnchorPost, numToLoad) : new ReaderPostList();
+                mHasMorePostsTemp = mPage != null && mPage.size() == numToLoad
+                                    && mNumLoaded + mPage.size() < MAX_ROWS;
+            }
+            return mPage != null;
+        }
+
+        @Override
+        protected void onPostExecute(Boolean result) {
+            mIsPageTaskRunning = false;
+
+            // skip if the list was replaced while this page was loading
+            if (!result || mGeneration != mLoadGeneration) {
+                return;
+            }
+
+            if (mIsNewer) {
+                mHasNewerLocalPosts = mHasMorePostsTemp;
+                mNumPostsAboveWindow = mHasMorePostsTemp ? Math.max(0, mNumPostsAboveWindow - mPage.size()) : 0;
+            } else {
+                mHasMoreLocalPosts = mHasMorePostsTemp;
+            }
+            if (!mPage.isEmpty()) {
+                addPage(mPage, mIsNewer);
+            }
+        }
+    }
 }
@@ -9,12 +9,14 @@ import org.wordpress.android.models.ReaderTagType;
 import org.wordpress.android.ui.reader.ReaderEvents;
 import org.wordpress.android.ui.reader.services.ServiceCompletionListener;
 import org.wordpress.android.util.AppLog;
+import org.wordpress.android.util.ReaderWorkScheduler.Priority;
 
 import de.greenrobot.event.EventBus;
 
 import static org.wordpress.android.ui.reader.services.post.ReaderPostServiceStarter.ARG_ACTION;
 import static org.wordpress.android.ui.reader.services.post.ReaderPostServiceStarter.ARG_BLOG_ID;
 import static org.wordpress.android.ui.reader.services.post.ReaderPostServiceStarter.ARG_FEED_ID;
+import static org.wordpress.android.ui.reader.services.post.ReaderPostServiceStarter.ARG_PRIORITY;
 import static org.wordpress.android.ui.reader.services.post.ReaderPostServiceStarter.ARG_TAG_PARAM_DISPLAY_NAME;
 import static org.wordpress.android.ui.reader.services.post.ReaderPostServiceStarter.ARG_TAG_PARAM_ENDPOINT;
 import static org.wordpress.android.ui.reader.services.post.ReaderPostServiceStarter.ARG_TAG_PARAM_SLUG;
@@ -44,13 +46,15 @@ public class ReaderPostJobService extends JobService implements ServiceCompletio
 
             if (params.getExtras().containsKey(ARG_TAG_PARAM_SLUG)) {
                 ReaderTag tag = getReaderTagFromBundleParams(params.getExtras());
-                mReaderPostLogic.performTask(params, action, tag, -1, -1);
+                Priority priority = params.getExtras().containsKey(ARG_PRIORITY)
+                        ? Priority.values()[params.getExtras().getInt(ARG_PRIORITY)] : Priority.VISIBLE;
+                mReaderPostLogic.performTask(params, action, tag, -1, -1, priority);
             } else if (params.getExtras().containsKey(ARG_BLOG_ID)) {
                 long blogId = params.getExtras().getLong(ARG_BLOG_ID, 0);
-                mReaderPostLogic.performTask(params, action, null, blogId, -1);
+                mReaderPostLogic.performTask(params, action, null, blogId, -1, Priority.VISIBLE);
             } else if (params.getExtras().containsKey(ARG_FEED_ID)) {
                 long feedId = params.getExtras().getLong(ARG_FEED_ID, 0);
-                mReaderPostLogic.performTask(params, action, null, -1, feedId);
+                mReaderPostLogic.performTask(params, action, null, -1, feedId, Priority.VISIBLE);
             }
         }
         return true;
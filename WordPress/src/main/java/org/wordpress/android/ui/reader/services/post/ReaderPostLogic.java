@@ -5,9 +5,11 @@ import android.text.TextUtils;
 import com.android.volley.VolleyError;
 import com.wordpress.rest.RestRequest;
 
+import org.json.JSONArray;
 import org.json.JSONObject;
 import org.wordpress.android.WordPress;
 import org.wordpress.android.datasets.ReaderPostTable;
+import org.wordpress.android.datasets.ReaderStreamSyncTable;
 import org.wordpress.android.datasets.ReaderTagTable;
 import org.wordpress.android.models.ReaderPost;
 import org.wordpress.android.models.ReaderPostList;
@@ -21,6 +23,8 @@ import org.wordpress.android.ui.reader.services.ServiceCompletionListener;
 import org.wordpress.android.ui.reader.services.post.ReaderPostServiceStarter.UpdateAction;
 import org.wordpress.android.ui.reader.utils.ReaderUtils;
 import org.wordpress.android.util.AppLog;
+import org.wordpress.android.util.ReaderWorkScheduler;
+import org.wordpress.android.util.ReaderWorkScheduler.Priority;
 import org.wordpress.android.util.StringUtils;
 import org.wordpress.android.util.UrlUtils;
 
@@ -34,14 +38,18 @@ public class ReaderPostLogic {
         mCompletionListener = listener;
     }
 
+    /*
+     * the passed priority is the one the response is stored with - updates the user is waiting on are
+     * VISIBLE, while automatic updates of a tag whose posts are already shown are PREFETCH
+     */
     public void performTask(Object companion, UpdateAction action,
-                            ReaderTag tag, long blogId, long feedId) {
+                            ReaderTag tag, long blogId, long feedId, Priority priority) {
         mListenerCompanion = companion;
 
         EventBus.getDefault().post(new ReaderEvents.UpdatePostsStarted(action));
 
         if (tag != null) {
-            updatePostsWithTag(tag, action);
+            updatePostsWithTag(tag, action, priority);
         } else if (blogId > -1) {
             updatePostsInBlog(blogId, action);
         } else if (feedId > -1) {
@@ -50,10 +58,11 @@ public class ReaderPostLogic {
     }
 
 
-    private void updatePostsWithTag(final ReaderTag tag, final UpdateAction action) {
+    private void updatePostsWithTag(final ReaderTag tag, final UpdateAction action, Priority priority) {
         requestPostsWithTag(
                 tag,
                 action,
+                priority,
                 new ReaderActions.UpdateResultListener() {
                     @Override
                     public void onUpdateResult(ReaderActions.UpdateResult result) {
@@ -87,6 +96,7 @@ public class ReaderPostLogic {
 
     private static void requestPostsWithTag(final ReaderTag tag,
                                             final UpdateAction updateAction,
+                                            final Priority priority,
                                             final ReaderActions.UpdateResultListener resultListener) {
         String path = getRelativeEndpointForTag(tag);
         if (TextUtils.isEmpty(path)) {
@@ -102,6 +112,21 @@ public class ReaderPostLogic {
         // return newest posts first (this is the default, but make it explicit since it's important)
         sb.append("&order=DESC");
 
+        // when requesting newer posts in a stream that was synced recently, only request posts
+        // after the newest one received so an unchanged stream returns an empty response
+        final String streamKey = ReaderStreamSyncTable.getStreamKey(tag);
+        final String afterDate;
+        if (updateAction == UpdateAction.REQUEST_NEWER
+            && canSyncIncrementally(tag)
+            && ReaderPostTable.getNumPostsWithTag(tag) > 0) {
+            afterDate = ReaderStreamSyncTable.getIncrementalSyncDate(streamKey);
+        } else {
+            afterDate = null;
+        }
+        if (!TextUtils.isEmpty(afterDate)) {
+            sb.append("&after=").append(UrlUtils.urlEncode(afterDate));
+        }
+
         String beforeDate;
         switch (updateAction) {
             case REQUEST_OLDER:
@@ -130,7 +155,9 @@ public class ReaderPostLogic {
                 if (updateAction == UpdateAction.REQUEST_NEWER) {
                     ReaderTagTable.setTagLastUpdated(tag);
                 }
-                handleUpdatePostsResponse(tag, jsonObject, updateAction, resultListener);
+                String jobKey = "posts:tag:" + tag.tagType + ":" + tag.getTagSlug() + ":" + updateAction;
+                handleUpdatePostsResponse(tag, jsonObject, updateAction, afterDate, priority, jobKey,
+                                          resultListener);
             }
         };
         RestRequest.ErrorListener errorListener = new RestRequest.ErrorListener() {
@@ -160,7 +187,9 @@ public class ReaderPostLogic {
         com.wordpress.rest.RestRequest.Listener listener = new RestRequest.Listener() {
             @Override
             public void onResponse(JSONObject jsonObject) {
-                handleUpdatePostsResponse(null, jsonObject, updateAction, resultListener);
+                String jobKey = "posts:blog:" + blogId + ":" + updateAction;
+                handleUpdatePostsResponse(null, jsonObject, updateAction, null, Priority.VISIBLE, jobKey,
+                                          resultListener);
             }
         };
         RestRequest.ErrorListener errorListener = new RestRequest.ErrorListener() {
@@ -188,7 +217,9 @@ public class ReaderPostLogic {
         com.wordpress.rest.RestRequest.Listener listener = new RestRequest.Listener() {
             @Override
             public void onResponse(JSONObject jsonObject) {
-                handleUpdatePostsResponse(null, jsonObject, updateAction, resultListener);
+                String jobKey = "posts:feed:" + feedId + ":" + updateAction;
+                handleUpdatePostsResponse(null, jsonObject, updateAction, null, Priority.VISIBLE, jobKey,
+                                          resultListener);
             }
         };
         RestRequest.ErrorListener errorListener = new RestRequest.ErrorListener() {
@@ -204,18 +235,46 @@ public class ReaderPostLogic {
     }
 
     /*
-     * called after requesting posts with a specific tag or in a specific blog/feed
+     * called after requesting posts with a specific tag or in a specific blog/feed - the passed
+     * job key identifies the request, so if the same posts are requested again before this
+     * response has been stored only the newer response is stored
      */
     private static void handleUpdatePostsResponse(final ReaderTag tag,
                                                   final JSONObject jsonObject,
                                                   final UpdateAction updateAction,
+                                                  final String afterDate,
+                                                  final Priority priority,
+                                                  final String jobKey,
                                                   final ReaderActions.UpdateResultListener resultListener) {
         if (jsonObject == null) {
             resultListener.onUpdateResult(ReaderActions.UpdateResult.FAILED);
             return;
         }
 
-        new Thread() {
+        final boolean isIncremental = !TextUtils.isEmpty(afterDate);
+        if (isIncremental) {
+            // nothing was posted since the last sync, so there's nothing to parse or store
+            JSONArray jsonPosts = jsonObject.optJSONArray("posts");
+            if (jsonPosts == null || jsonPosts.length() == 0) {
+                AppLog.d(AppLog.T.READER, "requested posts response = UNCHANGED (no posts after " + afterDate + ")");
+                final String streamKey = ReaderStreamSyncTable.getStreamKey(tag);
+                ReaderWorkScheduler.execute(priority, new Runnable() {
+                    @Override
+                    public void run() {
+                        ReaderStreamSyncTable.setSyncedUnchanged(streamKey);
+                    }
+                });
+                resultListener.onUpdateResult(ReaderActions.UpdateResult.UNCHANGED);
+                return;
+            }
+        }
+
+        ReaderWorkScheduler.execute(priority, jobKey, new ReaderWorkScheduler.Job() {
+            @Override
+            public void onCoalesced() {
+                resultListener.onUpdateResult(ReaderActions.UpdateResult.UNCHANGED);
+            }
+
             @Override
             public void run() {
                 ReaderPostList serverPosts = ReaderPostList.fromJson(jsonObject);
@@ -228,11 +287,16 @@ public class ReaderPostLogic {
                             case REQUEST_NEWER:
                                 // if there's no overlap between server and local (ie: all server
                                 // posts are new), assume there's a gap between server and local
-                                // provided that local posts exist
+                                // provided that local posts exist - posts requested after the
+                                // newest local post never overlap, so in that case there's only
+                                // a gap if the server returned as many posts as were requested
                                 int numServerPosts = serverPosts.size();
+                                boolean mayHaveGap = isIncremental
+                                        ? numServerPosts >= ReaderConstants.READER_MAX_POSTS_TO_REQUEST
+                                        : !ReaderPostTable.hasOverlap(serverPosts);
                                 if (numServerPosts >= 2
                                     && ReaderPostTable.getNumPostsWithTag(tag) > 0
-                                    && !ReaderPostTable.hasOverlap(serverPosts)) {
+                                    && mayHaveGap) {
                                     // treat the second to last server post as having a gap
                                     postWithGap = serverPosts.get(numServerPosts - 2);
                                     // remove the last server post to deal with the edge case of
@@ -271,10 +335,23 @@ public class ReaderPostLogic {
                     ReaderPostTable.removeGapMarkerForTag(tag);
                     AppLog.w(AppLog.T.READER, "attempt to fill gap returned nothing new");
                 }
+
+                if (tag != null && updateAction == UpdateAction.REQUEST_NEWER && canSyncIncrementally(tag)) {
+                    ReaderStreamSyncTable.setSynced(ReaderStreamSyncTable.getStreamKey(tag),
+                                                    ReaderPostTable.getNewestDateWithTag(tag), !isIncremental);
+                }
                 AppLog.d(AppLog.T.READER, "requested posts response = " + updateResult.toString());
                 resultListener.onUpdateResult(updateResult);
             }
-        }.start();
+        });
+    }
+
+    /*
+     * streams sorted by when the user liked a post or by search score can't be requested from a
+     * date, so they're always fully synced
+     */
+    private static boolean canSyncIncrementally(ReaderTag tag) {
+        return !tag.isPostsILike() && tag.tagType != ReaderTagType.SEARCH;
     }
 
     /*
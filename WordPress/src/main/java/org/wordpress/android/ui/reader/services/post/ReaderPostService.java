@@ -8,10 +8,12 @@ import org.wordpress.android.models.ReaderTag;
 import org.wordpress.android.ui.reader.ReaderEvents;
 import org.wordpress.android.ui.reader.services.ServiceCompletionListener;
 import org.wordpress.android.util.AppLog;
+import org.wordpress.android.util.ReaderWorkScheduler.Priority;
 
 import static org.wordpress.android.ui.reader.services.post.ReaderPostServiceStarter.ARG_ACTION;
 import static org.wordpress.android.ui.reader.services.post.ReaderPostServiceStarter.ARG_BLOG_ID;
 import static org.wordpress.android.ui.reader.services.post.ReaderPostServiceStarter.ARG_FEED_ID;
+import static org.wordpress.android.ui.reader.services.post.ReaderPostServiceStarter.ARG_PRIORITY;
 import static org.wordpress.android.ui.reader.services.post.ReaderPostServiceStarter.ARG_TAG;
 import static org.wordpress.android.ui.reader.services.post.ReaderPostServiceStarter.UpdateAction;
 
@@ -60,13 +62,15 @@ public class ReaderPostService extends Service implements ServiceCompletionListe
 
         if (intent.hasExtra(ARG_TAG)) {
             ReaderTag tag = (ReaderTag) intent.getSerializableExtra(ARG_TAG);
-            mReaderPostLogic.performTask(null, action, tag, -1, -1);
+            Priority priority = intent.hasExtra(ARG_PRIORITY)
+                    ? (Priority) intent.getSerializableExtra(ARG_PRIORITY) : Priority.VISIBLE;
+            mReaderPostLogic.performTask(null, action, tag, -1, -1, priority);
         } else if (intent.hasExtra(ARG_BLOG_ID)) {
             long blogId = intent.getLongExtra(ARG_BLOG_ID, 0);
-            mReaderPostLogic.performTask(null, action, null, blogId, -1);
+            mReaderPostLogic.performTask(null, action, null, blogId, -1, Priority.VISIBLE);
         } else if (intent.hasExtra(ARG_FEED_ID)) {
             long feedId = intent.getLongExtra(ARG_FEED_ID, 0);
-            mReaderPostLogic.performTask(null, action, null, -1, feedId);
+            mReaderPostLogic.performTask(null, action, null, -1, feedId, Priority.VISIBLE);
         }
 
         return START_NOT_STICKY;
@@ -10,6 +10,7 @@ import android.os.PersistableBundle;
 
 import org.wordpress.android.models.ReaderTag;
 import org.wordpress.android.util.AppLog;
+import org.wordpress.android.util.ReaderWorkScheduler.Priority;
 
 public class ReaderPostServiceStarter {
     private static final int JOB_READER_POST_SERVICE_ID_TAG = 4001;
@@ -19,6 +20,7 @@ public class ReaderPostServiceStarter {
     public static final String ARG_ACTION = "action";
     public static final String ARG_BLOG_ID = "blog_id";
     public static final String ARG_FEED_ID = "feed_id";
+    public static final String ARG_PRIORITY = "priority";
 
     public static final String ARG_TAG_PARAM_SLUG = "tag-slug";
     public static final String ARG_TAG_PARAM_DISPLAY_NAME = "tag-display-name";
@@ -37,14 +39,24 @@ public class ReaderPostServiceStarter {
      * update posts with the passed tag
      */
     public static void startServiceForTag(Context context, ReaderTag tag, UpdateAction action) {
+        startServiceForTag(context, tag, action, Priority.VISIBLE);
+    }
+
+    /*
+     * update posts with the passed tag, storing them with the passed priority - use PREFETCH when
+     * the user isn't waiting on the update
+     */
+    public static void startServiceForTag(Context context, ReaderTag tag, UpdateAction action, Priority priority) {
         if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
             Intent intent = new Intent(context, ReaderPostService.class);
             intent.putExtra(ARG_TAG, tag);
             intent.putExtra(ARG_ACTION, action);
+            intent.putExtra(ARG_PRIORITY, priority);
             context.startService(intent);
         } else {
             PersistableBundle extras = new PersistableBundle();
             extras.putInt(ARG_ACTION, action.ordinal());
+            extras.putInt(ARG_PRIORITY, priority.ordinal());
             putReaderTagExtras(extras, tag);
             doScheduleJobWithBundle(context, extras, JOB_READER_POST_SERVICE_ID_TAG);
         }
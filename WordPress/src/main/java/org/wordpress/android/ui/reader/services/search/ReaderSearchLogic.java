@@ -11,6 +11,8 @@ import org.wordpress.android.ui.reader.ReaderConstants;
 import org.wordpress.android.ui.reader.ReaderEvents;
 import org.wordpress.android.ui.reader.services.ServiceCompletionListener;
 import org.wordpress.android.util.AppLog;
+import org.wordpress.android.util.ReaderWorkScheduler;
+import org.wordpress.android.util.ReaderWorkScheduler.Priority;
 import org.wordpress.android.util.UrlUtils;
 
 import de.greenrobot.event.EventBus;
@@ -58,7 +60,14 @@ public class ReaderSearchLogic {
     }
 
     private void handleSearchResponse(final String query, final int offset, final JSONObject jsonObject) {
-        new Thread() {
+        String jobKey = "search:" + query + ":" + offset;
+        ReaderWorkScheduler.execute(Priority.VISIBLE, jobKey, new ReaderWorkScheduler.Job() {
+            @Override
+            public void onCoalesced() {
+                EventBus.getDefault().post(new ReaderEvents.SearchPostsEnded(query, offset, true));
+                mCompletionListener.onCompleted(mListenerCompanion);
+            }
+
             @Override
             public void run() {
                 ReaderPostList serverPosts = ReaderPostList.fromJson(jsonObject);
@@ -66,6 +75,6 @@ public class ReaderSearchLogic {
                 EventBus.getDefault().post(new ReaderEvents.SearchPostsEnded(query, offset, true));
                 mCompletionListener.onCompleted(mListenerCompanion);
             }
-        }.start();
+        });
     }
 }
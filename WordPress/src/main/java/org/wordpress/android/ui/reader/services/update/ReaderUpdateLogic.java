@@ -25,6 +25,8 @@ import org.wordpress.android.ui.reader.services.ServiceCompletionListener;
 import org.wordpress.android.util.AppLog;
 import org.wordpress.android.util.JSONUtils;
 import org.wordpress.android.util.LocaleManager;
+import org.wordpress.android.util.ReaderWorkScheduler;
+import org.wordpress.android.util.ReaderWorkScheduler.Priority;
 
 import java.util.EnumSet;
 import java.util.HashMap;
@@ -118,7 +120,12 @@ public class ReaderUpdateLogic {
     }
 
     private void handleUpdateTagsResponse(final JSONObject jsonObject) {
-        new Thread() {
+        ReaderWorkScheduler.execute(Priority.PREFETCH, "update:tags", new ReaderWorkScheduler.Job() {
+            @Override
+            public void onCoalesced() {
+                taskCompleted(UpdateTask.TAGS);
+            }
+
             @Override
             public void run() {
                 // get server topics, both default & followed - but use "recommended" for logged-out
@@ -167,7 +174,7 @@ public class ReaderUpdateLogic {
 
                 taskCompleted(UpdateTask.TAGS);
             }
-        }.start();
+        });
     }
 
     /*
@@ -251,7 +258,12 @@ public class ReaderUpdateLogic {
     }
 
     private void handleFollowedBlogsResponse(final JSONObject jsonObject) {
-        new Thread() {
+        ReaderWorkScheduler.execute(Priority.PREFETCH, "update:followed-blogs", new ReaderWorkScheduler.Job() {
+            @Override
+            public void onCoalesced() {
+                taskCompleted(UpdateTask.FOLLOWED_BLOGS);
+            }
+
             @Override
             public void run() {
                 ReaderBlogList serverBlogs = ReaderBlogList.fromJson(jsonObject);
@@ -273,7 +285,7 @@ public class ReaderUpdateLogic {
 
                 taskCompleted(UpdateTask.FOLLOWED_BLOGS);
             }
-        }.start();
+        });
     }
 
     /***
@@ -302,7 +314,12 @@ public class ReaderUpdateLogic {
     }
 
     private void handleRecommendedBlogsResponse(final JSONObject jsonObject) {
-        new Thread() {
+        ReaderWorkScheduler.execute(Priority.PREFETCH, "update:recommended-blogs", new ReaderWorkScheduler.Job() {
+            @Override
+            public void onCoalesced() {
+                taskCompleted(UpdateTask.RECOMMENDED_BLOGS);
+            }
+
             @Override
             public void run() {
                 ReaderRecommendBlogList serverBlogs = ReaderRecommendBlogList.fromJson(jsonObject);
@@ -315,6 +332,6 @@ public class ReaderUpdateLogic {
 
                 taskCompleted(UpdateTask.RECOMMENDED_BLOGS);
             }
-        }.start();
+        });
     }
 }
@@ -6,91 +6,259 @@ import org.wordpress.android.models.ReaderComment;
 import org.wordpress.android.models.ReaderCommentList;
 import org.wordpress.android.util.AppLog;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
 /*
  * utility class which accepts a list of comments and then creates a "level list" from it
  * which places child comments below their parents with indentation levels applied
+ *
+ * the comments are indexed by parent in a single pass and the level list is emitted with a
+ * depth-first walk of that index, so leveling is linear in the number of comments. the index
+ * is kept between calls, which enables comments fetched later (such as another page of
+ * comments) to be added without re-leveling the comments that have already been placed
  */
 
 public class ReaderCommentLeveler {
     private final ReaderCommentList mComments;
 
+    // comments which have been placed in the level list, by comment id
+    private final HashMap<Long, ReaderComment> mPlaced = new HashMap<>();
+
+    // ids of the replies to each placed comment, in the order they appear in the level list
+    private final HashMap<Long, ArrayList<Long>> mReplyIds = new HashMap<>();
+
+    private final ArrayList<Long> mRootIds = new ArrayList<>();
+    private final ArrayList<Long> mOrphanIds = new ArrayList<>();
+
     public ReaderCommentLeveler(@NonNull ReaderCommentList comments) {
         mComments = comments;
     }
 
-    public ReaderCommentList createLevelList() {
-        ReaderCommentList result = new ReaderCommentList();
+    public synchronized ReaderCommentList createLevelList() {
+        clear();
+        return addComments(mComments);
+    }
 
-        // reset all levels, and add root comments to result
-        for (ReaderComment comment : mComments) {
-            comment.level = 0;
-            if (comment.parentId == 0) {
-                result.add(comment);
+    /*
+     * updates the level list to reflect the passed comments, which should be all the comments for
+     * the post - comments which have already been placed keep their position and level, and any
+     * new ones are added beneath their parents. the list is re-leveled from scratch if a comment
+     * which was placed has since been removed or moved to another parent
+     */
+    public synchronized ReaderCommentList updateLevelList(@NonNull ReaderCommentList comments) {
+        HashMap<Long, ReaderComment> commentsById = new HashMap<>(comments.size());
+        for (ReaderComment comment : comments) {
+            commentsById.put(comment.commentId, comment);
+        }
+
+        for (ReaderComment placed : mPlaced.values()) {
+            ReaderComment comment = commentsById.get(placed.commentId);
+            if (comment == null || comment.parentId != placed.parentId) {
+                clear();
+                return addComments(comments);
             }
         }
 
-        // add children at each level
-        int level = 0;
-        while (walkCommentsAtLevel(result, level)) {
-            level++;
+        // use the passed instances of placed comments since their content may have changed
+        for (ReaderComment comment : comments) {
+            ReaderComment placed = mPlaced.get(comment.commentId);
+            if (placed != null && placed != comment) {
+                comment.level = placed.level;
+                mPlaced.put(comment.commentId, comment);
+            }
         }
 
-        // check for orphans (child comments whose parents weren't found above) and give them
-        // a non-zero level so they're indented by ReaderCommentAdapter
-        for (ReaderComment comment : result) {
-            if (comment.level == 0 && comment.parentId != 0) {
-                comment.level = 1;
-                result.add(comment);
-                AppLog.d(AppLog.T.READER, "Orphan comment encountered");
+        return addComments(comments);
+    }
+
+    /*
+     * adds the passed comments to the level list and returns the updated list - comments which
+     * have already been placed are skipped, so it's fine to pass comments which were added before
+     */
+    public synchronized ReaderCommentList addComments(@NonNull ReaderCommentList comments) {
+        // index the comments which haven't been placed yet by their parent
+        ReaderCommentList newComments = new ReaderCommentList();
+        HashSet<Long> newIds = new HashSet<>();
+        HashMap<Long, ReaderCommentList> newReplies = new HashMap<>();
+        for (ReaderComment comment : comments) {
+            if (!mPlaced.containsKey(comment.commentId) && newIds.add(comment.commentId)) {
+                newComments.add(comment);
+                addReply(newReplies, comment);
             }
         }
 
-        return result;
+        if (newComments.size() > 0) {
+            moveAdoptedOrphans(newComments, newIds, newReplies);
+            placeComments(newComments, newIds, newReplies);
+        }
+
+        return buildLevelList();
+    }
+
+    private void clear() {
+        mPlaced.clear();
+        mReplyIds.clear();
+        mRootIds.clear();
+        mOrphanIds.clear();
+    }
+
+    private static void addReply(@NonNull HashMap<Long, ReaderCommentList> replies, @NonNull ReaderComment comment) {
+        if (comment.parentId == 0) {
+            return;
+        }
+        ReaderCommentList list = replies.get(comment.parentId);
+        if (list == null) {
+            list = new ReaderCommentList();
+            replies.put(comment.parentId, list);
+        }
+        list.add(comment);
     }
 
     /*
-     * walk comments in the passed list that have the passed level and add their children
-     * beneath them
+     * orphans whose parents are among the new comments are removed from the level list along with
+     * their replies so they're placed again beneath their parents
      */
-    private boolean walkCommentsAtLevel(@NonNull ReaderCommentList comments, int level) {
-        boolean hasChanges = false;
-        for (int index = 0; index < comments.size(); index++) {
-            ReaderComment parent = comments.get(index);
-            if (parent.level == level && hasChildren(parent.commentId)) {
-                // get children for this comment, set their level, then add them below the parent
-                ReaderCommentList children = getChildren(parent.commentId);
-                setLevel(children, level + 1);
-                comments.addAll(index + 1, children);
-                hasChanges = true;
-                // skip past the children we just added
-                index += children.size();
+    private void moveAdoptedOrphans(@NonNull ReaderCommentList newComments,
+                                    @NonNull HashSet<Long> newIds,
+                                    @NonNull HashMap<Long, ReaderCommentList> newReplies) {
+        ArrayList<Long> adoptedIds = new ArrayList<>();
+        for (Long orphanId : mOrphanIds) {
+            if (newIds.contains(mPlaced.get(orphanId).parentId)) {
+                adoptedIds.add(orphanId);
+            }
+        }
+        if (adoptedIds.isEmpty()) {
+            return;
+        }
+
+        mOrphanIds.removeAll(new HashSet<>(adoptedIds));
+        ArrayDeque<Long> stack = new ArrayDeque<>(adoptedIds);
+        while (!stack.isEmpty()) {
+            Long commentId = stack.pop();
+            ReaderComment comment = mPlaced.remove(commentId);
+            newComments.add(comment);
+            newIds.add(commentId);
+            addReply(newReplies, comment);
+
+            ArrayList<Long> replyIds = mReplyIds.remove(commentId);
+            if (replyIds != null) {
+                for (int i = replyIds.size() - 1; i >= 0; i--) {
+                    stack.push(replyIds.get(i));
+                }
             }
         }
-        return hasChanges;
     }
 
-    private boolean hasChildren(long commentId) {
-        for (ReaderComment comment : mComments) {
-            if (comment.parentId == commentId) {
-                return true;
+    private void placeComments(@NonNull ReaderCommentList newComments,
+                               @NonNull HashSet<Long> newIds,
+                               @NonNull HashMap<Long, ReaderCommentList> newReplies) {
+        // place each new comment whose parent is a root or has already been placed, along with the
+        // new replies beneath it - replies whose parents are also new are placed by those parents
+        for (ReaderComment comment : newComments) {
+            if (comment.parentId == 0) {
+                placeWithReplies(comment, 0, mRootIds, newReplies);
+            } else if (!newIds.contains(comment.parentId)) {
+                ReaderComment parent = mPlaced.get(comment.parentId);
+                if (parent != null) {
+                    placeWithReplies(comment, parent.level + 1, getReplyIds(parent.commentId), newReplies);
+                }
+            }
+        }
+
+        // check for orphans (child comments whose parents weren't found above) and give them
+        // a non-zero level so they're indented by ReaderCommentAdapter - this also catches
+        // comments which can't be reached from a root because their parents form a cycle
+        for (ReaderComment comment : newComments) {
+            if (!mPlaced.containsKey(comment.commentId)) {
+                placeWithReplies(comment, 1, mOrphanIds, newReplies);
+                AppLog.d(AppLog.T.READER, "Orphan comment encountered");
             }
         }
-        return false;
     }
 
-    private ReaderCommentList getChildren(long commentId) {
-        ReaderCommentList children = new ReaderCommentList();
-        for (ReaderComment comment : mComments) {
-            if (comment.parentId == commentId) {
-                children.add(comment);
+    /*
+     * places the passed comment and all of its new replies - uses an explicit stack rather than
+     * recursion so deeply nested threads can't overflow the call stack
+     */
+    private void placeWithReplies(@NonNull ReaderComment comment,
+                                  int level,
+                                  @NonNull ArrayList<Long> siblingIds,
+                                  @NonNull HashMap<Long, ReaderCommentList> newReplies) {
+        place(comment, level, siblingIds);
+
+        ArrayDeque<ReaderComment> stack = new ArrayDeque<>();
+        pushReplies(stack, newReplies.get(comment.commentId));
+        while (!stack.isEmpty()) {
+            ReaderComment reply = stack.pop();
+            if (mPlaced.containsKey(reply.commentId)) {
+                continue;
             }
+            ReaderComment parent = mPlaced.get(reply.parentId);
+            place(reply, parent.level + 1, getReplyIds(parent.commentId));
+            pushReplies(stack, newReplies.get(reply.commentId));
         }
-        return children;
     }
 
-    private void setLevel(@NonNull ReaderCommentList comments, int level) {
-        for (ReaderComment comment : comments) {
-            comment.level = level;
+    private static void pushReplies(@NonNull ArrayDeque<ReaderComment> stack, ReaderCommentList replies) {
+        if (replies != null) {
+            // push in reverse so replies are placed in the order they were passed
+            for (int i = replies.size() - 1; i >= 0; i--) {
+                stack.push(replies.get(i));
+            }
+        }
+    }
+
+    /*
+     * adds the passed comment to its siblings in timestamp order - new comments are usually newer
+     * than their siblings, so the scan for the insertion point starts from the end
+     */
+    private void place(@NonNull ReaderComment comment, int level, @NonNull ArrayList<Long> siblingIds) {
+        comment.level = level;
+        mPlaced.put(comment.commentId, comment);
+
+        int index = siblingIds.size();
+        while (index > 0 && mPlaced.get(siblingIds.get(index - 1)).timestamp > comment.timestamp) {
+            index--;
+        }
+        siblingIds.add(index, comment.commentId);
+    }
+
+    private ArrayList<Long> getReplyIds(long commentId) {
+        ArrayList<Long> replyIds = mReplyIds.get(commentId);
+        if (replyIds == null) {
+            replyIds = new ArrayList<>();
+            mReplyIds.put(commentId, replyIds);
+        }
+        return replyIds;
+    }
+
+    /*
+     * walks the index depth-first to produce the level list - roots come first followed by orphans
+     */
+    private ReaderCommentList buildLevelList() {
+        ReaderCommentList result = new ReaderCommentList();
+        result.ensureCapacity(mPlaced.size());
+
+        ArrayDeque<Long> stack = new ArrayDeque<>();
+        pushIds(stack, mOrphanIds);
+        pushIds(stack, mRootIds);
+        while (!stack.isEmpty()) {
+            Long commentId = stack.pop();
+            result.add(mPlaced.get(commentId));
+            pushIds(stack, mReplyIds.get(commentId));
+        }
+
+        return result;
+    }
+
+    private static void pushIds(@NonNull ArrayDeque<Long> stack, ArrayList<Long> ids) {
+        if (ids != null) {
+            for (int i = ids.size() - 1; i >= 0; i--) {
+                stack.push(ids.get(i));
+            }
         }
     }
 }
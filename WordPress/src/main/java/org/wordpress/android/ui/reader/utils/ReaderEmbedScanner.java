@@ -1,9 +1,15 @@
 package org.wordpress.android.ui.reader.utils;
 
+import android.support.annotation.NonNull;
+
 import java.util.HashMap;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 public class ReaderEmbedScanner {
+    private static final String INSTAGRAM_JS = "https://platform.instagram.com/en_US/embeds.js";
+    private static final String FACEBOOK_JS = "https://connect.facebook.net/en_US/sdk.js#xfbml=1&amp;version=v2.8";
+
     private final String mContent;
 
     private final HashMap<Pattern, String> mKnownEmbeds = new HashMap<>();
@@ -11,9 +17,9 @@ public class ReaderEmbedScanner {
     public ReaderEmbedScanner(String contentOfPost) {
         mContent = contentOfPost;
         mKnownEmbeds.put(Pattern.compile("<blockquote[^<>]class=\"instagram-", Pattern.CASE_INSENSITIVE),
-                         "https://platform.instagram.com/en_US/embeds.js");
+                         INSTAGRAM_JS);
         mKnownEmbeds.put(Pattern.compile("<fb:post", Pattern.CASE_INSENSITIVE),
-                         "https://connect.facebook.net/en_US/sdk.js#xfbml=1&amp;version=v2.8");
+                         FACEBOOK_JS);
     }
 
     public void beginScan(ReaderHtmlUtils.HtmlScannerListener listener) {
@@ -29,4 +35,28 @@ public class ReaderEmbedScanner {
             }
         }
     }
+
+    /*
+     * same as beginScan() but detects the embeds while the passed rewriter processes the content,
+     * adding the script each embed requires to the passed set - the tags are left unchanged
+     */
+    public static void addEmbedHandlers(@NonNull ReaderHtmlRewriter rewriter, @NonNull final Set<String> jsToInject) {
+        rewriter.addTagHandler("blockquote", new ReaderHtmlRewriter.TagHandler() {
+            @Override
+            public boolean onTag(@NonNull ReaderHtmlTag tag, @NonNull StringBuilder output) {
+                String tagClass = tag.getAttribute("class");
+                if (tagClass != null && tagClass.startsWith("instagram-")) {
+                    jsToInject.add(INSTAGRAM_JS);
+                }
+                return false;
+            }
+        });
+        rewriter.addTagHandler("fb:post", new ReaderHtmlRewriter.TagHandler() {
+            @Override
+            public boolean onTag(@NonNull ReaderHtmlTag tag, @NonNull StringBuilder output) {
+                jsToInject.add(FACEBOOK_JS);
+                return false;
+            }
+        });
+    }
 }
@@ -0,0 +1,224 @@
+package org.wordpress.android.ui.reader.utils;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * rewrites html in a single pass - the content is tokenized into start tags and the text between
+ * them, and each start tag whose name has a registered handler is passed to that handler, which
+ * may append a replacement for it. everything else is copied to the output unchanged, so the cost
+ * of rewriting is linear in the size of the content no matter how many tags are replaced.
+ * <p>
+ * protocol-relative src attributes (src="//...) are given an http: scheme as the content is
+ * copied, and ReaderHtmlTag.getAttribute() returns them with the scheme added. content which can't
+ * be tokenized - an unclosed comment or an unclosed quote inside a tag - is copied as-is from that
+ * point on, along with everything after it
+ */
+public class ReaderHtmlRewriter {
+    public interface TagHandler {
+        /*
+         * called for each start tag the handler was registered for - append the replacement for
+         * the tag to the passed builder and return true, or return false without appending
+         * anything to leave the tag as it is
+         */
+        boolean onTag(@NonNull ReaderHtmlTag tag, @NonNull StringBuilder output);
+    }
+
+    private static final String PROTOCOL_RELATIVE_SRC = "src=\"//";
+
+    private final List<String> mTagNames = new ArrayList<>();
+    private final List<TagHandler> mTagHandlers = new ArrayList<>();
+    private final List<TagHandler> mAllTagHandlers = new ArrayList<>();
+
+    /*
+     * registers a handler for start tags with the passed name (case-insensitive) - handlers are
+     * called in the order they're added until one of them replaces the tag
+     */
+    public ReaderHtmlRewriter addTagHandler(@NonNull String tagName, @NonNull TagHandler handler) {
+        mTagNames.add(tagName);
+        mTagHandlers.add(handler);
+        return this;
+    }
+
+    /*
+     * registers a handler for every start tag - these are called after the handlers registered for
+     * specific tag names, and only if none of those replaced the tag
+     */
+    public ReaderHtmlRewriter addAllTagsHandler(@NonNull TagHandler handler) {
+        mAllTagHandlers.add(handler);
+        return this;
+    }
+
+    public String rewrite(String html) {
+        if (html == null) {
+            return "";
+        }
+
+        int length = html.length();
+        StringBuilder output = new StringBuilder(length + (length / 8));
+        int copyFrom = 0;
+        int pos = 0;
+
+        while (pos < length) {
+            int tagStart = html.indexOf('<', pos);
+            if (tagStart == -1 || tagStart + 1 >= length) {
+                break;
+            }
+
+            // comments are copied as-is, so tags inside them are ignored
+            if (html.startsWith("<!--", tagStart)) {
+                int commentEnd = html.indexOf("-->", tagStart + 4);
+                if (commentEnd == -1) {
+                    return appendMalformedHtml(output, html, copyFrom, tagStart);
+                }
+                pos = commentEnd + 3;
+                continue;
+            }
+
+            // skip end tags, doctypes and stray '<' characters
+            if (!Character.isLetter(html.charAt(tagStart + 1))) {
+                pos = tagStart + 1;
+                continue;
+            }
+
+            int nameEnd = findTagNameEnd(html, tagStart + 1);
+            int tagEnd = findTagEnd(html, nameEnd);
+            if (tagEnd == -1) {
+                return appendMalformedHtml(output, html, copyFrom, tagStart);
+            }
+
+            if (hasHandlers(html, tagStart + 1, nameEnd)) {
+                ReaderHtmlTag tag = new ReaderHtmlTag(html, tagStart, nameEnd, tagEnd + 1, true);
+                appendHtml(output, html, copyFrom, tagStart, true);
+                copyFrom = tagStart;
+                int outputLength = output.length();
+                if (handleTag(tag, output)) {
+                    copyFrom = tagEnd + 1;
+                } else {
+                    // tag wasn't replaced, so leave it to be copied along with the text after it
+                    output.setLength(outputLength);
+                }
+            }
+
+            pos = tagEnd + 1;
+        }
+
+        appendHtml(output, html, copyFrom, length, true);
+        return output.toString();
+    }
+
+    /*
+     * called when the content can't be tokenized from the passed index on - the html before it is
+     * copied as usual, and the rest is copied as-is
+     */
+    private static String appendMalformedHtml(@NonNull StringBuilder output,
+                                              @NonNull String html,
+                                              int copyFrom,
+                                              int malformedStart) {
+        appendHtml(output, html, copyFrom, malformedStart, true);
+        output.append(html, malformedStart, html.length());
+        return output.toString();
+    }
+
+    private boolean hasHandlers(@NonNull String html, int nameStart, int nameEnd) {
+        if (mAllTagHandlers.size() > 0) {
+            return true;
+        }
+        for (String name : mTagNames) {
+            if (isTagName(html, nameStart, nameEnd, name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean handleTag(@NonNull ReaderHtmlTag tag, @NonNull StringBuilder output) {
+        for (int i = 0; i < mTagNames.size(); i++) {
+            if (tag.isNamed(mTagNames.get(i)) && mTagHandlers.get(i).onTag(tag, output)) {
+                return true;
+            }
+        }
+        for (TagHandler handler : mAllTagHandlers) {
+            if (handler.onTag(tag, output)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isTagName(@NonNull String html, int nameStart, int nameEnd, @NonNull String name) {
+        return nameEnd - nameStart == name.length()
+               && html.regionMatches(true, nameStart, name, 0, name.length());
+    }
+
+    /*
+     * returns the index after the tag name which starts at the passed index - names may include
+     * namespace prefixes such as "fb:post"
+     */
+    static int findTagNameEnd(@NonNull String html, int nameStart) {
+        int index = nameStart;
+        while (index < html.length()) {
+            char c = html.charAt(index);
+            if (!Character.isLetterOrDigit(c) && c != ':' && c != '-' && c != '_') {
+                break;
+            }
+            index++;
+        }
+        return index;
+    }
+
+    /*
+     * returns the index of the '>' which closes the tag whose attributes start at the passed
+     * index, skipping any inside quoted attribute values - returns -1 if the tag isn't closed
+     */
+    static int findTagEnd(@NonNull String html, int fromIndex) {
+        int length = html.length();
+        for (int index = fromIndex; index < length; index++) {
+            char c = html.charAt(index);
+            if (c == '>') {
+                return index;
+            }
+            if (c == '=') {
+                int valueStart = index + 1;
+                while (valueStart < length && Character.isWhitespace(html.charAt(valueStart))) {
+                    valueStart++;
+                }
+                if (valueStart < length && (html.charAt(valueStart) == '"' || html.charAt(valueStart) == '\'')) {
+                    int valueEnd = html.indexOf(html.charAt(valueStart), valueStart + 1);
+                    if (valueEnd == -1) {
+                        return -1;
+                    }
+                    index = valueEnd;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /*
+     * appends the passed range of html to the builder, optionally adding an http: scheme to any
+     * protocol-relative src attributes
+     */
+    static void appendHtml(@NonNull StringBuilder output,
+                           @NonNull String html,
+                           int start,
+                           int end,
+                           boolean fixProtocolRelativeSrc) {
+        if (fixProtocolRelativeSrc) {
+            // String.indexOf() can't be limited to the range, so search it manually to avoid
+            // scanning the rest of the content every time a range is copied
+            int lastIndex = end - PROTOCOL_RELATIVE_SRC.length();
+            for (int index = start; index <= lastIndex; index++) {
+                if (html.charAt(index) == 's' && html.startsWith(PROTOCOL_RELATIVE_SRC, index)) {
+                    int schemeIndex = index + PROTOCOL_RELATIVE_SRC.length() - 2;
+                    output.append(html, start, schemeIndex).append("http:");
+                    start = schemeIndex;
+                    index = schemeIndex;
+                }
+            }
+        }
+        output.append(html, start, end);
+    }
+}
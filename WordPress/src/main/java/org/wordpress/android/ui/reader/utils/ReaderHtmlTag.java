@@ -0,0 +1,215 @@
+package org.wordpress.android.ui.reader.utils;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * a start tag found by ReaderHtmlRewriter - attributes are only tokenized the first time they're
+ * requested, so tags which are never inspected cost nothing beyond finding their end
+ */
+public class ReaderHtmlTag {
+    private final String mHtml;
+    private final int mStart;
+    private final int mEnd;
+    private final int mNameEnd;
+    private final boolean mFixProtocolRelativeSrc;
+
+    private int mNumAttrs = -1;
+    private int[] mAttrNameStart;
+    private int[] mAttrNameEnd;
+    private int[] mAttrValueStart;
+    private int[] mAttrValueEnd;
+
+    /*
+     * start is the index of the tag's opening '<' and end is the index after its closing '>'
+     */
+    ReaderHtmlTag(@NonNull String html, int start, int nameEnd, int end, boolean fixProtocolRelativeSrc) {
+        mHtml = html;
+        mStart = start;
+        mNameEnd = nameEnd;
+        mEnd = end;
+        mFixProtocolRelativeSrc = fixProtocolRelativeSrc;
+    }
+
+    /*
+     * parses the first tag in the passed html - used for attribute lookups on tags which weren't
+     * found by the rewriter
+     */
+    public static ReaderHtmlTag parse(@NonNull String html) {
+        int start = html.indexOf('<');
+        int nameEnd = (start == -1 ? 0 : ReaderHtmlRewriter.findTagNameEnd(html, start + 1));
+        int end = ReaderHtmlRewriter.findTagEnd(html, nameEnd);
+        return new ReaderHtmlTag(html, Math.max(start, 0), nameEnd, end == -1 ? html.length() : end + 1, false);
+    }
+
+    public String getName() {
+        return mHtml.substring(mStart + 1, mNameEnd);
+    }
+
+    public boolean isNamed(@NonNull String name) {
+        return mNameEnd - mStart - 1 == name.length()
+               && mHtml.regionMatches(true, mStart + 1, name, 0, name.length());
+    }
+
+    /*
+     * returns the full text of the tag, including the angle brackets
+     */
+    public String getHtml() {
+        return mHtml.substring(mStart, mEnd);
+    }
+
+    public boolean hasAttribute(@NonNull String name) {
+        return indexOfAttribute(name) != -1;
+    }
+
+    /*
+     * returns the value of the passed attribute as it appears in the html, an empty string if the
+     * attribute has no value, or null if the tag doesn't have the attribute
+     */
+    public String getAttribute(@NonNull String name) {
+        int index = indexOfAttribute(name);
+        if (index == -1) {
+            return null;
+        }
+        if (mAttrValueStart[index] == -1) {
+            return "";
+        }
+
+        String value = mHtml.substring(mAttrValueStart[index], mAttrValueEnd[index]);
+        if (mFixProtocolRelativeSrc
+            && getQuote(index) == '"'
+            && value.startsWith("//")
+            && mHtml.regionMatches(true, mAttrNameEnd[index] - 3, "src", 0, 3)) {
+            return "http:" + value;
+        }
+        return value;
+    }
+
+    /*
+     * returns the quote character surrounding the value of the passed attribute, or zero if the
+     * value isn't quoted or the tag doesn't have the attribute
+     */
+    public char getAttributeQuote(@NonNull String name) {
+        int index = indexOfAttribute(name);
+        return index == -1 ? 0 : getQuote(index);
+    }
+
+    private char getQuote(int index) {
+        if (mAttrValueStart[index] <= 0) {
+            return 0;
+        }
+        char c = mHtml.charAt(mAttrValueStart[index] - 1);
+        return (c == '"' || c == '\'') ? c : 0;
+    }
+
+    /*
+     * appends this tag to the passed builder with the value of the passed attribute replaced - the
+     * rest of the tag is copied as-is
+     */
+    public void appendWithAttribute(@NonNull StringBuilder out, @NonNull String name, @NonNull String value) {
+        int index = indexOfAttribute(name);
+        if (index == -1 || mAttrValueStart[index] == -1) {
+            ReaderHtmlRewriter.appendHtml(out, mHtml, mStart, mEnd, mFixProtocolRelativeSrc);
+            return;
+        }
+
+        ReaderHtmlRewriter.appendHtml(out, mHtml, mStart, mAttrValueStart[index], mFixProtocolRelativeSrc);
+        out.append(value);
+        ReaderHtmlRewriter.appendHtml(out, mHtml, mAttrValueEnd[index], mEnd, mFixProtocolRelativeSrc);
+    }
+
+    private int indexOfAttribute(@NonNull String name) {
+        if (mNumAttrs == -1) {
+            parseAttributes();
+        }
+        for (int i = 0; i < mNumAttrs; i++) {
+            int length = mAttrNameEnd[i] - mAttrNameStart[i];
+            if (length == name.length() && mHtml.regionMatches(true, mAttrNameStart[i], name, 0, length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void parseAttributes() {
+        mNumAttrs = 0;
+        mAttrNameStart = new int[4];
+        mAttrNameEnd = new int[4];
+        mAttrValueStart = new int[4];
+        mAttrValueEnd = new int[4];
+
+        int end = mEnd;
+        if (end > mNameEnd && mHtml.charAt(end - 1) == '>') {
+            end--;
+        }
+
+        int i = mNameEnd;
+        while (i < end) {
+            char c = mHtml.charAt(i);
+            if (Character.isWhitespace(c) || c == '/') {
+                i++;
+                continue;
+            }
+
+            int nameStart = i;
+            while (i < end && !isAttrNameTerminator(mHtml.charAt(i))) {
+                i++;
+            }
+            int nameEnd = i;
+            if (nameEnd == nameStart) {
+                // stray character such as an unquoted '=' - skip it
+                i++;
+                continue;
+            }
+
+            int valueStart = -1;
+            int valueEnd = -1;
+            int j = skipWhitespace(i, end);
+            if (j < end && mHtml.charAt(j) == '=') {
+                j = skipWhitespace(j + 1, end);
+                if (j < end && (mHtml.charAt(j) == '"' || mHtml.charAt(j) == '\'')) {
+                    int close = mHtml.indexOf(mHtml.charAt(j), j + 1);
+                    valueStart = j + 1;
+                    valueEnd = (close == -1 || close > end) ? end : close;
+                    i = Math.min(valueEnd + 1, end);
+                } else {
+                    valueStart = j;
+                    while (j < end && !Character.isWhitespace(mHtml.charAt(j))) {
+                        j++;
+                    }
+                    valueEnd = j;
+                    i = j;
+                }
+            }
+
+            addAttribute(nameStart, nameEnd, valueStart, valueEnd);
+        }
+    }
+
+    private void addAttribute(int nameStart, int nameEnd, int valueStart, int valueEnd) {
+        if (mNumAttrs == mAttrNameStart.length) {
+            int newSize = mNumAttrs * 2;
+            mAttrNameStart = Arrays.copyOf(mAttrNameStart, newSize);
+            mAttrNameEnd = Arrays.copyOf(mAttrNameEnd, newSize);
+            mAttrValueStart = Arrays.copyOf(mAttrValueStart, newSize);
+            mAttrValueEnd = Arrays.copyOf(mAttrValueEnd, newSize);
+        }
+        mAttrNameStart[mNumAttrs] = nameStart;
+        mAttrNameEnd[mNumAttrs] = nameEnd;
+        mAttrValueStart[mNumAttrs] = valueStart;
+        mAttrValueEnd[mNumAttrs] = valueEnd;
+        mNumAttrs++;
+    }
+
+    private int skipWhitespace(int index, int end) {
+        while (index < end && Character.isWhitespace(mHtml.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    private static boolean isAttrNameTerminator(char c) {
+        return Character.isWhitespace(c) || c == '=' || c == '/' || c == '>';
+    }
+}
@@ -1,47 +1,15 @@
 package org.wordpress.android.ui.reader.utils;
 
 import android.net.Uri;
+import android.support.annotation.NonNull;
 
 import org.wordpress.android.util.StringUtils;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 public class ReaderHtmlUtils {
     public interface HtmlScannerListener {
         void onTagFound(String tag, String src);
     }
 
-    // regex for matching oriwidth attributes in tags
-    private static final Pattern ORIGINAL_WIDTH_ATTR_PATTERN = Pattern.compile(
-            "data-orig-size\\s*=\\s*(?:'|\") (.*?),.*?(?:'|\")",
-            Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
-
-    private static final Pattern ORIGINAL_HEIGHT_ATTR_PATTERN = Pattern.compile(
-            "data-orig-size\\s*=\\s*(?:'|\").*?,(.*?) (?:'|\")",
-            Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
-
-    // regex for matching width attributes in tags
-    private static final Pattern WIDTH_ATTR_PATTERN = Pattern.compile(
-            "width\\s*=\\s*(?:'|\") (.*?) (?:'|\")",
-            Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
-
-    // regex for matching height attributes in tags
-    private static final Pattern HEIGHT_ATTR_PATTERN = Pattern.compile(
-            "height\\s*=\\s*(?:'|\") (.*?) (?:'|\")",
-            Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
-
-    // regex for matching src attributes in tags
-    private static final Pattern SRC_ATTR_PATTERN = Pattern.compile(
-            "src\\s*=\\s*(?:'|\") (.*?) (?:'|\")",
-            Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
-
-    // regex for matching class attributes in tags
-    private static final Pattern CLASS_ATTR_PATTERN = Pattern.compile(
-            "class\\s*=\\s*(?:'|\") (.*?) (?:'|\")",
-            Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
-
-
     /*
     * returns the integer value from the data-orig-size attribute in the passed html tag
     */
@@ -49,26 +17,34 @@ public class ReaderHtmlUtils {
         if (tag == null) {
             return 0;
         }
+        return getOriginalWidthAttrValue(ReaderHtmlTag.parse(tag));
+    }
 
-        Matcher matcher = ORIGINAL_WIDTH_ATTR_PATTERN.matcher(tag);
-        if (matcher.find()) {
-            return StringUtils.stringToInt(matcher.group(1), 0);
-        } else {
-            return 0;
-        }
+    public static int getOriginalWidthAttrValue(@NonNull ReaderHtmlTag tag) {
+        return getOriginalSizeValue(tag, 0);
     }
 
     public static int getOriginalHeightAttrValue(final String tag) {
         if (tag == null) {
             return 0;
         }
+        return getOriginalHeightAttrValue(ReaderHtmlTag.parse(tag));
+    }
 
-        Matcher matcher = ORIGINAL_HEIGHT_ATTR_PATTERN.matcher(tag);
-        if (matcher.find()) {
-            return StringUtils.stringToInt(matcher.group(1), 0);
-        } else {
+    public static int getOriginalHeightAttrValue(@NonNull ReaderHtmlTag tag) {
+        return getOriginalSizeValue(tag, 1);
+    }
+
+    /*
+     * data-orig-size is in the form "width,height"
+     */
+    private static int getOriginalSizeValue(@NonNull ReaderHtmlTag tag, int index) {
+        String value = tag.getAttribute("data-orig-size");
+        if (value == null) {
             return 0;
         }
+        String[] sizes = value.split(",");
+        return sizes.length == 2 ? StringUtils.stringToInt(sizes[index].trim(), 0) : 0;
     }
 
     /*
@@ -78,26 +54,22 @@ public class ReaderHtmlUtils {
         if (tag == null) {
             return 0;
         }
+        return getWidthAttrValue(ReaderHtmlTag.parse(tag));
+    }
 
-        Matcher matcher = WIDTH_ATTR_PATTERN.matcher(tag);
-        if (matcher.find()) {
-            // remove "width=" and quotes from the result
-            return StringUtils.stringToInt(tag.substring(matcher.start() + 7, matcher.end() - 1), 0);
-        } else {
-            return 0;
-        }
+    public static int getWidthAttrValue(@NonNull ReaderHtmlTag tag) {
+        return StringUtils.stringToInt(tag.getAttribute("width"), 0);
     }
 
     public static int getHeightAttrValue(final String tag) {
         if (tag == null) {
             return 0;
         }
-        Matcher matcher = HEIGHT_ATTR_PATTERN.matcher(tag);
-        if (matcher.find()) {
-            return StringUtils.stringToInt(tag.substring(matcher.start() + 8, matcher.end() - 1), 0);
-        } else {
-            return 0;
-        }
+        return getHeightAttrValue(ReaderHtmlTag.parse(tag));
+    }
+
+    public static int getHeightAttrValue(@NonNull ReaderHtmlTag tag) {
+        return StringUtils.stringToInt(tag.getAttribute("height"), 0);
     }
 
     /*
@@ -107,14 +79,7 @@ public class ReaderHtmlUtils {
         if (tag == null) {
             return null;
         }
-
-        Matcher matcher = SRC_ATTR_PATTERN.matcher(tag);
-        if (matcher.find()) {
-            // remove "src=" and quotes from the result
-            return tag.substring(matcher.start() + 5, matcher.end() - 1);
-        } else {
-            return null;
-        }
+        return ReaderHtmlTag.parse(tag).getAttribute("src");
     }
 
     /*
@@ -124,14 +89,7 @@ public class ReaderHtmlUtils {
         if (tag == null) {
             return null;
         }
-
-        Matcher matcher = CLASS_ATTR_PATTERN.matcher(tag);
-        if (matcher.find()) {
-            // remove "class=" and quotes from the result
-            return tag.substring(matcher.start() + 7, matcher.end() - 1);
-        } else {
-            return null;
-        }
+        return ReaderHtmlTag.parse(tag).getAttribute("class");
     }
 
     /*
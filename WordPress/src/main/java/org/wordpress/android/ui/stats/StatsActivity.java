@@ -343,6 +343,7 @@ public class StatsActivity extends AppCompatActivity
             mSwipeToRefreshHelper.setRefreshing(false);
         }
         ActivityId.trackLastActivity(ActivityId.STATS);
+        AppPrefs.setStatsLastViewedTime(System.currentTimeMillis());
     }
 
     @Override
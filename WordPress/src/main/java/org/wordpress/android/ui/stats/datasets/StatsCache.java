@@ -0,0 +1,201 @@
+package org.wordpress.android.ui.stats.datasets;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.v4.util.LruCache;
+
+import org.wordpress.android.ui.stats.StatsTimeframe;
+import org.wordpress.android.ui.stats.models.BaseStatsModel;
+import org.wordpress.android.ui.stats.models.StatsModelCodec;
+import org.wordpress.android.ui.stats.service.StatsServiceLogic.StatsEndpointsEnum;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory LRU of encoded stats models in front of StatsTable, so showing a section again doesn't
+ * have to read (and possibly parse) it from the db. Models are kept encoded by StatsModelCodec and
+ * decoded on each hit, since the screens showing them may change the models they're given - sections
+ * StatsModelCodec can't encode are kept as their JSON response. Entries keep the time their response
+ * was received so callers can tell whether they're stale, and hit/miss/stale counts are kept for each
+ * section
+ */
+public class StatsCache {
+    // cache size is measured in bytes of the encoded models, or approximate bytes of the JSON responses
+    private static final int DEFAULT_MAX_SIZE_BYTES = 2 * 1024 * 1024;
+
+    private static final int NUM_SECTIONS = StatsEndpointsEnum.values().length;
+    private static final AtomicLongArray MEMORY_HITS = new AtomicLongArray(NUM_SECTIONS);
+    private static final AtomicLongArray DB_HITS = new AtomicLongArray(NUM_SECTIONS);
+    private static final AtomicLongArray MISSES = new AtomicLongArray(NUM_SECTIONS);
+    private static final AtomicLongArray STALE_HITS = new AtomicLongArray(NUM_SECTIONS);
+
+    private static class Entry {
+        private final long mBlogId;
+        private final byte[] mModelData;
+        private final String mJson;
+        private final long mTimestamp;
+        private final int mSizeBytes;
+
+        Entry(long blogId, byte[] modelData, String json, long timestamp, int sizeBytes) {
+            mBlogId = blogId;
+            mModelData = modelData;
+            mJson = json;
+            mTimestamp = timestamp;
+            mSizeBytes = sizeBytes;
+        }
+
+        /*
+         * returns the cached stats with a newly decoded model, or null if the model couldn't be decoded
+         */
+        StatsTable.CachedStats toCachedStats() {
+            if (mModelData == null) {
+                return new StatsTable.CachedStats(null, null, mJson, mTimestamp, mSizeBytes);
+            }
+            BaseStatsModel model = StatsModelCodec.decode(mModelData);
+            return model != null ? new StatsTable.CachedStats(model, mModelData, null, mTimestamp, mSizeBytes) : null;
+        }
+    }
+
+    private static final LruCache<String, Entry> MODELS = new LruCache<String, Entry>(DEFAULT_MAX_SIZE_BYTES) {
+        @Override
+        protected int sizeOf(String key, Entry entry) {
+            return entry.mSizeBytes;
+        }
+    };
+
+    private StatsCache() {
+        throw new AssertionError();
+    }
+
+    /*
+     * changes the number of bytes the in-memory cache may use, evicting entries if it's now over it
+     */
+    public static void setMaxSizeBytes(int maxSizeBytes) {
+        MODELS.resize(maxSizeBytes);
+    }
+
+    /*
+     * sizes the in-memory cache for the app's heap - a 32nd of it, but no less than the default
+     */
+    public static void setMaxSizeForMemoryClass(int memoryClassMb) {
+        setMaxSizeBytes(Math.max(DEFAULT_MAX_SIZE_BYTES, memoryClassMb * 1024 * 1024 / 32));
+    }
+
+    private static String getKey(long blogId, StatsTimeframe timeframe, String date, StatsEndpointsEnum section,
+                                 int maxResultsRequested, int pageRequested) {
+        return blogId + ":" + section.name() + ":" + timeframe.name() + ":" + date + ":" + maxResultsRequested
+               + ":" + pageRequested;
+    }
+
+    /*
+     * returns the cached stats for the passed section from memory, or from the db if they're not in
+     * memory - stats past their TTL are still returned (check isStale()) so they can be shown while
+     * they're requested again, and null is returned if there aren't any
+     */
+    public static StatsTable.CachedStats getStats(Context ctx, long blogId, StatsTimeframe timeframe, String date,
+                                                  StatsEndpointsEnum section, int maxResultsRequested,
+                                                  int pageRequested) {
+        String key = getKey(blogId, timeframe, date, section, maxResultsRequested, pageRequested);
+        Entry entry = MODELS.get(key);
+        StatsTable.CachedStats stats = entry != null ? entry.toCachedStats() : null;
+        if (stats != null) {
+            MEMORY_HITS.incrementAndGet(section.ordinal());
+        } else {
+            if (entry != null) {
+                // encoded with an older schema, so read it from the db instead
+                MODELS.remove(key);
+            }
+            stats = StatsTable.getStats(ctx, blogId, timeframe, date, section, maxResultsRequested, pageRequested);
+            if (stats == null) {
+                MISSES.incrementAndGet(section.ordinal());
+                return null;
+            }
+            DB_HITS.incrementAndGet(section.ordinal());
+            // stats cached as JSON are added once they've been parsed, in case they can be encoded
+            if (stats.getModelData() != null) {
+                MODELS.put(key, new Entry(blogId, stats.getModelData(), null, stats.getTimestamp(),
+                                          stats.getSizeBytes()));
+            }
+        }
+
+        if (stats.isStale()) {
+            STALE_HITS.incrementAndGet(section.ordinal());
+        }
+        return stats;
+    }
+
+    /*
+     * adds the passed model to the in-memory cache - it's encoded here, so it should be called before
+     * the model is given to anything which may change it, and modelData can be passed instead if it's
+     * already been encoded. The JSON response is cached instead if the model can't be encoded
+     */
+    public static void putModel(long blogId, StatsTimeframe timeframe, String date, StatsEndpointsEnum section,
+                                int maxResultsRequested, int pageRequested, BaseStatsModel model,
+                                byte[] modelData, String json, long timestamp) {
+        if (model == null) {
+            return;
+        }
+        if (modelData == null) {
+            modelData = StatsModelCodec.encode(model);
+        }
+        Entry entry;
+        if (modelData != null) {
+            entry = new Entry(blogId, modelData, null, timestamp, modelData.length);
+        } else if (json != null) {
+            // the JSON is measured in chars, and Java strings use two bytes per char
+            entry = new Entry(blogId, null, json, timestamp, json.length() * 2);
+        } else {
+            return;
+        }
+        MODELS.put(getKey(blogId, timeframe, date, section, maxResultsRequested, pageRequested), entry);
+    }
+
+    static void evictBlog(long blogId) {
+        for (Map.Entry<String, Entry> item : MODELS.snapshot().entrySet()) {
+            if (item.getValue().mBlogId == blogId) {
+                MODELS.remove(item.getKey());
+            }
+        }
+    }
+
+    static void evictSection(long blogId, @NonNull StatsEndpointsEnum section) {
+        String prefix = blogId + ":" + section.name() + ":";
+        for (String key : MODELS.snapshot().keySet()) {
+            if (key.startsWith(prefix)) {
+                MODELS.remove(key);
+            }
+        }
+    }
+
+    static void evictOlderThan(long timestamp) {
+        for (Map.Entry<String, Entry> item : MODELS.snapshot().entrySet()) {
+            if (item.getValue().mTimestamp <= timestamp) {
+                MODELS.remove(item.getKey());
+            }
+        }
+    }
+
+    static void evictAll() {
+        MODELS.evictAll();
+    }
+
+    public static long getMemoryHitCount(@NonNull StatsEndpointsEnum section) {
+        return MEMORY_HITS.get(section.ordinal());
+    }
+
+    public static long getDbHitCount(@NonNull StatsEndpointsEnum section) {
+        return DB_HITS.get(section.ordinal());
+    }
+
+    public static long getMissCount(@NonNull StatsEndpointsEnum section) {
+        return MISSES.get(section.ordinal());
+    }
+
+    /*
+     * returns how many of the memory and db hits for the passed section were past their TTL
+     */
+    public static long getStaleCount(@NonNull StatsEndpointsEnum section) {
+        return STALE_HITS.get(section.ordinal());
+    }
+}
@@ -17,7 +17,7 @@ import java.io.OutputStream;
  */
 public class StatsDatabaseHelper extends SQLiteOpenHelper {
     private static final String DB_NAME = "stats.db";
-    private static final int DB_VERSION = 1;
+    private static final int DB_VERSION = 2;
 
     /*
      * database singleton
@@ -65,7 +65,14 @@ public class StatsDatabaseHelper extends SQLiteOpenHelper {
      * drop & recreate all tables (essentially clears the db of all data)
      */
     public void reset() {
-        SQLiteDatabase db = getWritableDatabase();
+        reset(getWritableDatabase());
+    }
+
+    /*
+     * same as above for the passed db - used when upgrading or downgrading, since the helper is still
+     * opening the db then and getWritableDatabase() can't be called
+     */
+    private void reset(SQLiteDatabase db) {
         db.beginTransaction();
         try {
             dropAllTables(db);
@@ -86,14 +93,14 @@ public class StatsDatabaseHelper extends SQLiteOpenHelper {
         // for now just reset the db when upgrading, future versions may want to avoid this
         // and modify table structures, etc., on upgrade while preserving data
         AppLog.i(AppLog.T.STATS, "Upgrading database from version " + oldVersion + " to version " + newVersion);
-        reset();
+        reset(db);
     }
 
     @Override
     public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
         // IMPORTANT: do NOT call super() here - doing so throws a SQLiteException
         AppLog.w(AppLog.T.STATS, "Downgrading database from version " + oldVersion + " to version " + newVersion);
-        reset();
+        reset(db);
     }
 
     private void createAllTables(SQLiteDatabase db) {
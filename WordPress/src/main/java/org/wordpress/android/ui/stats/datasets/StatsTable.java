@@ -6,13 +6,67 @@ import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteStatement;
 
 import org.wordpress.android.ui.stats.StatsTimeframe;
+import org.wordpress.android.ui.stats.models.BaseStatsModel;
+import org.wordpress.android.ui.stats.models.StatsModelCodec;
 import org.wordpress.android.ui.stats.service.StatsServiceLogic.StatsEndpointsEnum;
 import org.wordpress.android.util.AppLog;
 import org.wordpress.android.util.SqlUtils;
 
 public class StatsTable {
+    /**
+     * Cached stats for a section - sections whose models can be encoded by StatsModelCodec are
+     * cached as the encoded model, so they're returned already decoded, and other sections are
+     * cached as the JSON response. Stats older than CACHE_TTL_MINUTES are still returned so they can
+     * be shown while they're requested again, but are marked as stale. Each CachedStats has its own
+     * decoded model, so the model may be changed by whoever it's returned to
+     */
+    public static class CachedStats {
+        private final BaseStatsModel mModel;
+        private final byte[] mModelData;
+        private final String mJson;
+        private final long mTimestamp;
+        private final int mSizeBytes;
+
+        CachedStats(BaseStatsModel model, byte[] modelData, String json, long timestamp, int sizeBytes) {
+            mModel = model;
+            mModelData = modelData;
+            mJson = json;
+            mTimestamp = timestamp;
+            mSizeBytes = sizeBytes;
+        }
+
+        public BaseStatsModel getModel() {
+            return mModel;
+        }
+
+        byte[] getModelData() {
+            return mModelData;
+        }
+
+        public String getJson() {
+            return mJson;
+        }
+
+        public long getTimestamp() {
+            return mTimestamp;
+        }
+
+        /*
+         * approximate size of the cached stats in bytes
+         */
+        public int getSizeBytes() {
+            return mSizeBytes;
+        }
+
+        public boolean isStale() {
+            return System.currentTimeMillis() - mTimestamp > CACHE_TTL_MINUTES * 60 * 1000L;
+        }
+    }
+
     private static final String TABLE_NAME = "tbl_stats";
     public static final int CACHE_TTL_MINUTES = 10;
+    // stale stats are kept this long so there's something to show while they're requested again
+    public static final int MAX_STALE_MINUTES = 24 * 60;
     private static final int MAX_RESPONSE_LEN = (int) (1024 * 1024 * 1.8); // 1.8 MB Approx
 
     static void createTables(SQLiteDatabase db) {
@@ -23,7 +77,8 @@ public class StatsTable {
                    + " type INTEGER DEFAULT 0," // The type of the stats. TopPost, followers, etc..
                    + " timeframe INTEGER DEFAULT 0," // This could be days, week, years - It's an enum
                    + " date TEXT NOT NULL,"
-                   + " jsonData TEXT NOT NULL,"
+                   + " jsonData TEXT NOT NULL," // Empty when the model is stored in modelData
+                   + " modelData BLOB," // The model encoded by StatsModelCodec
                    + " maxResult INTEGER DEFAULT 0,"
                    + " page INTEGER DEFAULT 0,"
                    + " timestamp INTEGER NOT NULL," // The unix timestamp of the response
@@ -41,7 +96,7 @@ public class StatsTable {
     }
 
 
-    public static String getStats(final Context ctx, final long blogId, final StatsTimeframe timeframe,
+    public static CachedStats getStats(final Context ctx, final long blogId, final StatsTimeframe timeframe,
                                   final String date, final StatsEndpointsEnum sectionToUpdate, final int
                                           maxResultsRequested, final int pageRequested) {
         if (ctx == null) {
@@ -82,12 +137,20 @@ public class StatsTable {
                 }
 
                 deltaMS = deltaMS / 1000; // seconds
-                // check if the cache is fresh
-                if ((deltaMS / 60) > CACHE_TTL_MINUTES) {
+                // stats past the TTL are returned as stale, but not once they're too old to be worth showing
+                if ((deltaMS / 60) > MAX_STALE_MINUTES) {
                     return null; // cache is expired
                 }
 
-                return cursor.getString(cursor.getColumnIndex("jsonData"));
+                byte[] modelData = cursor.getBlob(cursor.getColumnIndex("modelData"));
+                if (modelData != null) {
+                    // null if the model was encoded with an older schema, in which case it's requested again
+                    BaseStatsModel model = StatsModelCodec.decode(modelData);
+                    return model != null ? new CachedStats(model, modelData, null, timestamp, modelData.length) : null;
+                }
+                // the JSON is measured in chars, and Java strings use two bytes per char
+                String json = cursor.getString(cursor.getColumnIndex("jsonData"));
+                return new CachedStats(null, null, json, timestamp, json.length() * 2);
             } else {
                 return null;
             }
@@ -103,7 +166,8 @@ public class StatsTable {
     public static void insertStats(final Context ctx, final long blogId, final StatsTimeframe timeframe,
                                    final String date,
                                    final StatsEndpointsEnum sectionToUpdate, final int maxResultsRequested,
-                                   final int pageRequested, final String jsonResponse, final long responseTimestamp) {
+                                   final int pageRequested, final String jsonResponse, final byte[] modelData,
+                                   final long responseTimestamp) {
         if (ctx == null) {
             AppLog.e(AppLog.T.STATS,
                      "Cannot insert a null stats since the passed context is null. Context is required "
@@ -119,8 +183,11 @@ public class StatsTable {
          * http://bit.ly/2oOKCJc
          */
 
+        // The parsed model is stored rather than the response when it could be encoded by StatsModelCodec,
+        // so it doesn't have to be parsed again when it's read
         // Check if the response document from the server is less than 1.8MB. getBytes uses UTF-8 on Android.
-        if (jsonResponse.getBytes().length > MAX_RESPONSE_LEN) {
+        int length = modelData != null ? modelData.length : jsonResponse.getBytes().length;
+        if (length > MAX_RESPONSE_LEN) {
             AppLog.w(AppLog.T.STATS, "Stats JSON response length > max allowed length of 1.8MB."
                                      + " Current response will not be stored in cache.");
             return;
@@ -129,17 +196,23 @@ public class StatsTable {
         SQLiteDatabase db = StatsDatabaseHelper.getWritableDb(ctx);
         db.beginTransaction();
         SQLiteStatement stmt = db.compileStatement("INSERT INTO " + TABLE_NAME + " (blogID, type, timeframe, date, "
-                                                   + "jsonData, maxResult, page, timestamp) "
-                                                   + "VALUES (?1,?2,?3,?4,?5,?6,?7,?8)");
+                                                   + "jsonData, modelData, maxResult, page, timestamp) "
+                                                   + "VALUES (?1,?2,?3,?4,?5,?6,?7,?8,?9)");
         try {
             stmt.bindLong(1, blogId);
             stmt.bindLong(2, sectionToUpdate.ordinal());
             stmt.bindLong(3, timeframe.ordinal());
             stmt.bindString(4, date);
-            stmt.bindString(5, jsonResponse);
-            stmt.bindLong(6, maxResultsRequested);
-            stmt.bindLong(7, pageRequested);
-            stmt.bindLong(8, responseTimestamp);
+            if (modelData != null) {
+                stmt.bindString(5, "");
+                stmt.bindBlob(6, modelData);
+            } else {
+                stmt.bindString(5, jsonResponse);
+                stmt.bindNull(6);
+            }
+            stmt.bindLong(7, maxResultsRequested);
+            stmt.bindLong(8, pageRequested);
+            stmt.bindLong(9, responseTimestamp);
             stmt.execute();
 
             db.setTransactionSuccessful();
@@ -164,6 +237,7 @@ public class StatsTable {
             db.beginTransaction();
             int rowDeleted = db.delete(TABLE_NAME, "timestamp <= ?", new String[]{Long.toString(timestamp)});
             db.setTransactionSuccessful();
+            StatsCache.evictOlderThan(timestamp);
             AppLog.d(AppLog.T.STATS, "Number of old stats deleted : " + rowDeleted);
             return rowDeleted > 1;
         } finally {
@@ -183,6 +257,7 @@ public class StatsTable {
             db.beginTransaction();
             int rowDeleted = db.delete(TABLE_NAME, "blogID=?", new String[]{Integer.toString(blogId)});
             db.setTransactionSuccessful();
+            StatsCache.evictBlog(blogId);
             AppLog.d(AppLog.T.STATS, "Stats deleted for localBlogID " + blogId);
             return rowDeleted > 1;
         } finally {
@@ -207,6 +282,7 @@ public class StatsTable {
                     new String[]{Long.toString(blogId), Integer.toString(sectionToUpdate.ordinal())}
             );
             db.setTransactionSuccessful();
+            StatsCache.evictSection(blogId, sectionToUpdate);
             AppLog.d(AppLog.T.STATS,
                      "Stats deleted for localBlogID " + blogId + " and type " + sectionToUpdate.getRestEndpointPath());
             return rowDeleted > 1;
@@ -227,6 +303,7 @@ public class StatsTable {
         try {
             db.execSQL("DELETE FROM " + TABLE_NAME);
             db.setTransactionSuccessful();
+            StatsCache.evictAll();
         } finally {
             db.endTransaction();
         }
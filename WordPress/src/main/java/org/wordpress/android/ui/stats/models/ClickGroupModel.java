@@ -53,6 +53,21 @@ public class ClickGroupModel implements Serializable {
         }
     }
 
+    /*
+     * used by StatsModelCodec to recreate a cached model
+     */
+    ClickGroupModel(long blogId, long date, String groupId, String name, String icon, int views, String url,
+                    List<SingleItemModel> clicks) {
+        mBlogId = blogId;
+        mDate = date;
+        mGroupId = groupId;
+        mName = name;
+        mIcon = icon;
+        mViews = views;
+        mUrl = url;
+        mClicks = clicks;
+    }
+
     public long getBlogId() {
         return mBlogId;
     }
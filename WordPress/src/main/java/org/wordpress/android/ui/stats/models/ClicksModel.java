@@ -52,6 +52,19 @@ public class ClicksModel extends BaseStatsModel {
         }
     }
 
+    /*
+     * used by StatsModelCodec to recreate a cached model
+     */
+    ClicksModel(long blogID, String period, String date, int otherClicks, int totalClicks,
+                List<ClickGroupModel> clickGroups) {
+        mBlogID = blogID;
+        mPeriod = period;
+        mDate = date;
+        mOtherClicks = otherClicks;
+        mTotalClicks = totalClicks;
+        mClickGroups = clickGroups;
+    }
+
     public long getBlogID() {
         return mBlogID;
     }
@@ -66,6 +66,17 @@ public class GeoviewsModel extends BaseStatsModel {
         }
     }
 
+    /*
+     * used by StatsModelCodec to recreate a cached model
+     */
+    GeoviewsModel(long blogID, String date, int otherViews, int totalViews, List<GeoviewModel> countries) {
+        mBlogID = blogID;
+        mDate = date;
+        mOtherViews = otherViews;
+        mTotalViews = totalViews;
+        mCountries = countries;
+    }
+
     public long getBlogID() {
         return mBlogID;
     }
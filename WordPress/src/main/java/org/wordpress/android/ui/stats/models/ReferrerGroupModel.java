@@ -64,6 +64,21 @@ public class ReferrerGroupModel implements Serializable {
         }
     }
 
+    /*
+     * used by StatsModelCodec to recreate a cached model
+     */
+    ReferrerGroupModel(long blogId, long date, String groupId, String name, String icon, int total, String url,
+                       List<ReferrerResultModel> results) {
+        mBlogId = blogId;
+        mDate = date;
+        mGroupId = groupId;
+        mName = name;
+        mIcon = icon;
+        mTotal = total;
+        mUrl = url;
+        mResults = results;
+    }
+
     public long getBlogId() {
         return mBlogId;
     }
@@ -64,6 +64,20 @@ public class ReferrerResultModel implements Serializable {
         return new SingleItemModel(blogId, date, null, name, totals, url, icon);
     }
 
+    /*
+     * used by StatsModelCodec to recreate a cached model
+     */
+    ReferrerResultModel(long blogId, long date, String name, String icon, int views, String url,
+                        List<SingleItemModel> children) {
+        mBlogId = blogId;
+        mDate = date;
+        mName = name;
+        mIcon = icon;
+        mViews = views;
+        mUrl = url;
+        mChildren = children;
+    }
+
     public long getBlogId() {
         return mBlogId;
     }
@@ -52,6 +52,19 @@ public class ReferrersModel extends BaseStatsModel {
         }
     }
 
+    /*
+     * used by StatsModelCodec to recreate a cached model
+     */
+    ReferrersModel(long blogID, String period, String date, int otherViews, int totalViews,
+                   List<ReferrerGroupModel> groups) {
+        mBlogID = blogID;
+        mPeriod = period;
+        mDate = date;
+        mOtherViews = otherViews;
+        mTotalViews = totalViews;
+        mGroups = groups;
+    }
+
     public long getBlogID() {
         return mBlogID;
     }
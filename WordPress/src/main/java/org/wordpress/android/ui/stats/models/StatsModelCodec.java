@@ -0,0 +1,497 @@
+package org.wordpress.android.ui.stats.models;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.wordpress.android.util.AppLog;
+import org.wordpress.android.util.AppLog.T;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary encoding of the stats models for the largest sections, used to cache them in tbl_stats so
+ * a cache hit can be decoded directly instead of parsing the JSON response again. Lists are stored
+ * column by column (all the names, then all the view counts, ...) rather than item by item.
+ *
+ * Each encoding starts with SCHEMA_VERSION and the model type - an encoding written with another
+ * schema version can't be decoded and is treated as a cache miss, so SCHEMA_VERSION must be bumped
+ * whenever the layout of any model below changes.
+ */
+public class StatsModelCodec {
+    private static final int SCHEMA_VERSION = 1;
+
+    private static final int TYPE_VISITS = 1;
+    private static final int TYPE_TOP_POSTS = 2;
+    private static final int TYPE_REFERRERS = 3;
+    private static final int TYPE_CLICKS = 4;
+    private static final int TYPE_GEOVIEWS = 5;
+
+    // written as the size of a list which is null
+    private static final int NULL_LIST = -1;
+
+    private StatsModelCodec() {
+        throw new AssertionError();
+    }
+
+    private static int getType(@Nullable BaseStatsModel model) {
+        if (model instanceof VisitsModel) {
+            return TYPE_VISITS;
+        } else if (model instanceof TopPostsAndPagesModel) {
+            return TYPE_TOP_POSTS;
+        } else if (model instanceof ReferrersModel) {
+            return TYPE_REFERRERS;
+        } else if (model instanceof ClicksModel) {
+            return TYPE_CLICKS;
+        } else if (model instanceof GeoviewsModel) {
+            return TYPE_GEOVIEWS;
+        }
+        return 0;
+    }
+
+    /*
+     * returns the binary encoding of the passed model, or null if it can't be encoded
+     */
+    public static @Nullable byte[] encode(@Nullable BaseStatsModel model) {
+        int type = getType(model);
+        if (type == 0) {
+            return null;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(SCHEMA_VERSION);
+            out.writeByte(type);
+            switch (type) {
+                case TYPE_VISITS:
+                    writeVisits(out, (VisitsModel) model);
+                    break;
+                case TYPE_TOP_POSTS:
+                    writeTopPosts(out, (TopPostsAndPagesModel) model);
+                    break;
+                case TYPE_REFERRERS:
+                    writeReferrers(out, (ReferrersModel) model);
+                    break;
+                case TYPE_CLICKS:
+                    writeClicks(out, (ClicksModel) model);
+                    break;
+                case TYPE_GEOVIEWS:
+                    writeGeoviews(out, (GeoviewsModel) model);
+                    break;
+            }
+            out.flush();
+        } catch (IOException e) {
+            // thrown for strings longer than writeUTF() supports, in which case the JSON is cached instead
+            AppLog.w(T.STATS, "Unable to encode " + model.getClass().getSimpleName() + ": " + e.getMessage());
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    /*
+     * returns the model decoded from the passed bytes, or null if they were encoded with another
+     * schema version or can't be decoded
+     */
+    public static @Nullable BaseStatsModel decode(@Nullable byte[] data) {
+        if (data == null || data.length < 2 || data[0] != SCHEMA_VERSION) {
+            return null;
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 2, data.length - 2));
+        try {
+            switch (data[1]) {
+                case TYPE_VISITS:
+                    return readVisits(in);
+                case TYPE_TOP_POSTS:
+                    return readTopPosts(in);
+                case TYPE_REFERRERS:
+                    return readReferrers(in);
+                case TYPE_CLICKS:
+                    return readClicks(in);
+                case TYPE_GEOVIEWS:
+                    return readGeoviews(in);
+                default:
+                    return null;
+            }
+        } catch (IOException | RuntimeException e) {
+            AppLog.e(T.STATS, "Unable to decode cached stats", e);
+            return null;
+        }
+    }
+
+    private static void writeVisits(DataOutputStream out, VisitsModel model) throws IOException {
+        out.writeLong(model.getBlogID());
+        writeString(out, model.getDate());
+        writeString(out, model.getUnit());
+        writeString(out, model.getFields());
+
+        List<VisitModel> visits = model.getVisits();
+        if (writeSize(out, visits)) {
+            for (VisitModel visit : visits) {
+                writeString(out, visit.getPeriod());
+            }
+            for (VisitModel visit : visits) {
+                out.writeInt(visit.getViews());
+            }
+            for (VisitModel visit : visits) {
+                out.writeInt(visit.getVisitors());
+            }
+            for (VisitModel visit : visits) {
+                out.writeInt(visit.getLikes());
+            }
+            for (VisitModel visit : visits) {
+                out.writeInt(visit.getComments());
+            }
+        }
+    }
+
+    private static VisitsModel readVisits(DataInputStream in) throws IOException {
+        long blogId = in.readLong();
+        String date = readString(in);
+        String unit = readString(in);
+        String fields = readString(in);
+
+        int size = in.readInt();
+        List<VisitModel> visits = null;
+        if (size != NULL_LIST) {
+            visits = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                VisitModel visit = new VisitModel();
+                visit.setBlogID(blogId);
+                visit.setPeriod(readString(in));
+                visits.add(visit);
+            }
+            for (int i = 0; i < size; i++) {
+                visits.get(i).setViews(in.readInt());
+            }
+            for (int i = 0; i < size; i++) {
+                visits.get(i).setVisitors(in.readInt());
+            }
+            for (int i = 0; i < size; i++) {
+                visits.get(i).setLikes(in.readInt());
+            }
+            for (int i = 0; i < size; i++) {
+                visits.get(i).setComments(in.readInt());
+            }
+        }
+        return new VisitsModel(blogId, date, unit, fields, visits);
+    }
+
+    private static void writeTopPosts(DataOutputStream out, TopPostsAndPagesModel model) throws IOException {
+        out.writeLong(model.getBlogID());
+        writeString(out, model.getPeriod());
+        writeString(out, model.getDate());
+
+        List<StatsPostModel> posts = model.getTopPostsAndPages();
+        if (writeSize(out, posts)) {
+            for (StatsPostModel post : posts) {
+                writeString(out, post.getItemID());
+            }
+            for (StatsPostModel post : posts) {
+                writeString(out, post.getTitle());
+            }
+            for (StatsPostModel post : posts) {
+                out.writeInt(post.getTotals());
+            }
+            for (StatsPostModel post : posts) {
+                writeString(out, post.getUrl());
+            }
+            for (StatsPostModel post : posts) {
+                writeString(out, post.getPostType());
+            }
+            for (StatsPostModel post : posts) {
+                out.writeLong(post.getDate());
+            }
+        }
+    }
+
+    private static TopPostsAndPagesModel readTopPosts(DataInputStream in) throws IOException {
+        long blogId = in.readLong();
+        String period = readString(in);
+        String date = readString(in);
+
+        int size = in.readInt();
+        List<StatsPostModel> posts = null;
+        if (size != NULL_LIST) {
+            String[] itemIds = readStringColumn(in, size);
+            String[] titles = readStringColumn(in, size);
+            int[] totals = readIntColumn(in, size);
+            String[] urls = readStringColumn(in, size);
+            String[] postTypes = readStringColumn(in, size);
+            posts = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                posts.add(new StatsPostModel(blogId, in.readLong(), itemIds[i], titles[i], totals[i], urls[i],
+                                             postTypes[i]));
+            }
+        }
+        return new TopPostsAndPagesModel(blogId, period, date, posts);
+    }
+
+    private static void writeReferrers(DataOutputStream out, ReferrersModel model) throws IOException {
+        out.writeLong(model.getBlogID());
+        writeString(out, model.getPeriod());
+        writeString(out, model.getDate());
+        out.writeInt(model.getOtherViews());
+        out.writeInt(model.getTotalViews());
+
+        List<ReferrerGroupModel> groups = model.getGroups();
+        if (writeSize(out, groups)) {
+            for (ReferrerGroupModel group : groups) {
+                writeString(out, group.getGroupId());
+            }
+            for (ReferrerGroupModel group : groups) {
+                writeString(out, group.getName());
+            }
+            for (ReferrerGroupModel group : groups) {
+                writeString(out, group.getIcon());
+            }
+            for (ReferrerGroupModel group : groups) {
+                out.writeInt(group.getTotal());
+            }
+            for (ReferrerGroupModel group : groups) {
+                writeString(out, group.getUrl());
+            }
+            for (ReferrerGroupModel group : groups) {
+                out.writeLong(group.getDate());
+            }
+            for (ReferrerGroupModel group : groups) {
+                List<ReferrerResultModel> results = group.getResults();
+                if (writeSize(out, results)) {
+                    for (ReferrerResultModel result : results) {
+                        writeString(out, result.getName());
+                        writeString(out, result.getIcon());
+                        out.writeInt(result.getViews());
+                        writeString(out, result.getUrl());
+                        writeSingleItems(out, result.getChildren());
+                    }
+                }
+            }
+        }
+    }
+
+    private static ReferrersModel readReferrers(DataInputStream in) throws IOException {
+        long blogId = in.readLong();
+        String period = readString(in);
+        String date = readString(in);
+        int otherViews = in.readInt();
+        int totalViews = in.readInt();
+
+        int size = in.readInt();
+        List<ReferrerGroupModel> groups = null;
+        if (size != NULL_LIST) {
+            String[] groupIds = readStringColumn(in, size);
+            String[] names = readStringColumn(in, size);
+            String[] icons = readStringColumn(in, size);
+            int[] totals = readIntColumn(in, size);
+            String[] urls = readStringColumn(in, size);
+            long[] dates = readLongColumn(in, size);
+            groups = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                List<ReferrerResultModel> results = null;
+                int numResults = in.readInt();
+                if (numResults != NULL_LIST) {
+                    results = new ArrayList<>(numResults);
+                    for (int j = 0; j < numResults; j++) {
+                        String name = readString(in);
+                        String icon = readString(in);
+                        int views = in.readInt();
+                        String url = readString(in);
+                        List<SingleItemModel> children = readSingleItems(in, blogId, dates[i]);
+                        results.add(new ReferrerResultModel(blogId, dates[i], name, icon, views, url, children));
+                    }
+                }
+                groups.add(new ReferrerGroupModel(blogId, dates[i], groupIds[i], names[i], icons[i], totals[i],
+                                                  urls[i], results));
+            }
+        }
+        return new ReferrersModel(blogId, period, date, otherViews, totalViews, groups);
+    }
+
+    private static void writeClicks(DataOutputStream out, ClicksModel model) throws IOException {
+        out.writeLong(model.getBlogID());
+        writeString(out, model.getPeriod());
+        writeString(out, model.getDate());
+        out.writeInt(model.getOtherClicks());
+        out.writeInt(model.getTotalClicks());
+
+        List<ClickGroupModel> groups = model.getClickGroups();
+        if (writeSize(out, groups)) {
+            for (ClickGroupModel group : groups) {
+                writeString(out, group.getGroupId());
+            }
+            for (ClickGroupModel group : groups) {
+                writeString(out, group.getName());
+            }
+            for (ClickGroupModel group : groups) {
+                writeString(out, group.getIcon());
+            }
+            for (ClickGroupModel group : groups) {
+                out.writeInt(group.getViews());
+            }
+            for (ClickGroupModel group : groups) {
+                writeString(out, group.getUrl());
+            }
+            for (ClickGroupModel group : groups) {
+                out.writeLong(group.getDate());
+            }
+            for (ClickGroupModel group : groups) {
+                writeSingleItems(out, group.getClicks());
+            }
+        }
+    }
+
+    private static ClicksModel readClicks(DataInputStream in) throws IOException {
+        long blogId = in.readLong();
+        String period = readString(in);
+        String date = readString(in);
+        int otherClicks = in.readInt();
+        int totalClicks = in.readInt();
+
+        int size = in.readInt();
+        List<ClickGroupModel> groups = null;
+        if (size != NULL_LIST) {
+            String[] groupIds = readStringColumn(in, size);
+            String[] names = readStringColumn(in, size);
+            String[] icons = readStringColumn(in, size);
+            int[] views = readIntColumn(in, size);
+            String[] urls = readStringColumn(in, size);
+            long[] dates = readLongColumn(in, size);
+            groups = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                List<SingleItemModel> clicks = readSingleItems(in, blogId, dates[i]);
+                groups.add(new ClickGroupModel(blogId, dates[i], groupIds[i], names[i], icons[i], views[i], urls[i],
+                                               clicks));
+            }
+        }
+        return new ClicksModel(blogId, period, date, otherClicks, totalClicks, groups);
+    }
+
+    private static void writeGeoviews(DataOutputStream out, GeoviewsModel model) throws IOException {
+        out.writeLong(model.getBlogID());
+        writeString(out, model.getDate());
+        out.writeInt(model.getOtherViews());
+        out.writeInt(model.getTotalViews());
+
+        List<GeoviewModel> countries = model.getCountries();
+        if (writeSize(out, countries)) {
+            for (GeoviewModel country : countries) {
+                writeString(out, country.getCountryShortName());
+            }
+            for (GeoviewModel country : countries) {
+                writeString(out, country.getCountryFullName());
+            }
+            for (GeoviewModel country : countries) {
+                out.writeInt(country.getViews());
+            }
+            for (GeoviewModel country : countries) {
+                writeString(out, country.getFlagIconURL());
+            }
+            for (GeoviewModel country : countries) {
+                writeString(out, country.getFlatFlagIconURL());
+            }
+        }
+    }
+
+    private static GeoviewsModel readGeoviews(DataInputStream in) throws IOException {
+        long blogId = in.readLong();
+        String date = readString(in);
+        int otherViews = in.readInt();
+        int totalViews = in.readInt();
+
+        int size = in.readInt();
+        List<GeoviewModel> countries = null;
+        if (size != NULL_LIST) {
+            String[] shortNames = readStringColumn(in, size);
+            String[] fullNames = readStringColumn(in, size);
+            int[] views = readIntColumn(in, size);
+            String[] flagIcons = readStringColumn(in, size);
+            countries = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                countries.add(new GeoviewModel(shortNames[i], fullNames[i], views[i], flagIcons[i], readString(in)));
+            }
+        }
+        return new GeoviewsModel(blogId, date, otherViews, totalViews, countries);
+    }
+
+    /*
+     * the children of a referrer or click group - these all have the same blog id and date as their group
+     */
+    private static void writeSingleItems(DataOutputStream out, List<SingleItemModel> items) throws IOException {
+        if (writeSize(out, items)) {
+            for (SingleItemModel item : items) {
+                writeString(out, item.getItemID());
+                writeString(out, item.getTitle());
+                out.writeInt(item.getTotals());
+                writeString(out, item.getUrl());
+                writeString(out, item.getIcon());
+            }
+        }
+    }
+
+    private static List<SingleItemModel> readSingleItems(DataInputStream in, long blogId, long date)
+            throws IOException {
+        int size = in.readInt();
+        if (size == NULL_LIST) {
+            return null;
+        }
+        List<SingleItemModel> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String itemId = readString(in);
+            String title = readString(in);
+            int totals = in.readInt();
+            String url = readString(in);
+            String icon = readString(in);
+            items.add(new SingleItemModel(blogId, date, itemId, title, totals, url, icon));
+        }
+        return items;
+    }
+
+    /*
+     * writes the size of the passed list - returns false if the list is null
+     */
+    private static boolean writeSize(DataOutputStream out, List<?> list) throws IOException {
+        out.writeInt(list != null ? list.size() : NULL_LIST);
+        return list != null;
+    }
+
+    private static void writeString(DataOutputStream out, @Nullable String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static @Nullable String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static @NonNull String[] readStringColumn(DataInputStream in, int size) throws IOException {
+        String[] column = new String[size];
+        for (int i = 0; i < size; i++) {
+            column[i] = readString(in);
+        }
+        return column;
+    }
+
+    private static @NonNull int[] readIntColumn(DataInputStream in, int size) throws IOException {
+        int[] column = new int[size];
+        for (int i = 0; i < size; i++) {
+            column[i] = in.readInt();
+        }
+        return column;
+    }
+
+    private static @NonNull long[] readLongColumn(DataInputStream in, int size) throws IOException {
+        long[] column = new long[size];
+        for (int i = 0; i < size; i++) {
+            column[i] = in.readLong();
+        }
+        return column;
+    }
+}
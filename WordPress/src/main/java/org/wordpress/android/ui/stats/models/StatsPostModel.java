@@ -19,6 +19,11 @@ public class StatsPostModel extends SingleItemModel implements Serializable {
         this.mPostType = StatsConstants.ITEM_TYPE_POST;
     }
 
+    StatsPostModel(long blogId, long date, String itemID, String title, int totals, String url, String postType) {
+        super(blogId, date, itemID, title, totals, url, null);
+        this.mPostType = postType;
+    }
+
     public StatsPostModel(long blogId, String itemID, String title, String url, String postType) {
         super(blogId, StatsUtils.getCurrentDate(), itemID, title, 0, url, null);
         this.mPostType = postType;
@@ -60,6 +60,16 @@ public class TopPostsAndPagesModel extends BaseStatsModel {
         this.mTopPostsAndPages = list;
     }
 
+    /*
+     * used by StatsModelCodec to recreate a cached model
+     */
+    TopPostsAndPagesModel(long blogID, String period, String date, List<StatsPostModel> topPostsAndPages) {
+        mBlogID = blogID;
+        mPeriod = period;
+        mDate = date;
+        mTopPostsAndPages = topPostsAndPages;
+    }
+
     public long getBlogID() {
         return mBlogID;
     }
@@ -82,6 +82,17 @@ public class VisitsModel extends BaseStatsModel {
         }
     }
 
+    /*
+     * used by StatsModelCodec to recreate a cached model
+     */
+    VisitsModel(long blogID, String date, String unit, String fields, List<VisitModel> visits) {
+        mBlogID = blogID;
+        mDate = date;
+        mUnit = unit;
+        mFields = fields;
+        mVisits = visits;
+    }
+
     public List<VisitModel> getVisits() {
         return mVisits;
     }
@@ -130,7 +141,7 @@ public class VisitsModel extends BaseStatsModel {
         this.mFields = fields;
     }
 
-    private String getFields() {
+    String getFields() {
         return mFields;
     }
 }
@@ -0,0 +1,139 @@
+package org.wordpress.android.ui.stats.service;
+
+import android.support.annotation.NonNull;
+
+import org.wordpress.android.util.AppLog;
+import org.wordpress.android.util.AppLog.T;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the stages of a stats fetch on separate bounded thread pools, so independent sections are
+ * fetched, parsed and stored in parallel instead of one after another:
+ * - DISPATCH checks the cache and enqueues the network request for a section
+ * - PARSE parses a response (from the network or the cache) and posts its update event
+ * - PERSIST writes a response to the stats table, on a single thread since SQLite has one writer
+ * Work submitted for the same section runs in the order it was submitted within each stage.
+ */
+class StatsFetchPipeline {
+    enum Stage {
+        DISPATCH,
+        PARSE,
+        PERSIST
+    }
+
+    private static final int DISPATCH_THREADS = 2;
+    private static final int PARSE_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final int PERSIST_THREADS = 1;
+
+    private final ThreadPoolExecutor[] mExecutors = new ThreadPoolExecutor[Stage.values().length];
+
+    // work waiting to run for each section in each stage - a section with an entry has a drainer running
+    private final HashMap<String, ArrayDeque<Runnable>> mSectionQueues = new HashMap<>();
+
+    private final AtomicInteger mPendingCount = new AtomicInteger();
+    private final Runnable mOnWorkFinished;
+
+    /*
+     * onWorkFinished is called after each piece of work completes, once it's no longer pending
+     */
+    StatsFetchPipeline(@NonNull Runnable onWorkFinished) {
+        mOnWorkFinished = onWorkFinished;
+        mExecutors[Stage.DISPATCH.ordinal()] = createExecutor("StatsDispatch", DISPATCH_THREADS);
+        mExecutors[Stage.PARSE.ordinal()] = createExecutor("StatsParse", PARSE_THREADS);
+        mExecutors[Stage.PERSIST.ordinal()] = createExecutor("StatsPersist", PERSIST_THREADS);
+    }
+
+    private static ThreadPoolExecutor createExecutor(final String name, int numThreads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(numThreads, numThreads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    private final AtomicInteger mThreadNumber = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(@NonNull Runnable runnable) {
+                        return new Thread(runnable, name + "-" + mThreadNumber.incrementAndGet());
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /*
+     * queues the passed work in the passed stage - it runs after any earlier work for the same
+     * section in that stage has finished
+     */
+    void submit(@NonNull Stage stage, @NonNull String sectionKey, @NonNull Runnable work) {
+        mPendingCount.incrementAndGet();
+        final String queueKey = stage.name() + ":" + sectionKey;
+        synchronized (mSectionQueues) {
+            ArrayDeque<Runnable> queue = mSectionQueues.get(queueKey);
+            if (queue != null) {
+                queue.add(work);
+                return;
+            }
+            queue = new ArrayDeque<>();
+            queue.add(work);
+            mSectionQueues.put(queueKey, queue);
+        }
+
+        try {
+            mExecutors[stage.ordinal()].execute(new Runnable() {
+                @Override
+                public void run() {
+                    drain(queueKey);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the pipeline was shut down, so drop this section's queued work
+            AppLog.w(T.STATS, "Stats pipeline is shut down, dropping work for " + queueKey);
+            int numDropped;
+            synchronized (mSectionQueues) {
+                numDropped = mSectionQueues.remove(queueKey).size();
+            }
+            mPendingCount.addAndGet(-numDropped);
+        }
+    }
+
+    private void drain(@NonNull String queueKey) {
+        while (true) {
+            Runnable work;
+            synchronized (mSectionQueues) {
+                ArrayDeque<Runnable> queue = mSectionQueues.get(queueKey);
+                work = queue.poll();
+                if (work == null) {
+                    mSectionQueues.remove(queueKey);
+                    return;
+                }
+            }
+
+            try {
+                work.run();
+            } catch (RuntimeException e) {
+                AppLog.e(T.STATS, "Stats pipeline work failed for " + queueKey, e);
+            } finally {
+                mPendingCount.decrementAndGet();
+                mOnWorkFinished.run();
+            }
+        }
+    }
+
+    /*
+     * returns the number of pieces of work which have been submitted but haven't finished yet
+     */
+    int getPendingCount() {
+        return mPendingCount.get();
+    }
+
+    void shutdown() {
+        for (ThreadPoolExecutor executor : mExecutors) {
+            executor.shutdown();
+        }
+    }
+}
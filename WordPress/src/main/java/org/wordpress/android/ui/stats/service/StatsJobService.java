@@ -16,8 +16,8 @@ import static org.wordpress.android.ui.stats.service.StatsServiceStarter.ARG_STA
 
 /**
  * Background service to retrieve Stats.
- * Parsing of response(s) and submission of new network calls are done by using a ThreadPoolExecutor
- * with a single thread.
+ * Submission of network calls, parsing of response(s) and storing them are done in separate stages
+ * of a StatsFetchPipeline, so independent sections are handled in parallel.
  */
 public class StatsJobService extends JobService implements StatsServiceLogic.ServiceCompletionListener {
     @Override
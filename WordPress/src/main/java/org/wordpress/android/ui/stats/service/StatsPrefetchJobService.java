@@ -0,0 +1,148 @@
+package org.wordpress.android.ui.stats.service;
+
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.os.Bundle;
+
+import org.wordpress.android.WordPress;
+import org.wordpress.android.fluxc.model.SiteModel;
+import org.wordpress.android.fluxc.store.AccountStore;
+import org.wordpress.android.fluxc.store.SiteStore;
+import org.wordpress.android.ui.stats.StatsTimeframe;
+import org.wordpress.android.ui.stats.StatsUtils;
+import org.wordpress.android.ui.stats.StatsWidgetProvider;
+import org.wordpress.android.ui.stats.datasets.StatsTable;
+import org.wordpress.android.ui.stats.service.StatsServiceLogic.StatsEndpointsEnum;
+import org.wordpress.android.util.AppLog;
+import org.wordpress.android.util.AppLog.T;
+
+import javax.inject.Inject;
+
+/**
+ * Warms the stats cache for the primary site in the background, scheduled by StatsPrefetchScheduler.
+ * Today's visits are fetched first - they're what the widget and the Today card in Insights show, and
+ * StatsServiceLogic updates the widget with them - followed by the rest of the sections in Insights
+ */
+public class StatsPrefetchJobService extends JobService {
+    // the sections requested by each card in Insights other than Today, in the order they're shown
+    private static final StatsEndpointsEnum[] INSIGHTS_SECTIONS = {
+            StatsEndpointsEnum.INSIGHTS_POPULAR,
+            StatsEndpointsEnum.INSIGHTS_ALL_TIME,
+            StatsEndpointsEnum.INSIGHTS_LATEST_POST_SUMMARY,
+            StatsEndpointsEnum.COMMENTS,
+            StatsEndpointsEnum.COMMENT_FOLLOWERS,
+            StatsEndpointsEnum.TAGS_AND_CATEGORIES,
+            StatsEndpointsEnum.PUBLICIZE,
+            StatsEndpointsEnum.FOLLOWERS_WPCOM,
+            StatsEndpointsEnum.FOLLOWERS_EMAIL
+    };
+
+    @Inject AccountStore mAccountStore;
+    @Inject SiteStore mSiteStore;
+
+    private PrefetchTask mPrefetchTask;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        ((WordPress) getApplication()).component().inject(this);
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        StatsPrefetchScheduler.cancelOtherJob(this, params.getJobId());
+
+        SiteModel site = mAccountStore.hasAccessToken()
+                ? mSiteStore.getSiteBySiteId(mAccountStore.getAccount().getPrimarySiteId()) : null;
+        if (site == null) {
+            // nothing to prefetch, the next prefetch is scheduled when the app is opened again
+            AppLog.i(T.STATS, "stats prefetch > no primary site");
+            return false;
+        }
+
+        AppLog.i(T.STATS, "stats prefetch > started");
+        mPrefetchTask = new PrefetchTask(params, site);
+        mPrefetchTask.start();
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        AppLog.i(T.STATS, "stats prefetch > stopped");
+        if (mPrefetchTask != null) {
+            mPrefetchTask.cancel();
+            mPrefetchTask = null;
+        }
+        // reschedule the job using its backoff criteria
+        return true;
+    }
+
+    private class PrefetchTask implements StatsServiceLogic.ServiceCompletionListener {
+        private final JobParameters mParams;
+        private final long mSiteId;
+        private final String mDate;
+        private final StatsServiceLogic mLogic;
+        private boolean mIsFetchingInsights;
+        private volatile boolean mIsCanceled;
+
+        PrefetchTask(JobParameters params, SiteModel site) {
+            mParams = params;
+            mSiteId = site.getSiteId();
+            mDate = StatsUtils.getCurrentDateTZ(site);
+            mLogic = new StatsServiceLogic(this);
+            mLogic.onCreate((WordPress) getApplication());
+        }
+
+        void start() {
+            fetch(StatsTimeframe.DAY, new StatsEndpointsEnum[]{StatsEndpointsEnum.VISITS});
+        }
+
+        void cancel() {
+            mIsCanceled = true;
+            mLogic.onDestroy();
+        }
+
+        private void fetch(StatsTimeframe timeframe, StatsEndpointsEnum[] sections) {
+            int[] sectionsForTheService = new int[sections.length];
+            for (int i = 0; i < sections.length; i++) {
+                sectionsForTheService[i] = sections[i].ordinal();
+            }
+
+            // these match the requests made by the Stats screen, so it finds them in the cache
+            Bundle extras = new Bundle();
+            extras.putLong(StatsService.ARG_BLOG_ID, mSiteId);
+            extras.putInt(StatsService.ARG_PERIOD, timeframe.ordinal());
+            extras.putString(StatsService.ARG_DATE, mDate);
+            extras.putIntArray(StatsService.ARG_SECTION, sectionsForTheService);
+            mLogic.performTask(extras, mParams);
+        }
+
+        /*
+         * called by StatsServiceLogic once all the work for the current fetch is done
+         */
+        @Override
+        public void onCompleted(Object companion) {
+            if (mIsCanceled) {
+                return;
+            }
+
+            if (!mIsFetchingInsights) {
+                mIsFetchingInsights = true;
+                fetch(StatsTimeframe.INSIGHTS, INSIGHTS_SECTIONS);
+                return;
+            }
+
+            mLogic.onDestroy();
+            // the prefetch failed if today's visits couldn't be stored, so it's retried after a backoff
+            StatsTable.CachedStats visits = StatsTable.getStats(getApplicationContext(), mSiteId, StatsTimeframe.DAY,
+                                                                mDate, StatsEndpointsEnum.VISITS, 0, -1);
+            boolean isSuccess = visits != null && !visits.isStale();
+            AppLog.i(T.STATS, "stats prefetch > " + (isSuccess ? "completed" : "failed"));
+            if (isSuccess) {
+                StatsPrefetchScheduler.onPrefetchCompleted(getApplicationContext(),
+                                                           StatsWidgetProvider.isBlogDisplayedInWidget(mSiteId));
+            }
+            jobFinished(mParams, !isSuccess);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.wordpress.android.ui.stats.service;
+
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import org.wordpress.android.ui.prefs.AppPrefs;
+import org.wordpress.android.util.AppLog;
+import org.wordpress.android.util.AppLog.T;
+
+import java.util.List;
+
+import static org.wordpress.android.JobServiceId.JOB_STATS_PREFETCH_CHARGING_ID;
+import static org.wordpress.android.JobServiceId.JOB_STATS_PREFETCH_UNMETERED_ID;
+
+/**
+ * Schedules StatsPrefetchJobService, which warms the stats cache for the primary site in the
+ * background so the Stats screen and the widget start from cached stats. The prefetch runs when
+ * the device is charging or on an unmetered network - JobScheduler constraints all have to be met,
+ * so each of those is a separate job and the first one to run cancels the other. The delay between
+ * prefetches doubles while their stats aren't being looked at, and goes back to the minimum once
+ * they are. The jobs are persisted, so a pending prefetch is still run after the device restarts
+ */
+public class StatsPrefetchScheduler {
+    private static final long MIN_INTERVAL_MS = 4 * 60 * 60 * 1000L;
+    private static final long MAX_INTERVAL_MS = 24 * 60 * 60 * 1000L;
+
+    // initial delay before retrying a prefetch which failed - JobScheduler doubles it after each failure
+    private static final long BACKOFF_INITIAL_MS = 5 * 60 * 1000L;
+
+    private StatsPrefetchScheduler() {
+        throw new AssertionError();
+    }
+
+    /*
+     * schedules the next prefetch unless one is already pending
+     */
+    public static void scheduleIfNeeded(@NonNull Context context) {
+        if (isScheduled(context)) {
+            return;
+        }
+        schedule(context, getInterval());
+    }
+
+    public static void cancel(@NonNull Context context) {
+        JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        jobScheduler.cancel(JOB_STATS_PREFETCH_CHARGING_ID);
+        jobScheduler.cancel(JOB_STATS_PREFETCH_UNMETERED_ID);
+    }
+
+    /*
+     * cancels the prefetch job which wasn't started, since the passed one is now warming the cache
+     */
+    static void cancelOtherJob(@NonNull Context context, int startedJobId) {
+        JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        jobScheduler.cancel(startedJobId == JOB_STATS_PREFETCH_CHARGING_ID
+                                    ? JOB_STATS_PREFETCH_UNMETERED_ID : JOB_STATS_PREFETCH_CHARGING_ID);
+    }
+
+    /*
+     * called after a successful prefetch - adapts the delay before the next one to whether the
+     * stats have been viewed since the previous prefetch, and schedules it
+     */
+    static void onPrefetchCompleted(@NonNull Context context, boolean isShownInWidget) {
+        long interval;
+        if (isShownInWidget || AppPrefs.getStatsLastViewedTime() > AppPrefs.getStatsLastPrefetchTime()) {
+            interval = MIN_INTERVAL_MS;
+        } else {
+            interval = Math.min(getInterval() * 2, MAX_INTERVAL_MS);
+        }
+        AppPrefs.setStatsPrefetchInterval(interval);
+        AppPrefs.setStatsLastPrefetchTime(System.currentTimeMillis());
+        schedule(context, interval);
+    }
+
+    private static long getInterval() {
+        long interval = AppPrefs.getStatsPrefetchInterval();
+        return interval > 0 ? interval : MIN_INTERVAL_MS;
+    }
+
+    private static void schedule(@NonNull Context context, long delayMs) {
+        ComponentName componentName = new ComponentName(context, StatsPrefetchJobService.class);
+        JobInfo chargingJob = new JobInfo.Builder(JOB_STATS_PREFETCH_CHARGING_ID, componentName)
+                .setRequiresCharging(true)
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                .setMinimumLatency(delayMs)
+                .setBackoffCriteria(BACKOFF_INITIAL_MS, JobInfo.BACKOFF_POLICY_EXPONENTIAL)
+                .setPersisted(true)
+                .build();
+        JobInfo unmeteredJob = new JobInfo.Builder(JOB_STATS_PREFETCH_UNMETERED_ID, componentName)
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+                .setMinimumLatency(delayMs)
+                .setBackoffCriteria(BACKOFF_INITIAL_MS, JobInfo.BACKOFF_POLICY_EXPONENTIAL)
+                .setPersisted(true)
+                .build();
+
+        JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (jobScheduler.schedule(chargingJob) == JobScheduler.RESULT_SUCCESS
+            && jobScheduler.schedule(unmeteredJob) == JobScheduler.RESULT_SUCCESS) {
+            AppLog.i(T.STATS, "stats prefetch > scheduled in " + (delayMs / 60000) + " minutes");
+        } else {
+            AppLog.e(T.STATS, "stats prefetch > job could not be scheduled");
+        }
+    }
+
+    private static boolean isScheduled(@NonNull Context context) {
+        JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        List<JobInfo> jobs = jobScheduler.getAllPendingJobs();
+        if (jobs == null) {
+            return false;
+        }
+        for (JobInfo jobInfo : jobs) {
+            int jobId = jobInfo.getId();
+            if (jobId == JOB_STATS_PREFETCH_CHARGING_ID || jobId == JOB_STATS_PREFETCH_UNMETERED_ID) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,141 @@
+package org.wordpress.android.ui.stats.service;
+
+import android.support.annotation.NonNull;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.Request;
+import com.android.volley.VolleyError;
+import com.wordpress.rest.RestRequest;
+
+import org.json.JSONObject;
+import org.wordpress.android.util.AppLog;
+import org.wordpress.android.util.AppLog.T;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Gathers the stats requests for the sections passed to a single StatsServiceLogic.performTask()
+ * call and sends them as one WP.com batch request, rather than a separate request per section.
+ * Each section reports when it has been dispatched (whether it needed a request or was served from
+ * the cache) and the batch is sent once all of them have. The batch response is split back into
+ * the responses for each section, which are passed to that section's listener.
+ */
+class StatsRequestBatch {
+    // the batch endpoint doesn't accept an unbounded number of urls, so larger batches are split
+    static final int MAX_URLS_PER_BATCH = 20;
+
+    static final String BATCH_PATH = "batch/";
+
+    interface Sender {
+        Request<JSONObject> get(String path, Map<String, String> params,
+                                RestRequest.Listener listener, RestRequest.ErrorListener errorListener);
+    }
+
+    interface SectionListener extends RestRequest.Listener, RestRequest.ErrorListener {
+        void setRequest(Request<JSONObject> request);
+    }
+
+    private final Sender mSender;
+    private final List<String> mPaths = new ArrayList<>();
+    private final List<SectionListener> mListeners = new ArrayList<>();
+    private int mNumSectionsLeft;
+
+    StatsRequestBatch(int numSections, @NonNull Sender sender) {
+        mNumSectionsLeft = numSections;
+        mSender = sender;
+    }
+
+    /*
+     * adds a request for the passed path to the batch - it's sent once all sections are dispatched
+     */
+    synchronized void addRequest(@NonNull String path, @NonNull SectionListener listener) {
+        mPaths.add(path);
+        mListeners.add(listener);
+    }
+
+    /*
+     * must be called once for each section after any request it needs has been added
+     */
+    void onSectionDispatched() {
+        List<String> paths;
+        List<SectionListener> listeners;
+        synchronized (this) {
+            mNumSectionsLeft--;
+            if (mNumSectionsLeft != 0 || mPaths.isEmpty()) {
+                return;
+            }
+            paths = new ArrayList<>(mPaths);
+            listeners = new ArrayList<>(mListeners);
+            mPaths.clear();
+            mListeners.clear();
+        }
+
+        for (int start = 0; start < paths.size(); start += MAX_URLS_PER_BATCH) {
+            int end = Math.min(start + MAX_URLS_PER_BATCH, paths.size());
+            send(paths.subList(start, end), listeners.subList(start, end));
+        }
+    }
+
+    private void send(@NonNull List<String> paths, @NonNull List<SectionListener> listeners) {
+        if (paths.size() == 1) {
+            SectionListener listener = listeners.get(0);
+            listener.setRequest(mSender.get(paths.get(0), null, listener, listener));
+            return;
+        }
+
+        AppLog.d(T.STATS, String.format(Locale.US, "Sending %d Stats requests in a single batch", paths.size()));
+        Map<String, String> params = new HashMap<>();
+        for (int i = 0; i < paths.size(); i++) {
+            params.put(String.format(Locale.US, "urls[%d]", i), paths.get(i));
+        }
+
+        BatchListener batchListener = new BatchListener(paths, listeners);
+        Request<JSONObject> request = mSender.get(BATCH_PATH, params, batchListener, batchListener);
+        for (SectionListener listener : listeners) {
+            listener.setRequest(request);
+        }
+    }
+
+    /*
+     * splits the batch response into the response for each path - the batch endpoint returns an
+     * object keyed by the requested urls, and a url which failed has an error object as its value
+     */
+    private static class BatchListener implements RestRequest.Listener, RestRequest.ErrorListener {
+        private final List<String> mPaths;
+        private final List<SectionListener> mListeners;
+
+        BatchListener(@NonNull List<String> paths, @NonNull List<SectionListener> listeners) {
+            mPaths = Collections.unmodifiableList(new ArrayList<>(paths));
+            mListeners = Collections.unmodifiableList(new ArrayList<>(listeners));
+        }
+
+        @Override
+        public void onResponse(JSONObject response) {
+            for (int i = 0; i < mPaths.size(); i++) {
+                String path = mPaths.get(i);
+                SectionListener listener = mListeners.get(i);
+                JSONObject sectionResponse = response != null ? response.optJSONObject(path) : null;
+                if (sectionResponse == null) {
+                    listener.onErrorResponse(new VolleyError("Missing batch response for " + path));
+                } else if (sectionResponse.has("error")) {
+                    NetworkResponse networkResponse = new NetworkResponse(sectionResponse.toString().getBytes());
+                    listener.onErrorResponse(new VolleyError(networkResponse));
+                } else {
+                    listener.onResponse(sectionResponse);
+                }
+            }
+        }
+
+        @Override
+        public void onErrorResponse(VolleyError volleyError) {
+            for (SectionListener listener : mListeners) {
+                listener.onErrorResponse(volleyError);
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.wordpress.android.ui.stats.service;
+
+import android.support.annotation.NonNull;
+
+import org.wordpress.android.ui.stats.StatsTimeframe;
+import org.wordpress.android.ui.stats.service.StatsServiceLogic.StatsEndpointsEnum;
+
+/**
+ * Identifies the stats for one section of a site - two requests with equal keys return the same
+ * stats, so only one of them needs to be sent
+ */
+final class StatsRequestKey {
+    private final long mSiteId;
+    private final StatsEndpointsEnum mSection;
+    private final StatsTimeframe mTimeframe;
+    private final String mDate;
+    private final int mMaxResults;
+    private final int mPage;
+
+    StatsRequestKey(long siteId, @NonNull StatsEndpointsEnum section, @NonNull StatsTimeframe timeframe,
+                    @NonNull String date, int maxResults, int page) {
+        mSiteId = siteId;
+        mSection = section;
+        mTimeframe = timeframe;
+        mDate = date;
+        mMaxResults = maxResults;
+        mPage = page;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof StatsRequestKey)) {
+            return false;
+        }
+        StatsRequestKey key = (StatsRequestKey) other;
+        return mSiteId == key.mSiteId
+               && mSection == key.mSection
+               && mTimeframe == key.mTimeframe
+               && mDate.equals(key.mDate)
+               && mMaxResults == key.mMaxResults
+               && mPage == key.mPage;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (mSiteId ^ (mSiteId >>> 32));
+        result = 31 * result + mSection.hashCode();
+        result = 31 * result + mTimeframe.hashCode();
+        result = 31 * result + mDate.hashCode();
+        result = 31 * result + mMaxResults;
+        result = 31 * result + mPage;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return mSection.name() + ":" + mSiteId + ":" + mTimeframe.name() + ":" + mDate + ":" + mMaxResults
+               + ":" + mPage;
+    }
+}
@@ -14,8 +14,8 @@ import de.greenrobot.event.EventBus;
 
 /**
  * Background service to retrieve Stats.
- * Parsing of response(s) and submission of new network calls are done by using a ThreadPoolExecutor
- * with a single thread.
+ * Submission of network calls, parsing of response(s) and storing them are done in separate stages
+ * of a StatsFetchPipeline, so independent sections are handled in parallel.
  */
 
 public class StatsService extends Service implements StatsServiceLogic.ServiceCompletionListener {
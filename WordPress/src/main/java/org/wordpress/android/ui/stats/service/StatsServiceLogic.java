@@ -1,5 +1,7 @@
 package org.wordpress.android.ui.stats.service;
 
+import android.app.ActivityManager;
+import android.content.Context;
 import android.os.Bundle;
 
 import com.android.volley.Request;
@@ -11,11 +13,11 @@ import org.json.JSONObject;
 import org.wordpress.android.WordPress;
 import org.wordpress.android.fluxc.model.SiteModel;
 import org.wordpress.android.fluxc.store.SiteStore;
-import org.wordpress.android.networking.RestClientUtils;
 import org.wordpress.android.ui.stats.StatsEvents;
 import org.wordpress.android.ui.stats.StatsTimeframe;
 import org.wordpress.android.ui.stats.StatsUtils;
 import org.wordpress.android.ui.stats.StatsWidgetProvider;
+import org.wordpress.android.ui.stats.datasets.StatsCache;
 import org.wordpress.android.ui.stats.datasets.StatsTable;
 import org.wordpress.android.ui.stats.exceptions.StatsError;
 import org.wordpress.android.ui.stats.models.AuthorsModel;
@@ -32,6 +34,7 @@ import org.wordpress.android.ui.stats.models.InsightsPopularModel;
 import org.wordpress.android.ui.stats.models.PublicizeModel;
 import org.wordpress.android.ui.stats.models.ReferrersModel;
 import org.wordpress.android.ui.stats.models.SearchTermsModel;
+import org.wordpress.android.ui.stats.models.StatsModelCodec;
 import org.wordpress.android.ui.stats.models.TagsContainerModel;
 import org.wordpress.android.ui.stats.models.TopPostsAndPagesModel;
 import org.wordpress.android.ui.stats.models.VideoPlaysModel;
@@ -41,12 +44,10 @@ import org.wordpress.android.util.AppLog;
 import org.wordpress.android.util.AppLog.T;
 
 import java.io.Serializable;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.Map;
 
 import javax.inject.Inject;
 
@@ -55,16 +56,48 @@ import de.greenrobot.event.EventBus;
 
 /**
  * Background service to retrieve Stats.
- * Parsing of response(s) and submission of new network calls are done by using a ThreadPoolExecutor
- * with a single thread.
+ * Submission of network calls, parsing of response(s) and storing them are done in separate stages
+ * of a StatsFetchPipeline, so independent sections are handled in parallel.
  */
 
 public class StatsServiceLogic {
     private static final int DEFAULT_NUMBER_OF_RESULTS = 12;
 
     private WordPress mApplication;
-    private final LinkedList<Request<JSONObject>> mStatsNetworkRequests = new LinkedList<>();
-    private final ThreadPoolExecutor mSingleThreadNetworkHandler = (ThreadPoolExecutor) Executors.newFixedThreadPool(1);
+    // the stats requests which haven't finished yet, with the number of sections whose responses they
+    // still have to deliver - a batch request is shared by all the sections it contains
+    private final HashMap<Request<JSONObject>, Integer> mStatsNetworkRequests = new HashMap<>();
+    private final StatsFetchPipeline mPipeline = new StatsFetchPipeline(new Runnable() {
+        @Override
+        public void run() {
+            checkAllRequestsFinished();
+        }
+    });
+
+    // the listeners of the stats requests which have been sent but whose responses haven't been
+    // handled yet - a section requested again while its request is in flight is attached to it
+    private final HashMap<StatsRequestKey, RestListener> mInFlightRequests = new HashMap<>();
+
+    private final StatsRequestBatch.Sender mRequestSender = new StatsRequestBatch.Sender() {
+        @Override
+        public Request<JSONObject> get(String path, Map<String, String> params, RestRequest.Listener listener,
+                                       RestRequest.ErrorListener errorListener) {
+            AppLog.d(T.STATS, "Sending the following Stats request " + path);
+            Request<JSONObject> request =
+                    WordPress.getRestClientUtilsV1_1().get(path, params, null, listener, errorListener);
+            request.setTag("StatsCall");
+            synchronized (mStatsNetworkRequests) {
+                mStatsNetworkRequests.put(request, 0);
+            }
+            return request;
+        }
+    };
+
+    // when the current fetch started, or 0 if there's no fetch in progress
+    private long mFetchStartTime;
+    private int mNumSectionsFetched;
+    private int mNumRequestsSent;
+    private int mNumRequestsDeduplicated;
 
     private final ServiceCompletionListener mCompletionListener;
     private Object mListenerCompanion;
@@ -231,10 +264,15 @@ public class StatsServiceLogic {
         AppLog.i(T.STATS, "service created");
         mApplication = app;
         app.component().inject(this);
+        ActivityManager activityManager = (ActivityManager) app.getSystemService(Context.ACTIVITY_SERVICE);
+        if (activityManager != null) {
+            StatsCache.setMaxSizeForMemoryClass(activityManager.getMemoryClass());
+        }
     }
 
     public void onDestroy() {
         stopRefresh();
+        mPipeline.shutdown();
         AppLog.i(T.STATS, "service destroyed");
     }
 
@@ -285,27 +323,52 @@ public class StatsServiceLogic {
         final int maxResultsRequested = extras.getInt(StatsService.ARG_MAX_RESULTS, DEFAULT_NUMBER_OF_RESULTS);
         final int pageRequested = extras.getInt(StatsService.ARG_PAGE_REQUESTED, -1);
 
+        synchronized (mStatsNetworkRequests) {
+            if (mFetchStartTime == 0) {
+                mFetchStartTime = System.currentTimeMillis();
+                mNumSectionsFetched = 0;
+                mNumRequestsSent = 0;
+                mNumRequestsDeduplicated = 0;
+            }
+            mNumSectionsFetched += sectionFromIntent.length;
+        }
+
+        // the requests for all the sections which aren't cached are sent together once each section is dispatched
+        final StatsRequestBatch batch = new StatsRequestBatch(sectionFromIntent.length, mRequestSender);
         for (int i = 0; i < sectionFromIntent.length; i++) {
             final StatsServiceLogic.StatsEndpointsEnum currentSectionsToUpdate =
                     StatsServiceLogic.StatsEndpointsEnum.values()[sectionFromIntent[i]];
-            mSingleThreadNetworkHandler.submit(new Thread() {
+            String sectionKey = getSectionKey(siteId, period, requestedDate, currentSectionsToUpdate,
+                                              maxResultsRequested, pageRequested);
+            mPipeline.submit(StatsFetchPipeline.Stage.DISPATCH, sectionKey, new Runnable() {
                 @Override
                 public void run() {
-                    startTasks(siteId, period, requestedDate, currentSectionsToUpdate, maxResultsRequested,
-                               pageRequested);
+                    try {
+                        startTasks(batch, siteId, period, requestedDate, currentSectionsToUpdate,
+                                   maxResultsRequested, pageRequested);
+                    } finally {
+                        batch.onSectionDispatched();
+                    }
                 }
             });
         }
     }
 
+    private static String getSectionKey(final long siteId, final StatsTimeframe timeframe, final String date,
+                                        final StatsServiceLogic.StatsEndpointsEnum section,
+                                        final int maxResultsRequested, final int pageRequested) {
+        return new StatsRequestKey(siteId, section, timeframe, date, maxResultsRequested, pageRequested).toString();
+    }
+
     private void stopRefresh() {
         synchronized (mStatsNetworkRequests) {
-            for (Request<JSONObject> req : mStatsNetworkRequests) {
+            for (Request<JSONObject> req : mStatsNetworkRequests.keySet()) {
                 if (req != null && !req.hasHadResponseDelivered() && !req.isCanceled()) {
                     req.cancel();
                 }
             }
             mStatsNetworkRequests.clear();
+            mInFlightRequests.clear();
         }
     }
 
@@ -315,155 +378,187 @@ public class StatsServiceLogic {
         return true;
     }
 
-    // Check if we already have Stats
-    private String getCachedStats(final long siteId, final StatsTimeframe timeframe, final String date,
+    // Check if we already have Stats, in memory or in the db
+    private StatsTable.CachedStats getCachedStats(final long siteId, final StatsTimeframe timeframe, final String date,
                                   final StatsServiceLogic.StatsEndpointsEnum sectionToUpdate,
                                   final int maxResultsRequested,
                                   final int pageRequested) {
         if (!isCacheEnabled()) {
             return null;
         }
-        return StatsTable.getStats(mApplication, siteId, timeframe, date, sectionToUpdate, maxResultsRequested,
+        return StatsCache.getStats(mApplication, siteId, timeframe, date, sectionToUpdate, maxResultsRequested,
                 pageRequested);
     }
 
-    private void startTasks(final long blogId, final StatsTimeframe timeframe, final String date,
-                            final StatsServiceLogic.StatsEndpointsEnum sectionToUpdate, final int maxResultsRequested,
-                            final int pageRequested) {
-        String cachedStats =
+    private void startTasks(final StatsRequestBatch batch, final long blogId, final StatsTimeframe timeframe,
+                            final String date, final StatsServiceLogic.StatsEndpointsEnum sectionToUpdate,
+                            final int maxResultsRequested, final int pageRequested) {
+        final StatsTable.CachedStats cachedStats =
                 getCachedStats(blogId, timeframe, date, sectionToUpdate, maxResultsRequested, pageRequested);
         if (cachedStats != null) {
-            BaseStatsModel mResponseObjectModel;
-            try {
-                JSONObject response = new JSONObject(cachedStats);
-                mResponseObjectModel = StatsUtils.parseResponse(sectionToUpdate, blogId, response);
-
-                EventBus.getDefault().post(sectionToUpdate.getEndpointUpdateEvent(blogId, timeframe, date,
-                        maxResultsRequested, pageRequested, mResponseObjectModel));
+            final String sectionKey =
+                    getSectionKey(blogId, timeframe, date, sectionToUpdate, maxResultsRequested, pageRequested);
+            mPipeline.submit(StatsFetchPipeline.Stage.PARSE, sectionKey, new Runnable() {
+                @Override
+                public void run() {
+                    if (!parseCachedStats(blogId, timeframe, date, sectionToUpdate, maxResultsRequested,
+                                          pageRequested, cachedStats)) {
+                        // the cached stats couldn't be parsed, so request them again
+                        mPipeline.submit(StatsFetchPipeline.Stage.DISPATCH, sectionKey, new Runnable() {
+                            @Override
+                            public void run() {
+                                StatsRequestBatch retryBatch = new StatsRequestBatch(1, mRequestSender);
+                                try {
+                                    requestStats(retryBatch, blogId, timeframe, date, sectionToUpdate,
+                                                 maxResultsRequested, pageRequested, false);
+                                } finally {
+                                    retryBatch.onSectionDispatched();
+                                }
+                            }
+                        });
+                    }
+                }
+            });
 
-                updateWidgetsUI(blogId, sectionToUpdate, timeframe, date, pageRequested, mResponseObjectModel);
-                checkAllRequestsFinished(null);
-                return;
-            } catch (JSONException e) {
-                AppLog.e(T.STATS, e);
+            // stale stats are shown right away and then requested again, and the update event for the
+            // new stats replaces them once they arrive
+            if (cachedStats.isStale()) {
+                AppLog.d(T.STATS, "Revalidating stale Stats for " + sectionKey);
+                requestStats(batch, blogId, timeframe, date, sectionToUpdate, maxResultsRequested, pageRequested,
+                             true);
             }
+            return;
         }
 
-        final RestClientUtils restClientUtils = WordPress.getRestClientUtilsV1_1();
+        requestStats(batch, blogId, timeframe, date, sectionToUpdate, maxResultsRequested, pageRequested, false);
+    }
+
+    /*
+     * posts the update event for stats read from the cache, parsing them first if they were cached
+     * as JSON - returns false if they couldn't be parsed
+     */
+    private boolean parseCachedStats(final long blogId, final StatsTimeframe timeframe, final String date,
+                                     final StatsServiceLogic.StatsEndpointsEnum sectionToUpdate,
+                                     final int maxResultsRequested, final int pageRequested,
+                                     final StatsTable.CachedStats cachedStats) {
+        try {
+            BaseStatsModel responseObjectModel = cachedStats.getModel();
+            if (responseObjectModel == null) {
+                JSONObject response = new JSONObject(cachedStats.getJson());
+                responseObjectModel = StatsUtils.parseResponse(sectionToUpdate, blogId, response);
+                StatsCache.putModel(blogId, timeframe, date, sectionToUpdate, maxResultsRequested, pageRequested,
+                                    responseObjectModel, null, cachedStats.getJson(), cachedStats.getTimestamp());
+            }
+
+            EventBus.getDefault().post(sectionToUpdate.getEndpointUpdateEvent(blogId, timeframe, date,
+                    maxResultsRequested, pageRequested, responseObjectModel));
+
+            updateWidgetsUI(blogId, sectionToUpdate, timeframe, date, pageRequested, responseObjectModel);
+            return true;
+        } catch (JSONException e) {
+            AppLog.e(T.STATS, e);
+            return false;
+        }
+    }
 
+    /*
+     * adds the request for the passed section to the passed batch unless the same request is
+     * already in flight, in which case the update event for that request is used for this one too -
+     * isRevalidation is true when stale stats for it have already been shown
+     */
+    private void requestStats(final StatsRequestBatch batch, final long blogId, final StatsTimeframe timeframe,
+                              final String date, final StatsServiceLogic.StatsEndpointsEnum sectionToUpdate,
+                              final int maxResultsRequested, final int pageRequested, final boolean isRevalidation) {
         String period = timeframe.getLabelForRestCall();
 
-        RestListener vListener =
-                new RestListener(sectionToUpdate, blogId, timeframe, date, maxResultsRequested, pageRequested);
+        RestListener vListener = new RestListener(sectionToUpdate, blogId, timeframe, date, maxResultsRequested,
+                                                  pageRequested, isRevalidation);
 
         final String periodDateMaxPlaceholder = "?period=%s&date=%s&max=%s";
 
         String path = String.format(Locale.US, "/sites/%s/stats/" + sectionToUpdate.getRestEndpointPath(), blogId);
-        synchronized (mStatsNetworkRequests) {
-            switch (sectionToUpdate) {
-                case VISITS:
-                    path = String.format(Locale.US, path + "?unit=%s&quantity=15&date=%s", period, date);
-                    break;
-                case TOP_POSTS:
-                case REFERRERS:
-                case CLICKS:
-                case GEO_VIEWS:
-                case AUTHORS:
-                case VIDEO_PLAYS:
-                case SEARCH_TERMS:
-                    path = String.format(Locale.US, path + periodDateMaxPlaceholder, period, date, maxResultsRequested);
-                    break;
-                case TAGS_AND_CATEGORIES:
-                case PUBLICIZE:
+        switch (sectionToUpdate) {
+            case VISITS:
+                path = String.format(Locale.US, path + "?unit=%s&quantity=15&date=%s", period, date);
+                break;
+            case TOP_POSTS:
+            case REFERRERS:
+            case CLICKS:
+            case GEO_VIEWS:
+            case AUTHORS:
+            case VIDEO_PLAYS:
+            case SEARCH_TERMS:
+                path = String.format(Locale.US, path + periodDateMaxPlaceholder, period, date, maxResultsRequested);
+                break;
+            case TAGS_AND_CATEGORIES:
+            case PUBLICIZE:
+                path = String.format(Locale.US, path + "?max=%s", maxResultsRequested);
+                break;
+            case COMMENTS:
+                // No parameters
+                break;
+            case FOLLOWERS_WPCOM:
+                if (pageRequested < 1) {
+                    path = String.format(Locale.US, path + "&max=%s", maxResultsRequested);
+                } else {
+                    path = String.format(Locale.US, path + "&period=%s&date=%s&max=%s&page=%s",
+                                         period, date, maxResultsRequested, pageRequested);
+                }
+                break;
+            case FOLLOWERS_EMAIL:
+                if (pageRequested < 1) {
+                    path = String.format(Locale.US, path + "&max=%s", maxResultsRequested);
+                } else {
+                    path = String.format(Locale.US, path + "&period=%s&date=%s&max=%s&page=%s",
+                                         period, date, maxResultsRequested, pageRequested);
+                }
+                break;
+            case COMMENT_FOLLOWERS:
+                if (pageRequested < 1) {
                     path = String.format(Locale.US, path + "?max=%s", maxResultsRequested);
-                    break;
-                case COMMENTS:
-                    // No parameters
-                    break;
-                case FOLLOWERS_WPCOM:
-                    if (pageRequested < 1) {
-                        path = String.format(Locale.US, path + "&max=%s", maxResultsRequested);
-                    } else {
-                        path = String.format(Locale.US, path + "&period=%s&date=%s&max=%s&page=%s",
-                                             period, date, maxResultsRequested, pageRequested);
-                    }
-                    break;
-                case FOLLOWERS_EMAIL:
-                    if (pageRequested < 1) {
-                        path = String.format(Locale.US, path + "&max=%s", maxResultsRequested);
-                    } else {
-                        path = String.format(Locale.US, path + "&period=%s&date=%s&max=%s&page=%s",
-                                             period, date, maxResultsRequested, pageRequested);
-                    }
-                    break;
-                case COMMENT_FOLLOWERS:
-                    if (pageRequested < 1) {
-                        path = String.format(Locale.US, path + "?max=%s", maxResultsRequested);
-                    } else {
-                        path = String.format(Locale.US, path + "?period=%s&date=%s&max=%s&page=%s", period,
-                                             date, maxResultsRequested, pageRequested);
-                    }
-                    break;
-                case INSIGHTS_ALL_TIME:
-                case INSIGHTS_POPULAR:
-                    break;
-                case INSIGHTS_TODAY:
-                    path = String.format(Locale.US, path + "?period=day&date=%s", date);
-                    break;
-                case INSIGHTS_LATEST_POST_SUMMARY:
-                    // This is an edge cases since we're not loading stats but posts
-                    path = String.format(Locale.US, "/sites/%s/%s", blogId,
-                            sectionToUpdate.getRestEndpointPath()
-                                + "?order_by=date&number=1&type=post&fields=ID,title,URL,discussion,like_count,date");
-                    break;
-                case INSIGHTS_LATEST_POST_VIEWS:
-                    // This is a kind of edge case, since we used the pageRequested parameter to request a single postID
-                    path = String.format(Locale.US, path + "/%s?fields=views", pageRequested);
-                    break;
-                default:
-                    AppLog.i(T.STATS, "Called an update of Stats of unknown section!?? " + sectionToUpdate.name());
-                    return;
-            }
-
-            // We need to check if we already have the same request in the queue
-            if (checkIfRequestShouldBeEnqueued(restClientUtils, path)) {
-                AppLog.d(T.STATS, "Enqueuing the following Stats request " + path);
-                Request<JSONObject> currentRequest = restClientUtils.get(path, vListener, vListener);
-                vListener.mCurrentRequest = currentRequest;
-                currentRequest.setTag("StatsCall");
-                mStatsNetworkRequests.add(currentRequest);
-            } else {
-                AppLog.d(T.STATS, "Stats request is already in the queue:" + path);
-            }
+                } else {
+                    path = String.format(Locale.US, path + "?period=%s&date=%s&max=%s&page=%s", period,
+                                         date, maxResultsRequested, pageRequested);
+                }
+                break;
+            case INSIGHTS_ALL_TIME:
+            case INSIGHTS_POPULAR:
+                break;
+            case INSIGHTS_TODAY:
+                path = String.format(Locale.US, path + "?period=day&date=%s", date);
+                break;
+            case INSIGHTS_LATEST_POST_SUMMARY:
+                // This is an edge cases since we're not loading stats but posts
+                path = String.format(Locale.US, "/sites/%s/%s", blogId,
+                        sectionToUpdate.getRestEndpointPath()
+                            + "?order_by=date&number=1&type=post&fields=ID,title,URL,discussion,like_count,date");
+                break;
+            case INSIGHTS_LATEST_POST_VIEWS:
+                // This is a kind of edge case, since we used the pageRequested parameter to request a single postID
+                path = String.format(Locale.US, path + "/%s?fields=views", pageRequested);
+                break;
+            default:
+                AppLog.i(T.STATS, "Called an update of Stats of unknown section!?? " + sectionToUpdate.name());
+                return;
         }
-    }
 
-    /**
-     * This method checks if we already have the same request in the Queue. No need to re-enqueue a new request
-     * if one with the same parameters is there.
-     * <p>
-     * This method is a kind of tricky, since it does the comparison by checking the origin URL of requests.
-     * To do that we had to get the fullURL of the new request by calling a method of the REST client `getAbsoluteURL`.
-     * That's good for now, but could lead to errors if the RestClient changes the way the URL is constructed
-     * internally, by calling `getAbsoluteURL`.
-     * <p>
-     * - Another approach would involve the get of the requests ErrorListener and the check Listener's parameters.
-     * - Cleanest approach is for sure to create a new class that extends Request<JSONObject> and stores parameters
-     * for later comparison, unfortunately we have to change the REST Client and RestClientUtils
-     * a lot if we want follow this way...
-     */
-    private boolean checkIfRequestShouldBeEnqueued(final RestClientUtils restClientUtils, String path) {
-        String absoluteRequestPath = restClientUtils.getRestClient().getAbsoluteURL(path);
-        Iterator<Request<JSONObject>> it = mStatsNetworkRequests.iterator();
-        while (it.hasNext()) {
-            Request<JSONObject> req = it.next();
-            if (!req.hasHadResponseDelivered() && !req.isCanceled()
-                && absoluteRequestPath.equals(req.getUrl())) {
-                return false;
+        synchronized (mStatsNetworkRequests) {
+            RestListener inFlightListener = mInFlightRequests.get(vListener.mKey);
+            if (inFlightListener != null) {
+                AppLog.d(T.STATS, "Stats request is already in flight: " + path);
+                mNumRequestsDeduplicated++;
+                if (!isRevalidation) {
+                    // this caller has nothing to show yet, so an error has to be reported to it
+                    inFlightListener.mIsRevalidation = false;
+                }
+                return;
             }
+            mInFlightRequests.put(vListener.mKey, vListener);
+            mNumRequestsSent++;
         }
 
-        return true;
+        AppLog.d(T.STATS, "Enqueuing the following Stats request " + path);
+        batch.addRequest(path, vListener);
     }
 
     // Call an updates on the installed widgets if the blog is the primary, the endpoint is Visits
@@ -516,40 +611,53 @@ public class StatsServiceLogic {
         }
     }
 
-    private class RestListener implements RestRequest.Listener, RestRequest.ErrorListener {
+    private class RestListener implements StatsRequestBatch.SectionListener {
         final long mRequestBlogId;
         private final StatsTimeframe mTimeframe;
         final StatsServiceLogic.StatsEndpointsEnum mEndpointName;
         private final String mDate;
         private Request<JSONObject> mCurrentRequest;
         private final int mMaxResultsRequested, mPageRequested;
+        private final StatsRequestKey mKey;
+        private volatile boolean mIsRevalidation;
 
         RestListener(StatsServiceLogic.StatsEndpointsEnum endpointName, long blogId, StatsTimeframe timeframe,
                      String date,
-                     final int maxResultsRequested, final int pageRequested) {
+                     final int maxResultsRequested, final int pageRequested, final boolean isRevalidation) {
+            mIsRevalidation = isRevalidation;
             mRequestBlogId = blogId;
             mTimeframe = timeframe;
             mEndpointName = endpointName;
             mDate = date;
             mMaxResultsRequested = maxResultsRequested;
             mPageRequested = pageRequested;
+            mKey = new StatsRequestKey(blogId, endpointName, timeframe, date, maxResultsRequested, pageRequested);
+        }
+
+        @Override
+        public void setRequest(Request<JSONObject> request) {
+            synchronized (mStatsNetworkRequests) {
+                mCurrentRequest = request;
+                Integer numSections = mStatsNetworkRequests.get(request);
+                mStatsNetworkRequests.put(request, numSections != null ? numSections + 1 : 1);
+            }
+        }
+
+        private String getSectionKey() {
+            return mKey.toString();
         }
 
         @Override
         public void onResponse(final JSONObject response) {
-            mSingleThreadNetworkHandler.submit(new Thread() {
+            mPipeline.submit(StatsFetchPipeline.Stage.PARSE, getSectionKey(), new Runnable() {
                 @Override
                 public void run() {
-                    // do other stuff here
                     BaseStatsModel mResponseObjectModel = null;
                     if (response != null) {
                         try {
                             mResponseObjectModel = StatsUtils.parseResponse(mEndpointName, mRequestBlogId, response);
                             if (isCacheEnabled()) {
-                                StatsTable.insertStats(mApplication, mRequestBlogId, mTimeframe, mDate,
-                                                       mEndpointName,
-                                                       mMaxResultsRequested, mPageRequested,
-                                                       response.toString(), System.currentTimeMillis());
+                                persistResponse(response, mResponseObjectModel);
                             }
                         } catch (JSONException e) {
                             AppLog.e(T.STATS, e);
@@ -561,18 +669,45 @@ public class StatsServiceLogic {
 
                     updateWidgetsUI(mRequestBlogId, mEndpointName, mTimeframe, mDate, mPageRequested,
                                     mResponseObjectModel);
-                    checkAllRequestsFinished(mCurrentRequest);
+                    removeRequest(RestListener.this);
+                }
+            });
+        }
+
+        /*
+         * adds the model to the in-memory cache and stores the response on the persist stage so parsing
+         * the next response doesn't wait on the db - the model is encoded here since it may be changed
+         * once its update event has been posted
+         */
+        private void persistResponse(final JSONObject response, final BaseStatsModel model) {
+            final long dateStored = System.currentTimeMillis();
+            final byte[] modelData = StatsModelCodec.encode(model);
+            final String json = response.toString();
+            StatsCache.putModel(mRequestBlogId, mTimeframe, mDate, mEndpointName, mMaxResultsRequested,
+                                mPageRequested, model, modelData, json, dateStored);
+            mPipeline.submit(StatsFetchPipeline.Stage.PERSIST, getSectionKey(), new Runnable() {
+                @Override
+                public void run() {
+                    StatsTable.insertStats(mApplication, mRequestBlogId, mTimeframe, mDate, mEndpointName,
+                                           mMaxResultsRequested, mPageRequested, json, modelData, dateStored);
                 }
             });
         }
 
         @Override
         public void onErrorResponse(final VolleyError volleyError) {
-            mSingleThreadNetworkHandler.submit(new Thread() {
+            mPipeline.submit(StatsFetchPipeline.Stage.PARSE, getSectionKey(), new Runnable() {
                 @Override
                 public void run() {
                     AppLog.e(T.STATS, "Error while loading Stats!");
                     StatsUtils.logVolleyErrorDetails(volleyError);
+                    removeRequest(RestListener.this);
+                    if (mIsRevalidation) {
+                        // keep showing the stale stats rather than replacing them with an error
+                        AppLog.w(T.STATS, "Revalidating stale Stats failed for " + getSectionKey()
+                                          + ", the stale Stats are still shown");
+                        return;
+                    }
                     BaseStatsModel mResponseObjectModel = null;
                     EventBus.getDefault()
                             .post(new StatsEvents.SectionUpdateError(mEndpointName, mRequestBlogId, mTimeframe, mDate,
@@ -580,7 +715,6 @@ public class StatsServiceLogic {
                                                                      volleyError));
                     updateWidgetsUI(mRequestBlogId, mEndpointName, mTimeframe, mDate, mPageRequested,
                                     mResponseObjectModel);
-                    checkAllRequestsFinished(mCurrentRequest);
                 }
             });
         }
@@ -596,19 +730,48 @@ public class StatsServiceLogic {
         // stopSelf(mServiceStartId);
         synchronized (mStatsNetworkRequests) {
             mStatsNetworkRequests.clear();
+            mInFlightRequests.clear();
+            if (mFetchStartTime != 0) {
+                AppLog.d(T.STATS, String.format(Locale.US,
+                        "Stats fetch of %d sections finished in %d ms, %d requests sent and %d duplicates avoided",
+                        mNumSectionsFetched, System.currentTimeMillis() - mFetchStartTime, mNumRequestsSent,
+                        mNumRequestsDeduplicated));
+                mFetchStartTime = 0;
+            }
         }
         mCompletionListener.onCompleted(mListenerCompanion);
     }
 
-    private void checkAllRequestsFinished(Request<JSONObject> req) {
+    /*
+     * called once the response to the passed listener's section has been handled - its request is only
+     * removed once every section it contains has been handled
+     */
+    private void removeRequest(RestListener listener) {
         synchronized (mStatsNetworkRequests) {
-            if (req != null) {
-                mStatsNetworkRequests.remove(req);
+            Integer numSections = listener.mCurrentRequest != null
+                    ? mStatsNetworkRequests.get(listener.mCurrentRequest) : null;
+            if (numSections != null) {
+                if (numSections > 1) {
+                    mStatsNetworkRequests.put(listener.mCurrentRequest, numSections - 1);
+                } else {
+                    mStatsNetworkRequests.remove(listener.mCurrentRequest);
+                }
             }
+            // the entry may belong to a newer request if this one was dropped by stopRefresh()
+            if (mInFlightRequests.get(listener.mKey) == listener) {
+                mInFlightRequests.remove(listener.mKey);
+            }
+        }
+    }
 
-            boolean isStillWorking =
-                    mStatsNetworkRequests.size() > 0 || mSingleThreadNetworkHandler.getQueue().size() > 0;
-            if (!isStillWorking) {
+    /*
+     * called after each piece of work in the pipeline finishes - stops the service once there are
+     * no network requests in flight and no pipeline work left
+     */
+    private void checkAllRequestsFinished() {
+        synchronized (mStatsNetworkRequests) {
+            boolean isStillWorking = mStatsNetworkRequests.size() > 0 || mPipeline.getPendingCount() > 0;
+            if (!isStillWorking && mFetchStartTime != 0) {
                 stopService();
             }
         }
@@ -0,0 +1,137 @@
+package org.wordpress.android.ui.uploads;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.wordpress.android.fluxc.model.MediaModel;
+import org.wordpress.android.util.AppLog;
+import org.wordpress.android.util.AppLog.T;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Uploads a media file in chunks to a ChunkedUploadEndpoint, recording each chunk the server
+ * acknowledges in a MediaUploadJournal. When the upload of the same media is started again - after
+ * a failed chunk, an UploadService restart or the process being killed - it continues from the last
+ * chunk both the journal and the server have, rather than sending the whole file again. This makes
+ * the most difference for large videos on flaky connections. Uploads are synchronous, so they should
+ * be started from a background thread
+ */
+public class ChunkedMediaUploader {
+    static final int DEFAULT_CHUNK_SIZE = 512 * 1024;
+
+    public interface ProgressListener {
+        void onUploadProgress(@NonNull MediaModel media, float progress);
+    }
+
+    private final ChunkedUploadEndpoint mEndpoint;
+    private final MediaUploadJournal mJournal;
+    private final int mChunkSize;
+    private volatile boolean mIsCanceled;
+
+    public ChunkedMediaUploader(@NonNull ChunkedUploadEndpoint endpoint) {
+        this(endpoint, MediaUploadJournal.getInstance(), DEFAULT_CHUNK_SIZE);
+    }
+
+    ChunkedMediaUploader(@NonNull ChunkedUploadEndpoint endpoint, @NonNull MediaUploadJournal journal,
+                         int chunkSize) {
+        mEndpoint = endpoint;
+        mJournal = journal;
+        mChunkSize = chunkSize;
+    }
+
+    /*
+     * stops the upload after the chunk being sent - the journal keeps what was acknowledged so far,
+     * so the upload can be resumed later
+     */
+    public void cancel() {
+        mIsCanceled = true;
+    }
+
+    /*
+     * uploads the media's file, resuming a previous upload of it if there is one, and returns the URL
+     * of the uploaded media - an IOException means the upload can be retried from where it stopped
+     */
+    public @NonNull String upload(@NonNull MediaModel media, @Nullable ProgressListener listener)
+            throws IOException {
+        File file = new File(media.getFilePath());
+        if (!file.isFile()) {
+            mJournal.removeSession(media.getId());
+            throw new IOException("Media file not found: " + media.getFilePath());
+        }
+        long fileLength = file.length();
+
+        MediaUploadJournal.Session session = getResumableSession(media, file);
+        long offset = 0;
+        if (session != null) {
+            long uploadedLength = mEndpoint.getUploadedLength(session.mSessionId);
+            if (uploadedLength < 0) {
+                AppLog.i(T.MEDIA, "ChunkedMediaUploader > Session expired, restarting upload of " + media.getId());
+                mJournal.removeSession(media.getId());
+                session = null;
+            } else {
+                offset = Math.min(mJournal.getAcknowledgedLength(media.getId()), uploadedLength);
+                AppLog.i(T.MEDIA, "ChunkedMediaUploader > Resuming upload of " + media.getId() + " at "
+                                  + offset + " of " + fileLength + " bytes");
+            }
+        }
+        if (session == null) {
+            String sessionId = mEndpoint.startSession(media, fileLength);
+            session = new MediaUploadJournal.Session(media.getId(), sessionId, file.getPath(), fileLength,
+                                                     file.lastModified());
+            mJournal.startSession(session);
+        }
+
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            byte[] buffer = new byte[mChunkSize];
+            while (offset < fileLength) {
+                if (mIsCanceled) {
+                    throw new InterruptedIOException("Upload canceled");
+                }
+
+                int length = (int) Math.min(mChunkSize, fileLength - offset);
+                input.seek(offset);
+                input.readFully(buffer, 0, length);
+                long acknowledgedLength = mEndpoint.uploadChunk(session.mSessionId, offset, buffer, length);
+                if (acknowledgedLength <= offset || acknowledgedLength > fileLength) {
+                    throw new IOException("Chunk at " + offset + " wasn't acknowledged");
+                }
+
+                mJournal.addAcknowledgedRange(media.getId(), offset, acknowledgedLength);
+                offset = acknowledgedLength;
+                if (listener != null) {
+                    listener.onUploadProgress(media, (float) offset / fileLength);
+                }
+            }
+        } finally {
+            input.close();
+        }
+
+        String url = mEndpoint.finishSession(session.mSessionId);
+        mJournal.removeSession(media.getId());
+        return url;
+    }
+
+    /*
+     * returns the journaled session for the passed media if the file it was uploading hasn't changed
+     * since, otherwise the journal entry is dropped and null is returned
+     */
+    private @Nullable MediaUploadJournal.Session getResumableSession(@NonNull MediaModel media, @NonNull File file) {
+        MediaUploadJournal.Session session = mJournal.getSession(media.getId());
+        if (session == null) {
+            return null;
+        }
+        if (!session.mFilePath.equals(file.getPath())
+            || session.mFileLength != file.length()
+            || session.mFileModified != file.lastModified()) {
+            AppLog.i(T.MEDIA, "ChunkedMediaUploader > File changed, restarting upload of " + media.getId());
+            mJournal.removeSession(media.getId());
+            return null;
+        }
+        return session;
+    }
+}
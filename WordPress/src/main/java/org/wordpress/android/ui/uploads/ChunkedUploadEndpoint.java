@@ -0,0 +1,50 @@
+package org.wordpress.android.ui.uploads;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.wordpress.android.fluxc.model.MediaModel;
+import org.wordpress.android.fluxc.model.SiteModel;
+
+import java.io.IOException;
+
+/**
+ * A media endpoint which accepts a file in chunks, used by ChunkedMediaUploader. An upload is a
+ * session on the server which keeps the bytes it has received until it's finished, so an upload
+ * which was interrupted can continue from the bytes the server already has
+ */
+public interface ChunkedUploadEndpoint {
+    /**
+     * Decides which media MediaUploadHandler uploads in chunks, and to which endpoint
+     */
+    interface Provider {
+        /*
+         * returns the endpoint the passed media should be uploaded to in chunks, or null if FluxC
+         * should upload it in a single request
+         */
+        @Nullable ChunkedUploadEndpoint getEndpoint(@NonNull SiteModel site, @NonNull MediaModel media);
+    }
+
+    /*
+     * starts a session for uploading the passed media, whose file has the passed length, and
+     * returns its id
+     */
+    @NonNull String startSession(@NonNull MediaModel media, long fileLength) throws IOException;
+
+    /*
+     * returns how many bytes from the start of the file the server has for the passed session, or
+     * -1 if the server no longer knows the session (it expired, for example)
+     */
+    long getUploadedLength(@NonNull String sessionId) throws IOException;
+
+    /*
+     * sends length bytes of data, which start at offset in the file, and returns how many bytes
+     * from the start of the file the server has after receiving them
+     */
+    long uploadChunk(@NonNull String sessionId, long offset, @NonNull byte[] data, int length) throws IOException;
+
+    /*
+     * finishes the session once the server has the whole file, and returns the URL of the uploaded media
+     */
+    @NonNull String finishSession(@NonNull String sessionId) throws IOException;
+}
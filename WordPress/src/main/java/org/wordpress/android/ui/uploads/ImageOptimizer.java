@@ -0,0 +1,287 @@
+package org.wordpress.android.ui.uploads;
+
+import android.content.Context;
+import android.graphics.BitmapFactory;
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.wordpress.android.util.AppLog;
+import org.wordpress.android.util.AppLog.T;
+import org.wordpress.android.util.ImageUtils;
+import org.wordpress.android.util.StringUtils;
+
+import java.io.File;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Optimizes pictures ahead of their upload on a bounded pool of background threads, so the pictures
+ * of a batch are resized and compressed in parallel rather than one after another. How many run at
+ * once is also limited by an estimate of the memory each one needs, which keeps peak heap usage down
+ * for large batches. Optimized files are kept in the app's cache under a name derived from the
+ * source path, its modification time, the max size and the quality, so optimizing the same picture
+ * again with the same settings returns the earlier result without decoding anything
+ */
+public class ImageOptimizer {
+    interface Encoder {
+        /*
+         * writes the optimized version of the picture at srcPath to outputFile, returns false if
+         * the original picture should be used instead
+         */
+        boolean encode(@NonNull String srcPath, @NonNull File outputFile, int maxSize, int quality);
+    }
+
+    private static final String CACHE_DIR_NAME = "optimized_images";
+    private static final long MAX_CACHE_BYTES = 100 * 1024 * 1024;
+    // files used more recently than this may still be waiting to be uploaded, so they're never trimmed
+    private static final long MIN_TRIM_AGE_MS = 24 * 60 * 60 * 1000;
+    private static final int MAX_THREADS = 4;
+    // the decoded picture plus its rotated copy, in ARGB_8888
+    private static final int BYTES_PER_PIXEL = 2 * 4;
+
+    private static ImageOptimizer sInstance;
+
+    private final File mCacheDir;
+    private final Encoder mEncoder;
+    private final ExecutorService mExecutor;
+    private final Semaphore mMemoryBudget;
+    private final int mMemoryBudgetKb;
+    private final ConcurrentHashMap<String, OptimizeTask> mTasks = new ConcurrentHashMap<>();
+
+    public static synchronized ImageOptimizer getInstance(@NonNull Context context) {
+        if (sInstance == null) {
+            final Context appContext = context.getApplicationContext();
+            int numThreads = Math.max(1, Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors()));
+            sInstance = new ImageOptimizer(new File(appContext.getCacheDir(), CACHE_DIR_NAME), numThreads,
+                                           Runtime.getRuntime().maxMemory() / 2, new Encoder() {
+                @Override
+                public boolean encode(@NonNull String srcPath, @NonNull File outputFile, int maxSize, int quality) {
+                    return ImageUtils.optimizeImage(appContext, srcPath, outputFile, maxSize, quality);
+                }
+            });
+        }
+        return sInstance;
+    }
+
+    ImageOptimizer(@NonNull File cacheDir, int numThreads, long memoryBudgetBytes, @NonNull Encoder encoder) {
+        mCacheDir = cacheDir;
+        mEncoder = encoder;
+        mMemoryBudgetKb = (int) Math.max(1, Math.min(Integer.MAX_VALUE, memoryBudgetBytes / 1024));
+        mMemoryBudget = new Semaphore(mMemoryBudgetKb, true);
+        mExecutor = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+            private final AtomicInteger mThreadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(@NonNull final Runnable runnable) {
+                return new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }
+                }, "ImageOptimizer-" + mThreadCount.incrementAndGet());
+            }
+        });
+    }
+
+    /*
+     * starts optimizing the passed pictures without waiting for them - a later call to optimize() for
+     * one of them returns its result as soon as it's ready
+     */
+    public void prefetch(@NonNull List<String> paths, int maxSize, int quality) {
+        Batch batch = new Batch(paths.size());
+        for (String path : paths) {
+            File source = new File(path);
+            if (!source.isFile() || isCached(getCacheFile(source, maxSize, quality))) {
+                batch.onImageDone();
+            } else {
+                startOptimizing(source, maxSize, quality, batch);
+            }
+        }
+    }
+
+    /*
+     * returns the path to the optimized version of the passed picture, or the passed path if the
+     * picture can't or needn't be optimized - blocks until the picture has been optimized, so this
+     * must not be called from the main thread
+     */
+    public @NonNull String optimize(@NonNull String path, int maxSize, int quality) {
+        File source = new File(path);
+        if (!source.isFile()) {
+            return path;
+        }
+
+        File cacheFile = getCacheFile(source, maxSize, quality);
+        if (isCached(cacheFile)) {
+            return cacheFile.getPath();
+        }
+
+        try {
+            return startOptimizing(source, maxSize, quality, null).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return path;
+        } catch (ExecutionException e) {
+            AppLog.e(T.MEDIA, "ImageOptimizer > Can't optimize " + path, e.getCause());
+            return path;
+        }
+    }
+
+    private @NonNull OptimizeTask startOptimizing(@NonNull final File source, final int maxSize, final int quality,
+                                                  @Nullable final Batch batch) {
+        final File cacheFile = getCacheFile(source, maxSize, quality);
+        OptimizeTask task = new OptimizeTask(new Callable<String>() {
+            @Override
+            public String call() {
+                return encode(source.getPath(), cacheFile, maxSize, quality, batch);
+            }
+        }, cacheFile.getName(), batch);
+        OptimizeTask existingTask = mTasks.putIfAbsent(cacheFile.getName(), task);
+        if (existingTask != null) {
+            // the same picture is already being optimized with the same settings
+            if (batch != null) {
+                batch.onImageDone();
+            }
+            return existingTask;
+        }
+        mExecutor.execute(task);
+        return task;
+    }
+
+    private @NonNull String encode(@NonNull String path, @NonNull File cacheFile, int maxSize, int quality,
+                                   @Nullable Batch batch) {
+        int memoryKb = getEstimatedMemoryKb(path, maxSize);
+        mMemoryBudget.acquireUninterruptibly(memoryKb);
+        if (batch != null) {
+            batch.onMemoryReserved(mMemoryBudgetKb - mMemoryBudget.availablePermits());
+        }
+        try {
+            long startTime = System.currentTimeMillis();
+            if (!mCacheDir.exists() && !mCacheDir.mkdirs()) {
+                AppLog.w(T.MEDIA, "ImageOptimizer > Cannot create cache dir");
+                return path;
+            }
+
+            // write to a temporary file first so an interrupted write is never mistaken for a result
+            File tempFile = new File(mCacheDir, cacheFile.getName() + ".tmp");
+            if (mEncoder.encode(path, tempFile, maxSize, quality) && tempFile.renameTo(cacheFile)) {
+                AppLog.d(T.MEDIA, "ImageOptimizer > Optimized " + path + " in "
+                                  + (System.currentTimeMillis() - startTime) + " ms");
+                trimCache();
+                return cacheFile.getPath();
+            }
+            if (tempFile.exists() && !tempFile.delete()) {
+                AppLog.w(T.MEDIA, "ImageOptimizer > Failed to delete " + tempFile.getPath());
+            }
+            return path;
+        } finally {
+            mMemoryBudget.release(memoryKb);
+        }
+    }
+
+    /*
+     * estimates the memory needed to optimize the passed picture from its dimensions, which are read
+     * without decoding it
+     */
+    private int getEstimatedMemoryKb(@NonNull String path, int maxSize) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, options);
+        int width = Math.max(0, options.outWidth);
+        int height = Math.max(0, options.outHeight);
+        int longestSide = Math.max(width, height);
+        double scale = longestSide > maxSize ? (double) maxSize / longestSide : 1;
+        long bytes = (long) (width * scale * height * scale * BYTES_PER_PIXEL);
+        return (int) Math.max(1, Math.min(mMemoryBudgetKb, bytes / 1024));
+    }
+
+    private @NonNull File getCacheFile(@NonNull File source, int maxSize, int quality) {
+        String key = source.getPath() + ":" + source.lastModified() + ":" + source.length()
+                     + ":" + maxSize + ":" + quality;
+        String extension = "jpg";
+        String fileName = source.getName();
+        int dot = fileName.lastIndexOf('.');
+        if (dot > 0 && dot < fileName.length() - 1) {
+            extension = fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+        }
+        return new File(mCacheDir, StringUtils.getMd5Hash(key) + "." + extension);
+    }
+
+    private boolean isCached(@NonNull File cacheFile) {
+        if (!cacheFile.isFile()) {
+            return false;
+        }
+        // mark the file as recently used so it's the last to be trimmed
+        if (!cacheFile.setLastModified(System.currentTimeMillis())) {
+            AppLog.w(T.MEDIA, "ImageOptimizer > Failed to touch " + cacheFile.getPath());
+        }
+        return true;
+    }
+
+    private synchronized void trimCache() {
+        UploadUtils.trimCacheDir(mCacheDir, MAX_CACHE_BYTES, MIN_TRIM_AGE_MS);
+    }
+
+    private class OptimizeTask extends FutureTask<String> {
+        private final String mTaskKey;
+        private final Batch mBatch;
+
+        OptimizeTask(@NonNull Callable<String> callable, @NonNull String taskKey, @Nullable Batch batch) {
+            super(callable);
+            mTaskKey = taskKey;
+            mBatch = batch;
+        }
+
+        @Override
+        protected void done() {
+            mTasks.remove(mTaskKey, this);
+            if (mBatch != null) {
+                mBatch.onImageDone();
+            }
+        }
+    }
+
+    /*
+     * pictures prefetched together, tracked so the time and the memory the whole batch took can be logged
+     */
+    private static class Batch {
+        private final int mSize;
+        private final AtomicInteger mRemaining;
+        private final AtomicLong mPeakMemoryKb = new AtomicLong();
+        private final long mStartTime = System.currentTimeMillis();
+
+        Batch(int size) {
+            mSize = size;
+            mRemaining = new AtomicInteger(size);
+        }
+
+        /*
+         * records the memory reserved by all the pictures being optimized, once one of this batch starts
+         */
+        void onMemoryReserved(long reservedKb) {
+            long peakKb = mPeakMemoryKb.get();
+            while (reservedKb > peakKb && !mPeakMemoryKb.compareAndSet(peakKb, reservedKb)) {
+                peakKb = mPeakMemoryKb.get();
+            }
+        }
+
+        void onImageDone() {
+            if (mRemaining.decrementAndGet() == 0) {
+                AppLog.i(T.MEDIA, "ImageOptimizer > Optimized batch of " + mSize + " pictures in "
+                                  + (System.currentTimeMillis() - mStartTime) + " ms, peak bitmap memory "
+                                  + (mPeakMemoryKb.get() / 1024) + " MB");
+            }
+        }
+    }
+}
@@ -1,6 +1,12 @@
 package org.wordpress.android.ui.uploads;
 
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.AsyncTask;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.telephony.TelephonyManager;
 
 import org.greenrobot.eventbus.Subscribe;
 import org.greenrobot.eventbus.ThreadMode;
@@ -9,20 +15,25 @@ import org.wordpress.android.analytics.AnalyticsTracker;
 import org.wordpress.android.fluxc.Dispatcher;
 import org.wordpress.android.fluxc.generated.MediaActionBuilder;
 import org.wordpress.android.fluxc.model.MediaModel;
+import org.wordpress.android.fluxc.model.MediaModel.MediaUploadState;
 import org.wordpress.android.fluxc.model.PostModel;
 import org.wordpress.android.fluxc.model.SiteModel;
 import org.wordpress.android.fluxc.store.MediaStore.CancelMediaPayload;
+import org.wordpress.android.fluxc.store.MediaStore.MediaError;
+import org.wordpress.android.fluxc.store.MediaStore.MediaErrorType;
 import org.wordpress.android.fluxc.store.MediaStore.OnMediaUploaded;
+import org.wordpress.android.fluxc.store.MediaStore.ProgressPayload;
 import org.wordpress.android.fluxc.store.MediaStore.UploadMediaPayload;
 import org.wordpress.android.fluxc.store.SiteStore;
+import org.wordpress.android.networking.ConnectionChangeReceiver;
 import org.wordpress.android.ui.prefs.AppPrefs;
 import org.wordpress.android.util.AppLog;
 import org.wordpress.android.util.AppLog.T;
-import org.wordpress.android.util.StringUtils;
+import org.wordpress.android.util.NetworkUtils;
 import org.wordpress.android.util.WPMediaUtils;
 import org.wordpress.android.util.analytics.AnalyticsUtils;
 
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -34,73 +45,87 @@ import javax.inject.Inject;
 import de.greenrobot.event.EventBus;
 
 public class MediaUploadHandler implements UploadHandler<MediaModel>, VideoOptimizer.VideoOptimizationListener {
-    private static List<MediaModel> sPendingUploads = new ArrayList<>();
-    private static List<MediaModel> sInProgressUploads = new ArrayList<>();
+    // how many uploads may be in progress at the same time, overall and for each site - fewer uploads
+    // run at once on metered networks, and one at a time on slow ones
+    private static final int MAX_UPLOADS_UNMETERED = 4;
+    private static final int MAX_UPLOADS_PER_SITE_UNMETERED = 3;
+    private static final int MAX_UPLOADS_METERED = 2;
+    private static final int MAX_UPLOADS_SLOW_NETWORK = 1;
+
+    private static final MediaUploadQueue UPLOAD_QUEUE = new MediaUploadQueue();
     private static ConcurrentHashMap<Integer, Float> sOptimizationProgressByMediaId = new ConcurrentHashMap<>();
 
+    // the uploads sent in chunks rather than by FluxC, by media id
+    private static final Map<Integer, ChunkedUploadTask> CHUNKED_UPLOADS = new ConcurrentHashMap<>();
+    private static ChunkedUploadEndpoint.Provider sChunkedUploadEndpointProvider;
+
     @Inject Dispatcher mDispatcher;
     @Inject SiteStore mSiteStore;
 
+    private final VideoOptimizationQueue mVideoOptimizationQueue;
+
     MediaUploadHandler() {
         ((WordPress) WordPress.getContext().getApplicationContext()).component().inject(this);
         AppLog.i(T.MEDIA, "MediaUploadHandler > Created");
+        mVideoOptimizationQueue = new VideoOptimizationQueue(WordPress.getContext(), this);
         mDispatcher.register(this);
         EventBus.getDefault().register(this);
     }
 
     void unregister() {
+        mVideoOptimizationQueue.cancelAll();
+        // the pending media would never start once this handler is gone - a video waiting to be optimized
+        // is never marked as ready, for example - so they're canceled like the uploads in progress, and a
+        // handler created later doesn't find them still queued
+        for (MediaModel media : UPLOAD_QUEUE.removePendingUploads()) {
+            SiteModel site = mSiteStore.getSiteByLocalId(media.getLocalSiteId());
+            if (site != null) {
+                dispatchCancelAction(media, site, false);
+            }
+        }
         sOptimizationProgressByMediaId.clear();
         mDispatcher.unregister(this);
         EventBus.getDefault().unregister(this);
     }
 
+    /*
+     * sets which media are uploaded in chunks - an interrupted chunked upload resumes from its last
+     * acknowledged chunk when it's retried, while the other media are uploaded by FluxC
+     */
+    public static void setChunkedUploadEndpointProvider(@Nullable ChunkedUploadEndpoint.Provider provider) {
+        sChunkedUploadEndpointProvider = provider;
+    }
+
     @Override
     public boolean hasInProgressUploads() {
-        return !sInProgressUploads.isEmpty() || !sPendingUploads.isEmpty();
+        return !UPLOAD_QUEUE.isEmpty();
     }
 
     @Override
     public void cancelInProgressUploads() {
-        for (MediaModel oneUpload : sInProgressUploads) {
+        for (MediaModel oneUpload : UPLOAD_QUEUE.getInProgressUploads()) {
             cancelUpload(oneUpload, false);
         }
     }
 
     @Override
     public void upload(@NonNull MediaModel media) {
-        addUniqueMediaToQueue(media);
+        if (UPLOAD_QUEUE.add(media) && media.isVideo() && WPMediaUtils.isVideoOptimizationEnabled()) {
+            // optimize the video now rather than when its turn to upload comes, so it's transcoded while the
+            // media before it upload - it waits in the queue until it's ready
+            UPLOAD_QUEUE.markWaiting(media.getId());
+            sOptimizationProgressByMediaId.put(media.getId(), 0F);
+            mVideoOptimizationQueue.add(media, AppPrefs.getVideoOptimizeWidth(), AppPrefs.getVideoOptimizeQuality());
+        }
         uploadNextInQueue();
     }
 
     static boolean hasInProgressMediaUploadsForPost(PostModel postModel) {
-        if (postModel == null) {
-            return false;
-        }
-
-        synchronized (sInProgressUploads) {
-            for (MediaModel queuedMedia : sInProgressUploads) {
-                if (queuedMedia.getLocalPostId() == postModel.getId()) {
-                    return true;
-                }
-            }
-        }
-
-        return false;
+        return postModel != null && UPLOAD_QUEUE.hasInProgressUploadsForPost(postModel.getId());
     }
 
     static boolean hasPendingMediaUploadsForPost(PostModel postModel) {
-        if (postModel == null) {
-            return false;
-        }
-
-        synchronized (sPendingUploads) {
-            for (MediaModel queuedMedia : sPendingUploads) {
-                if (queuedMedia.getLocalPostId() == postModel.getId()) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return postModel != null && UPLOAD_QUEUE.hasPendingUploadsForPost(postModel.getId());
     }
 
     static boolean hasPendingOrInProgressMediaUploadsForPost(PostModel postModel) {
@@ -117,42 +142,11 @@ public class MediaUploadHandler implements UploadHandler<MediaModel>, VideoOptim
             return Collections.emptyList();
         }
 
-        List<MediaModel> mediaList = new ArrayList<>();
-        synchronized (sInProgressUploads) {
-            for (MediaModel queuedMedia : sInProgressUploads) {
-                if (queuedMedia.getLocalPostId() == postModel.getId()) {
-                    mediaList.add(queuedMedia);
-                }
-            }
-        }
-
-        synchronized (sPendingUploads) {
-            for (MediaModel queuedMedia : sPendingUploads) {
-                if (queuedMedia.getLocalPostId() == postModel.getId()) {
-                    mediaList.add(queuedMedia);
-                }
-            }
-        }
-        return mediaList;
+        return UPLOAD_QUEUE.getUploadsForPost(postModel.getId());
     }
 
     static boolean isPendingOrInProgressMediaUpload(@NonNull MediaModel media) {
-        synchronized (sInProgressUploads) {
-            for (MediaModel uploadingMedia : sInProgressUploads) {
-                if (uploadingMedia.getId() == media.getId()) {
-                    return true;
-                }
-            }
-        }
-
-        synchronized (sPendingUploads) {
-            for (MediaModel queuedMedia : sPendingUploads) {
-                if (queuedMedia.getId() == media.getId()) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return UPLOAD_QUEUE.isPendingOrInProgress(media.getId());
     }
 
     /**
@@ -201,66 +195,76 @@ public class MediaUploadHandler implements UploadHandler<MediaModel>, VideoOptim
         uploadNextInQueue();
     }
 
+    /*
+     * starts as many pending uploads as the current network allows
+     */
     private synchronized void uploadNextInQueue() {
-        MediaModel next = getNextMediaToUpload();
+        int maxUploads = getMaxConcurrentUploads(WordPress.getContext());
+        List<MediaModel> nextUploads =
+                UPLOAD_QUEUE.takeNextUploads(maxUploads, Math.min(maxUploads, MAX_UPLOADS_PER_SITE_UNMETERED));
 
-        if (next == null) {
-            AppLog.w(T.MEDIA, "MediaUploadHandler > No more media items to upload. Skipping this request.");
+        if (nextUploads.isEmpty()) {
+            if (!UPLOAD_QUEUE.hasInProgressUploads()) {
+                AppLog.w(T.MEDIA, "MediaUploadHandler > No more media items to upload. Skipping this request.");
+            }
             checkIfUploadsComplete();
             return;
         }
 
-        prepareForUpload(next);
-    }
-
-    private synchronized void completeUploadWithId(int id) {
-        MediaModel media = getMediaFromInProgressQueueById(id);
-        if (media != null) {
-            sInProgressUploads.remove(media);
-            trackUploadMediaEvents(AnalyticsTracker.Stat.MEDIA_UPLOAD_STARTED, media, null);
+        for (MediaModel media : nextUploads) {
+            dispatchUploadAction(media);
         }
     }
 
-    private MediaModel getMediaFromInProgressQueueById(int id) {
-        for (MediaModel media : sInProgressUploads) {
-            if (media.getId() == id) {
-                return media;
+    /*
+     * returns how many uploads may be in progress at the same time on the current network
+     */
+    private static int getMaxConcurrentUploads(Context context) {
+        NetworkInfo networkInfo = NetworkUtils.getActiveNetworkInfo(context);
+        if (networkInfo != null && networkInfo.getType() == ConnectivityManager.TYPE_MOBILE) {
+            switch (networkInfo.getSubtype()) {
+                case TelephonyManager.NETWORK_TYPE_GPRS:
+                case TelephonyManager.NETWORK_TYPE_EDGE:
+                case TelephonyManager.NETWORK_TYPE_CDMA:
+                case TelephonyManager.NETWORK_TYPE_1xRTT:
+                case TelephonyManager.NETWORK_TYPE_IDEN:
+                    return MAX_UPLOADS_SLOW_NETWORK;
             }
         }
-        return null;
-    }
 
-    private MediaModel getNextMediaToUpload() {
-        if (!sPendingUploads.isEmpty()) {
-            return sPendingUploads.remove(0);
+        ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (cm != null && cm.isActiveNetworkMetered()) {
+            return MAX_UPLOADS_METERED;
         }
-        return null;
+        return MAX_UPLOADS_UNMETERED;
     }
 
-    private void addUniqueMediaToQueue(MediaModel media) {
+    private synchronized void completeUploadWithId(int id) {
+        MediaModel media = UPLOAD_QUEUE.complete(id);
         if (media != null) {
-            if (mediaAlreadyQueuedOrUploading(media)) {
-                return;
-            }
-
-            // no match found in queue
-            sPendingUploads.add(media);
+            trackUploadMediaEvents(AnalyticsTracker.Stat.MEDIA_UPLOAD_STARTED, media, null);
         }
     }
 
-    private void addUniqueMediaToInProgressUploads(@NonNull MediaModel mediaToAdd) {
-        synchronized (sInProgressUploads) {
-            for (MediaModel media : sInProgressUploads) {
-                if (media.getId() == mediaToAdd.getId()) {
-                    return;
-                }
-            }
-            sInProgressUploads.add(mediaToAdd);
-        }
+    private MediaModel getMediaFromInProgressQueueById(int id) {
+        return UPLOAD_QUEUE.getInProgressUpload(id);
     }
 
     private void cancelUpload(MediaModel oneUpload, boolean delete) {
         if (oneUpload != null) {
+            if (mVideoOptimizationQueue.cancel(oneUpload.getId())) {
+                // the video hasn't started uploading, so take it out of the queue here
+                sOptimizationProgressByMediaId.remove(oneUpload.getId());
+                completeUploadWithId(oneUpload.getId());
+            }
+            ChunkedUploadTask chunkedUpload = CHUNKED_UPLOADS.get(oneUpload.getId());
+            if (chunkedUpload != null) {
+                // FluxC isn't uploading it, so it's stopped here - it's taken out of the queue now since
+                // the chunk being sent is finished before the task reports the cancellation
+                chunkedUpload.cancelUpload(delete);
+                completeUploadWithId(oneUpload.getId());
+                return;
+            }
             SiteModel site = mSiteStore.getSiteByLocalId(oneUpload.getLocalSiteId());
             if (site != null) {
                 dispatchCancelAction(oneUpload, site, delete);
@@ -271,34 +275,97 @@ public class MediaUploadHandler implements UploadHandler<MediaModel>, VideoOptim
         }
     }
 
-    private void prepareForUpload(@NonNull MediaModel media) {
-        if (media.isVideo() && WPMediaUtils.isVideoOptimizationEnabled()) {
-            addUniqueMediaToInProgressUploads(media);
-            new VideoOptimizer(media, this).start();
-        } else {
-            dispatchUploadAction(media);
-        }
-    }
-
     private void dispatchUploadAction(@NonNull final MediaModel media) {
         SiteModel site = mSiteStore.getSiteByLocalId(media.getLocalSiteId());
 
         // somehow lost our reference to the site, complete this action
         if (site == null) {
             AppLog.w(T.MEDIA, "MediaUploadHandler > Unexpected state, site is null. Skipping this request.");
-            checkIfUploadsComplete();
+            // free its slot so the remaining uploads aren't held up
+            UPLOAD_QUEUE.complete(media.getId());
+            uploadNextInQueue();
             return;
         }
 
         AppLog.i(T.MEDIA, "MediaUploadHandler > Dispatching upload action for media with local id: "
                           + media.getId() + " and path: " + media.getFilePath());
-        addUniqueMediaToInProgressUploads(media);
 
         mDispatcher.dispatch(MediaActionBuilder.newUpdateMediaAction(media));
+
+        ChunkedUploadEndpoint.Provider provider = sChunkedUploadEndpointProvider;
+        ChunkedUploadEndpoint endpoint = provider != null ? provider.getEndpoint(site, media) : null;
+        if (endpoint != null) {
+            ChunkedUploadTask task = new ChunkedUploadTask(media, endpoint);
+            CHUNKED_UPLOADS.put(media.getId(), task);
+            task.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+            return;
+        }
+
         UploadMediaPayload payload = new UploadMediaPayload(site, media, AppPrefs.isStripImageLocation());
         mDispatcher.dispatch(MediaActionBuilder.newUploadMediaAction(payload));
     }
 
+    /*
+     * uploads a media in chunks, reporting its progress and result to MediaStore the same way FluxC
+     * does, so the handler and the other subscribers receive the usual OnMediaUploaded events
+     */
+    private class ChunkedUploadTask extends AsyncTask<Void, Void, Void>
+            implements ChunkedMediaUploader.ProgressListener {
+        private final MediaModel mMedia;
+        private final ChunkedMediaUploader mUploader;
+        private volatile boolean mIsCanceled;
+        private volatile boolean mDeleteOnCancel;
+
+        ChunkedUploadTask(@NonNull MediaModel media, @NonNull ChunkedUploadEndpoint endpoint) {
+            mMedia = media;
+            mUploader = new ChunkedMediaUploader(endpoint);
+        }
+
+        void cancelUpload(boolean delete) {
+            mDeleteOnCancel = delete;
+            mIsCanceled = true;
+            mUploader.cancel();
+        }
+
+        @Override
+        protected Void doInBackground(Void... params) {
+            ProgressPayload payload;
+            try {
+                mMedia.setUrl(mUploader.upload(mMedia, this));
+                mMedia.setUploadState(MediaUploadState.UPLOADED);
+                payload = new ProgressPayload(mMedia, 1F, true, false);
+            } catch (IOException e) {
+                if (mIsCanceled && mDeleteOnCancel) {
+                    // the user canceled it, so it won't be resumed
+                    MediaUploadJournal.getInstance().removeSession(mMedia.getId());
+                    mDispatcher.dispatch(MediaActionBuilder.newRemoveMediaAction(mMedia));
+                    payload = new ProgressPayload(mMedia, 0F, false, true);
+                } else {
+                    // the journal keeps the chunks acknowledged so far, so a retry resumes after them
+                    mMedia.setUploadState(MediaUploadState.FAILED);
+                    if (mIsCanceled) {
+                        payload = new ProgressPayload(mMedia, 0F, false, true);
+                    } else {
+                        AppLog.w(T.MEDIA, "MediaUploadHandler > Chunked upload of " + mMedia.getId()
+                                          + " failed: " + e.getMessage());
+                        MediaError error = new MediaError(MediaErrorType.GENERIC_ERROR, e.getMessage());
+                        payload = new ProgressPayload(mMedia, 0F, false, error);
+                    }
+                }
+            } finally {
+                CHUNKED_UPLOADS.remove(mMedia.getId());
+            }
+            mDispatcher.dispatch(MediaActionBuilder.newUploadedMediaAction(payload));
+            return null;
+        }
+
+        @Override
+        public void onUploadProgress(@NonNull MediaModel media, float progress) {
+            mDispatcher.dispatch(MediaActionBuilder.newUploadedMediaAction(
+                    new ProgressPayload(media, progress, false, false)));
+        }
+    }
+
     private void dispatchCancelAction(@NonNull final MediaModel media, @NonNull final SiteModel site, boolean delete) {
         AppLog.i(T.MEDIA, "MediaUploadHandler > Dispatching cancel upload action for media with local id: "
                           + media.getId() + " and path: " + media.getFilePath());
@@ -307,7 +374,7 @@ public class MediaUploadHandler implements UploadHandler<MediaModel>, VideoOptim
     }
 
     private boolean checkIfUploadsComplete() {
-        if (sPendingUploads.isEmpty() && sInProgressUploads.isEmpty()) {
+        if (UPLOAD_QUEUE.isEmpty()) {
             AppLog.i(T.MEDIA, "MediaUploadHandler > Completed");
             return true;
         }
@@ -321,19 +388,16 @@ public class MediaUploadHandler implements UploadHandler<MediaModel>, VideoOptim
         if (event.post == null) {
             return;
         }
-        synchronized (sInProgressUploads) {
-            for (MediaModel inProgressUpload : sInProgressUploads) {
-                if (inProgressUpload.getLocalPostId() == event.post.getId()) {
-                    cancelUpload(inProgressUpload, true);
-                }
-            }
+        for (MediaModel upload : UPLOAD_QUEUE.getUploadsForPost(event.post.getId())) {
+            cancelUpload(upload, true);
         }
-        synchronized (sPendingUploads) {
-            for (MediaModel pendingUpload : sPendingUploads) {
-                if (pendingUpload.getLocalPostId() == event.post.getId()) {
-                    cancelUpload(pendingUpload, true);
-                }
-            }
+    }
+
+    @SuppressWarnings("unused")
+    public void onEventMainThread(ConnectionChangeReceiver.ConnectionChangeEvent event) {
+        // the uploads which can be in progress depend on the network, so start any the new one allows
+        if (event.isConnected()) {
+            uploadNextInQueue();
         }
     }
 
@@ -378,34 +442,6 @@ public class MediaUploadHandler implements UploadHandler<MediaModel>, VideoOptim
         AnalyticsTracker.track(stat, mediaProperties);
     }
 
-    private boolean mediaAlreadyQueuedOrUploading(MediaModel mediaModel) {
-        for (MediaModel queuedMedia : sInProgressUploads) {
-            AppLog.i(T.MEDIA, "MediaUploadHandler > Attempting to add media with path " + mediaModel.getFilePath()
-                              + " and site id " + mediaModel.getLocalSiteId() + ". Comparing with " + queuedMedia
-                                      .getFilePath()
-                              + ", " + queuedMedia.getLocalSiteId());
-            if (compareBySiteAndFilePath(queuedMedia, mediaModel)) {
-                return true;
-            }
-        }
-
-        for (MediaModel queuedMedia : sPendingUploads) {
-            AppLog.i(T.MEDIA, "MediaUploadHandler > Attempting to add media with path " + mediaModel.getFilePath()
-                              + " and site id " + mediaModel.getLocalSiteId() + ". Comparing with " + queuedMedia
-                                      .getFilePath()
-                              + ", " + queuedMedia.getLocalSiteId());
-            if (compareBySiteAndFilePath(queuedMedia, mediaModel)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private boolean compareBySiteAndFilePath(MediaModel media1, MediaModel media2) {
-        return (media1.getLocalSiteId() == media2.getLocalSiteId()
-                && StringUtils.equals(media1.getFilePath(), media2.getFilePath()));
-    }
-
     @Override
     public void onVideoOptimizationProgress(@NonNull MediaModel media, float progress) {
         sOptimizationProgressByMediaId.put(media.getId(), progress);
@@ -418,8 +454,8 @@ public class MediaUploadHandler implements UploadHandler<MediaModel>, VideoOptim
     public void onVideoOptimizationCompleted(@NonNull MediaModel media) {
         sOptimizationProgressByMediaId.remove(media.getId());
         // make sure this media should still be uploaded (may have been cancelled during optimization)
-        if (sInProgressUploads.contains(media)) {
-            dispatchUploadAction(media);
+        if (UPLOAD_QUEUE.markReady(media.getId())) {
+            uploadNextInQueue();
         } else {
             AppLog.d(T.MEDIA, "MediaUploadHandler > skipping upload of optimized media");
         }
@@ -0,0 +1,134 @@
+package org.wordpress.android.ui.uploads;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.wordpress.android.WordPress;
+import org.wordpress.android.util.SqlUtils;
+
+/**
+ * Durable record of the chunked uploads in progress, kept in the app's database so an upload can
+ * resume from its last acknowledged chunk after a retry, an UploadService restart or the process
+ * being killed. Each upload has a session, which identifies the upload on the server and the file
+ * being uploaded, and the byte ranges of that file the server has acknowledged
+ */
+public class MediaUploadJournal {
+    private static final String SESSIONS_TABLE = "tbl_media_upload_sessions";
+    private static final String RANGES_TABLE = "tbl_media_upload_ranges";
+
+    static class Session {
+        final int mMediaId;
+        final String mSessionId;
+        final String mFilePath;
+        final long mFileLength;
+        final long mFileModified;
+
+        Session(int mediaId, String sessionId, String filePath, long fileLength, long fileModified) {
+            mMediaId = mediaId;
+            mSessionId = sessionId;
+            mFilePath = filePath;
+            mFileLength = fileLength;
+            mFileModified = fileModified;
+        }
+    }
+
+    private final SQLiteDatabase mDb;
+
+    MediaUploadJournal(@NonNull SQLiteDatabase db) {
+        mDb = db;
+    }
+
+    static MediaUploadJournal getInstance() {
+        return new MediaUploadJournal(WordPress.wpDB.getDatabase());
+    }
+
+    public static void createTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + SESSIONS_TABLE + " ("
+                   + " media_id INTEGER PRIMARY KEY,"
+                   + " session_id TEXT NOT NULL,"
+                   + " file_path TEXT NOT NULL,"
+                   + " file_length INTEGER NOT NULL,"
+                   + " file_modified INTEGER NOT NULL)");
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + RANGES_TABLE + " ("
+                   + " media_id INTEGER NOT NULL,"
+                   + " range_start INTEGER NOT NULL,"
+                   + " range_end INTEGER NOT NULL,"
+                   + " PRIMARY KEY (media_id, range_start))");
+    }
+
+    @Nullable Session getSession(int mediaId) {
+        Cursor cursor = mDb.rawQuery("SELECT session_id, file_path, file_length, file_modified FROM "
+                                     + SESSIONS_TABLE + " WHERE media_id=?",
+                                     new String[]{Integer.toString(mediaId)});
+        try {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            return new Session(mediaId, cursor.getString(0), cursor.getString(1), cursor.getLong(2),
+                               cursor.getLong(3));
+        } finally {
+            SqlUtils.closeCursor(cursor);
+        }
+    }
+
+    /*
+     * records a new upload session for the passed media, replacing any previous one
+     */
+    void startSession(@NonNull Session session) {
+        mDb.beginTransaction();
+        try {
+            removeSession(session.mMediaId);
+            ContentValues values = new ContentValues();
+            values.put("media_id", session.mMediaId);
+            values.put("session_id", session.mSessionId);
+            values.put("file_path", session.mFilePath);
+            values.put("file_length", session.mFileLength);
+            values.put("file_modified", session.mFileModified);
+            mDb.insert(SESSIONS_TABLE, null, values);
+            mDb.setTransactionSuccessful();
+        } finally {
+            mDb.endTransaction();
+        }
+    }
+
+    /*
+     * records that the server acknowledged the bytes from start (inclusive) to end (exclusive)
+     */
+    void addAcknowledgedRange(int mediaId, long start, long end) {
+        ContentValues values = new ContentValues();
+        values.put("media_id", mediaId);
+        values.put("range_start", start);
+        values.put("range_end", end);
+        mDb.insertWithOnConflict(RANGES_TABLE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    /*
+     * returns how many bytes from the start of the file have been acknowledged without a gap
+     */
+    long getAcknowledgedLength(int mediaId) {
+        Cursor cursor = mDb.rawQuery("SELECT range_start, range_end FROM " + RANGES_TABLE
+                                     + " WHERE media_id=? ORDER BY range_start",
+                                     new String[]{Integer.toString(mediaId)});
+        long length = 0;
+        try {
+            while (cursor.moveToNext()) {
+                if (cursor.getLong(0) > length) {
+                    break;
+                }
+                length = Math.max(length, cursor.getLong(1));
+            }
+        } finally {
+            SqlUtils.closeCursor(cursor);
+        }
+        return length;
+    }
+
+    void removeSession(int mediaId) {
+        String[] args = {Integer.toString(mediaId)};
+        mDb.delete(SESSIONS_TABLE, "media_id=?", args);
+        mDb.delete(RANGES_TABLE, "media_id=?", args);
+    }
+}
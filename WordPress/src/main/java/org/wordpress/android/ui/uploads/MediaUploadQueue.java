@@ -0,0 +1,220 @@
+package org.wordpress.android.ui.uploads;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.wordpress.android.fluxc.model.MediaModel;
+import org.wordpress.android.util.AppLog;
+import org.wordpress.android.util.AppLog.T;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The media waiting to be uploaded and being uploaded by MediaUploadHandler. Uploads are started in
+ * the order they were added, as long as the number of uploads in progress stays within the passed
+ * limits - one for all uploads and one for each site, so media for other sites can still start when
+ * one site is at its limit. Lookups by media id, post, site and file are O(1), and the time it takes
+ * to upload each batch (from the first media being added to the queue being empty again) is logged.
+ * Pending media can be marked as waiting - for a video being optimized, for example - in which case
+ * the media after it start first and it keeps its place until it's marked as ready
+ */
+class MediaUploadQueue {
+    private final LinkedHashMap<Integer, MediaModel> mPendingUploads = new LinkedHashMap<>();
+    private final LinkedHashMap<Integer, MediaModel> mInProgressUploads = new LinkedHashMap<>();
+    // site and file path of each pending or in progress media, so the same file isn't added twice - kept
+    // by media id since the file path of a media changes when it's optimized
+    private final HashSet<String> mQueuedFiles = new HashSet<>();
+    private final HashMap<Integer, String> mFileKeysByMediaId = new HashMap<>();
+    private final HashSet<Integer> mWaitingUploads = new HashSet<>();
+    private final HashMap<Integer, Integer> mPendingCountByPost = new HashMap<>();
+    private final HashMap<Integer, Integer> mInProgressCountByPost = new HashMap<>();
+    private final HashMap<Integer, Integer> mInProgressCountBySite = new HashMap<>();
+
+    private long mBatchStartTime;
+    private int mBatchSize;
+    private int mBatchMaxInProgress;
+
+    private static String getFileKey(@NonNull MediaModel media) {
+        return media.getLocalSiteId() + ":" + media.getFilePath();
+    }
+
+    private static void increment(Map<Integer, Integer> counts, int key) {
+        Integer count = counts.get(key);
+        counts.put(key, count != null ? count + 1 : 1);
+    }
+
+    private static void decrement(Map<Integer, Integer> counts, int key) {
+        Integer count = counts.get(key);
+        if (count == null || count <= 1) {
+            counts.remove(key);
+        } else {
+            counts.put(key, count - 1);
+        }
+    }
+
+    private static int getCount(Map<Integer, Integer> counts, int key) {
+        Integer count = counts.get(key);
+        return count != null ? count : 0;
+    }
+
+    /*
+     * adds the passed media to the end of the queue, unless it or the same file for the same site is
+     * already pending or in progress - returns true if it was added
+     */
+    synchronized boolean add(@NonNull MediaModel media) {
+        if (isPendingOrInProgress(media.getId()) || mQueuedFiles.contains(getFileKey(media))) {
+            AppLog.i(T.MEDIA, "MediaUploadHandler > Media with path " + media.getFilePath() + " and site id "
+                              + media.getLocalSiteId() + " is already queued or uploading");
+            return false;
+        }
+
+        if (isEmpty()) {
+            mBatchStartTime = SystemClock.elapsedRealtime();
+            mBatchSize = 0;
+            mBatchMaxInProgress = 0;
+        }
+        mBatchSize++;
+
+        mPendingUploads.put(media.getId(), media);
+        mQueuedFiles.add(getFileKey(media));
+        mFileKeysByMediaId.put(media.getId(), getFileKey(media));
+        increment(mPendingCountByPost, media.getLocalPostId());
+        return true;
+    }
+
+    /*
+     * marks the passed pending media as waiting, so it isn't started until it's marked as ready
+     */
+    synchronized void markWaiting(int mediaId) {
+        if (mPendingUploads.containsKey(mediaId)) {
+            mWaitingUploads.add(mediaId);
+        }
+    }
+
+    /*
+     * marks the passed media as ready to be started - returns false if it's no longer pending
+     */
+    synchronized boolean markReady(int mediaId) {
+        mWaitingUploads.remove(mediaId);
+        return mPendingUploads.containsKey(mediaId);
+    }
+
+    /*
+     * moves as many pending media to in progress as the passed limits allow, in the order they were
+     * added and skipping those which are waiting, and returns them so their uploads can be started
+     */
+    synchronized @NonNull List<MediaModel> takeNextUploads(int maxInProgress, int maxInProgressPerSite) {
+        List<MediaModel> nextUploads = new ArrayList<>();
+        Iterator<MediaModel> iterator = mPendingUploads.values().iterator();
+        while (iterator.hasNext() && mInProgressUploads.size() < maxInProgress) {
+            MediaModel media = iterator.next();
+            if (mWaitingUploads.contains(media.getId())
+                || getCount(mInProgressCountBySite, media.getLocalSiteId()) >= maxInProgressPerSite) {
+                continue;
+            }
+            iterator.remove();
+            decrement(mPendingCountByPost, media.getLocalPostId());
+            mInProgressUploads.put(media.getId(), media);
+            increment(mInProgressCountByPost, media.getLocalPostId());
+            increment(mInProgressCountBySite, media.getLocalSiteId());
+            nextUploads.add(media);
+        }
+        mBatchMaxInProgress = Math.max(mBatchMaxInProgress, mInProgressUploads.size());
+        return nextUploads;
+    }
+
+    /*
+     * removes the media with the passed id from the uploads in progress, or from the pending uploads if
+     * it was canceled before it started, and returns it
+     */
+    synchronized @Nullable MediaModel complete(int mediaId) {
+        MediaModel media = mInProgressUploads.remove(mediaId);
+        if (media != null) {
+            decrement(mInProgressCountByPost, media.getLocalPostId());
+            decrement(mInProgressCountBySite, media.getLocalSiteId());
+        } else {
+            media = mPendingUploads.remove(mediaId);
+            if (media == null) {
+                return null;
+            }
+            decrement(mPendingCountByPost, media.getLocalPostId());
+            mWaitingUploads.remove(mediaId);
+        }
+        mQueuedFiles.remove(mFileKeysByMediaId.remove(mediaId));
+
+        if (isEmpty()) {
+            AppLog.i(T.MEDIA, "MediaUploadHandler > Batch of " + mBatchSize + " media uploaded in "
+                              + (SystemClock.elapsedRealtime() - mBatchStartTime) + " ms, with up to "
+                              + mBatchMaxInProgress + " uploads in progress");
+        }
+        return media;
+    }
+
+    /*
+     * removes the pending media, including those which are waiting, and returns them
+     */
+    synchronized @NonNull List<MediaModel> removePendingUploads() {
+        List<MediaModel> mediaList = new ArrayList<>(mPendingUploads.values());
+        for (MediaModel media : mediaList) {
+            complete(media.getId());
+        }
+        return mediaList;
+    }
+
+    synchronized @Nullable MediaModel getInProgressUpload(int mediaId) {
+        return mInProgressUploads.get(mediaId);
+    }
+
+    synchronized boolean isPendingOrInProgress(int mediaId) {
+        return mInProgressUploads.containsKey(mediaId) || mPendingUploads.containsKey(mediaId);
+    }
+
+    synchronized boolean hasInProgressUploadsForPost(int localPostId) {
+        return mInProgressCountByPost.containsKey(localPostId);
+    }
+
+    synchronized boolean hasPendingUploadsForPost(int localPostId) {
+        return mPendingCountByPost.containsKey(localPostId);
+    }
+
+    /*
+     * returns the in progress media for the passed post followed by its pending media
+     */
+    synchronized @NonNull List<MediaModel> getUploadsForPost(int localPostId) {
+        List<MediaModel> mediaList = new ArrayList<>();
+        if (hasInProgressUploadsForPost(localPostId)) {
+            for (MediaModel media : mInProgressUploads.values()) {
+                if (media.getLocalPostId() == localPostId) {
+                    mediaList.add(media);
+                }
+            }
+        }
+        if (hasPendingUploadsForPost(localPostId)) {
+            for (MediaModel media : mPendingUploads.values()) {
+                if (media.getLocalPostId() == localPostId) {
+                    mediaList.add(media);
+                }
+            }
+        }
+        return mediaList;
+    }
+
+    synchronized @NonNull List<MediaModel> getInProgressUploads() {
+        return new ArrayList<>(mInProgressUploads.values());
+    }
+
+    synchronized boolean hasInProgressUploads() {
+        return !mInProgressUploads.isEmpty();
+    }
+
+    synchronized boolean isEmpty() {
+        return mPendingUploads.isEmpty() && mInProgressUploads.isEmpty();
+    }
+}
@@ -15,6 +15,7 @@ import org.greenrobot.eventbus.ThreadMode;
 import org.wordpress.android.R;
 import org.wordpress.android.WordPress;
 import org.wordpress.android.analytics.AnalyticsTracker.Stat;
+import org.wordpress.android.datasets.PostUploadJournal;
 import org.wordpress.android.fluxc.Dispatcher;
 import org.wordpress.android.fluxc.generated.MediaActionBuilder;
 import org.wordpress.android.fluxc.generated.PostActionBuilder;
@@ -26,9 +27,11 @@ import org.wordpress.android.fluxc.model.post.PostStatus;
 import org.wordpress.android.fluxc.store.MediaStore;
 import org.wordpress.android.fluxc.store.MediaStore.OnMediaUploaded;
 import org.wordpress.android.fluxc.store.MediaStore.UploadMediaPayload;
+import org.wordpress.android.fluxc.store.PostStore;
 import org.wordpress.android.fluxc.store.PostStore.OnPostUploaded;
 import org.wordpress.android.fluxc.store.PostStore.RemotePostPayload;
 import org.wordpress.android.fluxc.store.SiteStore;
+import org.wordpress.android.fluxc.store.UploadStore;
 import org.wordpress.android.ui.posts.PostUtils;
 import org.wordpress.android.ui.prefs.AppPrefs;
 import org.wordpress.android.ui.uploads.PostEvents.PostUploadStarted;
@@ -48,7 +51,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.CountDownLatch;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -56,62 +58,96 @@ import javax.inject.Inject;
 
 import de.greenrobot.event.EventBus;
 
+/**
+ * Publishes queued posts, one at a time for each site but alongside the posts of other sites. Media
+ * embedded by the legacy editor are uploaded without parking a thread: the post is published from
+ * the OnMediaUploaded callback of its last media. Queued posts are recorded in a PostUploadJournal,
+ * so the posts which were still waiting to be published when the process was killed are queued
+ * again when the handler is next created, unless the UploadStore says they were canceled
+ */
 public class PostUploadHandler implements UploadHandler<PostModel> {
-    private static ArrayList<PostModel> sQueuedPostsList = new ArrayList<>();
+    // posts are published one at a time for each site, and up to this many at once for all sites
+    private static final int MAX_CONCURRENT_POSTS = 3;
+
+    private static final PostUploadQueue UPLOAD_QUEUE = new PostUploadQueue();
     private static Set<Integer> sFirstPublishPosts = new HashSet<>();
-    private static PostModel sCurrentUploadingPost = null;
-    private static Map<String, Object> sCurrentUploadingPostAnalyticsProperties;
+    private static Map<Integer, Map<String, Object>> sAnalyticsPropertiesByPost = new HashMap<>();
 
     private static boolean sUseLegacyMode;
 
     private PostUploadNotifier mPostUploadNotifier;
-    private UploadPostTask mCurrentTask = null;
+    private boolean mIsUnregistered;
 
-    private SparseArray<CountDownLatch> mMediaLatchMap = new SparseArray<>();
+    // the uploads started by this handler, by post id and by the id of each media they're waiting for
+    private SparseArray<PostUploadJob> mJobsByPostId = new SparseArray<>();
+    private SparseArray<PostUploadJob> mJobsByMediaId = new SparseArray<>();
 
     @Inject Dispatcher mDispatcher;
     @Inject SiteStore mSiteStore;
+    @Inject PostStore mPostStore;
     @Inject MediaStore mMediaStore;
+    @Inject UploadStore mUploadStore;
 
     PostUploadHandler(PostUploadNotifier postUploadNotifier) {
         ((WordPress) WordPress.getContext().getApplicationContext()).component().inject(this);
         AppLog.i(T.POSTS, "PostUploadHandler > Created");
         mDispatcher.register(this);
         mPostUploadNotifier = postUploadNotifier;
+        // uploads stopped along with an earlier handler before their post was pushed are started again,
+        // followed by the posts which were queued before the process was killed
+        UPLOAD_QUEUE.requeueUploadingPosts();
+        restoreQueuedPosts();
     }
 
     void unregister() {
+        mIsUnregistered = true;
         mDispatcher.unregister(this);
+        // the results of the posts already pushed won't reach this handler, so they're completed here rather
+        // than keeping their sites taken and the service running - PostStore and UploadStore still record
+        // their results, and a post whose push fails stays locally changed so it can be published again
+        for (int postId : UPLOAD_QUEUE.getPushedPostIds()) {
+            finishUpload(postId);
+        }
     }
 
     @Override
     public boolean hasInProgressUploads() {
-        return mCurrentTask != null || !sQueuedPostsList.isEmpty();
+        return !UPLOAD_QUEUE.isEmpty();
     }
 
     @Override
     public void cancelInProgressUploads() {
-        if (mCurrentTask != null) {
-            AppLog.i(T.POSTS, "PostUploadHandler > Cancelling current upload task");
-            mCurrentTask.cancel(true);
+        for (int i = 0; i < mJobsByPostId.size(); i++) {
+            UploadPostTask task = mJobsByPostId.valueAt(i).mTask;
+            if (task != null) {
+                AppLog.i(T.POSTS, "PostUploadHandler > Cancelling upload task for post " + mJobsByPostId.keyAt(i));
+                task.cancel(true);
+            }
         }
     }
 
     @Override
     public void upload(@NonNull PostModel post) {
-        synchronized (sQueuedPostsList) {
-            // first check whether there was an old version of this Post still enqueued waiting
-            // for being uploaded
-            for (PostModel queuedPost : sQueuedPostsList) {
-                if (queuedPost.getId() == post.getId()) {
-                    // we found an older version, so let's remove it and replace it with the newest copy
-                    sQueuedPostsList.remove(queuedPost);
-                    break;
-                }
+        UPLOAD_QUEUE.add(post);
+        PostUploadJournal.add(post);
+        uploadNextPosts();
+    }
+
+    /*
+     * drops the passed post from the queue, and stops preparing it if it's being published - a post
+     * which was already pushed can't be stopped, and its result is still handled
+     */
+    void cancelQueuedPost(@NonNull PostModel post) {
+        PostUploadJournal.remove(post.getId());
+        UPLOAD_QUEUE.removePending(post.getId());
+        PostUploadJob job = mJobsByPostId.get(post.getId());
+        if (job != null && !UPLOAD_QUEUE.isPushed(post.getId())) {
+            AppLog.i(T.POSTS, "PostUploadHandler > Canceling the upload of post " + post.getId());
+            if (job.mTask != null) {
+                job.mTask.cancel(true);
             }
-            sQueuedPostsList.add(post);
+            finishUpload(post.getId());
         }
-        uploadNextPost();
     }
 
     void registerPostForAnalyticsTracking(@NonNull PostModel post) {
@@ -135,61 +171,193 @@ public class PostUploadHandler implements UploadHandler<PostModel> {
     }
 
     static boolean isPostQueued(PostModel post) {
-        if (post == null) {
-            return false;
-        }
-
-        // Check the list of posts waiting to be uploaded
-        if (sQueuedPostsList.size() > 0) {
-            synchronized (sQueuedPostsList) {
-                for (PostModel queuedPost : sQueuedPostsList) {
-                    if (queuedPost.getId() == post.getId()) {
-                        return true;
-                    }
-                }
-            }
-        }
-        return false;
+        return post != null && UPLOAD_QUEUE.isPending(post.getId());
     }
 
     static boolean isPostUploading(PostModel post) {
-        return post != null && sCurrentUploadingPost != null && sCurrentUploadingPost.getId() == post.getId();
+        return post != null && UPLOAD_QUEUE.isUploading(post.getId());
     }
 
     static boolean hasPendingOrInProgressPostUploads() {
-        return sCurrentUploadingPost != null || !sQueuedPostsList.isEmpty();
+        return !UPLOAD_QUEUE.isEmpty();
     }
 
-    private void uploadNextPost() {
-        synchronized (sQueuedPostsList) {
-            if (mCurrentTask == null) { // make sure nothing is running
-                sCurrentUploadingPost = null;
-                sCurrentUploadingPostAnalyticsProperties = null;
-                if (sQueuedPostsList.size() > 0) {
-                    sCurrentUploadingPost = sQueuedPostsList.remove(0);
-                    mCurrentTask = new UploadPostTask();
-                    mCurrentTask.executeOnExecutor(AsyncTask.SERIAL_EXECUTOR, sCurrentUploadingPost);
-                } else {
-                    AppLog.i(T.POSTS, "PostUploadHandler > Completed");
-                }
+    /*
+     * queues the posts recorded in the journal which aren't queued yet and still need to be published
+     */
+    private void restoreQueuedPosts() {
+        for (int postId : PostUploadJournal.getQueuedPostIds()) {
+            PostModel post = mPostStore.getPostByLocalPostId(postId);
+            if (post == null || (!post.isLocalDraft() && !post.isLocallyChanged())
+                || mUploadStore.isCancelledPost(post)) {
+                PostUploadJournal.remove(postId);
+            } else if (!isPostUploadingOrQueued(post)) {
+                AppLog.i(T.POSTS, "PostUploadHandler > Restoring queued post " + postId);
+                mPostUploadNotifier.addPostInfoToForegroundNotification(post, null);
+                UPLOAD_QUEUE.add(post);
             }
         }
+        uploadNextPosts();
     }
 
-    private void finishUpload() {
-        synchronized (sQueuedPostsList) {
-            mCurrentTask = null;
-            sCurrentUploadingPost = null;
-            sCurrentUploadingPostAnalyticsProperties = null;
+    private void uploadNextPosts() {
+        if (mIsUnregistered) {
+            // posts canceled while the service is destroyed don't start the ones after them
+            return;
+        }
+        for (PostModel post : UPLOAD_QUEUE.takeNextPosts(MAX_CONCURRENT_POSTS)) {
+            PostUploadJob job = new PostUploadJob(post);
+            mJobsByPostId.put(post.getId(), job);
+            job.mTask = new UploadPostTask(job);
+            job.mTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+        }
+        if (UPLOAD_QUEUE.isEmpty()) {
+            AppLog.i(T.POSTS, "PostUploadHandler > Completed");
         }
-        uploadNextPost();
     }
 
-    private class UploadPostTask extends AsyncTask<PostModel, Boolean, Boolean> {
-        private Context mContext;
+    private void finishUpload(int localPostId) {
+        PostUploadJob job = mJobsByPostId.get(localPostId);
+        if (job != null) {
+            mJobsByPostId.remove(localPostId);
+            for (int i = 0; i < job.mPendingMedia.size(); i++) {
+                mJobsByMediaId.remove(job.mPendingMedia.keyAt(i));
+            }
+        }
+        synchronized (sAnalyticsPropertiesByPost) {
+            sAnalyticsPropertiesByPost.remove(localPostId);
+        }
+        UPLOAD_QUEUE.complete(localPostId);
+        // a post queued again while it was being published is still to be published
+        if (!UPLOAD_QUEUE.isPending(localPostId)) {
+            PostUploadJournal.remove(localPostId);
+        }
+        uploadNextPosts();
+    }
+
+    private void failUpload(@NonNull PostUploadJob job, String errorMessage) {
+        mPostUploadNotifier.incrementUploadedPostCountFromForegroundNotification(job.mPost);
+        mPostUploadNotifier.updateNotificationErrorForPost(job.mPost, job.mSite, errorMessage, 0);
+        finishUpload(job.mPost.getId());
+    }
+
+    /*
+     * dispatches the post of the passed job, once the media it embeds have been uploaded
+     */
+    private void publishPost(@NonNull PostUploadJob job) {
+        PostModel post = job.mPost;
+        post.setContent(job.mContent);
+
+        if (post.getCategoryIdList().size() > 0) {
+            job.mHasCategory = true;
+        }
 
-        private PostModel mPost;
+        // Support for legacy editor - images are identified as featured as they're being uploaded with the post
+        if (sUseLegacyMode && job.mFeaturedImageID != -1) {
+            post.setFeaturedImageId(job.mFeaturedImageID);
+        }
+
+        // Track analytics only if the post is newly published
+        boolean isFirstTimePublish;
+        synchronized (sFirstPublishPosts) {
+            isFirstTimePublish = sFirstPublishPosts.contains(post.getId());
+        }
+        if (isFirstTimePublish) {
+            prepareUploadAnalytics(job);
+        }
+
+        EventBus.getDefault().post(new PostUploadStarted(post));
+
+        RemotePostPayload payload = new RemotePostPayload(post, job.mSite);
+        UPLOAD_QUEUE.markPushed(post.getId());
+        mDispatcher.dispatch(PostActionBuilder.newPushPostAction(payload));
+    }
+
+    private boolean hasGallery(PostModel post) {
+        Pattern galleryTester = Pattern.compile("\\[.*?gallery.*?\\]");
+        Matcher matcher = galleryTester.matcher(post.getContent());
+        return matcher.find();
+    }
+
+    private void prepareUploadAnalytics(@NonNull PostUploadJob job) {
+        PostModel post = job.mPost;
+        String postContent = post.getContent();
+
+        // Calculate the words count
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("word_count", AnalyticsUtils.getWordCount(postContent));
+        properties.put("editor_source",
+                // making sure to reuse the same logic for both showing Gutenberg and tracking.
+                // Note that mIsNewPost is not available as a flag-logic per se outside of EditPostActivity,
+                // but the check will pass anyway as long as Gutenberg is enabled and the PostModel contains
+                // Gutenberg blocks. As a proxy to mIsNewPost, we're using postModel.isLocalDraft(). The
+                // choice is loosely made knowing the other check ("contains blocks") is in place.
+                PostUtils.shouldShowGutenbergEditor(post.isLocalDraft(), post) ? "gutenberg"
+                        : (AppPrefs.isAztecEditorEnabled() ? "aztec"
+                                : AppPrefs.isVisualEditorEnabled() ? "hybrid" : "legacy"));
+
+        if (hasGallery(post)) {
+            properties.put("with_galleries", true);
+        }
+        if (!job.mHasImage) {
+            // Check if there is a img tag in the post. Media added in any editor other than legacy.
+            String imageTagsPattern = "<img[^>]+src\\s*=\\s*[\"]([^\"]+)[\"][^>]*>";
+            Pattern pattern = Pattern.compile(imageTagsPattern);
+            Matcher matcher = pattern.matcher(postContent);
+            job.mHasImage = matcher.find();
+        }
+        if (job.mHasImage) {
+            properties.put("with_photos", true);
+        }
+        if (!job.mHasVideo) {
+            // Check if there is a video tag in the post. Media added in any editor other than legacy.
+            String videoTagsPattern =
+                    "<video[^>]+src\\s*=\\s*[\"]([^\"]+)[\"][^>]*>|\\[wpvideo\\s+([^\\]]+)\\]";
+            Pattern pattern = Pattern.compile(videoTagsPattern);
+            Matcher matcher = pattern.matcher(postContent);
+            job.mHasVideo = matcher.find();
+        }
+        if (job.mHasVideo) {
+            properties.put("with_videos", true);
+        }
+        if (job.mHasCategory) {
+            properties.put("with_categories", true);
+        }
+        if (!post.getTagNameList().isEmpty()) {
+            properties.put("with_tags", true);
+        }
+        properties.put("via_new_editor", AppPrefs.isVisualEditorEnabled());
+
+        synchronized (sAnalyticsPropertiesByPost) {
+            sAnalyticsPropertiesByPost.put(post.getId(), properties);
+        }
+    }
+
+    /*
+     * a media embedded in a post by the legacy editor, and the tag it replaces once it's uploaded
+     */
+    private static class LegacyMedia {
+        private final String mTag;
+        private final MediaFile mMediaFile;
+        private String mMimeType = "";
+        private String mXRes = "";
+        private String mYRes = "";
+
+        LegacyMedia(@NonNull String tag, @NonNull MediaFile mediaFile) {
+            mTag = tag;
+            mMediaFile = mediaFile;
+        }
+    }
+
+    /*
+     * the state of the upload of a single post - touched by its UploadPostTask until the task is done,
+     * then by the callbacks on the main thread
+     */
+    private static class PostUploadJob {
+        private final PostModel mPost;
         private SiteModel mSite;
+        private UploadPostTask mTask;
+        private String mContent;
 
         private String mErrorMessage = "";
         private boolean mIsMediaError = false;
@@ -198,33 +366,76 @@ public class PostUploadHandler implements UploadHandler<PostModel> {
         // Used for analytics
         private boolean mHasImage, mHasVideo, mHasCategory;
 
+        // media still being uploaded, by media id
+        private final SparseArray<LegacyMedia> mPendingMedia = new SparseArray<>();
+
+        PostUploadJob(@NonNull PostModel post) {
+            mPost = post;
+        }
+    }
+
+    /*
+     * prepares the post of the passed job off the main thread and starts the upload of the media it
+     * embeds, or publishes it right away if it doesn't embed any
+     */
+    private class UploadPostTask extends AsyncTask<Void, Void, Boolean> {
+        private final PostUploadJob mJob;
+        private Context mContext;
+        // media added to the foreground notification once the task is done, since the notifier is
+        // only used from the main thread
+        private final List<MediaModel> mNotificationMedia = new ArrayList<>();
+
+        UploadPostTask(@NonNull PostUploadJob job) {
+            mJob = job;
+        }
+
         @Override
-        protected void onPostExecute(Boolean pushActionWasDispatched) {
-            if (!pushActionWasDispatched) {
-                // This block only runs if the PUSH_POST action was never dispatched - if it was dispatched, any error
+        protected void onPostExecute(Boolean isReady) {
+            mJob.mTask = null;
+            for (MediaModel media : mNotificationMedia) {
+                mPostUploadNotifier.addMediaInfoToForegroundNotification(media);
+            }
+
+            if (!isReady) {
+                // This block only runs if the PUSH_POST action won't be dispatched - if it is, any error
                 // will be handled in OnPostChanged instead of here
-                mPostUploadNotifier.incrementUploadedPostCountFromForegroundNotification(mPost);
-                mPostUploadNotifier.updateNotificationErrorForPost(mPost, mSite, mErrorMessage, 0);
-                finishUpload();
+                failUpload(mJob, mJob.mErrorMessage);
+                return;
+            }
+
+            if (mJob.mPendingMedia.size() == 0) {
+                publishPost(mJob);
+                return;
+            }
+
+            for (int i = 0; i < mJob.mPendingMedia.size(); i++) {
+                MediaFile mediaFile = mJob.mPendingMedia.valueAt(i).mMediaFile;
+                mJobsByMediaId.put(mJob.mPendingMedia.keyAt(i), mJob);
+                UploadMediaPayload payload = new UploadMediaPayload(
+                        mJob.mSite,
+                        FluxCUtils.mediaModelFromMediaFile(mediaFile),
+                        AppPrefs.isStripImageLocation()
+                );
+                mDispatcher.dispatch(MediaActionBuilder.newUploadMediaAction(payload));
             }
         }
 
         @Override
-        protected Boolean doInBackground(PostModel... posts) {
+        protected Boolean doInBackground(Void... params) {
             mContext = WordPress.getContext();
-            mPost = posts[0];
+            PostModel post = mJob.mPost;
 
-            mSite = mSiteStore.getSiteByLocalId(mPost.getLocalSiteId());
-            if (mSite == null) {
-                mErrorMessage = mContext.getString(R.string.blog_not_found);
+            mJob.mSite = mSiteStore.getSiteByLocalId(post.getLocalSiteId());
+            if (mJob.mSite == null) {
+                mJob.mErrorMessage = mContext.getString(R.string.blog_not_found);
                 return false;
             }
 
-            if (TextUtils.isEmpty(mPost.getStatus())) {
-                mPost.setStatus(PostStatus.PUBLISHED.toString());
+            if (TextUtils.isEmpty(post.getStatus())) {
+                post.setStatus(PostStatus.PUBLISHED.toString());
             }
 
-            String content = mPost.getContent();
+            String content = post.getContent();
             // Get rid of ZERO WIDTH SPACE character that the Visual editor can insert
             // at the beginning of the content.
             // http://www.fileformat.info/info/unicode/char/200b/index.htm
@@ -232,109 +443,24 @@ public class PostUploadHandler implements UploadHandler<PostModel> {
             if (content.length() > 0 && content.charAt(0) == '\u200B') {
                 content = content.substring(1, content.length());
             }
-            content = processPostMedia(content);
-            mPost.setContent(content);
+            mJob.mContent = processPostMedia(content);
 
-            // If media file upload failed, let's stop here and prompt the user
-            if (mIsMediaError) {
-                return false;
-            }
-
-            if (mPost.getCategoryIdList().size() > 0) {
-                mHasCategory = true;
-            }
-
-            // Support for legacy editor - images are identified as featured as they're being uploaded with the post
-            if (sUseLegacyMode && mFeaturedImageID != -1) {
-                mPost.setFeaturedImageId(mFeaturedImageID);
-            }
-
-            // Track analytics only if the post is newly published
-            if (sFirstPublishPosts.contains(mPost.getId())) {
-                prepareUploadAnalytics(mPost.getContent());
-            }
-
-            EventBus.getDefault().post(new PostUploadStarted(mPost));
-
-            RemotePostPayload payload = new RemotePostPayload(mPost, mSite);
-            mDispatcher.dispatch(PostActionBuilder.newPushPostAction(payload));
-
-            return true;
-        }
-
-        private boolean hasGallery() {
-            Pattern galleryTester = Pattern.compile("\\[.*?gallery.*?\\]");
-            Matcher matcher = galleryTester.matcher(mPost.getContent());
-            return matcher.find();
-        }
-
-        private void prepareUploadAnalytics(String postContent) {
-            // Other methods (like 'uploadNextPost') synchronize over `sQueuedPostsList` before setting
-            // `sCurrentUploadingPostAnalyticsProperties` to null. Make sure racing conditions are avoid here
-            // by synchronizing over sQueuedPostsList.
-            // See https://github.com/wordpress-mobile/WordPress-Android/issues/7990
-            synchronized (sQueuedPostsList) {
-                // Calculate the words count
-                sCurrentUploadingPostAnalyticsProperties = new HashMap<>();
-                sCurrentUploadingPostAnalyticsProperties
-                        .put("word_count", AnalyticsUtils.getWordCount(mPost.getContent()));
-                sCurrentUploadingPostAnalyticsProperties.put("editor_source",
-                        // making sure to reuse the same logic for both showing Gutenberg and tracking.
-                        // Note that mIsNewPost is not available as a flag-logic per se outside of EditPostActivity,
-                        // but the check will pass anyway as long as Gutenberg is enabled and the PostModel contains
-                        // Gutenberg blocks. As a proxy to mIsNewPost, we're using postModel.isLocalDraft(). The
-                        // choice is loosely made knowing the other check ("contains blocks") is in place.
-                        PostUtils.shouldShowGutenbergEditor(mPost.isLocalDraft(), mPost) ? "gutenberg"
-                                : (AppPrefs.isAztecEditorEnabled() ? "aztec"
-                                        : AppPrefs.isVisualEditorEnabled() ? "hybrid" : "legacy"));
-
-                if (hasGallery()) {
-                    sCurrentUploadingPostAnalyticsProperties.put("with_galleries", true);
-                }
-                if (!mHasImage) {
-                    // Check if there is a img tag in the post. Media added in any editor other than legacy.
-                    String imageTagsPattern = "<img[^>]+src\\s*=\\s*[\"]([^\"]+)[\"][^>]*>";
-                    Pattern pattern = Pattern.compile(imageTagsPattern);
-                    Matcher matcher = pattern.matcher(postContent);
-                    mHasImage = matcher.find();
-                }
-                if (mHasImage) {
-                    sCurrentUploadingPostAnalyticsProperties.put("with_photos", true);
-                }
-                if (!mHasVideo) {
-                    // Check if there is a video tag in the post. Media added in any editor other than legacy.
-                    String videoTagsPattern =
-                            "<video[^>]+src\\s*=\\s*[\"]([^\"]+)[\"][^>]*>|\\[wpvideo\\s+([^\\]]+)\\]";
-                    Pattern pattern = Pattern.compile(videoTagsPattern);
-                    Matcher matcher = pattern.matcher(postContent);
-                    mHasVideo = matcher.find();
-                }
-                if (mHasVideo) {
-                    sCurrentUploadingPostAnalyticsProperties.put("with_videos", true);
-                }
-                if (mHasCategory) {
-                    sCurrentUploadingPostAnalyticsProperties.put("with_categories", true);
-                }
-                if (!mPost.getTagNameList().isEmpty()) {
-                    sCurrentUploadingPostAnalyticsProperties.put("with_tags", true);
-                }
-                sCurrentUploadingPostAnalyticsProperties.put("via_new_editor", AppPrefs.isVisualEditorEnabled());
-            }
+            // If a media file can't be uploaded, let's stop here and prompt the user
+            return !mJob.mIsMediaError;
         }
 
         /**
-         * Finds media in post content, uploads them, and returns the HTML to insert in the post
+         * Finds media in post content and prepares them for upload - their tags are replaced with the
+         * HTML to insert in the post once they're uploaded
          */
         private String processPostMedia(String postContent) {
             String imageTagsPattern = "<img[^>]+android-uri\\s*=\\s*['\"]([^'\"]+)['\"][^>]*>";
             Pattern pattern = Pattern.compile(imageTagsPattern);
             Matcher matcher = pattern.matcher(postContent);
 
-            int totalMediaItems = 0;
             List<String> imageTags = new ArrayList<>();
             while (matcher.find()) {
                 imageTags.add(matcher.group());
-                totalMediaItems++;
             }
 
             for (String tag : imageTags) {
@@ -343,29 +469,29 @@ public class PostUploadHandler implements UploadHandler<PostModel> {
                 if (m.find()) {
                     String imageUri = m.group(1);
                     if (!imageUri.equals("")) {
-                        MediaModel mediaModel = mMediaStore.getMediaForPostWithPath(mPost, imageUri);
+                        MediaModel mediaModel = mMediaStore.getMediaForPostWithPath(mJob.mPost, imageUri);
                         if (mediaModel == null) {
-                            mIsMediaError = true;
+                            mJob.mIsMediaError = true;
                             continue;
                         }
                         MediaFile mediaFile = FluxCUtils.mediaFileFromMediaModel(mediaModel);
                         if (mediaFile != null) {
-                            mPostUploadNotifier.addMediaInfoToForegroundNotification(mediaModel);
+                            mNotificationMedia.add(mediaModel);
 
-                            String mediaUploadOutput;
+                            LegacyMedia media;
                             if (mediaFile.isVideo()) {
-                                mHasVideo = true;
-                                mediaUploadOutput = uploadVideo(mediaFile);
+                                mJob.mHasVideo = true;
+                                media = prepareVideo(tag, mediaFile);
                             } else {
-                                mHasImage = true;
-                                mediaUploadOutput = uploadImage(mediaFile);
+                                mJob.mHasImage = true;
+                                media = prepareImage(tag, mediaFile);
                             }
 
-                            if (mediaUploadOutput != null) {
-                                postContent = postContent.replace(tag, mediaUploadOutput);
+                            if (media != null) {
+                                mJob.mPendingMedia.put(mediaFile.getId(), media);
                             } else {
                                 postContent = postContent.replace(tag, "");
-                                mIsMediaError = true;
+                                mJob.mIsMediaError = true;
                             }
                         }
                     }
@@ -375,10 +501,11 @@ public class PostUploadHandler implements UploadHandler<PostModel> {
             return postContent;
         }
 
-        private String uploadImage(MediaFile mediaFile) {
+        private LegacyMedia prepareImage(String tag, MediaFile mediaFile) {
             AppLog.i(T.POSTS, "PostUploadHandler > UploadImage: " + mediaFile.getFilePath());
 
             if (mediaFile.getFilePath() == null) {
+                mJob.mErrorMessage = mContext.getString(R.string.error_media_upload);
                 return null;
             }
 
@@ -405,37 +532,31 @@ public class PostUploadHandler implements UploadHandler<PostModel> {
 
             // check if the file exists
             if (imageFile == null) {
-                mErrorMessage = mContext.getString(R.string.file_not_found);
+                mJob.mErrorMessage = mContext.getString(R.string.file_not_found);
                 return null;
             }
 
-            String fullSizeUrl = uploadImageFile(mediaFile, mSite);
-            if (fullSizeUrl == null) {
-                mErrorMessage = mContext.getString(R.string.error_media_upload);
-                return null;
-            }
-
-            return mediaFile.getImageHtmlForUrls(fullSizeUrl, null, false);
+            return new LegacyMedia(tag, mediaFile);
         }
 
-        private String uploadVideo(MediaFile mediaFile) {
+        private LegacyMedia prepareVideo(String tag, MediaFile mediaFile) {
             // create temp file for media upload
             String tempFileName = "wp-" + System.currentTimeMillis();
             try {
                 mContext.openFileOutput(tempFileName, Context.MODE_PRIVATE);
             } catch (FileNotFoundException e) {
-                mErrorMessage = mContext.getResources().getString(R.string.file_error_create);
+                mJob.mErrorMessage = mContext.getResources().getString(R.string.file_error_create);
                 return null;
             }
 
             if (mediaFile.getFilePath() == null) {
-                mErrorMessage = mContext.getString(R.string.error_media_upload);
+                mJob.mErrorMessage = mContext.getString(R.string.error_media_upload);
                 return null;
             }
 
+            LegacyMedia media = new LegacyMedia(tag, mediaFile);
             Uri videoUri = Uri.parse(mediaFile.getFilePath());
             File videoFile = null;
-            String mimeType = "", xRes = "", yRes = "";
 
             if (videoUri.toString().contains("content:")) {
                 String[] projection = new String[]{Video.Media._ID, Video.Media.DATA, Video.Media.MIME_TYPE,
@@ -447,10 +568,8 @@ public class PostUploadHandler implements UploadHandler<PostModel> {
                     int mimeTypeColumn = cur.getColumnIndex(Video.Media.MIME_TYPE);
                     int resolutionColumn = cur.getColumnIndex(Video.Media.RESOLUTION);
 
-                    mediaFile = new MediaFile();
-
                     String thumbData = cur.getString(dataColumn);
-                    mimeType = cur.getString(mimeTypeColumn);
+                    media.mMimeType = cur.getString(mimeTypeColumn);
 
                     videoFile = new File(thumbData);
                     mediaFile.setFilePath(videoFile.getPath());
@@ -458,13 +577,13 @@ public class PostUploadHandler implements UploadHandler<PostModel> {
                     if (resolution != null) {
                         String[] resolutions = resolution.split("x");
                         if (resolutions.length >= 2) {
-                            xRes = resolutions[0];
-                            yRes = resolutions[1];
+                            media.mXRes = resolutions[0];
+                            media.mYRes = resolutions[1];
                         }
                     } else {
                         // Default resolution
-                        xRes = "640";
-                        yRes = "480";
+                        media.mXRes = "640";
+                        media.mYRes = "480";
                     }
                 }
                 SqlUtils.closeCursor(cur);
@@ -475,86 +594,47 @@ public class PostUploadHandler implements UploadHandler<PostModel> {
             }
 
             if (videoFile == null) {
-                mErrorMessage = mContext.getResources().getString(R.string.error_media_upload);
+                mJob.mErrorMessage = mContext.getResources().getString(R.string.error_media_upload);
                 return null;
             }
 
-            if (TextUtils.isEmpty(mimeType)) {
-                mimeType = MediaUtils.getMediaFileMimeType(videoFile);
-            }
-
-            CountDownLatch countDownLatch = new CountDownLatch(1);
-            UploadMediaPayload payload = new UploadMediaPayload(
-                    mSite,
-                    FluxCUtils.mediaModelFromMediaFile(mediaFile),
-                    AppPrefs.isStripImageLocation()
-            );
-            mDispatcher.dispatch(MediaActionBuilder.newUploadMediaAction(payload));
-
-            try {
-                mMediaLatchMap.put(mediaFile.getId(), countDownLatch);
-                countDownLatch.await();
-            } catch (InterruptedException e) {
-                AppLog.e(T.POSTS, "PostUploadHandler > CountDownLatch await interrupted for media file: "
-                                  + mediaFile.getId() + " - " + e);
-                mIsMediaError = true;
+            if (TextUtils.isEmpty(media.mMimeType)) {
+                media.mMimeType = MediaUtils.getMediaFileMimeType(videoFile);
             }
+            return media;
+        }
+    }
 
-            MediaModel finishedMedia = mMediaStore.getMediaWithLocalId(mediaFile.getId());
+    /*
+     * returns the HTML replacing the tag of the passed media once it's uploaded, or null if it wasn't
+     */
+    private String getUploadedMediaHtml(@NonNull PostUploadJob job, @NonNull LegacyMedia media) {
+        MediaModel finishedMedia = mMediaStore.getMediaWithLocalId(media.mMediaFile.getId());
 
-            if (finishedMedia == null || finishedMedia.getUploadState() == null
-                || !finishedMedia.getUploadState().equals(MediaUploadState.UPLOADED.toString())) {
-                mIsMediaError = true;
-                return null;
-            }
+        if (finishedMedia == null || finishedMedia.getUploadState() == null
+            || !finishedMedia.getUploadState().equals(MediaUploadState.UPLOADED.toString())) {
+            return null;
+        }
 
+        if (media.mMediaFile.isVideo()) {
             if (!TextUtils.isEmpty(finishedMedia.getVideoPressGuid())) {
                 return "[wpvideo " + finishedMedia.getVideoPressGuid() + "]\n";
             } else {
                 return String.format(
                         "<video width=\"%s\" height=\"%s\" controls=\"controls\"><source src=\"%s\" type=\"%s\" />"
                         + "<a href=\"%s\">Click to view video</a>.</video>",
-                        xRes, yRes, finishedMedia.getUrl(), mimeType, finishedMedia.getUrl());
+                        media.mXRes, media.mYRes, finishedMedia.getUrl(), media.mMimeType, finishedMedia.getUrl());
             }
         }
 
-        private String uploadImageFile(MediaFile mediaFile, SiteModel site) {
-            CountDownLatch countDownLatch = new CountDownLatch(1);
-            UploadMediaPayload payload = new UploadMediaPayload(
-                    site,
-                    FluxCUtils.mediaModelFromMediaFile(mediaFile),
-                    AppPrefs.isStripImageLocation()
-            );
-            mDispatcher.dispatch(MediaActionBuilder.newUploadMediaAction(payload));
-
-            try {
-                mMediaLatchMap.put(mediaFile.getId(), countDownLatch);
-                countDownLatch.await();
-            } catch (InterruptedException e) {
-                AppLog.e(T.POSTS, "PostUploadHandler > CountDownLatch await interrupted for media file: "
-                                  + mediaFile.getId() + " - " + e);
-                mIsMediaError = true;
+        String pictureURL = finishedMedia.getUrl();
+        if (media.mMediaFile.isFeatured()) {
+            job.mFeaturedImageID = finishedMedia.getMediaId();
+            if (!media.mMediaFile.isFeaturedInPost()) {
+                pictureURL = "";
             }
-
-            MediaModel finishedMedia = mMediaStore.getMediaWithLocalId(mediaFile.getId());
-
-            if (finishedMedia == null || finishedMedia.getUploadState() == null
-                || !finishedMedia.getUploadState().equals(MediaUploadState.UPLOADED.toString())) {
-                mIsMediaError = true;
-                return null;
-            }
-
-            String pictureURL = finishedMedia.getUrl();
-
-            if (mediaFile.isFeatured()) {
-                mFeaturedImageID = finishedMedia.getMediaId();
-                if (!mediaFile.isFeaturedInPost()) {
-                    return "";
-                }
-            }
-
-            return pictureURL;
         }
+        return media.mMediaFile.getImageHtmlForUrls(pictureURL, null, false);
     }
 
     /**
@@ -574,26 +654,33 @@ public class PostUploadHandler implements UploadHandler<PostModel> {
             String notificationMessage = UploadUtils.getErrorMessage(context, event.post, errorMessage, false);
             mPostUploadNotifier.incrementUploadedPostCountFromForegroundNotification(event.post);
             mPostUploadNotifier.updateNotificationErrorForPost(event.post, site, notificationMessage, 0);
-            sFirstPublishPosts.remove(event.post.getId());
+            unregisterPostForAnalyticsTracking(event.post);
         } else {
             mPostUploadNotifier.incrementUploadedPostCountFromForegroundNotification(event.post);
-            boolean isFirstTimePublish = sFirstPublishPosts.remove(event.post.getId());
+            boolean isFirstTimePublish;
+            synchronized (sFirstPublishPosts) {
+                isFirstTimePublish = sFirstPublishPosts.remove(event.post.getId());
+            }
             mPostUploadNotifier.updateNotificationSuccessForPost(event.post, site, isFirstTimePublish);
             if (isFirstTimePublish) {
-                if (sCurrentUploadingPostAnalyticsProperties != null) {
-                    sCurrentUploadingPostAnalyticsProperties.put("post_id", event.post.getRemotePostId());
+                Map<String, Object> properties;
+                synchronized (sAnalyticsPropertiesByPost) {
+                    properties = sAnalyticsPropertiesByPost.remove(event.post.getId());
+                }
+                if (properties != null) {
+                    properties.put("post_id", event.post.getRemotePostId());
                 } else {
-                    sCurrentUploadingPostAnalyticsProperties = new HashMap<>();
+                    properties = new HashMap<>();
                 }
-                sCurrentUploadingPostAnalyticsProperties.put(AnalyticsUtils.HAS_GUTENBERG_BLOCKS_KEY,
-                                                PostUtils.contentContainsGutenbergBlocks(event.post.getContent()));
+                properties.put(AnalyticsUtils.HAS_GUTENBERG_BLOCKS_KEY,
+                               PostUtils.contentContainsGutenbergBlocks(event.post.getContent()));
                 AnalyticsUtils.trackWithSiteDetails(Stat.EDITOR_PUBLISHED_POST,
                                                     mSiteStore.getSiteByLocalId(event.post.getLocalSiteId()),
-                                                    sCurrentUploadingPostAnalyticsProperties);
+                                                    properties);
             }
         }
 
-        finishUpload();
+        finishUpload(event.post.getId());
     }
 
     /**
@@ -607,14 +694,13 @@ public class PostUploadHandler implements UploadHandler<PostModel> {
             return;
         }
 
-        if (sUseLegacyMode) {
-            handleMediaUploadCompletedLegacy(event);
-        }
+        handleMediaUploadCompletedLegacy(event);
     }
 
     private void handleMediaUploadCompletedLegacy(OnMediaUploaded event) {
+        PostUploadJob job = mJobsByMediaId.get(event.media.getId());
         // Event for unknown media, ignoring
-        if (sCurrentUploadingPost == null || mMediaLatchMap.get(event.media.getId()) == null) {
+        if (job == null) {
             AppLog.i(T.POSTS, "PostUploadHandler > Media event not recognized: " + event.media.getId() + ", ignoring");
             return;
         }
@@ -622,15 +708,11 @@ public class PostUploadHandler implements UploadHandler<PostModel> {
         if (event.isError()) {
             AppLog.w(T.POSTS, "PostUploadHandler > Media upload failed. " + event.error.type + ": "
                               + event.error.message);
-            SiteModel site = mSiteStore.getSiteByLocalId(sCurrentUploadingPost.getLocalSiteId());
             Context context = WordPress.getContext();
             String errorMessage = UploadUtils.getErrorMessageFromMediaError(context, event.media, event.error);
-            String notificationMessage =
-                    UploadUtils.getErrorMessage(context, sCurrentUploadingPost, errorMessage, true);
-            mPostUploadNotifier.incrementUploadedPostCountFromForegroundNotification(sCurrentUploadingPost);
-            mPostUploadNotifier.updateNotificationErrorForPost(sCurrentUploadingPost, site, notificationMessage, 0);
-            sFirstPublishPosts.remove(sCurrentUploadingPost.getId());
-            finishUpload();
+            String notificationMessage = UploadUtils.getErrorMessage(context, job.mPost, errorMessage, true);
+            unregisterPostForAnalyticsTracking(job.mPost);
+            failUpload(job, notificationMessage);
             return;
         }
 
@@ -641,9 +723,21 @@ public class PostUploadHandler implements UploadHandler<PostModel> {
 
         if (event.completed) {
             AppLog.i(T.POSTS, "PostUploadHandler > Media upload completed for post. Media id: " + event.media.getId()
-                              + ", post id: " + sCurrentUploadingPost.getId());
-            mMediaLatchMap.get(event.media.getId()).countDown();
-            mMediaLatchMap.remove(event.media.getId());
+                              + ", post id: " + job.mPost.getId());
+            mJobsByMediaId.remove(event.media.getId());
+            LegacyMedia media = job.mPendingMedia.get(event.media.getId());
+            job.mPendingMedia.remove(event.media.getId());
+
+            String mediaHtml = media != null ? getUploadedMediaHtml(job, media) : null;
+            if (mediaHtml == null) {
+                failUpload(job, WordPress.getContext().getString(R.string.error_media_upload));
+                return;
+            }
+            job.mContent = job.mContent.replace(media.mTag, mediaHtml);
+
+            if (job.mPendingMedia.size() == 0) {
+                publishPost(job);
+            }
         }
     }
 }
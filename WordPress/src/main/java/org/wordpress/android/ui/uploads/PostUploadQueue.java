@@ -0,0 +1,132 @@
+package org.wordpress.android.ui.uploads;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.wordpress.android.fluxc.model.PostModel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * The posts waiting to be published and being published by PostUploadHandler. Posts are started in
+ * the order they were queued, with at most one post being published for each site - so the posts of
+ * a site are published in order - while posts for other sites are published alongside it, up to the
+ * passed limit for all sites. Posts whose PUSH_POST has been dispatched are kept apart, since they
+ * can't be started again until their result arrives
+ */
+class PostUploadQueue {
+    private final LinkedHashMap<Integer, PostModel> mPendingPosts = new LinkedHashMap<>();
+    private final HashMap<Integer, PostModel> mUploadingPosts = new HashMap<>();
+    private final HashSet<Integer> mUploadingSites = new HashSet<>();
+    private final HashSet<Integer> mPushedPosts = new HashSet<>();
+
+    /*
+     * adds the passed post to the end of the queue - a newer version of a post which is still pending
+     * replaces it in its place, and a post which is being published is published again once it's done
+     */
+    synchronized void add(@NonNull PostModel post) {
+        mPendingPosts.put(post.getId(), post);
+    }
+
+    /*
+     * moves as many pending posts to uploading as the passed limit allows, in the order they were
+     * added and skipping those for sites which already have a post uploading, and returns them so
+     * their uploads can be started
+     */
+    synchronized @NonNull List<PostModel> takeNextPosts(int maxUploading) {
+        List<PostModel> nextPosts = new ArrayList<>();
+        Iterator<PostModel> iterator = mPendingPosts.values().iterator();
+        while (iterator.hasNext() && mUploadingPosts.size() < maxUploading) {
+            PostModel post = iterator.next();
+            if (mUploadingSites.contains(post.getLocalSiteId()) || mUploadingPosts.containsKey(post.getId())) {
+                continue;
+            }
+            iterator.remove();
+            mUploadingPosts.put(post.getId(), post);
+            mUploadingSites.add(post.getLocalSiteId());
+            nextPosts.add(post);
+        }
+        return nextPosts;
+    }
+
+    /*
+     * removes the post with the passed id from the posts being published and returns it
+     */
+    synchronized @Nullable PostModel complete(int localPostId) {
+        PostModel post = mUploadingPosts.remove(localPostId);
+        if (post != null) {
+            mUploadingSites.remove(post.getLocalSiteId());
+            mPushedPosts.remove(localPostId);
+        }
+        return post;
+    }
+
+    /*
+     * removes the post with the passed id from the pending posts - returns true if it was pending
+     */
+    synchronized boolean removePending(int localPostId) {
+        return mPendingPosts.remove(localPostId) != null;
+    }
+
+    /*
+     * records that the PUSH_POST for the passed post being published has been dispatched
+     */
+    synchronized void markPushed(int localPostId) {
+        if (mUploadingPosts.containsKey(localPostId)) {
+            mPushedPosts.add(localPostId);
+        }
+    }
+
+    /*
+     * moves the posts being published back to the front of the queue, for when their uploads were
+     * stopped before they finished - posts which were already pushed stay uploading, since their push
+     * completes them
+     */
+    synchronized void requeueUploadingPosts() {
+        if (mUploadingPosts.size() == mPushedPosts.size()) {
+            return;
+        }
+        // a newer version of a post which is still pending replaces it, but at its place at the front
+        LinkedHashMap<Integer, PostModel> pendingPosts = new LinkedHashMap<>();
+        Iterator<PostModel> iterator = mUploadingPosts.values().iterator();
+        while (iterator.hasNext()) {
+            PostModel post = iterator.next();
+            if (!mPushedPosts.contains(post.getId())) {
+                pendingPosts.put(post.getId(), post);
+                iterator.remove();
+                mUploadingSites.remove(post.getLocalSiteId());
+            }
+        }
+        pendingPosts.putAll(mPendingPosts);
+        mPendingPosts.clear();
+        mPendingPosts.putAll(pendingPosts);
+    }
+
+    /*
+     * returns the ids of the posts being published whose PUSH_POST has been dispatched
+     */
+    synchronized @NonNull List<Integer> getPushedPostIds() {
+        return new ArrayList<>(mPushedPosts);
+    }
+
+    synchronized boolean isPending(int localPostId) {
+        return mPendingPosts.containsKey(localPostId);
+    }
+
+    synchronized boolean isUploading(int localPostId) {
+        return mUploadingPosts.containsKey(localPostId);
+    }
+
+    synchronized boolean isPushed(int localPostId) {
+        return mPushedPosts.contains(localPostId);
+    }
+
+    synchronized boolean isEmpty() {
+        return mPendingPosts.isEmpty() && mUploadingPosts.isEmpty();
+    }
+}
@@ -12,6 +12,7 @@ import org.greenrobot.eventbus.ThreadMode;
 import org.wordpress.android.R;
 import org.wordpress.android.WordPress;
 import org.wordpress.android.analytics.AnalyticsTracker;
+import org.wordpress.android.datasets.PostUploadJournal;
 import org.wordpress.android.editor.AztecEditorFragment;
 import org.wordpress.android.fluxc.Dispatcher;
 import org.wordpress.android.fluxc.generated.MediaActionBuilder;
@@ -58,6 +59,7 @@ public class UploadService extends Service {
     private static final String KEY_UPLOAD_MEDIA_FROM_EDITOR = "mediaFromEditor";
     private static final String KEY_LOCAL_POST_ID = "localPostId";
     private static final String KEY_SHOULD_TRACK_ANALYTICS = "shouldTrackPostAnalytics";
+    private static final String KEY_RESTORE_QUEUED_POSTS = "restoreQueuedPosts";
 
     private static @Nullable UploadService sInstance;
 
@@ -122,7 +124,8 @@ public class UploadService extends Service {
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
         // Skip this request if no items to upload were given
-        if (intent == null || (!intent.hasExtra(KEY_MEDIA_LIST) && !intent.hasExtra(KEY_LOCAL_POST_ID))) {
+        if (intent == null || (!intent.hasExtra(KEY_MEDIA_LIST) && !intent.hasExtra(KEY_LOCAL_POST_ID)
+                               && !intent.hasExtra(KEY_RESTORE_QUEUED_POSTS))) {
             AppLog.e(T.MAIN, "UploadService > Killed and restarted with an empty intent");
             stopServiceIfUploadsComplete();
             return START_NOT_STICKY;
@@ -148,6 +151,12 @@ public class UploadService extends Service {
             unpackPostIntent(intent);
         }
 
+        if (intent.hasExtra(KEY_RESTORE_QUEUED_POSTS)) {
+            // the post upload handler queued the posts in the journal when it was created - stop if none of
+            // them still needed publishing
+            stopServiceIfUploadsComplete();
+        }
+
         return START_REDELIVER_INTENT;
     }
 
@@ -343,6 +352,19 @@ public class UploadService extends Service {
         context.startService(intent);
     }
 
+    /**
+     * Starts the service to publish the posts which were still queued when the process was killed, if any.
+     * They're otherwise only restored when something else starts the service.
+     */
+    public static void restoreQueuedPostUploads(Context context) {
+        if (sInstance != null || PostUploadJournal.getQueuedPostIds().isEmpty()) {
+            return;
+        }
+        Intent intent = new Intent(context, UploadService.class);
+        intent.putExtra(KEY_RESTORE_QUEUED_POSTS, true);
+        context.startService(intent);
+    }
+
     public static void setLegacyMode(boolean enabled) {
         PostUploadHandler.setLegacyMode(enabled);
     }
@@ -423,10 +445,18 @@ public class UploadService extends Service {
     }
 
     public static void cancelQueuedPostUpload(PostModel post) {
-        if (sInstance != null && post != null) {
+        if (post == null) {
+            return;
+        }
+        if (sInstance != null) {
             // Mark the post as CANCELLED in the UploadStore
             sInstance.mDispatcher.dispatch(UploadActionBuilder.newCancelPostAction(post));
+            if (sInstance.mPostUploadHandler != null) {
+                sInstance.mPostUploadHandler.cancelQueuedPost(post);
+            }
         }
+        // the post isn't queued again from the journal, even when the service isn't running
+        PostUploadJournal.remove(post.getId());
     }
 
     public static PostModel updatePostWithCurrentlyCompletedUploads(PostModel post) {
@@ -552,7 +582,8 @@ public class UploadService extends Service {
 
         for (final MediaModel media : uploadingOrQueuedMedia) {
             if (!UploadService.isPendingOrInProgressMediaUpload(media)) {
-                // it is NOT being uploaded or queued in the actual UploadService, mark it failed
+                // it is NOT being uploaded or queued in the actual UploadService, mark it failed - a chunked
+                // upload keeps its journal, so retrying it resumes from its last acknowledged chunk
                 media.setUploadState(MediaUploadState.FAILED);
                 dispatcher.dispatch(MediaActionBuilder.newUpdateMediaAction(media));
             }
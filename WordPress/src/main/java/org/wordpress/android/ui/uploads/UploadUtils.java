@@ -29,7 +29,10 @@ import org.wordpress.android.util.SiteUtils;
 import org.wordpress.android.util.ToastUtils;
 import org.wordpress.android.util.WPMediaUtils;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 
 public class UploadUtils {
@@ -402,4 +405,42 @@ public class UploadUtils {
                     });
         }
     }
+
+    /*
+     * deletes the least recently used files in the passed cache dir once they take more than maxBytes,
+     * except for those used in the last minAgeMs since they may still be waiting to be uploaded
+     */
+    static void trimCacheDir(@NonNull File cacheDir, long maxBytes, long minAgeMs) {
+        File[] files = cacheDir.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        long totalBytes = 0;
+        for (File file : files) {
+            totalBytes += file.length();
+        }
+        if (totalBytes <= maxBytes) {
+            return;
+        }
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File file1, File file2) {
+                long modified1 = file1.lastModified();
+                long modified2 = file2.lastModified();
+                return modified1 < modified2 ? -1 : (modified1 == modified2 ? 0 : 1);
+            }
+        });
+        long minLastModified = System.currentTimeMillis() - minAgeMs;
+        for (int i = 0; i < files.length && totalBytes > maxBytes; i++) {
+            if (files[i].lastModified() > minLastModified) {
+                break;
+            }
+            long length = files[i].length();
+            if (files[i].delete()) {
+                totalBytes -= length;
+            }
+        }
+    }
 }
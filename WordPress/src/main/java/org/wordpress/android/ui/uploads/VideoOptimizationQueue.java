@@ -0,0 +1,369 @@
+package org.wordpress.android.ui.uploads;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.PowerManager;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.wordpress.android.fluxc.model.MediaModel;
+import org.wordpress.android.util.AppLog;
+import org.wordpress.android.util.AppLog.T;
+import org.wordpress.android.util.MediaUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Optimizes the videos waiting to be uploaded as soon as they're added, rather than when their turn
+ * to upload comes, so the next video is transcoded while the ones before it upload. How many videos
+ * are transcoded at once depends on the device's cores and is cut to one when the device is hot or
+ * saving power. Optimized videos are cached under a fingerprint of the source file's contents plus
+ * the optimization width and quality, so retrying the upload of a video never transcodes it again, and
+ * videos with the same source and settings are transcoded once and share the result
+ */
+class VideoOptimizationQueue implements VideoOptimizer.VideoOptimizationListener {
+    interface Transcoder {
+        /*
+         * optimizes the passed video into outputPath and calls the listener when done - the media's
+         * file path is only changed to outputPath if the optimized video should be uploaded
+         */
+        void start(@NonNull MediaModel media, @NonNull String outputPath, int width, int quality,
+                   @NonNull VideoOptimizer.VideoOptimizationListener listener);
+    }
+
+    private static final String CACHE_DIR_NAME = "optimized_videos";
+    private static final long MAX_CACHE_BYTES = 500 * 1024 * 1024;
+    // files used more recently than this may still be waiting to be uploaded, so they're never trimmed
+    private static final long MIN_TRIM_AGE_MS = 24 * 60 * 60 * 1000;
+    // how much of the start and the end of the source file is hashed for its fingerprint
+    private static final int FINGERPRINT_SAMPLE_BYTES = 64 * 1024;
+    private static final int MIN_CORES_FOR_TWO_TRANSCODERS = 8;
+    // battery temperature, in tenths of a degree Celsius, above which only one video is transcoded at once
+    private static final int MAX_BATTERY_TEMPERATURE = 400;
+
+    /*
+     * optimizes one source with one width and quality - media added for the same source while it's
+     * waiting or running share the job, so they aren't transcoded into the same partial file at once
+     */
+    private static class Job {
+        private final ArrayList<MediaModel> mMediaList = new ArrayList<>();
+        private final String mCachePath;
+        private final String mPartialPath;
+        private final int mWidth;
+        private final int mQuality;
+
+        Job(@NonNull String cachePath, int width, int quality) {
+            mCachePath = cachePath;
+            mPartialPath = cachePath.replace(".mp4", "-partial.mp4");
+            mWidth = width;
+            mQuality = quality;
+        }
+    }
+
+    private final Context mContext;
+    private final File mCacheDir;
+    private final Transcoder mTranscoder;
+    private final VideoOptimizer.VideoOptimizationListener mListener;
+    // jobs by cache path
+    private final LinkedHashMap<String, Job> mWaitingJobs = new LinkedHashMap<>();
+    private final HashMap<String, Job> mRunningJobs = new HashMap<>();
+    private final HashMap<Integer, Job> mJobsByMediaId = new HashMap<>();
+
+    VideoOptimizationQueue(@NonNull Context context, @NonNull VideoOptimizer.VideoOptimizationListener listener) {
+        this(context, new File(context.getCacheDir(), CACHE_DIR_NAME), new Transcoder() {
+            @Override
+            public void start(@NonNull MediaModel media, @NonNull String outputPath, int width, int quality,
+                              @NonNull VideoOptimizer.VideoOptimizationListener listener) {
+                new VideoOptimizer(media, listener, outputPath, width, quality).start();
+            }
+        }, listener);
+    }
+
+    VideoOptimizationQueue(@NonNull Context context, @NonNull File cacheDir, @NonNull Transcoder transcoder,
+                           @NonNull VideoOptimizer.VideoOptimizationListener listener) {
+        mContext = context;
+        mCacheDir = cacheDir;
+        mTranscoder = transcoder;
+        mListener = listener;
+    }
+
+    /*
+     * optimizes the passed video to the passed width and quality (the encoder's max bitrate), or
+     * completes it straight away with the cached result if it was optimized with them before
+     */
+    void add(@NonNull MediaModel media, int width, int quality) {
+        String cachePath = getCachePath(media, width, quality);
+        if (cachePath == null) {
+            // the source can't be read, so leave it to the upload to report the error
+            mListener.onVideoOptimizationCompleted(media);
+            return;
+        }
+
+        if (useCachedVideo(media, cachePath)) {
+            mListener.onVideoOptimizationCompleted(media);
+            return;
+        }
+
+        synchronized (this) {
+            Job job = mRunningJobs.get(cachePath);
+            if (job == null) {
+                job = mWaitingJobs.get(cachePath);
+            }
+            if (job != null) {
+                AppLog.i(T.MEDIA, "VideoOptimizationQueue > Video " + media.getId() + " has the same source as "
+                                  + job.mMediaList.get(0).getId() + ", so it's optimized along with it");
+            } else {
+                job = new Job(cachePath, width, quality);
+                mWaitingJobs.put(cachePath, job);
+            }
+            job.mMediaList.add(media);
+            mJobsByMediaId.put(media.getId(), job);
+        }
+        startNextJobs();
+    }
+
+    /*
+     * sets the passed video to the cached optimized video at the passed path - returns false if there
+     * isn't one
+     */
+    private boolean useCachedVideo(@NonNull MediaModel media, @NonNull String cachePath) {
+        File cacheFile = new File(cachePath);
+        if (!cacheFile.isFile()) {
+            return false;
+        }
+        AppLog.i(T.MEDIA, "VideoOptimizationQueue > Using the cached optimized video for " + media.getId());
+        // mark the file as recently used so it's the last to be trimmed
+        if (!cacheFile.setLastModified(System.currentTimeMillis())) {
+            AppLog.w(T.MEDIA, "VideoOptimizationQueue > Failed to touch " + cachePath);
+        }
+        media.setFilePath(cachePath);
+        media.setFileName(MediaUtils.generateTimeStampedFileName("video/mp4"));
+        return true;
+    }
+
+    /*
+     * drops the passed video if it's still waiting to be optimized - one already being optimized is
+     * left to finish, so its result is cached for when it's uploaded again. Returns true if the video
+     * was waiting or being optimized
+     */
+    synchronized boolean cancel(int mediaId) {
+        Job job = mJobsByMediaId.get(mediaId);
+        if (job == null) {
+            return false;
+        }
+        if (mWaitingJobs.get(job.mCachePath) == job) {
+            mJobsByMediaId.remove(mediaId);
+            removeMedia(job.mMediaList, mediaId);
+            if (job.mMediaList.isEmpty()) {
+                mWaitingJobs.remove(job.mCachePath);
+            }
+        }
+        return true;
+    }
+
+    synchronized void cancelAll() {
+        for (Job job : mWaitingJobs.values()) {
+            for (MediaModel media : job.mMediaList) {
+                mJobsByMediaId.remove(media.getId());
+            }
+        }
+        mWaitingJobs.clear();
+    }
+
+    private static void removeMedia(@NonNull List<MediaModel> mediaList, int mediaId) {
+        Iterator<MediaModel> iterator = mediaList.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getId() == mediaId) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /*
+     * returns how many videos may be transcoded at once - transcoding is hardware accelerated but
+     * still uses the CPU heavily, so a second transcoder only runs on devices with many cores which
+     * aren't hot or saving power
+     */
+    int getMaxTranscoders() {
+        if (Runtime.getRuntime().availableProcessors() < MIN_CORES_FOR_TWO_TRANSCODERS) {
+            return 1;
+        }
+
+        PowerManager powerManager = (PowerManager) mContext.getSystemService(Context.POWER_SERVICE);
+        if (powerManager != null && powerManager.isPowerSaveMode()) {
+            return 1;
+        }
+
+        Intent batteryStatus = mContext.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (batteryStatus != null
+            && batteryStatus.getIntExtra(BatteryManager.EXTRA_TEMPERATURE, 0) > MAX_BATTERY_TEMPERATURE) {
+            return 1;
+        }
+        return 2;
+    }
+
+    private void startNextJobs() {
+        int maxTranscoders = getMaxTranscoders();
+        while (true) {
+            Job job;
+            List<MediaModel> cachedMediaList = null;
+            synchronized (this) {
+                Iterator<Job> iterator = mWaitingJobs.values().iterator();
+                if (mRunningJobs.size() >= maxTranscoders || !iterator.hasNext()) {
+                    return;
+                }
+                job = iterator.next();
+                iterator.remove();
+                if (new File(job.mCachePath).isFile()) {
+                    // optimized by an earlier job, or an earlier queue, since this job was added
+                    cachedMediaList = removeJobMedia(job);
+                } else {
+                    mRunningJobs.put(job.mCachePath, job);
+                }
+            }
+
+            if (cachedMediaList != null) {
+                for (MediaModel media : cachedMediaList) {
+                    useCachedVideo(media, job.mCachePath);
+                    mListener.onVideoOptimizationCompleted(media);
+                }
+                continue;
+            }
+
+            // the first media added for the source is transcoded, and the rest get its result
+            MediaModel media = job.mMediaList.get(0);
+            if (!mCacheDir.exists() && !mCacheDir.mkdirs()) {
+                AppLog.w(T.MEDIA, "VideoOptimizationQueue > Cannot create cache dir");
+                onVideoOptimizationCompleted(media);
+                continue;
+            }
+            AppLog.i(T.MEDIA, "VideoOptimizationQueue > Optimizing video " + media.getId());
+            mTranscoder.start(media, job.mPartialPath, job.mWidth, job.mQuality, this);
+        }
+    }
+
+    /*
+     * removes the media of the passed job from the media ids, and returns them
+     */
+    private synchronized @NonNull List<MediaModel> removeJobMedia(@NonNull Job job) {
+        for (MediaModel media : job.mMediaList) {
+            mJobsByMediaId.remove(media.getId());
+        }
+        return new ArrayList<>(job.mMediaList);
+    }
+
+    @Override
+    public void onVideoOptimizationProgress(@NonNull MediaModel media, float progress) {
+        List<MediaModel> mediaList;
+        synchronized (this) {
+            Job job = mJobsByMediaId.get(media.getId());
+            mediaList = job != null ? new ArrayList<>(job.mMediaList) : Collections.singletonList(media);
+        }
+        for (MediaModel jobMedia : mediaList) {
+            mListener.onVideoOptimizationProgress(jobMedia, progress);
+        }
+    }
+
+    @Override
+    public void onVideoOptimizationCompleted(@NonNull MediaModel media) {
+        Job job;
+        List<MediaModel> mediaList;
+        synchronized (this) {
+            job = mJobsByMediaId.get(media.getId());
+            if (job != null && mRunningJobs.get(job.mCachePath) == job) {
+                mRunningJobs.remove(job.mCachePath);
+                mediaList = removeJobMedia(job);
+            } else {
+                job = null;
+                mediaList = Collections.singletonList(media);
+            }
+        }
+
+        if (job != null && job.mPartialPath.equals(media.getFilePath())) {
+            // the video is only moved into the cache once it's complete, so a partial one is never used
+            if (new File(job.mPartialPath).renameTo(new File(job.mCachePath))) {
+                media.setFilePath(job.mCachePath);
+                for (MediaModel otherMedia : mediaList) {
+                    if (otherMedia != media) {
+                        useCachedVideo(otherMedia, job.mCachePath);
+                    }
+                }
+                UploadUtils.trimCacheDir(mCacheDir, MAX_CACHE_BYTES, MIN_TRIM_AGE_MS);
+            } else {
+                AppLog.w(T.MEDIA, "VideoOptimizationQueue > Failed to cache the optimized video " + media.getId());
+            }
+        }
+
+        // media which shared the job upload their source when the video wasn't optimized
+        for (MediaModel jobMedia : mediaList) {
+            mListener.onVideoOptimizationCompleted(jobMedia);
+        }
+        startNextJobs();
+    }
+
+    /*
+     * returns the path of the cached optimized version of the passed video with the passed settings,
+     * or null if the source can't be read
+     */
+    private @Nullable String getCachePath(@NonNull MediaModel media, int width, int quality) {
+        String fingerprint = getFingerprint(media.getFilePath());
+        if (fingerprint == null) {
+            return null;
+        }
+        return new File(mCacheDir, fingerprint + "-" + width + "-" + quality + ".mp4").getPath();
+    }
+
+    /*
+     * returns a hash of the length, the start and the end of the passed file, which identifies its
+     * contents - even when it's been copied to a new path - without reading the whole video
+     */
+    static @Nullable String getFingerprint(@Nullable String path) {
+        if (path == null) {
+            return null;
+        }
+
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(path, "r");
+            long length = file.length();
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            digest.update(Long.toString(length).getBytes("UTF-8"));
+
+            byte[] buffer = new byte[FINGERPRINT_SAMPLE_BYTES];
+            int headLength = (int) Math.min(length, FINGERPRINT_SAMPLE_BYTES);
+            file.readFully(buffer, 0, headLength);
+            digest.update(buffer, 0, headLength);
+            if (length > FINGERPRINT_SAMPLE_BYTES) {
+                int tailLength = (int) Math.min(length - FINGERPRINT_SAMPLE_BYTES, FINGERPRINT_SAMPLE_BYTES);
+                file.seek(length - tailLength);
+                file.readFully(buffer, 0, tailLength);
+                digest.update(buffer, 0, tailLength);
+            }
+            return String.format("%032x", new BigInteger(1, digest.digest()));
+        } catch (IOException | NoSuchAlgorithmException e) {
+            AppLog.e(T.MEDIA, "VideoOptimizationQueue > Can't read " + path, e);
+            return null;
+        } finally {
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException e) {
+                    // nope
+                }
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@ package org.wordpress.android.ui.uploads;
 
 import android.content.Context;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 import org.m4m.MediaComposer;
 import org.wordpress.android.WordPress;
@@ -47,16 +48,29 @@ public class VideoOptimizer implements org.m4m.IProgressListener {
 
     private final String mFilename;
     private final String mInputPath;
+    private final int mWidth;
+    private final int mQuality;
     private String mOutputPath;
     private long mStartTimeMS;
     private float mLastProgress;
 
     public VideoOptimizer(@NonNull MediaModel media, @NonNull VideoOptimizationListener listener) {
+        this(media, listener, null, AppPrefs.getVideoOptimizeWidth(), AppPrefs.getVideoOptimizeQuality());
+    }
+
+    /*
+     * writes the optimized video to the passed path rather than to a new file in the cache dir
+     */
+    VideoOptimizer(@NonNull MediaModel media, @NonNull VideoOptimizationListener listener,
+                   @Nullable String outputPath, int width, int quality) {
         mCacheDir = getContext().getCacheDir();
         mListener = listener;
         mMedia = media;
         mInputPath = mMedia.getFilePath();
         mFilename = MediaUtils.generateTimeStampedFileName("video/mp4");
+        mOutputPath = outputPath;
+        mWidth = width;
+        mQuality = quality;
     }
 
     private Context getContext() {
@@ -82,15 +96,17 @@ public class VideoOptimizer implements org.m4m.IProgressListener {
             return;
         }
 
-        mOutputPath = mCacheDir.getPath() + "/" + mFilename;
+        if (mOutputPath == null) {
+            mOutputPath = mCacheDir.getPath() + "/" + mFilename;
+        }
 
         MediaComposer mediaComposer = WPVideoUtils.getVideoOptimizationComposer(
                 getContext(),
                 mInputPath,
                 mOutputPath,
                 this,
-                AppPrefs.getVideoOptimizeWidth(),
-                AppPrefs.getVideoOptimizeQuality());
+                mWidth,
+                mQuality);
 
         if (mediaComposer == null) {
             AppLog.w(AppLog.T.MEDIA, "VideoOptimizer > null composer");
@@ -179,6 +195,7 @@ public class VideoOptimizer implements org.m4m.IProgressListener {
         if (savings <= 0) {
             AppLog.w(AppLog.T.MEDIA, "VideoOptimizer > no savings, optimized file is " + strSavingsKb + " larger");
             // no savings, so use original unoptimized media
+            deleteOutputFile();
             mListener.onVideoOptimizationCompleted(mMedia);
         } else {
             AppLog.d(AppLog.T.MEDIA, "VideoOptimizer > reduced by " + strSavingsKb);
@@ -206,6 +223,16 @@ public class VideoOptimizer implements org.m4m.IProgressListener {
     public void onError(Exception e) {
         AppLog.e(AppLog.T.MEDIA, "VideoOptimizer > Can't optimize the video", e);
         trackVideoProcessingEvents(true, e);
+        deleteOutputFile();
         mListener.onVideoOptimizationCompleted(mMedia);
     }
+
+    private void deleteOutputFile() {
+        if (mOutputPath != null) {
+            File outputFile = new File(mOutputPath);
+            if (outputFile.exists() && !outputFile.delete()) {
+                AppLog.w(AppLog.T.MEDIA, "VideoOptimizer > failed to delete " + mOutputPath);
+            }
+        }
+    }
 }
@@ -0,0 +1,210 @@
+package org.wordpress.android.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * runs reader background work (parsing and storing server responses, purging the db, loading
+ * lists) on a small fixed pool rather than a new thread per job, since those threads would
+ * otherwise all compete for the single SQLite writer. waiting jobs are run in priority order -
+ * work the user is waiting to see comes first, then prefetching, then purging - and a job which
+ * is submitted with the same key as one that's still waiting replaces it, so repeated updates
+ * of the same tag or blog only store the latest response
+ */
+public class ReaderWorkScheduler {
+    public enum Priority {
+        // work whose result will be shown to the user right away
+        VISIBLE,
+        // updates the user isn't waiting on, such as syncing tags and followed blogs
+        PREFETCH,
+        // housekeeping such as purging old posts
+        PURGE
+    }
+
+    /*
+     * a job whose caller needs to know when it's done even if it's replaced by a newer job with
+     * the same key - onCoalesced() is called instead of run() after the newer job has run
+     */
+    public abstract static class Job implements Runnable {
+        public abstract void onCoalesced();
+    }
+
+    private static final int NUM_THREADS = 2;
+
+    private static final Object LOCK = new Object();
+    private static final HashMap<String, QueuedJob> WAITING_JOBS = new HashMap<>();
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private static final AtomicInteger[] QUEUE_DEPTHS = new AtomicInteger[Priority.values().length];
+    private static final AtomicInteger MAX_QUEUE_DEPTH = new AtomicInteger();
+    private static final AtomicLong NUM_COMPLETED = new AtomicLong();
+    private static final AtomicLong NUM_COALESCED = new AtomicLong();
+
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
+            NUM_THREADS, NUM_THREADS, 30, TimeUnit.SECONDS,
+            new PriorityBlockingQueue<Runnable>(),
+            new ThreadFactory() {
+                private final AtomicInteger mThreadNumber = new AtomicInteger();
+
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    Thread thread = new Thread(runnable, "ReaderWork-" + mThreadNumber.incrementAndGet());
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                }
+            });
+
+    static {
+        for (int i = 0; i < QUEUE_DEPTHS.length; i++) {
+            QUEUE_DEPTHS[i] = new AtomicInteger();
+        }
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    private ReaderWorkScheduler() {
+        throw new AssertionError();
+    }
+
+    public static void execute(@NonNull Priority priority, @NonNull Runnable work) {
+        execute(priority, null, work);
+    }
+
+    /*
+     * queues the passed work - if a job with the same key is still waiting to run it's replaced
+     * by this one, and takes on this one's priority if that's higher
+     */
+    public static void execute(@NonNull Priority priority, @Nullable String key, @NonNull Runnable work) {
+        QueuedJob queuedJob;
+        synchronized (LOCK) {
+            if (key != null) {
+                QueuedJob waitingJob = WAITING_JOBS.get(key);
+                if (waitingJob != null) {
+                    NUM_COALESCED.incrementAndGet();
+                    AppLog.d(AppLog.T.READER, "reader work scheduler > coalesced " + key);
+                    waitingJob.replaceWork(work);
+                    if (priority.ordinal() >= waitingJob.mPriority.ordinal() || !EXECUTOR.remove(waitingJob)) {
+                        return;
+                    }
+                    // re-queue the waiting job so it moves up to the higher priority
+                    QUEUE_DEPTHS[waitingJob.mPriority.ordinal()].decrementAndGet();
+                    queuedJob = new QueuedJob(priority, key, waitingJob);
+                } else {
+                    queuedJob = new QueuedJob(priority, key, work);
+                }
+                WAITING_JOBS.put(key, queuedJob);
+            } else {
+                queuedJob = new QueuedJob(priority, null, work);
+            }
+            MAX_QUEUE_DEPTH.set(Math.max(MAX_QUEUE_DEPTH.get(), getQueueDepth() + 1));
+            QUEUE_DEPTHS[priority.ordinal()].incrementAndGet();
+        }
+
+        EXECUTOR.execute(queuedJob);
+    }
+
+    /*
+     * returns the number of jobs waiting to run in all lanes
+     */
+    public static int getQueueDepth() {
+        int depth = 0;
+        for (AtomicInteger laneDepth : QUEUE_DEPTHS) {
+            depth += laneDepth.get();
+        }
+        return depth;
+    }
+
+    public static int getQueueDepth(@NonNull Priority priority) {
+        return QUEUE_DEPTHS[priority.ordinal()].get();
+    }
+
+    /*
+     * returns the highest number of jobs that have been waiting to run at the same time
+     */
+    public static int getMaxQueueDepth() {
+        return MAX_QUEUE_DEPTH.get();
+    }
+
+    public static long getNumCompleted() {
+        return NUM_COMPLETED.get();
+    }
+
+    /*
+     * returns the number of jobs which were replaced by a newer job with the same key
+     */
+    public static long getNumCoalesced() {
+        return NUM_COALESCED.get();
+    }
+
+    private static class QueuedJob implements Runnable, Comparable<QueuedJob> {
+        private final Priority mPriority;
+        private final String mKey;
+        private final long mSequence;
+        private Runnable mWork;
+        private final List<Runnable> mReplacedWork = new ArrayList<>();
+
+        QueuedJob(@NonNull Priority priority, @Nullable String key, @NonNull Runnable work) {
+            mPriority = priority;
+            mKey = key;
+            mSequence = SEQUENCE.getAndIncrement();
+            mWork = work;
+        }
+
+        /*
+         * used when a waiting job is re-queued at a higher priority - takes over its work
+         */
+        QueuedJob(@NonNull Priority priority, @NonNull String key, @NonNull QueuedJob waitingJob) {
+            this(priority, key, waitingJob.mWork);
+            mReplacedWork.addAll(waitingJob.mReplacedWork);
+        }
+
+        // must be called with LOCK held
+        void replaceWork(@NonNull Runnable work) {
+            mReplacedWork.add(mWork);
+            mWork = work;
+        }
+
+        @Override
+        public void run() {
+            Runnable work;
+            List<Runnable> replacedWork;
+            synchronized (LOCK) {
+                if (mKey != null && WAITING_JOBS.get(mKey) == this) {
+                    WAITING_JOBS.remove(mKey);
+                }
+                QUEUE_DEPTHS[mPriority.ordinal()].decrementAndGet();
+                work = mWork;
+                replacedWork = new ArrayList<>(mReplacedWork);
+            }
+
+            try {
+                work.run();
+            } finally {
+                NUM_COMPLETED.incrementAndGet();
+                for (Runnable replaced : replacedWork) {
+                    if (replaced instanceof Job) {
+                        ((Job) replaced).onCoalesced();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public int compareTo(@NonNull QueuedJob other) {
+            if (mPriority != other.mPriority) {
+                return mPriority.ordinal() < other.mPriority.ordinal() ? -1 : 1;
+            }
+            return mSequence < other.mSequence ? -1 : (mSequence == other.mSequence ? 0 : 1);
+        }
+    }
+}
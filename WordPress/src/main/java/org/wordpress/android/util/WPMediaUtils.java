@@ -24,10 +24,12 @@ import org.wordpress.android.fluxc.model.SiteModel;
 import org.wordpress.android.fluxc.store.MediaStore.MediaError;
 import org.wordpress.android.ui.RequestCodes;
 import org.wordpress.android.ui.prefs.AppPrefs;
+import org.wordpress.android.ui.uploads.ImageOptimizer;
 import org.wordpress.android.util.AppLog.T;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
 public class WPMediaUtils {
     public interface LaunchCameraCallback {
@@ -48,15 +50,14 @@ public class WPMediaUtils {
             return null;
         }
 
-        int resizeDimension =
-                AppPrefs.getImageOptimizeMaxSize() > 1 ? AppPrefs.getImageOptimizeMaxSize() : Integer.MAX_VALUE;
+        int resizeDimension = getImageOptimizeMaxSize();
         int quality = AppPrefs.getImageOptimizeQuality();
         // do not optimize if original-size and 100% quality are set.
         if (resizeDimension == Integer.MAX_VALUE && quality == 100) {
             return null;
         }
 
-        String optimizedPath = ImageUtils.optimizeImage(activity, path, resizeDimension, quality);
+        String optimizedPath = ImageOptimizer.getInstance(activity).optimize(path, resizeDimension, quality);
         if (optimizedPath == null) {
             AppLog.e(AppLog.T.EDITOR, "Optimized picture was null!");
             AnalyticsTracker.track(AnalyticsTracker.Stat.MEDIA_PHOTO_OPTIMIZE_ERROR);
@@ -67,6 +68,28 @@ public class WPMediaUtils {
         return null;
     }
 
+    /*
+     * starts optimizing the passed pictures in parallel, so the getOptimizedMedia() calls which follow
+     * for each of them only wait for their own picture to be ready
+     */
+    public static void prefetchOptimizedImages(Context context, List<String> paths) {
+        if (!AppPrefs.isImageOptimize() || paths.isEmpty()) {
+            return;
+        }
+
+        int resizeDimension = getImageOptimizeMaxSize();
+        int quality = AppPrefs.getImageOptimizeQuality();
+        if (resizeDimension == Integer.MAX_VALUE && quality == 100) {
+            return;
+        }
+
+        ImageOptimizer.getInstance(context).prefetch(paths, resizeDimension, quality);
+    }
+
+    private static int getImageOptimizeMaxSize() {
+        return AppPrefs.getImageOptimizeMaxSize() > 1 ? AppPrefs.getImageOptimizeMaxSize() : Integer.MAX_VALUE;
+    }
+
     public static Uri fixOrientationIssue(Activity activity, String path, boolean isVideo) {
         if (isVideo) {
             return null;
@@ -0,0 +1,56 @@
+package org.wordpress.android.models;
+
+import android.os.Build;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.wordpress.android.TestApplication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(application = TestApplication.class, sdk = Build.VERSION_CODES.JELLY_BEAN)
+public class ReaderPostTest {
+    @Test
+    public void testFeaturedImageFromContentWidth() throws JSONException {
+        ReaderPost post = makePost("<p><img src=\"https://a.com/small.jpg\" width=\"300\" /></p>"
+                                   + "<p><img src=\"https://a.com/large.jpg\" width=\"800\" height=\"600\" /></p>");
+        assertEquals("https://a.com/large.jpg", post.getFeaturedImage());
+        assertEquals(ReaderCardType.PHOTO, post.getCardType());
+    }
+
+    @Test
+    public void testGalleryCardFromContentWidths() throws JSONException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 4; i++) {
+            content.append("<img src=\"https://a.com/").append(i).append(".jpg\" width=\"300\" />");
+        }
+        ReaderPost post = makePost(content.toString());
+        assertFalse(post.hasFeaturedImage());
+        assertEquals(ReaderCardType.GALLERY, post.getCardType());
+    }
+
+    @Test
+    public void testSmallImagesDontMakeGalleryCard() throws JSONException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 4; i++) {
+            content.append("<img src=\"https://a.com/").append(i).append(".jpg\" width=\"100\" />");
+        }
+        ReaderPost post = makePost(content.toString());
+        assertFalse(post.hasFeaturedImage());
+        assertEquals(ReaderCardType.DEFAULT, post.getCardType());
+    }
+
+    private static ReaderPost makePost(String content) throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("ID", 1);
+        json.put("site_ID", 2);
+        json.put("content", content);
+        return ReaderPost.fromJson(json);
+    }
+}
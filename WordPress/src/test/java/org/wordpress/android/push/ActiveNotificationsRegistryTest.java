@@ -0,0 +1,87 @@
+package org.wordpress.android.push;
+
+import android.os.Build;
+import android.os.Bundle;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.wordpress.android.TestApplication;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(application = TestApplication.class, sdk = Build.VERSION_CODES.JELLY_BEAN)
+public class ActiveNotificationsRegistryTest {
+    private static final String NOTE_ID_KEY = "note_id";
+    private static final int FIRST_PUSH_ID = 10000;
+    private static final int AUTH_PUSH_ID = 20000;
+
+    private final ActiveNotificationsRegistry mRegistry = new ActiveNotificationsRegistry(NOTE_ID_KEY, AUTH_PUSH_ID);
+
+    @Test
+    public void testSameNoteReusesPushId() {
+        int pushId = mRegistry.putForNote("1", makeBundle("1"), FIRST_PUSH_ID);
+        Bundle updated = makeBundle("1");
+        assertEquals(pushId, mRegistry.putForNote("1", updated, FIRST_PUSH_ID));
+        assertEquals(1, mRegistry.size());
+        assertSame(updated, mRegistry.getForNoteId("1"));
+    }
+
+    @Test
+    public void testNewPushIdDoesNotReplaceExistingNotification() {
+        mRegistry.putForNote("1", makeBundle("1"), FIRST_PUSH_ID);
+        int secondPushId = mRegistry.putForNote("2", makeBundle("2"), FIRST_PUSH_ID);
+        mRegistry.remove(FIRST_PUSH_ID);
+
+        int thirdPushId = mRegistry.putForNote("3", makeBundle("3"), FIRST_PUSH_ID);
+        assertTrue(thirdPushId != secondPushId);
+        assertEquals(2, mRegistry.size());
+        assertEquals("2", mRegistry.getForNoteId("2").getString(NOTE_ID_KEY));
+    }
+
+    @Test
+    public void testRemoveNoteAndRemoveAllExcept() {
+        int firstPushId = mRegistry.add(makeBundle("1"), FIRST_PUSH_ID);
+        int secondPushId = mRegistry.add(makeBundle("1"), FIRST_PUSH_ID);
+        mRegistry.put(AUTH_PUSH_ID, makeBundle(""));
+        mRegistry.putForNote("2", makeBundle("2"), FIRST_PUSH_ID);
+
+        assertEquals(Arrays.asList(firstPushId, secondPushId), mRegistry.removeNote("1"));
+        assertNull(mRegistry.getForNoteId("1"));
+        assertEquals(1, mRegistry.getSnapshot().getSummaryNotifications().size());
+
+        assertEquals(1, mRegistry.removeAllExcept(AUTH_PUSH_ID).size());
+        assertEquals(1, mRegistry.size());
+        assertTrue(mRegistry.getSnapshot().getSummaryNotifications().isEmpty());
+    }
+
+    @Test
+    public void testOlderSummaryIsNotPosted() {
+        ActiveNotificationsRegistry.Snapshot olderSnapshot = mRegistry.getSnapshot();
+        mRegistry.putForNote("1", makeBundle("1"), FIRST_PUSH_ID);
+        ActiveNotificationsRegistry.Snapshot newerSnapshot = mRegistry.getSnapshot();
+
+        Runnable noop = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+        assertTrue(mRegistry.postSummaryIfLatest(newerSnapshot, noop));
+        assertFalse(mRegistry.postSummaryIfLatest(olderSnapshot, noop));
+        assertTrue(mRegistry.postSummaryIfLatest(newerSnapshot, noop));
+    }
+
+    private static Bundle makeBundle(String noteId) {
+        Bundle bundle = new Bundle();
+        bundle.putString(NOTE_ID_KEY, noteId);
+        return bundle;
+    }
+}
@@ -0,0 +1,135 @@
+package org.wordpress.android.ui.notifications.utils;
+
+import android.os.Build;
+import android.util.Base64;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.wordpress.android.TestApplication;
+import org.wordpress.android.models.Note;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(application = TestApplication.class, sdk = Build.VERSION_CODES.JELLY_BEAN)
+public class NotePayloadDecoderTest {
+    private static final int NUM_PAYLOADS = 40;
+    private static final int NUM_THREADS = 4;
+
+    @Test
+    public void testDecodesPayloadLargerThanFourKilobytes() throws JSONException {
+        JSONObject note = makeNote("1", 200);
+        assertTrue(note.toString().length() > 4096);
+
+        JSONObject decoded = NotePayloadDecoder.decode(encode(note.toString().getBytes(StandardCharsets.UTF_8)));
+        assertNotNull(decoded);
+        assertEquals(note.toString(), decoded.toString());
+    }
+
+    @Test
+    public void testTruncatedPayloadIsNotDecoded() throws JSONException {
+        byte[] compressed = deflate(makeNote("1", 50).toString().getBytes(StandardCharsets.UTF_8));
+        byte[] truncated = new byte[compressed.length / 2];
+        System.arraycopy(compressed, 0, truncated, 0, truncated.length);
+        assertNull(NotePayloadDecoder.decode(Base64.encodeToString(truncated, Base64.DEFAULT)));
+    }
+
+    @Test
+    public void testBuildsNoteFromNotesArray() throws JSONException {
+        JSONObject payload = new JSONObject().put("notes", new JSONArray().put(makeNote("42", 1)));
+        Note note = Note.buildFromBase64EncodedData("42", encode(payload.toString().getBytes(StandardCharsets.UTF_8)));
+        assertNotNull(note);
+        assertEquals("comment", note.getType());
+    }
+
+    /*
+     * decodes payloads of mixed sizes on several threads, as happens when pushes arrive together, so
+     * the pooled inflaters and buffers are shared
+     */
+    @Test
+    public void testDecodesPayloadsConcurrently() throws Exception {
+        final List<String> notes = new ArrayList<>();
+        final List<String> payloads = new ArrayList<>();
+        for (int i = 0; i < NUM_PAYLOADS; i++) {
+            String note = makeNote(String.valueOf(i), 1 + (i % 10) * 20).toString();
+            notes.add(note);
+            payloads.add(encode(note.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < NUM_THREADS; i++) {
+                final int thread = i;
+                results.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        int numDecoded = 0;
+                        for (int j = thread; j < NUM_PAYLOADS; j += NUM_THREADS) {
+                            JSONObject decoded = NotePayloadDecoder.decode(payloads.get(j));
+                            if (decoded != null && notes.get(j).equals(decoded.toString())) {
+                                numDecoded++;
+                            }
+                        }
+                        return numDecoded;
+                    }
+                }));
+            }
+            int numDecoded = 0;
+            for (Future<Integer> result : results) {
+                numDecoded += result.get();
+            }
+            assertEquals(NUM_PAYLOADS, numDecoded);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static JSONObject makeNote(String id, int numBodyBlocks) throws JSONException {
+        JSONArray body = new JSONArray();
+        for (int i = 0; i < numBodyBlocks; i++) {
+            body.put(new JSONObject()
+                    .put("type", "comment")
+                    .put("text", "Comment text " + i + " éè with some more words to make it longer"));
+        }
+        return new JSONObject()
+                .put("id", id)
+                .put("type", "comment")
+                .put("timestamp", "2018-11-01T10:00:00+00:00")
+                .put("subject", new JSONArray().put(new JSONObject().put("text", "Someone commented")))
+                .put("body", body);
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater();
+        deflater.setInput(data);
+        deflater.finish();
+        byte[] buffer = new byte[data.length + 64];
+        int length = deflater.deflate(buffer);
+        deflater.end();
+        byte[] compressed = new byte[length];
+        System.arraycopy(buffer, 0, compressed, 0, length);
+        return compressed;
+    }
+
+    private static String encode(byte[] data) {
+        return Base64.encodeToString(deflate(data), Base64.DEFAULT);
+    }
+}
@@ -0,0 +1,118 @@
+package org.wordpress.android.ui.reader.utils;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+import org.wordpress.android.models.ReaderComment;
+import org.wordpress.android.models.ReaderCommentList;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class ReaderCommentLevelerTest {
+    private static final int COMMENTS_PER_PAGE = 50;
+
+    @Test
+    public void testPlacesRepliesBeneathParents() {
+        ReaderCommentList comments = new ReaderCommentList();
+        comments.add(makeComment(1, 0));
+        comments.add(makeComment(2, 0));
+        comments.add(makeComment(3, 1));
+        comments.add(makeComment(4, 3));
+        comments.add(makeComment(5, 1));
+        comments.add(makeComment(6, 2));
+
+        ReaderCommentList result = new ReaderCommentLeveler(comments).createLevelList();
+        assertLevelList(result, new long[]{1, 3, 4, 5, 2, 6}, new int[]{0, 1, 2, 1, 0, 1});
+    }
+
+    @Test
+    public void testAppendsOrphans() {
+        ReaderCommentList comments = new ReaderCommentList();
+        comments.add(makeComment(1, 0));
+        comments.add(makeComment(2, 99));
+        comments.add(makeComment(3, 2));
+        comments.add(makeComment(4, 0));
+
+        ReaderCommentList result = new ReaderCommentLeveler(comments).createLevelList();
+        assertLevelList(result, new long[]{1, 4, 2, 3}, new int[]{0, 0, 1, 2});
+    }
+
+    @Test
+    public void testAddedPageAdoptsOrphans() {
+        ReaderCommentList firstPage = new ReaderCommentList();
+        firstPage.add(makeComment(1, 0));
+        firstPage.add(makeComment(3, 2));
+        ReaderCommentLeveler leveler = new ReaderCommentLeveler(firstPage);
+        assertLevelList(leveler.createLevelList(), new long[]{1, 3}, new int[]{0, 1});
+
+        ReaderCommentList secondPage = new ReaderCommentList();
+        secondPage.add(makeComment(2, 1));
+        secondPage.add(makeComment(4, 0));
+        assertLevelList(leveler.addComments(secondPage), new long[]{1, 2, 3, 4}, new int[]{0, 1, 2, 0});
+    }
+
+    @Test
+    public void testAddingPagesMatchesFullBuild() {
+        ReaderCommentList comments = makeThreads(2000);
+        ReaderCommentList expected = copyLevels(new ReaderCommentLeveler(comments).createLevelList());
+
+        ReaderCommentLeveler leveler = new ReaderCommentLeveler(new ReaderCommentList());
+        ReaderCommentList result = leveler.createLevelList();
+        for (int start = 0; start < comments.size(); start += COMMENTS_PER_PAGE) {
+            ReaderCommentList page = new ReaderCommentList();
+            page.addAll(comments.subList(start, Math.min(start + COMMENTS_PER_PAGE, comments.size())));
+            result = leveler.addComments(page);
+        }
+
+        assertEquals(expected.size(), result.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).commentId, result.get(i).commentId);
+            assertEquals(expected.get(i).level, result.get(i).level);
+        }
+    }
+
+    private static void assertLevelList(ReaderCommentList result, long[] commentIds, int[] levels) {
+        assertEquals(commentIds.length, result.size());
+        for (int i = 0; i < commentIds.length; i++) {
+            assertEquals(commentIds[i], result.get(i).commentId);
+            assertEquals(levels[i], result.get(i).level);
+        }
+    }
+
+    private static ReaderComment makeComment(long commentId, long parentId) {
+        ReaderComment comment = new ReaderComment();
+        comment.commentId = commentId;
+        comment.parentId = parentId;
+        comment.timestamp = commentId;
+        return comment;
+    }
+
+    /*
+     * creates comments in timestamp order where about a third start a new thread and the rest
+     * reply to an earlier comment, favoring recent ones so threads become several levels deep
+     */
+    private static ReaderCommentList makeThreads(int numComments) {
+        Random random = new Random(numComments);
+        ReaderCommentList comments = new ReaderCommentList();
+        for (int i = 1; i <= numComments; i++) {
+            long parentId = 0;
+            if (i > 1 && random.nextInt(3) != 0) {
+                parentId = Math.max(1, i - 1 - random.nextInt(Math.min(i - 1, 20)));
+            }
+            comments.add(makeComment(i, parentId));
+        }
+        return comments;
+    }
+
+    private static ReaderCommentList copyLevels(@NonNull ReaderCommentList comments) {
+        ReaderCommentList copy = new ReaderCommentList();
+        for (ReaderComment comment : comments) {
+            ReaderComment commentCopy = makeComment(comment.commentId, comment.parentId);
+            commentCopy.level = comment.level;
+            copy.add(commentCopy);
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,94 @@
+package org.wordpress.android.ui.reader.utils;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ReaderHtmlRewriterTest {
+    private static final ReaderHtmlRewriter.TagHandler REPLACE_WITH_SRC = new ReaderHtmlRewriter.TagHandler() {
+        @Override
+        public boolean onTag(@NonNull ReaderHtmlTag tag, @NonNull StringBuilder output) {
+            output.append("[").append(tag.getAttribute("src")).append("]");
+            return true;
+        }
+    };
+
+    @Test
+    public void testUnhandledContentIsUnchanged() {
+        String html = "<p class=\"intro\">Hello <b>world</b> &amp; a < b</p><!-- <img src=\"x\"> -->";
+        assertEquals(html, new ReaderHtmlRewriter().rewrite(html));
+    }
+
+    @Test
+    public void testReplacesHandledTags() {
+        ReaderHtmlRewriter rewriter = new ReaderHtmlRewriter().addTagHandler("img", REPLACE_WITH_SRC);
+
+        String html = "<p>a<IMG alt='x > y' src=\"one.jpg\">b<img src=\"two.jpg\" /></p>";
+        assertEquals("<p>a[one.jpg]b[two.jpg]</p>", rewriter.rewrite(html));
+    }
+
+    @Test
+    public void testFixesProtocolRelativeSrc() {
+        ReaderHtmlRewriter rewriter = new ReaderHtmlRewriter().addTagHandler("iframe", REPLACE_WITH_SRC);
+
+        String html = "<video src=\"//a.com/v.mp4\"></video><iframe src=\"//b.com/e\"></iframe>";
+        assertEquals("<video src=\"http://a.com/v.mp4\"></video>[http://b.com/e]</iframe>", rewriter.rewrite(html));
+    }
+
+    @Test
+    public void testTagAttributes() {
+        ReaderHtmlTag tag = ReaderHtmlTag.parse(
+                "<img class='size-full aligncenter' data-orig-size=\"1024,768\" width=\"640\" HEIGHT=480 hidden>");
+        assertEquals("size-full aligncenter", tag.getAttribute("class"));
+        assertEquals(1024, ReaderHtmlUtils.getOriginalWidthAttrValue(tag));
+        assertEquals(768, ReaderHtmlUtils.getOriginalHeightAttrValue(tag));
+        assertEquals(640, ReaderHtmlUtils.getWidthAttrValue(tag));
+        assertEquals(480, ReaderHtmlUtils.getHeightAttrValue(tag));
+        assertEquals("", tag.getAttribute("hidden"));
+        assertEquals('\'', tag.getAttributeQuote("class"));
+        assertFalse(tag.hasAttribute("src"));
+    }
+
+    @Test
+    public void testDetectsEmbeds() {
+        Set<String> jsToInject = new LinkedHashSet<>();
+        ReaderHtmlRewriter rewriter = new ReaderHtmlRewriter();
+        ReaderEmbedScanner.addEmbedHandlers(rewriter, jsToInject);
+
+        String html = "<blockquote class=\"instagram-media\">x</blockquote><fb:post href=\"y\"></fb:post>";
+        assertEquals(html, rewriter.rewrite(html));
+        assertEquals(2, jsToInject.size());
+    }
+
+    @Test
+    public void testUnclosedQuoteCopiesRestAsIs() {
+        ReaderHtmlRewriter rewriter = new ReaderHtmlRewriter().addTagHandler("img", REPLACE_WITH_SRC);
+
+        // the tags after the unclosed quote aren't rewritten, and nothing after it is dropped
+        String malformed = "<img alt='unclosed><img src=\"//b.com/2.jpg\"> end";
+        String html = "<p src=\"//a.com/x\"><img src=\"1.jpg\">" + malformed;
+        assertEquals("<p src=\"http://a.com/x\">[1.jpg]" + malformed, rewriter.rewrite(html));
+    }
+
+    @Test
+    public void testUnclosedCommentCopiesRestAsIs() {
+        ReaderHtmlRewriter rewriter = new ReaderHtmlRewriter().addTagHandler("img", REPLACE_WITH_SRC);
+
+        String malformed = "<!-- <img src=\"2.jpg\"> <video src=\"//b.com/v.mp4\">";
+        String html = "<img src=\"1.jpg\">" + malformed;
+        assertEquals("[1.jpg]" + malformed, rewriter.rewrite(html));
+    }
+
+    @Test
+    public void testUnclosedTagAtEndIsCopied() {
+        ReaderHtmlRewriter rewriter = new ReaderHtmlRewriter().addTagHandler("img", REPLACE_WITH_SRC);
+        assertEquals("[1.jpg]<img src=\"2.jpg\"", rewriter.rewrite("<img src=\"1.jpg\"><img src=\"2.jpg\""));
+        assertEquals("text <", rewriter.rewrite("text <"));
+    }
+}
@@ -0,0 +1,67 @@
+package org.wordpress.android.ui.reader.utils;
+
+import android.os.Build;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.wordpress.android.TestApplication;
+import org.wordpress.android.ui.reader.models.ReaderImageList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * image sizes come from the width attribute of each image tag, which is read from the tokenized tag
+ * - before that it was matched with a regex which required spaces inside the quotes, so unless the
+ * url had a "w" query param the width was almost never found
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = TestApplication.class, sdk = Build.VERSION_CODES.JELLY_BEAN)
+public class ReaderImageScannerTest {
+    @Test
+    public void testImageListUsesWidthAttribute() {
+        String content = "<img src=\"https://a.com/1.jpg\" width=\"300\" />"
+                         + "<img src=\"https://a.com/2.jpg\" width='100' />"
+                         + "<img src=\"https://a.com/3.jpg?w=200\" />"
+                         + "<img class=\"size-full\" src=\"https://a.com/4.jpg\" WIDTH=400>";
+        ReaderImageList images = new ReaderImageScanner(content, false).getImageList(0, 144);
+        assertEquals(3, images.size());
+        assertTrue(images.hasImageUrl("https://a.com/1.jpg"));
+        assertFalse(images.hasImageUrl("https://a.com/2.jpg"));
+        assertTrue(images.hasImageUrl("https://a.com/3.jpg"));
+        assertTrue(images.hasImageUrl("https://a.com/4.jpg"));
+    }
+
+    @Test
+    public void testUsableImageCount() {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 4; i++) {
+            content.append("<p><img src=\"https://a.com/").append(i).append(".jpg\" width=\"300\" /></p>");
+        }
+        ReaderImageScanner scanner = new ReaderImageScanner(content.toString(), false);
+        assertTrue(scanner.hasUsableImageCount(4, 144));
+        assertFalse(scanner.hasUsableImageCount(4, 301));
+    }
+
+    @Test
+    public void testLargestImageUsesWidthAttribute() {
+        String content = "<img src=\"https://a.com/small.jpg\" width=\"700\" />"
+                         + "<img src=\"https://a.com/large.jpg\" width=\"900\" />"
+                         + "<img src=\"https://a.com/medium.jpg?w=800\" />";
+        assertEquals("https://a.com/large.jpg", new ReaderImageScanner(content, false).getLargestImage(640));
+    }
+
+    @Test
+    public void testLargestImageFallsBackToSizeClass() {
+        String content = "<img src=\"https://a.com/1.jpg\" width=\"300\" />"
+                         + "<img class=\"aligncenter size-large\" src=\"https://a.com/2.jpg\" />";
+        assertEquals("https://a.com/2.jpg", new ReaderImageScanner(content, false).getLargestImage(640));
+
+        String noSuitableImage = "<img class=\"size-thumbnail\" src=\"https://a.com/1.jpg\" width=\"150\" />";
+        assertNull(new ReaderImageScanner(noSuitableImage, false).getLargestImage(640));
+    }
+}
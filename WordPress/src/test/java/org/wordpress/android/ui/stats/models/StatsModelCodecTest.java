@@ -0,0 +1,162 @@
+package org.wordpress.android.ui.stats.models;
+
+import android.os.Build;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.wordpress.android.TestApplication;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(application = TestApplication.class, sdk = Build.VERSION_CODES.JELLY_BEAN)
+public class StatsModelCodecTest {
+    private static final long BLOG_ID = 123456;
+    private static final String DATE = "2018-11-01";
+
+    @Test
+    public void testReferrersRoundTrip() throws JSONException {
+        ReferrersModel model = new ReferrersModel(BLOG_ID, makeReferrersResponse(50));
+        ReferrersModel decoded = (ReferrersModel) StatsModelCodec.decode(StatsModelCodec.encode(model));
+
+        assertNotNull(decoded);
+        assertEquals(model.getTotalViews(), decoded.getTotalViews());
+        assertEquals(model.getGroups().size(), decoded.getGroups().size());
+        for (int i = 0; i < model.getGroups().size(); i++) {
+            ReferrerGroupModel group = model.getGroups().get(i);
+            ReferrerGroupModel decodedGroup = decoded.getGroups().get(i);
+            assertEquals(group.getName(), decodedGroup.getName());
+            assertEquals(group.getTotal(), decodedGroup.getTotal());
+            assertEquals(group.getUrl(), decodedGroup.getUrl());
+            assertEquals(group.getDate(), decodedGroup.getDate());
+            assertEquals(group.getResults().size(), decodedGroup.getResults().size());
+            for (int j = 0; j < group.getResults().size(); j++) {
+                assertEquals(group.getResults().get(j).getName(), decodedGroup.getResults().get(j).getName());
+                assertEquals(group.getResults().get(j).getViews(), decodedGroup.getResults().get(j).getViews());
+            }
+        }
+    }
+
+    @Test
+    public void testVisitsRoundTrip() throws JSONException {
+        VisitsModel model = new VisitsModel(BLOG_ID, makeVisitsResponse(30));
+        VisitsModel decoded = (VisitsModel) StatsModelCodec.decode(StatsModelCodec.encode(model));
+
+        assertNotNull(decoded);
+        assertEquals(model.getUnit(), decoded.getUnit());
+        assertEquals(model.getVisits().size(), decoded.getVisits().size());
+        for (int i = 0; i < model.getVisits().size(); i++) {
+            VisitModel visit = model.getVisits().get(i);
+            VisitModel decodedVisit = decoded.getVisits().get(i);
+            assertEquals(visit.getPeriod(), decodedVisit.getPeriod());
+            assertEquals(visit.getViews(), decodedVisit.getViews());
+            assertEquals(visit.getVisitors(), decodedVisit.getVisitors());
+            assertEquals(visit.getLikes(), decodedVisit.getLikes());
+            assertEquals(visit.getComments(), decodedVisit.getComments());
+        }
+    }
+
+    @Test
+    public void testOtherSchemaVersionIsNotDecoded() throws JSONException {
+        byte[] data = StatsModelCodec.encode(new VisitsModel(BLOG_ID, makeVisitsResponse(1)));
+        assertNotNull(data);
+        data[0]++;
+        assertNull(StatsModelCodec.decode(data));
+    }
+
+    @Test
+    public void testClicksRoundTrip() throws JSONException {
+        ClicksModel model = new ClicksModel(BLOG_ID, makeClicksResponse(20));
+        ClicksModel decoded = (ClicksModel) StatsModelCodec.decode(StatsModelCodec.encode(model));
+
+        assertNotNull(decoded);
+        assertEquals(model.getTotalClicks(), decoded.getTotalClicks());
+        assertEquals(model.getOtherClicks(), decoded.getOtherClicks());
+        assertEquals(model.getClickGroups().size(), decoded.getClickGroups().size());
+        for (int i = 0; i < model.getClickGroups().size(); i++) {
+            ClickGroupModel group = model.getClickGroups().get(i);
+            ClickGroupModel decodedGroup = decoded.getClickGroups().get(i);
+            assertEquals(group.getName(), decodedGroup.getName());
+            assertEquals(group.getViews(), decodedGroup.getViews());
+            assertEquals(group.getIcon(), decodedGroup.getIcon());
+            assertEquals(group.getClicks().size(), decodedGroup.getClicks().size());
+            for (int j = 0; j < group.getClicks().size(); j++) {
+                assertEquals(group.getClicks().get(j).getTitle(), decodedGroup.getClicks().get(j).getTitle());
+                assertEquals(group.getClicks().get(j).getTotals(), decodedGroup.getClicks().get(j).getTotals());
+            }
+        }
+    }
+
+    private static JSONObject makeDayResponse(String period, JSONObject day) throws JSONException {
+        JSONObject response = new JSONObject();
+        response.put("date", DATE);
+        response.put("period", period);
+        response.put("days", new JSONObject().put(DATE, day));
+        return response;
+    }
+
+    private static JSONObject makeReferrersResponse(int numGroups) throws JSONException {
+        JSONArray groups = new JSONArray();
+        for (int i = 0; i < numGroups; i++) {
+            JSONArray results = new JSONArray();
+            for (int j = 0; j < 3; j++) {
+                results.put(new JSONObject()
+                        .put("name", "result " + i + "-" + j)
+                        .put("views", j + 1)
+                        .put("url", "https://example.com/" + i + "/" + j));
+            }
+            groups.put(new JSONObject()
+                    .put("group", "group-" + i)
+                    .put("name", "Group " + i)
+                    .put("total", i)
+                    .put("icon", "https://example.com/icon-" + i + ".png")
+                    .put("results", results));
+        }
+        JSONObject day = new JSONObject().put("other_views", 10).put("total_views", numGroups).put("groups", groups);
+        return makeDayResponse("day", day);
+    }
+
+    private static JSONObject makeClicksResponse(int numGroups) throws JSONException {
+        JSONArray groups = new JSONArray();
+        for (int i = 0; i < numGroups; i++) {
+            JSONArray children = new JSONArray();
+            for (int j = 0; j < 3; j++) {
+                children.put(new JSONObject()
+                        .put("name", "click " + i + "-" + j)
+                        .put("views", j + 1)
+                        .put("url", "https://example.com/" + i + "/" + j));
+            }
+            groups.put(new JSONObject()
+                    .put("name", "example" + i + ".com")
+                    .put("views", i)
+                    .put("icon", "https://example.com/icon-" + i + ".png")
+                    .put("children", children));
+        }
+        JSONObject day = new JSONObject().put("other_clicks", 10).put("total_clicks", numGroups).put("clicks", groups);
+        return makeDayResponse("day", day);
+    }
+
+    private static JSONObject makeVisitsResponse(int numPoints) throws JSONException {
+        JSONArray data = new JSONArray();
+        for (int i = 0; i < numPoints; i++) {
+            data.put(new JSONArray().put(String.format(Locale.US, "2018-10-%02d", i + 1)).put(i * 10).put(i * 5)
+                                    .put(i).put(i * 2));
+        }
+        JSONObject response = new JSONObject();
+        response.put("date", DATE);
+        response.put("unit", "day");
+        response.put("fields", new JSONArray().put("period").put("views").put("visitors").put("likes")
+                                              .put("comments"));
+        response.put("data", data);
+        return response;
+    }
+}
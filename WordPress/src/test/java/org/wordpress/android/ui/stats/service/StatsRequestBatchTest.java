@@ -0,0 +1,170 @@
+package org.wordpress.android.ui.stats.service;
+
+import android.os.Build;
+
+import com.android.volley.Request;
+import com.android.volley.VolleyError;
+import com.wordpress.rest.RestRequest;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.wordpress.android.TestApplication;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(application = TestApplication.class, sdk = Build.VERSION_CODES.JELLY_BEAN)
+public class StatsRequestBatchTest {
+    private static class SentRequest {
+        private final String mPath;
+        private final Map<String, String> mParams;
+        private final RestRequest.Listener mListener;
+        private final RestRequest.ErrorListener mErrorListener;
+
+        SentRequest(String path, Map<String, String> params, RestRequest.Listener listener,
+                    RestRequest.ErrorListener errorListener) {
+            mPath = path;
+            mParams = params;
+            mListener = listener;
+            mErrorListener = errorListener;
+        }
+    }
+
+    private static class FakeSender implements StatsRequestBatch.Sender {
+        private final List<SentRequest> mSentRequests = new ArrayList<>();
+
+        @Override
+        public Request<JSONObject> get(String path, Map<String, String> params, RestRequest.Listener listener,
+                                       RestRequest.ErrorListener errorListener) {
+            mSentRequests.add(new SentRequest(path, params, listener, errorListener));
+            return null;
+        }
+    }
+
+    private static class FakeSectionListener implements StatsRequestBatch.SectionListener {
+        private JSONObject mResponse;
+        private VolleyError mError;
+
+        @Override
+        public void setRequest(Request<JSONObject> request) {
+        }
+
+        @Override
+        public void onResponse(JSONObject response) {
+            mResponse = response;
+        }
+
+        @Override
+        public void onErrorResponse(VolleyError error) {
+            mError = error;
+        }
+    }
+
+    @Test
+    public void testSectionsAreSentInSingleRequest() {
+        int numSections = 12;
+        FakeSender sender = new FakeSender();
+        StatsRequestBatch batch = new StatsRequestBatch(numSections, sender);
+        for (int i = 0; i < numSections; i++) {
+            batch.addRequest(getPath(i), new FakeSectionListener());
+            if (i < numSections - 1) {
+                batch.onSectionDispatched();
+                assertEquals(0, sender.mSentRequests.size());
+            }
+        }
+        batch.onSectionDispatched();
+
+        assertEquals(1, sender.mSentRequests.size());
+        SentRequest request = sender.mSentRequests.get(0);
+        assertEquals(StatsRequestBatch.BATCH_PATH, request.mPath);
+        assertEquals(numSections, request.mParams.size());
+        for (int i = 0; i < numSections; i++) {
+            assertEquals(getPath(i), request.mParams.get(String.format(Locale.US, "urls[%d]", i)));
+        }
+    }
+
+    @Test
+    public void testCachedSectionsAreNotRequested() {
+        FakeSender sender = new FakeSender();
+        StatsRequestBatch batch = new StatsRequestBatch(3, sender);
+        batch.onSectionDispatched();
+        batch.addRequest(getPath(1), new FakeSectionListener());
+        batch.onSectionDispatched();
+        batch.onSectionDispatched();
+
+        // a single request doesn't need to go through the batch endpoint
+        assertEquals(1, sender.mSentRequests.size());
+        assertEquals(getPath(1), sender.mSentRequests.get(0).mPath);
+        assertNull(sender.mSentRequests.get(0).mParams);
+    }
+
+    @Test
+    public void testLargeBatchesAreSplit() {
+        int numSections = StatsRequestBatch.MAX_URLS_PER_BATCH + 1;
+        FakeSender sender = new FakeSender();
+        StatsRequestBatch batch = new StatsRequestBatch(numSections, sender);
+        for (int i = 0; i < numSections; i++) {
+            batch.addRequest(getPath(i), new FakeSectionListener());
+            batch.onSectionDispatched();
+        }
+
+        assertEquals(2, sender.mSentRequests.size());
+    }
+
+    @Test
+    public void testBatchResponseIsSplitBySection() throws JSONException {
+        FakeSender sender = new FakeSender();
+        StatsRequestBatch batch = new StatsRequestBatch(3, sender);
+        FakeSectionListener[] listeners = new FakeSectionListener[3];
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i] = new FakeSectionListener();
+            batch.addRequest(getPath(i), listeners[i]);
+            batch.onSectionDispatched();
+        }
+
+        JSONObject response = new JSONObject();
+        response.put(getPath(0), new JSONObject().put("views", 10));
+        response.put(getPath(1), new JSONObject().put("error", "unauthorized"));
+        sender.mSentRequests.get(0).mListener.onResponse(response);
+
+        assertEquals(10, listeners[0].mResponse.getInt("views"));
+        assertNull(listeners[0].mError);
+        assertNull(listeners[1].mResponse);
+        assertNotNull(listeners[1].mError);
+        assertNull(listeners[2].mResponse);
+        assertNotNull(listeners[2].mError);
+    }
+
+    @Test
+    public void testBatchErrorIsPassedToEverySection() {
+        FakeSender sender = new FakeSender();
+        StatsRequestBatch batch = new StatsRequestBatch(2, sender);
+        FakeSectionListener first = new FakeSectionListener();
+        FakeSectionListener second = new FakeSectionListener();
+        batch.addRequest(getPath(0), first);
+        batch.onSectionDispatched();
+        batch.addRequest(getPath(1), second);
+        batch.onSectionDispatched();
+
+        VolleyError error = new VolleyError("failed");
+        sender.mSentRequests.get(0).mErrorListener.onErrorResponse(error);
+
+        assertEquals(error, first.mError);
+        assertEquals(error, second.mError);
+    }
+
+    private static String getPath(int section) {
+        return String.format(Locale.US, "/sites/123/stats/section-%d?period=day&date=2018-11-01&max=12", section);
+    }
+}
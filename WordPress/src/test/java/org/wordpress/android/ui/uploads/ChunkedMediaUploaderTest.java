@@ -0,0 +1,162 @@
+package org.wordpress.android.ui.uploads;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Build;
+import android.support.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.wordpress.android.TestApplication;
+import org.wordpress.android.fluxc.model.MediaModel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(application = TestApplication.class, sdk = Build.VERSION_CODES.JELLY_BEAN)
+public class ChunkedMediaUploaderTest {
+    private static final int CHUNK_SIZE = 1024;
+    private static final int FILE_LENGTH = 10 * CHUNK_SIZE + 100;
+
+    @Rule public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private MediaUploadJournal mJournal;
+    private FakeEndpoint mEndpoint;
+    private byte[] mFileData;
+    private MediaModel mMedia;
+
+    @Before
+    public void setUp() throws IOException {
+        SQLiteDatabase db = SQLiteDatabase.create(null);
+        MediaUploadJournal.createTables(db);
+        mJournal = new MediaUploadJournal(db);
+        mEndpoint = new FakeEndpoint();
+
+        mFileData = new byte[FILE_LENGTH];
+        new Random(1).nextBytes(mFileData);
+        File file = mTemporaryFolder.newFile("video.mp4");
+        FileOutputStream output = new FileOutputStream(file);
+        output.write(mFileData);
+        output.close();
+
+        mMedia = new MediaModel();
+        mMedia.setId(1);
+        mMedia.setFilePath(file.getPath());
+    }
+
+    @Test
+    public void testUploadsWholeFile() throws IOException {
+        String url = new ChunkedMediaUploader(mEndpoint, mJournal, CHUNK_SIZE).upload(mMedia, null);
+
+        assertEquals("https://example.com/1", url);
+        assertArrayEquals(mFileData, mEndpoint.mFinishedFiles.get(url));
+        assertEquals(FILE_LENGTH, mEndpoint.mBytesReceived);
+        assertNull(mJournal.getSession(mMedia.getId()));
+    }
+
+    @Test
+    public void testResumesAfterFailedChunk() throws IOException {
+        mEndpoint.mFailAfterChunks = 7;
+        try {
+            new ChunkedMediaUploader(mEndpoint, mJournal, CHUNK_SIZE).upload(mMedia, null);
+            fail("the upload should have failed");
+        } catch (IOException e) {
+            // expected
+        }
+        assertEquals(7 * CHUNK_SIZE, mJournal.getAcknowledgedLength(mMedia.getId()));
+
+        // a new uploader with the same journal, as after the process being restarted
+        mEndpoint.mFailAfterChunks = -1;
+        mEndpoint.mBytesReceived = 0;
+        String url = new ChunkedMediaUploader(mEndpoint, mJournal, CHUNK_SIZE).upload(mMedia, null);
+
+        assertArrayEquals(mFileData, mEndpoint.mFinishedFiles.get(url));
+        assertEquals(FILE_LENGTH - 7 * CHUNK_SIZE, mEndpoint.mBytesReceived);
+        assertEquals(1, mEndpoint.mNumSessionsStarted);
+    }
+
+    @Test
+    public void testRestartsWhenSessionExpired() throws IOException {
+        mEndpoint.mFailAfterChunks = 3;
+        try {
+            new ChunkedMediaUploader(mEndpoint, mJournal, CHUNK_SIZE).upload(mMedia, null);
+            fail("the upload should have failed");
+        } catch (IOException e) {
+            // expected
+        }
+
+        mEndpoint.mFailAfterChunks = -1;
+        mEndpoint.mSessions.clear();
+        mEndpoint.mBytesReceived = 0;
+        String url = new ChunkedMediaUploader(mEndpoint, mJournal, CHUNK_SIZE).upload(mMedia, null);
+
+        assertArrayEquals(mFileData, mEndpoint.mFinishedFiles.get(url));
+        assertEquals(FILE_LENGTH, mEndpoint.mBytesReceived);
+        assertEquals(2, mEndpoint.mNumSessionsStarted);
+    }
+
+    /*
+     * local stand-in for a media endpoint which accepts chunks
+     */
+    private static class FakeEndpoint implements ChunkedUploadEndpoint {
+        private final Map<String, ByteArrayOutputStream> mSessions = new HashMap<>();
+        private final Map<String, byte[]> mFinishedFiles = new HashMap<>();
+        private int mNumSessionsStarted;
+        private int mFailAfterChunks = -1;
+        private int mNumChunks;
+        private long mBytesReceived;
+
+        @NonNull
+        @Override
+        public String startSession(@NonNull MediaModel media, long fileLength) {
+            mNumSessionsStarted++;
+            String sessionId = media.getId() + "-" + mNumSessionsStarted;
+            mSessions.put(sessionId, new ByteArrayOutputStream());
+            return sessionId;
+        }
+
+        @Override
+        public long getUploadedLength(@NonNull String sessionId) {
+            ByteArrayOutputStream data = mSessions.get(sessionId);
+            return data != null ? data.size() : -1;
+        }
+
+        @Override
+        public long uploadChunk(@NonNull String sessionId, long offset, @NonNull byte[] data, int length)
+                throws IOException {
+            if (mFailAfterChunks >= 0 && mNumChunks++ >= mFailAfterChunks) {
+                throw new IOException("connection lost");
+            }
+            ByteArrayOutputStream received = mSessions.get(sessionId);
+            if (received == null || offset != received.size()) {
+                throw new IOException("unexpected chunk");
+            }
+            received.write(data, 0, length);
+            mBytesReceived += length;
+            return received.size();
+        }
+
+        @NonNull
+        @Override
+        public String finishSession(@NonNull String sessionId) {
+            String url = "https://example.com/" + sessionId.substring(0, sessionId.indexOf('-'));
+            mFinishedFiles.put(url, mSessions.remove(sessionId).toByteArray());
+            return url;
+        }
+    }
+}
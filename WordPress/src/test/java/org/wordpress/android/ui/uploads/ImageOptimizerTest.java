@@ -0,0 +1,143 @@
+package org.wordpress.android.ui.uploads;
+
+import android.os.Build;
+import android.support.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.wordpress.android.TestApplication;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(application = TestApplication.class, sdk = Build.VERSION_CODES.JELLY_BEAN)
+public class ImageOptimizerTest {
+    private static final int MAX_SIZE = 2000;
+    private static final int QUALITY = 85;
+
+    @Rule public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private File mCacheDir;
+    private FakeEncoder mEncoder;
+
+    @Before
+    public void setUp() throws IOException {
+        mCacheDir = mTemporaryFolder.newFolder("cache");
+        mEncoder = new FakeEncoder();
+    }
+
+    @Test
+    public void testReusesOptimizedFile() throws IOException {
+        ImageOptimizer optimizer = new ImageOptimizer(mCacheDir, 1, Long.MAX_VALUE, mEncoder);
+        String path = newPicture("a.jpg").getPath();
+
+        String optimizedPath = optimizer.optimize(path, MAX_SIZE, QUALITY);
+        assertNotEquals(path, optimizedPath);
+        assertTrue(optimizedPath.endsWith(".jpg"));
+        assertTrue(new File(optimizedPath).isFile());
+
+        assertEquals(optimizedPath, optimizer.optimize(path, MAX_SIZE, QUALITY));
+        // a new optimizer finds the earlier result too, as after the process being restarted
+        assertEquals(optimizedPath, new ImageOptimizer(mCacheDir, 1, Long.MAX_VALUE, mEncoder)
+                .optimize(path, MAX_SIZE, QUALITY));
+        assertEquals(1, mEncoder.mNumEncoded.get());
+    }
+
+    @Test
+    public void testOptimizesAgainWhenSettingsOrFileChange() throws IOException {
+        ImageOptimizer optimizer = new ImageOptimizer(mCacheDir, 1, Long.MAX_VALUE, mEncoder);
+        File picture = newPicture("a.jpg");
+
+        String optimizedPath = optimizer.optimize(picture.getPath(), MAX_SIZE, QUALITY);
+        assertNotEquals(optimizedPath, optimizer.optimize(picture.getPath(), MAX_SIZE, QUALITY - 10));
+        assertNotEquals(optimizedPath, optimizer.optimize(picture.getPath(), MAX_SIZE / 2, QUALITY));
+
+        assertTrue(picture.setLastModified(picture.lastModified() - 60000));
+        assertNotEquals(optimizedPath, optimizer.optimize(picture.getPath(), MAX_SIZE, QUALITY));
+        assertEquals(4, mEncoder.mNumEncoded.get());
+    }
+
+    @Test
+    public void testReturnsOriginalWhenPictureCantBeOptimized() throws IOException {
+        ImageOptimizer optimizer = new ImageOptimizer(mCacheDir, 1, Long.MAX_VALUE, mEncoder);
+        String path = newPicture("a.gif").getPath();
+        mEncoder.mShouldFail = true;
+
+        assertEquals(path, optimizer.optimize(path, MAX_SIZE, QUALITY));
+        assertEquals(0, mCacheDir.list().length);
+    }
+
+    @Test
+    public void testPrefetchOptimizesInParallel() throws IOException {
+        // each encode waits for the other one to start, so they only both succeed when run in parallel
+        final CountDownLatch bothStarted = new CountDownLatch(2);
+        mEncoder.mStartedLatch = bothStarted;
+        ImageOptimizer optimizer = new ImageOptimizer(mCacheDir, 2, Long.MAX_VALUE, mEncoder);
+        String path1 = newPicture("a.jpg").getPath();
+        String path2 = newPicture("b.png").getPath();
+
+        optimizer.prefetch(Arrays.asList(path1, path2), MAX_SIZE, QUALITY);
+
+        assertTrue(optimizer.optimize(path1, MAX_SIZE, QUALITY).endsWith(".jpg"));
+        assertTrue(optimizer.optimize(path2, MAX_SIZE, QUALITY).endsWith(".png"));
+        assertEquals(2, mEncoder.mNumEncoded.get());
+    }
+
+    private File newPicture(String fileName) throws IOException {
+        File file = mTemporaryFolder.newFile(fileName);
+        FileOutputStream output = new FileOutputStream(file);
+        output.write(fileName.getBytes("UTF-8"));
+        output.close();
+        return file;
+    }
+
+    /*
+     * stand-in for the bitmap encoder, which writes a marker to the optimized file
+     */
+    private static class FakeEncoder implements ImageOptimizer.Encoder {
+        private final AtomicInteger mNumEncoded = new AtomicInteger();
+        private volatile boolean mShouldFail;
+        private volatile CountDownLatch mStartedLatch;
+
+        @Override
+        public boolean encode(@NonNull String srcPath, @NonNull File outputFile, int maxSize, int quality) {
+            if (mStartedLatch != null) {
+                mStartedLatch.countDown();
+                try {
+                    if (!mStartedLatch.await(5, TimeUnit.SECONDS)) {
+                        return false;
+                    }
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            }
+            if (mShouldFail) {
+                return false;
+            }
+            try {
+                FileOutputStream output = new FileOutputStream(outputFile);
+                output.write((srcPath + ":" + maxSize + ":" + quality).getBytes("UTF-8"));
+                output.close();
+            } catch (IOException e) {
+                return false;
+            }
+            mNumEncoded.incrementAndGet();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package org.wordpress.android.ui.uploads;
+
+import android.os.Build;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.wordpress.android.TestApplication;
+import org.wordpress.android.fluxc.model.MediaModel;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(application = TestApplication.class, sdk = Build.VERSION_CODES.JELLY_BEAN)
+public class MediaUploadQueueTest {
+    private final MediaUploadQueue mQueue = new MediaUploadQueue();
+
+    @Test
+    public void testSameFileIsOnlyQueuedOnce() {
+        assertTrue(mQueue.add(makeMedia(1, 1, 1, "/a.jpg")));
+        assertFalse(mQueue.add(makeMedia(2, 1, 1, "/a.jpg")));
+        assertTrue(mQueue.add(makeMedia(3, 2, 1, "/a.jpg")));
+        assertTrue(mQueue.isPendingOrInProgress(3));
+        assertFalse(mQueue.isPendingOrInProgress(2));
+    }
+
+    @Test
+    public void testUploadsStartWithinLimits() {
+        for (int i = 1; i <= 4; i++) {
+            mQueue.add(makeMedia(i, 1, 10, "/site1-" + i + ".jpg"));
+        }
+        mQueue.add(makeMedia(5, 2, 20, "/site2.jpg"));
+
+        // site 1 is limited to 2 uploads, so the upload for site 2 starts before its remaining ones
+        List<MediaModel> started = mQueue.takeNextUploads(3, 2);
+        assertEquals(3, started.size());
+        assertEquals(1, started.get(0).getId());
+        assertEquals(2, started.get(1).getId());
+        assertEquals(5, started.get(2).getId());
+        assertTrue(mQueue.takeNextUploads(3, 2).isEmpty());
+        assertTrue(mQueue.hasInProgressUploadsForPost(20));
+        assertTrue(mQueue.hasPendingUploadsForPost(10));
+
+        mQueue.complete(5);
+        assertFalse(mQueue.hasInProgressUploadsForPost(20));
+        assertTrue(mQueue.takeNextUploads(3, 2).isEmpty());
+
+        mQueue.complete(1);
+        started = mQueue.takeNextUploads(3, 2);
+        assertEquals(1, started.size());
+        assertEquals(3, started.get(0).getId());
+        assertEquals(3, mQueue.getUploadsForPost(10).size());
+    }
+
+    @Test
+    public void testCompletedFileCanBeQueuedAgain() {
+        mQueue.add(makeMedia(1, 1, 1, "/a.jpg"));
+        mQueue.takeNextUploads(1, 1);
+        mQueue.complete(1);
+
+        assertTrue(mQueue.isEmpty());
+        assertTrue(mQueue.add(makeMedia(2, 1, 1, "/a.jpg")));
+    }
+
+    @Test
+    public void testWaitingMediaStartsOnceReady() {
+        mQueue.add(makeMedia(1, 1, 1, "/video.mp4"));
+        mQueue.add(makeMedia(2, 1, 1, "/a.jpg"));
+        mQueue.markWaiting(1);
+
+        // the video is skipped while it's being optimized, but keeps counting as pending for its post
+        List<MediaModel> started = mQueue.takeNextUploads(2, 2);
+        assertEquals(1, started.size());
+        assertEquals(2, started.get(0).getId());
+        assertTrue(mQueue.hasPendingUploadsForPost(1));
+
+        assertTrue(mQueue.markReady(1));
+        started = mQueue.takeNextUploads(2, 2);
+        assertEquals(1, started.size());
+        assertEquals(1, started.get(0).getId());
+    }
+
+    @Test
+    public void testCanceledPendingMediaIsRemoved() {
+        MediaModel video = makeMedia(1, 1, 1, "/video.mp4");
+        mQueue.add(video);
+        mQueue.markWaiting(1);
+        // the path changes once the video is optimized
+        video.setFilePath("/optimized.mp4");
+
+        assertEquals(video, mQueue.complete(1));
+        assertFalse(mQueue.markReady(1));
+        assertFalse(mQueue.hasPendingUploadsForPost(1));
+        assertTrue(mQueue.isEmpty());
+        assertTrue(mQueue.add(makeMedia(2, 1, 1, "/video.mp4")));
+    }
+
+    @Test
+    public void testRemovePendingUploadsKeepsUploadsInProgress() {
+        mQueue.add(makeMedia(1, 1, 1, "/a.jpg"));
+        mQueue.takeNextUploads(1, 1);
+        mQueue.add(makeMedia(2, 1, 1, "/video.mp4"));
+        mQueue.add(makeMedia(3, 1, 1, "/b.jpg"));
+        mQueue.markWaiting(2);
+
+        List<MediaModel> removed = mQueue.removePendingUploads();
+        assertEquals(2, removed.size());
+        assertFalse(mQueue.isPendingOrInProgress(2));
+        assertFalse(mQueue.markReady(2));
+        assertFalse(mQueue.hasPendingUploadsForPost(1));
+        assertTrue(mQueue.isPendingOrInProgress(1));
+        assertTrue(mQueue.add(makeMedia(4, 1, 1, "/video.mp4")));
+    }
+
+    private static MediaModel makeMedia(int id, int siteId, int postId, String filePath) {
+        MediaModel media = new MediaModel();
+        media.setId(id);
+        media.setLocalSiteId(siteId);
+        media.setLocalPostId(postId);
+        media.setFilePath(filePath);
+        return media;
+    }
+}
@@ -0,0 +1,146 @@
+package org.wordpress.android.ui.uploads;
+
+import android.os.Build;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.wordpress.android.TestApplication;
+import org.wordpress.android.fluxc.model.PostModel;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(application = TestApplication.class, sdk = Build.VERSION_CODES.JELLY_BEAN)
+public class PostUploadQueueTest {
+    private final PostUploadQueue mQueue = new PostUploadQueue();
+
+    @Test
+    public void testSitesArePublishedConcurrently() {
+        mQueue.add(makePost(1, 10));
+        mQueue.add(makePost(2, 10));
+        mQueue.add(makePost(3, 20));
+        mQueue.add(makePost(4, 30));
+
+        // site 10 only publishes one post at a time, so the posts for the other sites start alongside it
+        List<PostModel> started = mQueue.takeNextPosts(3);
+        assertEquals(3, started.size());
+        assertEquals(1, started.get(0).getId());
+        assertEquals(3, started.get(1).getId());
+        assertEquals(4, started.get(2).getId());
+        assertTrue(mQueue.isPending(2));
+        assertTrue(mQueue.takeNextPosts(3).isEmpty());
+
+        assertEquals(1, mQueue.complete(1).getId());
+        started = mQueue.takeNextPosts(3);
+        assertEquals(1, started.size());
+        assertEquals(2, started.get(0).getId());
+    }
+
+    @Test
+    public void testNewerVersionReplacesPendingPost() {
+        mQueue.add(makePost(1, 10));
+        mQueue.add(makePost(2, 20));
+        PostModel newer = makePost(1, 10);
+        mQueue.add(newer);
+
+        List<PostModel> started = mQueue.takeNextPosts(3);
+        assertEquals(2, started.size());
+        assertSame(newer, started.get(0));
+        assertEquals(2, started.get(1).getId());
+    }
+
+    @Test
+    public void testPostQueuedWhileUploadingIsPublishedAgain() {
+        mQueue.add(makePost(1, 10));
+        mQueue.takeNextPosts(3);
+        mQueue.add(makePost(1, 10));
+        assertTrue(mQueue.isUploading(1));
+        assertTrue(mQueue.isPending(1));
+        assertTrue(mQueue.takeNextPosts(3).isEmpty());
+
+        mQueue.complete(1);
+        assertEquals(1, mQueue.takeNextPosts(3).size());
+        mQueue.complete(1);
+        assertTrue(mQueue.isEmpty());
+    }
+
+    @Test
+    public void testRequeuedPostsAreStartedFirst() {
+        mQueue.add(makePost(1, 10));
+        mQueue.takeNextPosts(3);
+        mQueue.add(makePost(2, 20));
+
+        mQueue.requeueUploadingPosts();
+        assertFalse(mQueue.isUploading(1));
+        List<PostModel> started = mQueue.takeNextPosts(1);
+        assertEquals(1, started.size());
+        assertEquals(1, started.get(0).getId());
+    }
+
+    @Test
+    public void testPushedPostsAreNotRequeued() {
+        mQueue.add(makePost(1, 10));
+        mQueue.add(makePost(2, 20));
+        mQueue.takeNextPosts(3);
+        mQueue.markPushed(1);
+
+        // the push of post 1 completes it, so only post 2 is started again
+        mQueue.requeueUploadingPosts();
+        assertTrue(mQueue.isUploading(1));
+        assertFalse(mQueue.isPending(1));
+        List<PostModel> started = mQueue.takeNextPosts(3);
+        assertEquals(1, started.size());
+        assertEquals(2, started.get(0).getId());
+
+        mQueue.complete(1);
+        assertFalse(mQueue.isPushed(1));
+    }
+
+    @Test
+    public void testCompletedPushedPostsFreeTheirSites() {
+        mQueue.add(makePost(1, 10));
+        mQueue.add(makePost(2, 10));
+        mQueue.add(makePost(3, 20));
+        mQueue.takeNextPosts(3);
+        mQueue.markPushed(1);
+
+        List<Integer> pushed = mQueue.getPushedPostIds();
+        assertEquals(1, pushed.size());
+        assertEquals(1, (int) pushed.get(0));
+
+        for (int postId : pushed) {
+            mQueue.complete(postId);
+        }
+        assertTrue(mQueue.getPushedPostIds().isEmpty());
+        List<PostModel> started = mQueue.takeNextPosts(3);
+        assertEquals(1, started.size());
+        assertEquals(2, started.get(0).getId());
+    }
+
+    @Test
+    public void testCanceledPostIsRemoved() {
+        mQueue.add(makePost(1, 10));
+        mQueue.add(makePost(2, 10));
+        mQueue.takeNextPosts(3);
+
+        assertTrue(mQueue.removePending(2));
+        assertFalse(mQueue.removePending(2));
+        mQueue.complete(1);
+        assertTrue(mQueue.takeNextPosts(3).isEmpty());
+        assertTrue(mQueue.isEmpty());
+    }
+
+    private PostModel makePost(int id, int localSiteId) {
+        PostModel post = new PostModel();
+        post.setId(id);
+        post.setLocalSiteId(localSiteId);
+        return post;
+    }
+}
@@ -0,0 +1,215 @@
+package org.wordpress.android.ui.uploads;
+
+import android.os.Build;
+import android.support.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.wordpress.android.TestApplication;
+import org.wordpress.android.fluxc.model.MediaModel;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(application = TestApplication.class, sdk = Build.VERSION_CODES.JELLY_BEAN)
+public class VideoOptimizationQueueTest {
+    private static final int WIDTH = 1280;
+    private static final int QUALITY = 3000;
+
+    @Rule public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private final List<MediaModel> mTranscoding = new ArrayList<>();
+    private final List<MediaModel> mCompleted = new ArrayList<>();
+    private final List<String> mOutputPaths = new ArrayList<>();
+    private VideoOptimizationQueue mQueue;
+    private VideoOptimizer.VideoOptimizationListener mListener;
+    private File mCacheDir;
+
+    @Before
+    public void setUp() throws IOException {
+        VideoOptimizationQueue.Transcoder transcoder = new VideoOptimizationQueue.Transcoder() {
+            @Override
+            public void start(@NonNull MediaModel media, @NonNull String outputPath, int width, int quality,
+                              @NonNull VideoOptimizer.VideoOptimizationListener listener) {
+                mTranscoding.add(media);
+                mOutputPaths.add(outputPath);
+            }
+        };
+        mListener = new VideoOptimizer.VideoOptimizationListener() {
+            @Override
+            public void onVideoOptimizationCompleted(@NonNull MediaModel media) {
+                mCompleted.add(media);
+            }
+
+            @Override
+            public void onVideoOptimizationProgress(@NonNull MediaModel media, float progress) {
+            }
+        };
+        mCacheDir = mTemporaryFolder.newFolder("cache");
+        mQueue = new VideoOptimizationQueue(RuntimeEnvironment.application, mCacheDir, transcoder, mListener) {
+            @Override
+            int getMaxTranscoders() {
+                return 1;
+            }
+        };
+    }
+
+    @Test
+    public void testTranscodesOneVideoAtATime() throws IOException {
+        mQueue.add(makeVideo(1, "a.mp4"), WIDTH, QUALITY);
+        mQueue.add(makeVideo(2, "b.mp4"), WIDTH, QUALITY);
+        assertEquals(1, mTranscoding.size());
+        assertEquals(1, mTranscoding.get(0).getId());
+
+        finishTranscoding(0);
+        assertEquals(1, mCompleted.size());
+        assertEquals(2, mTranscoding.size());
+        assertEquals(2, mTranscoding.get(1).getId());
+    }
+
+    @Test
+    public void testRetryUsesCachedVideo() throws IOException {
+        MediaModel video = makeVideo(1, "a.mp4");
+        String sourcePath = video.getFilePath();
+        mQueue.add(video, WIDTH, QUALITY);
+        finishTranscoding(0);
+
+        String optimizedPath = mCompleted.get(0).getFilePath();
+        assertNotEquals(mOutputPaths.get(0), optimizedPath);
+        assertTrue(new File(optimizedPath).isFile());
+
+        // the retry is a new media for the same file, which completes without being transcoded again
+        MediaModel retry = new MediaModel();
+        retry.setId(2);
+        retry.setFilePath(sourcePath);
+        mQueue.add(retry, WIDTH, QUALITY);
+        assertEquals(1, mTranscoding.size());
+        assertEquals(2, mCompleted.size());
+        assertEquals(optimizedPath, retry.getFilePath());
+
+        // other settings need the video to be transcoded again
+        MediaModel otherSettings = new MediaModel();
+        otherSettings.setId(3);
+        otherSettings.setFilePath(sourcePath);
+        mQueue.add(otherSettings, WIDTH / 2, QUALITY);
+        assertEquals(2, mTranscoding.size());
+    }
+
+    @Test
+    public void testCanceledVideoIsNotTranscoded() throws IOException {
+        mQueue.add(makeVideo(1, "a.mp4"), WIDTH, QUALITY);
+        mQueue.add(makeVideo(2, "b.mp4"), WIDTH, QUALITY);
+
+        assertTrue(mQueue.cancel(2));
+        finishTranscoding(0);
+        assertEquals(1, mTranscoding.size());
+        assertFalse(mQueue.cancel(2));
+    }
+
+    @Test
+    public void testVideosWithSameSourceAreTranscodedOnce() throws IOException {
+        MediaModel video = makeVideo(1, "a.mp4");
+        MediaModel sameSource = new MediaModel();
+        sameSource.setId(2);
+        sameSource.setFilePath(video.getFilePath());
+        mQueue.add(video, WIDTH, QUALITY);
+        mQueue.add(sameSource, WIDTH, QUALITY);
+        assertEquals(1, mTranscoding.size());
+
+        finishTranscoding(0);
+        assertEquals(2, mCompleted.size());
+        assertEquals(1, mTranscoding.size());
+        assertEquals(video.getFilePath(), sameSource.getFilePath());
+        assertTrue(new File(sameSource.getFilePath()).isFile());
+    }
+
+    @Test
+    public void testCanceledVideoDoesNotCancelSameSource() throws IOException {
+        mQueue.add(makeVideo(1, "a.mp4"), WIDTH, QUALITY);
+        MediaModel video = makeVideo(2, "b.mp4");
+        MediaModel sameSource = new MediaModel();
+        sameSource.setId(3);
+        sameSource.setFilePath(video.getFilePath());
+        mQueue.add(video, WIDTH, QUALITY);
+        mQueue.add(sameSource, WIDTH, QUALITY);
+
+        assertTrue(mQueue.cancel(2));
+        finishTranscoding(0);
+        assertEquals(2, mTranscoding.size());
+        assertEquals(3, mTranscoding.get(1).getId());
+    }
+
+    @Test
+    public void testWaitingVideoUsesVideoCachedSinceItWasAdded() throws IOException {
+        MediaModel video = makeVideo(1, "a.mp4");
+        String sourcePath = video.getFilePath();
+        mQueue.add(makeVideo(2, "b.mp4"), WIDTH, QUALITY);
+        mQueue.add(video, WIDTH, QUALITY);
+
+        // another queue, such as the one of an earlier upload handler, optimizes the same video meanwhile
+        final List<String> otherOutputPaths = new ArrayList<>();
+        VideoOptimizationQueue otherQueue = new VideoOptimizationQueue(
+                RuntimeEnvironment.application, mCacheDir, new VideoOptimizationQueue.Transcoder() {
+                    @Override
+                    public void start(@NonNull MediaModel media, @NonNull String outputPath, int width,
+                                      int quality, @NonNull VideoOptimizer.VideoOptimizationListener listener) {
+                        otherOutputPaths.add(outputPath);
+                    }
+                }, mListener);
+        MediaModel otherVideo = new MediaModel();
+        otherVideo.setId(3);
+        otherVideo.setFilePath(sourcePath);
+        otherQueue.add(otherVideo, WIDTH, QUALITY);
+        writeOutput(otherOutputPaths.get(0));
+        otherVideo.setFilePath(otherOutputPaths.get(0));
+        otherQueue.onVideoOptimizationCompleted(otherVideo);
+
+        finishTranscoding(0);
+        assertEquals(1, mTranscoding.size());
+        assertEquals(otherVideo.getFilePath(), video.getFilePath());
+        assertTrue(mCompleted.contains(video));
+    }
+
+    private MediaModel makeVideo(int id, String fileName) throws IOException {
+        File file = mTemporaryFolder.newFile(fileName);
+        FileOutputStream output = new FileOutputStream(file);
+        output.write(new byte[100 * 1024 + id]);
+        output.close();
+
+        MediaModel media = new MediaModel();
+        media.setId(id);
+        media.setFilePath(file.getPath());
+        return media;
+    }
+
+    /*
+     * writes the output of the passed transcode and completes it, as VideoOptimizer does
+     */
+    private void finishTranscoding(int index) throws IOException {
+        MediaModel media = mTranscoding.get(index);
+        writeOutput(mOutputPaths.get(index));
+        media.setFilePath(mOutputPaths.get(index));
+        mQueue.onVideoOptimizationCompleted(media);
+    }
+
+    private static void writeOutput(String outputPath) throws IOException {
+        FileOutputStream output = new FileOutputStream(outputPath);
+        output.write(new byte[1024]);
+        output.close();
+    }
+}
@@ -437,7 +437,16 @@ public class ImageUtils {
         BitmapFactory.Options optActual = new BitmapFactory.Options();
         optActual.inSampleSize = scale;
 
-        // Get the roughly resized bitmap
+        // have the decoder scale the sampled picture to the exact size, so the picture is only held at that size
+        // rather than also as a larger copy to scale from
+        int sampledMaxSize = Math.max(optBounds.outWidth, optBounds.outHeight) / scale;
+        if (maxSize > 0 && sampledMaxSize > maxSize) {
+            optActual.inScaled = true;
+            optActual.inDensity = sampledMaxSize;
+            optActual.inTargetDensity = maxSize;
+        }
+
+        // Get the resized bitmap
         final Bitmap bmpResized;
         try {
             bmpResized = BitmapFactory.decodeFile(realFilePath, optActual);
@@ -451,17 +460,6 @@ public class ImageUtils {
             throw new IOException("Can't decode the resized picture.");
         }
 
-        // Resize the bitmap to exact size: calculate exact scale in order to resize accurately
-        float scaleBy = getScaleImageBy(maxSize, bmpResized);
-
-        Matrix matrix = new Matrix();
-        matrix.postScale(scaleBy, scaleBy);
-
-        // apply orientation
-        if (orientation != 0) {
-            matrix.setRotate(orientation);
-        }
-
         Bitmap.CompressFormat fmt;
         if (fileExtension != null
             && (fileExtension.equals("png") || fileExtension.equals(".png"))) {
@@ -470,12 +468,25 @@ public class ImageUtils {
             fmt = Bitmap.CompressFormat.JPEG;
         }
 
+        if (orientation == 0) {
+            try {
+                return bmpResized.compress(fmt, quality, outStream);
+            } finally {
+                bmpResized.recycle();
+            }
+        }
+
+        // apply orientation
+        Matrix matrix = new Matrix();
+        matrix.setRotate(orientation);
+
         final Bitmap bmpRotated;
         try {
             bmpRotated =
                     Bitmap.createBitmap(bmpResized, 0, 0, bmpResized.getWidth(), bmpResized.getHeight(), matrix, true);
         } catch (OutOfMemoryError e) {
             AppLog.e(AppLog.T.UTILS, "OutOfMemoryError while creating the resized bitmap", e);
+            bmpResized.recycle();
             throw e;
         } catch (NullPointerException e) {
             // See: https://github.com/wordpress-mobile/WordPress-Android/issues/1844
@@ -488,12 +499,22 @@ public class ImageUtils {
             // return null.
             AppLog.e(AppLog.T.UTILS,
                      "bmpRotated is null even if the documentation doesn't say Bitmap.createBitmap can return null.");
+            bmpResized.recycle();
             // See: https://github.com/wordpress-mobile/WordPress-Android/issues/1848
             throw new IOException(
                     "bmpRotated is null even if the documentation doesn't say Bitmap.createBitmap can return null.");
         }
 
-        return bmpRotated.compress(fmt, quality, outStream);
+        // the rotated copy is all that's needed from here on
+        if (bmpRotated != bmpResized) {
+            bmpResized.recycle();
+        }
+
+        try {
+            return bmpRotated.compress(fmt, quality, outStream);
+        } finally {
+            bmpRotated.recycle();
+        }
     }
 
     /**
@@ -514,15 +535,70 @@ public class ImageUtils {
             return path;
         }
 
+        String mimeType = MediaUtils.getMediaFileMimeType(file);
+        String fileName = MediaUtils.getMediaFileName(file, mimeType);
+        String fileExtension = MimeTypeMap.getFileExtensionFromUrl(fileName).toLowerCase(Locale.ROOT);
+
+        File resizedImageFile;
+        try {
+            // try to re-use the same name as prefix of the temp file
+            String prefix = FileUtils.getFileNameFromPath(fileName);
+
+            if (TextUtils.isEmpty(prefix) || prefix.length() < 3) {
+                // prefix must be at least 3 characters
+                prefix = "wp-image";
+            }
+
+            resizedImageFile = File.createTempFile(prefix, "." + fileExtension);
+        } catch (IOException e) {
+            AppLog.e(AppLog.T.MEDIA, "Failed to create the temp file on storage. Use the original picture instead.");
+            return path;
+        } catch (SecurityException e) {
+            AppLog.e(AppLog.T.MEDIA,
+                     "Can't write the tmp file due to security restrictions. Use the original picture instead.");
+            return path;
+        }
+
+        if (!optimizeImage(context, path, resizedImageFile, maxImageSize, quality)) {
+            if (!resizedImageFile.delete()) {
+                AppLog.w(AppLog.T.MEDIA, "Failed to delete the unused temp file " + resizedImageFile.getPath());
+            }
+            return path;
+        }
+
+        return resizedImageFile.getPath();
+    }
+
+    /**
+     * Given the path to an image, compress and resize it into the passed file. The image is decoded at
+     * its optimized size rather than at full resolution, which keeps the memory used for large pictures low.
+     * @param context the passed context
+     * @param path the path to the original image
+     * @param outputFile the file to write the optimized image to
+     * @param maxImageSize the maximum allowed width
+     * @param quality the encoder quality
+     * @return true if the optimized image was written, false if the original picture should be used instead
+     */
+    public static boolean optimizeImage(Context context, String path, File outputFile, int maxImageSize,
+                                        int quality) {
+        if (context == null || TextUtils.isEmpty(path) || outputFile == null) {
+            return false;
+        }
+
+        File file = new File(path);
+        if (!file.exists()) {
+            return false;
+        }
+
         String mimeType = MediaUtils.getMediaFileMimeType(file);
         if (mimeType.equals("image/gif")) {
             // Don't rescale gifs to maintain their quality
-            return path;
+            return false;
         }
 
         Uri srcImageUri = Uri.parse(path);
         if (srcImageUri == null) {
-            return path;
+            return false;
         }
 
         String fileName = MediaUtils.getMediaFileName(file, mimeType);
@@ -532,12 +608,12 @@ public class ImageUtils {
         int selectedMaxSize = Math.max(imageDimensions[0], imageDimensions[1]);
         if (selectedMaxSize == 0) {
             // Can't read the src dimensions.
-            return path;
+            return false;
         }
 
         // do not optimize if original-size and 100% quality are set.
         if (maxImageSize == Integer.MAX_VALUE && quality == 100) {
-            return path;
+            return false;
         }
 
         if (selectedMaxSize > maxImageSize) {
@@ -546,27 +622,17 @@ public class ImageUtils {
 
         int orientation = getImageOrientation(context, path);
 
-        File resizedImageFile;
         FileOutputStream out;
-
         try {
-            // try to re-use the same name as prefix of the temp file
-            String prefix = FileUtils.getFileNameFromPath(fileName);
-
-            if (TextUtils.isEmpty(prefix) || prefix.length() < 3) {
-                // prefix must be at least 3 characters
-                prefix = "wp-image";
-            }
-
-            resizedImageFile = File.createTempFile(prefix, "." + fileExtension);
-            out = new FileOutputStream(resizedImageFile);
+            out = new FileOutputStream(outputFile);
         } catch (IOException e) {
-            AppLog.e(AppLog.T.MEDIA, "Failed to create the temp file on storage. Use the original picture instead.");
-            return path;
+            AppLog.e(AppLog.T.MEDIA,
+                     "Failed to create the optimized file on storage. Use the original picture instead.");
+            return false;
         } catch (SecurityException e) {
             AppLog.e(AppLog.T.MEDIA,
-                     "Can't write the tmp file due to security restrictions. Use the original picture instead.");
-            return path;
+                     "Can't write the optimized file due to security restrictions. Use the original picture instead.");
+            return false;
         }
 
         try {
@@ -574,14 +640,14 @@ public class ImageUtils {
                                                       quality, out);
             if (!res) {
                 AppLog.w(AppLog.T.MEDIA, "Failed to compress the optimized image. Use the original picture instead.");
-                return path;
+                return false;
             }
         } catch (IOException e) {
             AppLog.e(AppLog.T.MEDIA, "Failed to create optimized image. Use the original picture instead.");
-            return path;
+            return false;
         } catch (OutOfMemoryError e) {
             AppLog.e(AppLog.T.MEDIA, "Can't optimize the picture due to low memory. Use the original picture instead.");
-            return path;
+            return false;
         } finally {
             // close the stream
             try {
@@ -592,14 +658,7 @@ public class ImageUtils {
             }
         }
 
-        String tempFilePath = resizedImageFile.getPath();
-        if (!TextUtils.isEmpty(tempFilePath)) {
-            return tempFilePath;
-        } else {
-            AppLog.e(AppLog.T.MEDIA, "Failed to create optimized image. Use the full picture instead.");
-        }
-
-        return path;
+        return true;
     }
 
     /**
@@ -863,19 +922,6 @@ public class ImageUtils {
         return scale;
     }
 
-    private static float getScaleImageBy(float maxSize, Bitmap bmpResized) {
-        int divideBy = Math.max(bmpResized.getHeight(), bmpResized.getWidth());
-        float percentage = maxSize / divideBy;
-
-        float proportionateHeight = bmpResized.getHeight() * percentage;
-        int finalHeight = (int) Math.rint(proportionateHeight);
-
-        float scaleWidth = maxSize / bmpResized.getWidth();
-        float scaleHeight = ((float) finalHeight) / bmpResized.getHeight();
-
-        return Math.min(scaleWidth, scaleHeight);
-    }
-
     public static Rect getScaledBounds(int width, int height, int maxWidth) {
         float xScale = Math.max(1.0f, (float) width / maxWidth);
         return new Rect(0, 0, Math.round(width / xScale), Math.round(height / xScale));